@@ -0,0 +1,97 @@
+package benchmark;
+
+import bank.Transaction;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Schreiben und Lesen einer großen Kontodatei auf dieselbe Weise wie {@link bank.BankFileHandler}
+ * (gepufferter {@link JsonWriter} bzw. {@link JsonReader}), einmal mit dem streamenden
+ * {@link bank.TransactionAdapter} ("stream") und einmal mit dem bisherigen {@link TreeTransactionAdapter} ("tree").
+ * Der Unterschied im Speicherbedarf wird mit "-prof gc" sichtbar (gc.alloc.rate.norm).
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class AccountCodecBenchmark {
+
+    /** Anzahl der Transaktionen in der Kontodatei */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** Verwendeter Adapter: "stream" oder "tree" */
+    @Param({"stream", "tree"})
+    public String adapter;
+
+    private Gson gson;
+    private Path directory;
+    private Path readFile;
+    private Path writeFile;
+    private List<Transaction> transactions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        gson = TransactionAdapterBenchmark.createGson(adapter, true);
+        transactions = BenchmarkData.transactions(size);
+        directory = BenchmarkData.createDirectory("accountcodecbenchmark");
+        readFile = directory.resolve("read.json");
+        writeFile = directory.resolve("write.json");
+        write(readFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Path writeAccount() throws Exception {
+        write(writeFile);
+        return writeFile;
+    }
+
+    @Benchmark
+    public List<Transaction> readAccount() throws Exception {
+        List<Transaction> result = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(readFile, StandardCharsets.UTF_8)) {
+            JsonReader json = gson.newJsonReader(reader);
+            json.beginArray();
+            while (json.hasNext())
+                result.add(gson.fromJson(json, Transaction.class));
+            json.endArray();
+        }
+        return result;
+    }
+
+    /**
+     * Schreibt alle Transaktionen als JSON-Array in die angegebene Datei.
+     * @param path Zieldatei
+     * @throws Exception wenn die Datei nicht geschrieben werden kann
+     */
+    private void write(Path path) throws Exception {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            JsonWriter json = gson.newJsonWriter(writer);
+            json.beginArray();
+            for (Transaction transaction : transactions)
+                gson.toJson(transaction, Transaction.class, json);
+            json.endArray();
+            json.flush();
+        }
+    }
+}
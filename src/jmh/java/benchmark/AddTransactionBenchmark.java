@@ -0,0 +1,66 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst {@link PrivateBank#addTransaction} auf einem Konto, das bereits viele Transaktionen enthält.
+ * Die Kosten einer Buchung sollen nicht von der Größe des Kontos abhängen. Gemessen wird nur im Speicher
+ * ({@link MemoryAccountStorage}) und mit einem Journal ({@link JournalAccountStorage}, ohne fsync).
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class AddTransactionBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der Transaktionen im Konto vor der Messung */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** Persistenz der Bank: "memory" oder "journal" */
+    @Param({"memory", "journal"})
+    public String storage;
+
+    private Path directory;
+    private PrivateBank bank;
+    private Random random;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        AccountStorage accountStorage;
+        if (storage.equals("journal")) {
+            directory = BenchmarkData.createDirectory("addtransactionbenchmark");
+            accountStorage = new JournalAccountStorage(directory.toString(), TransactionJournal.SyncPolicy.NEVER, 1);
+        } else {
+            accountStorage = new MemoryAccountStorage();
+        }
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, accountStorage);
+        bank.createAccount(ACCOUNT, BenchmarkData.transactions(size));
+        random = new Random(BenchmarkData.SEED);
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        bank.close();
+        BenchmarkData.deleteDirectory(directory);
+        directory = null;
+    }
+
+    @Benchmark
+    public void addTransaction() throws Exception {
+        bank.addTransaction(ACCOUNT, BenchmarkData.transaction(random, "New-" + next++));
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import bank.AccountFileFormat;
+import bank.BankFileHandler;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Schreiben und Lesen einer Kontodatei mit dem {@link BankFileHandler}
+ * im JSON- und im Binärformat ({@link AccountFileFormat}).
+ * Mit "-prof gc" wird zusätzlich der Speicherbedarf pro Aufruf ausgegeben.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BankFileHandlerBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der Transaktionen in der Kontodatei */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** Format der Kontodatei */
+    @Param({"JSON", "BINARY"})
+    public AccountFileFormat format;
+
+    private Path writeDirectory;
+    private Path readDirectory;
+    private List<Transaction> transactions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        transactions = BenchmarkData.transactions(size);
+        writeDirectory = BenchmarkData.createDirectory("filehandlerbenchmark-write");
+        readDirectory = BenchmarkData.createDirectory("filehandlerbenchmark-read");
+        if (!BankFileHandler.writeAccount(readDirectory.toString(), ACCOUNT, transactions, format))
+            throw new IllegalStateException("Could not prepare account file");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(writeDirectory);
+        BenchmarkData.deleteDirectory(readDirectory);
+    }
+
+    @Benchmark
+    public boolean writeAccount() {
+        return BankFileHandler.writeAccount(writeDirectory.toString(), ACCOUNT, transactions, format);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> readAccounts() {
+        return BankFileHandler.readAccounts(readDirectory.toString(), 1, format);
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import bank.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Erzeugt reproduzierbare synthetische Testdaten für die Benchmarks.
+ * Die Transaktionen sind eine Mischung aus Ein- und Auszahlungen sowie ein- und ausgehenden
+ * Überweisungen mit eindeutigen Beschreibungen, verteilt über mehrere Jahre.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public final class BenchmarkData {
+
+    /** Startwert des Zufallsgenerators, damit alle Läufe dieselben Daten verwenden */
+    public static final long SEED = 20230101L;
+
+    private BenchmarkData() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Erzeugt die angegebene Anzahl an Transaktionen.
+     * @param count Anzahl der Transaktionen
+     * @return Liste von Transaktionen mit eindeutigen Beschreibungen
+     */
+    public static List<Transaction> transactions(int count) {
+        Random random = new Random(SEED);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            transactions.add(transaction(random, "Tx-" + i));
+        return transactions;
+    }
+
+    /**
+     * Erzeugt eine zufällige Transaktion mit der angegebenen Beschreibung.
+     * @param random Zufallsgenerator
+     * @param description Beschreibung der Transaktion
+     * @return neue Transaktion
+     */
+    public static Transaction transaction(Random random, String description) {
+        String date = String.format("%02d.%02d.%04d", 1 + random.nextInt(28), 1 + random.nextInt(12), 2015 + random.nextInt(8));
+        // Betraege mit zwei Nachkommastellen
+        double amount = Math.round(random.nextDouble() * 200_000) / 100.0 + 0.01;
+        return switch (random.nextInt(4)) {
+            case 0 -> new Payment(date, amount, description, 0.05, 0.1);
+            case 1 -> new Payment(date, -amount, description, 0.05, 0.1);
+            case 2 -> new IncomingTransfer(date, amount, description, "Sender" + random.nextInt(100), "Konto");
+            default -> new OutgoingTransfer(date, amount, description, "Konto", "Empfaenger" + random.nextInt(100));
+        };
+    }
+
+    /**
+     * Erstellt ein temporäres Verzeichnis für einen Benchmark.
+     * @param prefix Präfix des Verzeichnisnamens
+     * @return Pfad des Verzeichnisses
+     * @throws IOException wenn das Verzeichnis nicht angelegt werden kann
+     */
+    public static Path createDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix);
+    }
+
+    /**
+     * Löscht ein Verzeichnis mit allen enthaltenen Dateien.
+     * @param directory zu löschendes Verzeichnis
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory))
+            return;
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
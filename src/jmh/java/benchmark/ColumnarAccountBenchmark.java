@@ -0,0 +1,63 @@
+package benchmark;
+
+import bank.ColumnarAccount;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht den spaltenweisen {@link ColumnarAccount} ("columnar") mit einer Liste von
+ * {@link Transaction} Objekten ("objects") bei Kontostand und Filter nach Vorzeichen.
+ * Den Speicherbedarf zeigt "-prof gc" beim Aufbau bzw. ein Heap-Histogramm nach dem Setup.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ColumnarAccountBenchmark {
+
+    /** Anzahl der Transaktionen im Konto */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<Transaction> objects;
+    private ColumnarAccount columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objects = new ArrayList<>(BenchmarkData.transactions(size));
+        columnar = new ColumnarAccount(objects);
+    }
+
+    @Benchmark
+    public double balanceObjects() {
+        double sum = 0;
+        for (Transaction transaction : objects)
+            sum += transaction.calculate();
+        return sum;
+    }
+
+    @Benchmark
+    public double balanceColumnar() {
+        return columnar.getBalance();
+    }
+
+    @Benchmark
+    public int positiveObjects() {
+        List<Transaction> result = new ArrayList<>(objects);
+        result.removeIf(transaction -> transaction.calculate() < 0);
+        return result.size();
+    }
+
+    @Benchmark
+    public int positiveColumnar() {
+        return columnar.getTransactionsByType(true).size();
+    }
+}
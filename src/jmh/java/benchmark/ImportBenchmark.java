@@ -0,0 +1,61 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Import vieler Transaktionen in ein bestehendes Konto mit einer Datei pro Konto
+ * ({@link FileAccountStorage}): einmal mit {@link PrivateBank#importTransactions} ("bulk", ein Schreibzugriff)
+ * und einmal mit {@link PrivateBank#addTransaction} in einer Schleife ("loop", ein Schreibzugriff pro Transaktion).
+ * Jeder Aufruf importiert in ein frisch angelegtes Konto.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der importierten Transaktionen */
+    @Param({"1000", "5000"})
+    public int size;
+
+    /** Art des Imports: "bulk" oder "loop" */
+    @Param({"bulk", "loop"})
+    public String mode;
+
+    private Path directory;
+    private PrivateBank bank;
+    private List<Transaction> transactions;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("importbenchmark");
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, new FileAccountStorage(directory.toString()));
+        bank.createAccount(ACCOUNT);
+        transactions = BenchmarkData.transactions(size);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int importTransactions() throws Exception {
+        if (mode.equals("bulk"))
+            return bank.importTransactions(ACCOUNT, transactions).getImported().size();
+        for (Transaction transaction : transactions)
+            bank.addTransaction(ACCOUNT, transaction);
+        return transactions.size();
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst {@link PrivateBank#addTransaction} auf einem großen Konto, dessen Indizes nach Betrag und Datum bereits
+ * aufgebaut sind ({@link PrivateBank#getTransactionsSorted(String, boolean, int, int)},
+ * {@link PrivateBank#getTransactionsBetween(String, LocalDate, LocalDate)}), im Vergleich zu einem Konto ohne
+ * Indizes. Jede Buchung sortiert sich dann in beide Indizes ein; die Kosten sollen nur logarithmisch mit der
+ * Größe des Kontos wachsen. Gemessen wird nur im Speicher ({@link MemoryAccountStorage}).
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class IndexedAddTransactionBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der Transaktionen im Konto vor der Messung */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** Indizes des Kontos: "none" oder "built" */
+    @Param({"none", "built"})
+    public String index;
+
+    private PrivateBank bank;
+    private Random random;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, new MemoryAccountStorage());
+        bank.createAccount(ACCOUNT, BenchmarkData.transactions(size));
+        if (index.equals("built")) {
+            bank.getTransactionsSorted(ACCOUNT, true, 0, 10);
+            bank.getTransactionsBetween(ACCOUNT, LocalDate.MIN, LocalDate.MIN);
+        }
+        random = new Random(BenchmarkData.SEED);
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        bank.close();
+    }
+
+    @Benchmark
+    public void addTransaction() throws Exception {
+        bank.addTransaction(ACCOUNT, BenchmarkData.transaction(random, "New-" + next++));
+    }
+}
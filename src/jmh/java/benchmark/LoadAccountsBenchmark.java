@@ -0,0 +1,59 @@
+package benchmark;
+
+import bank.BankFileHandler;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Laden eines Verzeichnisses mit vielen Kontodateien über {@link BankFileHandler#readAccounts(String, int)},
+ * nacheinander (parallelism = 1) und mit mehreren Threads.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class LoadAccountsBenchmark {
+
+    /** Anzahl der Kontodateien */
+    @Param({"1000", "10000"})
+    public int accounts;
+
+    /** Anzahl der Transaktionen pro Konto */
+    @Param({"100"})
+    public int transactionsPerAccount;
+
+    /** Maximale Anzahl gleichzeitig gelesener Dateien */
+    @Param({"1", "4", "8"})
+    public int parallelism;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("loadaccountsbenchmark");
+        List<Transaction> transactions = BenchmarkData.transactions(transactionsPerAccount);
+        for (int i = 0; i < accounts; i++) {
+            if (!BankFileHandler.writeAccount(directory.toString(), "Account" + i, transactions))
+                throw new IllegalStateException("Could not prepare account files");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> readAccounts() {
+        return BankFileHandler.readAccounts(directory.toString(), parallelism);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Öffnen einer Bank mit einem großen Konto im Binärformat und eine typische Auswertung
+ * (Kontostand, Summe der Einnahmen, erste Seite der größten Ausgaben):
+ * einmal mit einer {@link PrivateBank} ("private", lädt alle Transaktionen) und einmal mit einer
+ * {@link MappedBank} ("mapped", blendet die Datei ein und liest nur die benötigten Datensätze).
+ * Der Speicherbedarf pro Aufruf wird mit "-prof gc" sichtbar (gc.alloc.rate.norm).
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MappedBankBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+    private static final int PAGE_SIZE = 50;
+
+    /** Anzahl der Transaktionen im Konto */
+    @Param({"100000", "1000000"})
+    public int size;
+
+    /** Art der Bank: "private" oder "mapped" */
+    @Param({"private", "mapped"})
+    public String mode;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("mappedbankbenchmark");
+        if (!BankFileHandler.writeAccount(directory.toString(), ACCOUNT, BenchmarkData.transactions(size),
+                AccountFileFormat.BINARY))
+            throw new IllegalStateException("Could not prepare account file");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public double openAndQuery() {
+        Bank bank = mode.equals("mapped")
+                ? new MappedBank("Benchmarkbank", directory.toString())
+                : new PrivateBank("Benchmarkbank", 0.05, 0.1, directory.toString(), AccountFileFormat.BINARY);
+        List<Transaction> page = bank.getTransactionsSorted(ACCOUNT, false, 0, PAGE_SIZE);
+        return bank.getAccountBalance(ACCOUNT) + bank.getAccountBalanceByType(ACCOUNT, true)
+                + page.get(PAGE_SIZE - 1).calculate();
+    }
+}
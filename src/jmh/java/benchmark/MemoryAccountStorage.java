@@ -0,0 +1,64 @@
+package benchmark;
+
+import bank.AccountStorage;
+import bank.RateTable;
+import bank.Transaction;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AccountStorage}, die nichts speichert.
+ * Damit messen die Benchmarks nur die Kosten der Bank im Speicher, ohne Datenträgerzugriffe.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public class MemoryAccountStorage implements AccountStorage {
+
+    @Override
+    public String getDirectoryName() {
+        return "memory";
+    }
+
+    @Override
+    public boolean storesRateVersions() {
+        return true;
+    }
+
+    @Override
+    public RateTable readRates() {
+        return new RateTable();
+    }
+
+    @Override
+    public boolean writeRates(RateTable rates) {
+        return true;
+    }
+
+    @Override
+    public Map<String, List<Transaction>> readAccounts() {
+        return new HashMap<>();
+    }
+
+    @Override
+    public boolean writeAccount(String account, Collection<Transaction> transactions) {
+        return true;
+    }
+
+    @Override
+    public boolean deleteAccount(String account) {
+        return true;
+    }
+
+    @Override
+    public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return true;
+    }
+
+    @Override
+    public boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return true;
+    }
+}
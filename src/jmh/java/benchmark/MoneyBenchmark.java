@@ -0,0 +1,90 @@
+package benchmark;
+
+import bank.Money;
+import bank.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Berechnung eines Kontostands mit double über die Transaktionen ({@link Transaction#calculate()},
+ * bisheriger Weg) mit der exakten Berechnung in Cent ({@link Money}): über die Transaktionen
+ * ({@link Transaction#calculateMinor()}) und über ein long-Array ({@link Money#sum}, {@link Money#sumCredits}).
+ * Zum Vergleich läuft dieselbe Schleife auch über ein double-Array, das der JIT-Compiler wegen der festen
+ * Reihenfolge von Gleitkomma-Additionen nicht mit SIMD-Befehlen summieren darf.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    /** Anzahl der Transaktionen im Konto */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private List<Transaction> transactions;
+    private double[] doubles;
+    private long[] minors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = new ArrayList<>(BenchmarkData.transactions(size));
+        doubles = new double[size];
+        minors = new long[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = transactions.get(i).calculate();
+            minors[i] = transactions.get(i).calculateMinor();
+        }
+    }
+
+    @Benchmark
+    public double balanceDoubleObjects() {
+        double sum = 0;
+        for (Transaction transaction : transactions)
+            sum += transaction.calculate();
+        return sum;
+    }
+
+    @Benchmark
+    public long balanceMinorObjects() {
+        long sum = 0;
+        for (Transaction transaction : transactions)
+            sum += transaction.calculateMinor();
+        return sum;
+    }
+
+    @Benchmark
+    public double balanceDoubleArray() {
+        double sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += doubles[i];
+        return sum;
+    }
+
+    @Benchmark
+    public long balanceMinorArray() {
+        return Money.sum(minors, size);
+    }
+
+    @Benchmark
+    public double creditsDoubleArray() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (doubles[i] >= 0)
+                sum += doubles[i];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long creditsMinorArray() {
+        return Money.sumCredits(minors, size);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die lesenden Zugriffe einer {@link PrivateBank} auf ein Konto mit vielen Transaktionen:
+ * {@link PrivateBank#getAccountBalance}, {@link PrivateBank#getTransactionsSorted} (vollständig und eine Seite),
+ * {@link PrivateBank#getTransactionsByType}, {@link PrivateBank#getAccountBalanceByType} und
+ * {@link PrivateBank#getTransactionsBetween}.
+ * Die Konten liegen nur im Speicher ({@link MemoryAccountStorage}).
+ * <p>
+ * Für 10 Mio. Transaktionen wird ein großer Heap benötigt, z.B.:
+ * mvn -P benchmark test-compile exec:exec -Djmh.args="PrivateBankBenchmark -p size=10000000 -jvmArgs -Xmx8g"
+ * @author Tobias Schnuerpel
+ * @version 1.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PrivateBankBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+    /** Anzahl der Transaktionen pro Seite */
+    private static final int PAGE_SIZE = 50;
+
+    /** Anzahl der Transaktionen im Konto */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private PrivateBank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, new MemoryAccountStorage());
+        bank.createAccount(ACCOUNT, BenchmarkData.transactions(size));
+    }
+
+    @Benchmark
+    public double getAccountBalance() {
+        return bank.getAccountBalance(ACCOUNT);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsBetween() {
+        // ein Monat aus acht Jahren Testdaten
+        return bank.getTransactionsBetween(ACCOUNT, LocalDate.of(2020, 6, 1), LocalDate.of(2020, 6, 30));
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSortedAscending() {
+        return bank.getTransactionsSorted(ACCOUNT, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSortedDescending() {
+        return bank.getTransactionsSorted(ACCOUNT, false);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsSortedFirstPage() {
+        return bank.getTransactionsSorted(ACCOUNT, false, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public double getAccountBalanceByTypePositive() {
+        return bank.getAccountBalanceByType(ACCOUNT, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByTypePositive() {
+        return bank.getTransactionsByType(ACCOUNT, true);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByTypeNegative() {
+        return bank.getTransactionsByType(ACCOUNT, false);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst eine Neubewertung der Zinssätze aller Zahlungen einer Bank ({@link PrivateBank#reprice(double, double)})
+ * mit anschließendem Lesen einiger Kontostände. Die Konten liegen als JSON-Dateien vor und werden erst bei Bedarf
+ * geladen. "versions": die Zahlungen verweisen auf die Version ihrer Zinssätze ({@link RateTable}), nur die Tabelle
+ * wird geschrieben. "rewrite": die Persistenz meldet, dass sie keine Versionen speichert, sodass wie bisher jedes
+ * Konto geladen, neu berechnet und neu geschrieben wird.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RepriceBenchmark {
+
+    /** Anzahl der Transaktionen pro Konto */
+    private static final int TRANSACTIONS_PER_ACCOUNT = 10;
+    /** Anzahl der gelesenen Konten */
+    private static final int TOUCHED_ACCOUNTS = 100;
+
+    /** Anzahl der Konten */
+    @Param({"1000", "10000"})
+    public int accounts;
+
+    /** Art der Neubewertung: "versions" oder "rewrite" */
+    @Param({"versions", "rewrite"})
+    public String mode;
+
+    private Path directory;
+    private PrivateBank bank;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("repricebenchmark");
+        List<Transaction> transactions = BenchmarkData.transactions(TRANSACTIONS_PER_ACCOUNT);
+        PrivateBank writer = new PrivateBank("Benchmarkbank", 0.05, 0.1, directory.toString());
+        for (int i = 0; i < accounts; i++)
+            writer.createAccount("Konto" + i, transactions);
+        writer.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void open() {
+        FileAccountStorage storage = mode.equals("rewrite")
+                ? new FileAccountStorage(directory.toString()) {
+                    @Override
+                    public boolean storesRateVersions() {
+                        return false;
+                    }
+                }
+                : new FileAccountStorage(directory.toString());
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, storage, 10L * TOUCHED_ACCOUNTS * TRANSACTIONS_PER_ACCOUNT);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        bank.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public double repriceAndTouch() throws Exception {
+        round++;
+        bank.reprice(0.05 + round % 10 / 100.0, 0.1);
+        double sum = 0;
+        int step = accounts / TOUCHED_ACCOUNTS;
+        for (int i = 0; i < accounts; i += step)
+            sum += bank.getAccountBalance("Konto" + i);
+        return sum;
+    }
+}
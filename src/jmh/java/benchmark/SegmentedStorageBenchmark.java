@@ -0,0 +1,77 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Öffnen einer Bank mit vielen kleinen Konten, die ihre Konten erst bei Bedarf lädt, und das Lesen
+ * und Ändern einiger Konten: einmal mit einer JSON-Datei pro Konto ({@link FileAccountStorage}, "files") und
+ * einmal mit allen Konten in einer Datei ({@link SegmentedAccountStorage}, "segmented").
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SegmentedStorageBenchmark {
+
+    /** Anzahl der Transaktionen pro Konto */
+    private static final int TRANSACTIONS_PER_ACCOUNT = 10;
+    /** Anzahl der gelesenen und geänderten Konten */
+    private static final int TOUCHED_ACCOUNTS = 100;
+
+    /** Anzahl der Konten */
+    @Param({"10000", "50000"})
+    public int accounts;
+
+    /** Art der Speicherung: "files" oder "segmented" */
+    @Param({"files", "segmented"})
+    public String mode;
+
+    private Path directory;
+    private Transaction extra;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("segmentedbenchmark");
+        List<Transaction> transactions = BenchmarkData.transactions(TRANSACTIONS_PER_ACCOUNT + 1);
+        extra = transactions.remove(TRANSACTIONS_PER_ACCOUNT);
+        AccountStorage storage = createStorage();
+        for (int i = 0; i < accounts; i++)
+            storage.writeAccount("Konto" + i, transactions);
+        storage.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    private AccountStorage createStorage() {
+        return mode.equals("segmented")
+                ? new SegmentedAccountStorage(directory.toString())
+                : new FileAccountStorage(directory.toString());
+    }
+
+    @Benchmark
+    public double openAndTouch() throws Exception {
+        PrivateBank bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, createStorage(), 10L * TOUCHED_ACCOUNTS);
+        double sum = 0;
+        int step = accounts / TOUCHED_ACCOUNTS;
+        for (int i = 0; i < accounts; i += step) {
+            String account = "Konto" + i;
+            bank.addTransaction(account, extra);
+            bank.removeTransaction(account, extra);
+            sum += bank.getAccountBalance(account);
+        }
+        bank.close();
+        return sum;
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht das Sortieren eines Kontos nach berechnetem Betrag mit einem Comparator
+ * ({@code Comparator.comparingDouble(Transaction::calculate)}, "comparator") mit der Sortierung über ein Array
+ * vorberechneter Schlüssel, wie sie {@link PrivateBankAlt#getTransactionsSorted(String, boolean)} verwendet ("keys").
+ * Beide sortieren dieselbe, vor jedem Aufruf neu gemischte Liste.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der Transaktionen im Konto */
+    @Param({"10000", "100000"})
+    public int size;
+
+    private List<Transaction> shuffled;
+    private List<Transaction> transactions;
+    private PrivateBankAlt bank;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        shuffled = new ArrayList<>(BenchmarkData.transactions(size));
+        bank = new PrivateBankAlt("Benchmarkbank", 0.05, 0.1);
+        bank.createAccount(ACCOUNT);
+        transactions = bank.getTransactions(ACCOUNT);
+        random = new Random(BenchmarkData.SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void shuffle() {
+        Collections.shuffle(shuffled, random);
+        transactions.clear();
+        transactions.addAll(shuffled);
+    }
+
+    @Benchmark
+    public List<Transaction> comparator() {
+        transactions.sort(Comparator.comparingDouble(Transaction::calculate));
+        return transactions;
+    }
+
+    @Benchmark
+    public List<Transaction> keys() {
+        return bank.getTransactionsSorted(ACCOUNT, true);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import bank.Transaction;
+import bank.TransactionAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Serialisieren und Deserialisieren einzelner Transaktionen mit dem streamenden
+ * {@link TransactionAdapter} ("stream") und dem bisherigen {@link TreeTransactionAdapter} ("tree").
+ * Die Transaktionen werden reihum aus einem festen Datensatz gemischter Transaktionsarten entnommen.
+ * Mit "-prof gc" wird zusätzlich der Speicherbedarf pro Transaktion ausgegeben.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionAdapterBenchmark {
+
+    /** Anzahl verschiedener Transaktionen im Datensatz (Zweierpotenz) */
+    private static final int COUNT = 1024;
+
+    /** Verwendeter Adapter: "stream" oder "tree" */
+    @Param({"stream", "tree"})
+    public String adapter;
+
+    private Gson gson;
+    private Transaction[] transactions;
+    private String[] json;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gson = createGson(adapter, false);
+        List<Transaction> data = BenchmarkData.transactions(COUNT);
+        transactions = data.toArray(new Transaction[0]);
+        json = new String[COUNT];
+        for (int i = 0; i < COUNT; i++)
+            json[i] = gson.toJson(transactions[i], Transaction.class);
+    }
+
+    /**
+     * Erstellt eine Gson-Instanz mit dem angegebenen Adapter.
+     * @param adapter "stream" für {@link TransactionAdapter}, "tree" für {@link TreeTransactionAdapter}
+     * @param prettyPrinting wie in {@link bank.BankFileHandler} mit Pretty-Printing
+     * @return Gson-Instanz
+     */
+    static Gson createGson(String adapter, boolean prettyPrinting) {
+        GsonBuilder builder = new GsonBuilder().registerTypeHierarchyAdapter(Transaction.class,
+                adapter.equals("tree") ? new TreeTransactionAdapter() : new TransactionAdapter());
+        if (prettyPrinting)
+            builder.setPrettyPrinting();
+        return builder.create();
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(transactions[next++ & (COUNT - 1)], Transaction.class);
+    }
+
+    @Benchmark
+    public Transaction deserialize() {
+        return gson.fromJson(json[next++ & (COUNT - 1)], Transaction.class);
+    }
+}
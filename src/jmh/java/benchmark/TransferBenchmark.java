@@ -0,0 +1,99 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den Durchsatz von Überweisungen zwischen zufälligen Konten einer {@link PrivateBank}
+ * mit {@link JournalAccountStorage} (ohne fsync), sowohl atomar über {@link Bank#transfer}
+ * als auch wie bisher mit zwei einzelnen Buchungen.
+ * Mit wenigen Konten kommt es häufig zu gegenläufigen Überweisungen auf denselben Konten.
+ * <p>
+ * Ausführen z.B. mit: mvn -P benchmark test-compile exec:exec -Djmh.args="TransferBenchmark -t 8 -f 1"
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    /** Anzahl der Konten, zwischen denen überwiesen wird */
+    @Param({"2", "64"})
+    public int accounts;
+
+    private Path directory;
+    private PrivateBank bank;
+    private String[] names;
+
+    /**
+     * Zustand eines Benchmark-Threads, sorgt für eindeutige Beschreibungen der Überweisungen.
+     */
+    @State(Scope.Thread)
+    public static class Counter {
+        private static int threads = 0;
+        private final int thread;
+        private long next = 0;
+
+        public Counter() {
+            synchronized (Counter.class) {
+                thread = threads++;
+            }
+        }
+
+        String nextDescription() {
+            return "T" + thread + "-" + next++;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("transferbenchmark");
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1,
+                new JournalAccountStorage(directory.toString(), TransactionJournal.SyncPolicy.NEVER, 1));
+        names = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            names[i] = "Account" + i;
+            bank.createAccount(names[i]);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        bank.close();
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void transfer(Counter counter) throws Exception {
+        int[] pair = randomPair();
+        bank.transfer(names[pair[0]], names[pair[1]], new Transfer("01.01.2023", 10, counter.nextDescription()));
+    }
+
+    @Benchmark
+    public void twoBookings(Counter counter) throws Exception {
+        int[] pair = randomPair();
+        String description = counter.nextDescription();
+        bank.addTransaction(names[pair[0]], new OutgoingTransfer("01.01.2023", 10, description, names[pair[0]], names[pair[1]]));
+        bank.addTransaction(names[pair[1]], new IncomingTransfer("01.01.2023", 10, description, names[pair[0]], names[pair[1]]));
+    }
+
+    /**
+     * Wählt zwei verschiedene zufällige Konten aus.
+     * @return Index des Senders und des Empfängers
+     */
+    private int[] randomPair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(accounts);
+        int recipient = (sender + 1 + random.nextInt(accounts - 1)) % accounts;
+        return new int[] {sender, recipient};
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import bank.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst viele einzelne {@link PrivateBank#addTransaction}-Aufrufe auf ein Konto mit einer Datei pro Konto:
+ * einmal mit sofortigem Schreiben ({@link FileAccountStorage}, "sync") und einmal mit verzögertem Schreiben
+ * ({@link WriteBehindAccountStorage}, "writebehind"). Bei "writebehind" ist das abschließende
+ * {@link PrivateBank#flush()} in der Messung enthalten, damit beide Varianten alles auf den Datenträger bringen.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WriteBehindBenchmark {
+
+    private static final String ACCOUNT = "Konto";
+
+    /** Anzahl der hinzugefügten Transaktionen */
+    @Param({"1000", "5000"})
+    public int size;
+
+    /** Art des Schreibens: "sync" oder "writebehind" */
+    @Param({"sync", "writebehind"})
+    public String mode;
+
+    private Path directory;
+    private PrivateBank bank;
+    private List<Transaction> transactions;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        directory = BenchmarkData.createDirectory("writebehindbenchmark");
+        AccountStorage storage = new FileAccountStorage(directory.toString());
+        if (mode.equals("writebehind"))
+            storage = new WriteBehindAccountStorage(storage);
+        bank = new PrivateBank("Benchmarkbank", 0.05, 0.1, storage);
+        bank.createAccount(ACCOUNT);
+        transactions = BenchmarkData.transactions(size);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        bank.close();
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int addTransactions() throws Exception {
+        for (Transaction transaction : transactions)
+            bank.addTransaction(ACCOUNT, transaction);
+        bank.flush();
+        return transactions.size();
+    }
+}
@@ -58,7 +58,7 @@ public class Main {
         bank.printAccounts();
 
         System.out.println("\n\nTeste addTransaction:");
-        Payment p1 = new Payment("Mustermann", 30, "Auszahlung");
+        Payment p1 = new Payment("17.11.2022", 30, "Auszahlung");
         System.out.println("erwartet: Erfolg, Fehler / tatsächlich: ");
         try {
             bank.addTransaction("Mustermann", p1);
@@ -0,0 +1,104 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merkt sich, welche Konten einer {@link PrivateBank} geladen sind, in der Reihenfolge des letzten Zugriffs (LRU).
+ * Jedes geladene Konto hat ein Gewicht (Anzahl seiner Transaktionen, mindestens 1). Übersteigt die Summe der
+ * Gewichte das erlaubte Maximum, liefert {@link #getEvictionCandidates()} die am längsten nicht verwendeten Konten.
+ * Das eigentliche Verwerfen übernimmt die Bank, da dafür die Sperre des Kontos benötigt wird.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+final class AccountCache {
+
+    /** Maximales Gesamtgewicht aller geladenen Konten */
+    private final long maxWeight;
+    /** Gewichte der geladenen Konten, das am längsten nicht verwendete Konto steht vorne */
+    private final LinkedHashMap<String, Long> weights = new LinkedHashMap<>(16, 0.75f, true);
+    /** Summe aller Gewichte */
+    private long totalWeight = 0;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse AccountCache.
+     * @param maxWeight maximales Gesamtgewicht (Anzahl Transaktionen) aller geladenen Konten, mindestens 1
+     */
+    AccountCache(long maxWeight) {
+        if (maxWeight < 1)
+            throw new IllegalArgumentException("maxWeight muss mindestens 1 sein.");
+        this.maxWeight = maxWeight;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Vermerkt einen Zugriff auf ein geladenes Konto und aktualisiert dessen Gewicht.
+     * @param account Name des Kontos
+     * @param transactions aktuelle Anzahl der Transaktionen des Kontos
+     */
+    synchronized void touch(String account, int transactions) {
+        long weight = Math.max(1, transactions);
+        Long previous = weights.put(account, weight);
+        totalWeight += weight - (previous == null ? 0 : previous);
+    }
+
+    /**
+     * Entfernt ein Konto, das verworfen oder gelöscht wurde.
+     * @param account Name des Kontos
+     */
+    synchronized void remove(String account) {
+        Long previous = weights.remove(account);
+        if (previous != null)
+            totalWeight -= previous;
+    }
+
+    /**
+     * Prüft, ob das Gesamtgewicht der geladenen Konten das Maximum übersteigt.
+     * @return true, wenn Konten verworfen werden sollten, sonst false
+     */
+    synchronized boolean isOverBudget() {
+        return totalWeight > maxWeight;
+    }
+
+    /**
+     * Gibt die am längsten nicht verwendeten Konten zurück, deren Verwerfen das Gesamtgewicht
+     * wieder unter das Maximum bringen würde.
+     * @return Namen der Konten, das am längsten nicht verwendete zuerst
+     */
+    synchronized List<String> getEvictionCandidates() {
+        List<String> candidates = new ArrayList<>();
+        long weight = totalWeight;
+        for (Map.Entry<String, Long> entry : weights.entrySet()) {
+            if (weight <= maxWeight)
+                break;
+            candidates.add(entry.getKey());
+            weight -= entry.getValue();
+        }
+        return candidates;
+    }
+
+    /**
+     * Gibt die Anzahl der geladenen Konten zurück.
+     * @return Anzahl der geladenen Konten
+     */
+    synchronized int size() {
+        return weights.size();
+    }
+
+    /**
+     * Gibt das maximale Gesamtgewicht zurück.
+     * @return maximales Gesamtgewicht (Anzahl Transaktionen)
+     */
+    long getMaxWeight() {
+        return maxWeight;
+    }
+}
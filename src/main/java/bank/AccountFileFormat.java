@@ -0,0 +1,34 @@
+package bank;
+
+/**
+ * Dateiformat, in dem {@link BankFileHandler} bzw. {@link FileAccountStorage} die Konten speichert.
+ * Jedes Format hat eine eigene Dateiendung, sodass beide Formate im selben Verzeichnis liegen können.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public enum AccountFileFormat {
+
+    /** JSON mit Pretty-Printing (siehe {@link TransactionAdapter}), Dateiendung .json */
+    JSON(".json"),
+    /** Kompaktes Binärformat (siehe {@link BinaryAccountFormat}), Dateiendung .bin */
+    BINARY(".bin");
+
+    /** Dateiendung inklusive Punkt */
+    private final String extension;
+
+    /**
+     * Konstruktor des Enums AccountFileFormat.
+     * @param extension Dateiendung inklusive Punkt
+     */
+    AccountFileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gibt die Dateiendung des Formats zurück.
+     * @return Dateiendung inklusive Punkt, z.B. ".json"
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
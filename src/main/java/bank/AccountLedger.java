@@ -0,0 +1,448 @@
+package bank;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verwaltet die Transaktionen eines einzelnen Kontos einer {@link PrivateBank}.
+ * Die Transaktionen liegen in einem Hash-Index ({@link LinkedHashSet}), sodass Duplikatprüfung,
+ * Hinzufügen und Entfernen in O(1) möglich sind und die Einfügereihenfolge für die Anzeige erhalten bleibt.
+ * Der Kontostand wird bei jeder Änderung exakt in Cent ({@link Transaction#calculateMinor()}) fortgeschrieben
+ * und kann daher in O(1) abgefragt werden, ebenso die Summen der positiven (Gutschriften) und negativen
+ * (Belastungen) Transaktionen. Da in Cent gerechnet wird, hängen die Summen nicht von der Reihenfolge der
+ * Änderungen ab; beim Neuberechnen werden die Beträge in ein long-Array übernommen und mit {@link Money#sum}
+ * bzw. {@link Money#sumCredits} summiert.
+ * Für Abfragen nach Datum, sortiert nach Betrag bzw. nach Vorzeichen wird bei der ersten Abfrage ein
+ * {@link DateIndex}, {@link AmountIndex} bzw. die Aufteilung in Gutschriften und Belastungen aufgebaut
+ * und danach bei jeder Änderung mitgeführt.
+ * <p>
+ * Das Konto ist selbst nicht threadsicher: Alle Zugriffe (außer {@link #getBalance()} und
+ * {@link #isBalanceKnown()}) müssen unter der Sperre des Kontos ({@link #lock()}) erfolgen.
+ * <p>
+ * Beim verzögerten Laden ({@link #unloaded()}) enthält das Konto zunächst keine Transaktionen, diese werden
+ * erst mit {@link #load(Collection)} geladen und können mit {@link #unload()} wieder verworfen werden.
+ * Der zuletzt bekannte Kontostand bleibt dabei erhalten, da sich ein nicht geladenes Konto nicht ändern kann.
+ * <p>
+ * Werden die Zinssätze der Bank neu bewertet ({@link RateTable#reprice(double, double)}), ändern sich die Beträge
+ * der Zahlungen, ohne dass das Konto davon erfährt. Das Konto merkt sich daher die Epoche der Zinssätze, mit der
+ * Kontostand und Indizes berechnet wurden, und berechnet sie mit {@link #reprice(long)} neu, sobald sie abweicht.
+ * <p>
+ * Wichtig: Eine Transaktion darf nicht mehr verändert werden, solange sie im Konto liegt,
+ * da sich sonst ihr Hashwert ändert und sie im Index nicht mehr gefunden wird.
+ * @author Tobias Schnuerpel
+ * @version 1.7
+ */
+final class AccountLedger {
+
+    /** Transaktionen des Kontos in Einfügereihenfolge, null, solange das Konto nicht geladen ist */
+    private Set<Transaction> transactions = new LinkedHashSet<>();
+    /** Nach Datum sortierter Index, null, solange noch keine Abfrage nach Datum erfolgt ist */
+    private DateIndex dateIndex = null;
+    /** Nach Betrag sortierter Index, null, solange noch keine sortierte Abfrage erfolgt ist */
+    private AmountIndex amountIndex = null;
+    /** Laufend fortgeschriebener Kontostand in Cent (Summe aller {@link Transaction#calculateMinor()}) */
+    private volatile long balance = 0;
+    /** Laufend fortgeschriebene Summe der positiven Transaktionen (calculate() >= 0) in Cent */
+    private volatile long creditSum = 0;
+    /** Laufend fortgeschriebene Summe der negativen Transaktionen (calculate() < 0) in Cent */
+    private volatile long debitSum = 0;
+    /** Positive Transaktionen in Einfügereihenfolge, null, solange noch keine Abfrage nach Vorzeichen erfolgt ist */
+    private Set<Transaction> credits = null;
+    /** Negative Transaktionen in Einfügereihenfolge, null, solange noch keine Abfrage nach Vorzeichen erfolgt ist */
+    private Set<Transaction> debits = null;
+    /** Epoche der Zinssätze ({@link RateTable#getEpoch()}), mit der die Beträge zuletzt berechnet wurden */
+    private volatile long rateEpoch = 0;
+    /** Gibt an, ob {@link #balance} gültig ist (das Konto war schon einmal geladen) */
+    private volatile boolean balanceKnown = true;
+    /** Gibt an, ob Änderungen noch nicht gespeichert werden konnten */
+    private boolean dirty = false;
+    /** Sperre des Kontos */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Gibt an, ob das Konto aus der Bank entfernt wurde und nicht mehr verwendet werden darf */
+    private boolean closed = false;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse AccountLedger. Erstellt ein leeres Konto.
+     */
+    AccountLedger() {
+    }
+
+    /**
+     * Konstruktor der Klasse AccountLedger. Erstellt ein Konto mit den übergebenen Transaktionen.
+     * Doppelte Transaktionen werden nur einmal übernommen.
+     * @param transactions Transaktionen des Kontos, darf null sein
+     */
+    AccountLedger(Collection<Transaction> transactions) {
+        if (transactions != null)
+            this.transactions.addAll(transactions);
+        recalculateBalance();
+    }
+
+    /**
+     * Erstellt ein Konto, dessen Transaktionen erst bei Bedarf mit {@link #load(Collection)} geladen werden.
+     * @return nicht geladenes Konto
+     */
+    static AccountLedger unloaded() {
+        AccountLedger ledger = new AccountLedger();
+        ledger.transactions = null;
+        ledger.balanceKnown = false;
+        return ledger;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Fügt eine Transaktion hinzu, sofern sie noch nicht enthalten ist.
+     * @param transaction hinzuzufügende Transaktion
+     * @return true, wenn die Transaktion hinzugefügt wurde, false, wenn sie bereits enthalten war
+     */
+    boolean add(Transaction transaction) {
+        if (!transactions.add(transaction))
+            return false;
+        if (dateIndex != null)
+            dateIndex.add(transaction);
+        if (amountIndex != null)
+            amountIndex.add(transaction);
+        long value = transaction.calculateMinor();
+        balance += value;
+        if (transaction.calculate() >= 0) {
+            creditSum += value;
+            if (credits != null)
+                credits.add(transaction);
+        } else {
+            debitSum += value;
+            if (debits != null)
+                debits.add(transaction);
+        }
+        return true;
+    }
+
+    /**
+     * Entfernt eine Transaktion.
+     * @param transaction zu entfernende Transaktion
+     * @return true, wenn die Transaktion entfernt wurde, false, wenn sie nicht enthalten war
+     */
+    boolean remove(Transaction transaction) {
+        if (!transactions.remove(transaction))
+            return false;
+        if (dateIndex != null)
+            dateIndex.remove(transaction);
+        if (amountIndex != null)
+            amountIndex.remove(transaction);
+        long value = transaction.calculateMinor();
+        balance -= value;
+        if (transaction.calculate() >= 0) {
+            creditSum -= value;
+            if (credits != null)
+                credits.remove(transaction);
+        } else {
+            debitSum -= value;
+            if (debits != null)
+                debits.remove(transaction);
+        }
+        return true;
+    }
+
+    /**
+     * Prüft, ob eine Transaktion enthalten ist.
+     * @param transaction gesuchte Transaktion
+     * @return true, wenn die Transaktion enthalten ist, sonst false
+     */
+    boolean contains(Transaction transaction) {
+        return transactions.contains(transaction);
+    }
+
+    /**
+     * Verwirft die Indizes nach Datum, Betrag und Vorzeichen. Sie werden bei der nächsten Abfrage neu aufgebaut.
+     * Wird vor einem Massenimport aufgerufen, damit nicht jede Transaktion einzeln einsortiert wird.
+     */
+    void dropIndexes() {
+        dateIndex = null;
+        amountIndex = null;
+        credits = null;
+        debits = null;
+    }
+
+    /**
+     * Berechnet Kontostand, Summen und den Index nach Betrag neu, wenn die Zinssätze seit der letzten Berechnung
+     * neu bewertet wurden. Ein nicht geladenes Konto wird erst nach dem Laden neu berechnet.
+     * @param epoch aktuelle Epoche der Zinssätze ({@link RateTable#getEpoch()})
+     */
+    void reprice(long epoch) {
+        if (epoch == rateEpoch || transactions == null)
+            return;
+        // der Index nach Datum haengt nicht von den Zinssaetzen ab
+        amountIndex = null;
+        credits = null;
+        debits = null;
+        recalculateBalance();
+        rateEpoch = epoch;
+    }
+
+    /**
+     * Übernimmt die Transaktionen eines bisher nicht geladenen Kontos und berechnet den Kontostand.
+     * @param transactions gespeicherte Transaktionen des Kontos, darf null sein
+     */
+    void load(Collection<Transaction> transactions) {
+        this.transactions = new LinkedHashSet<>();
+        dropIndexes();
+        if (transactions != null)
+            this.transactions.addAll(transactions);
+        recalculateBalance();
+        balanceKnown = true;
+    }
+
+    /**
+     * Verwirft die Transaktionen des Kontos, um Speicher freizugeben. Der Kontostand bleibt bekannt.
+     * Darf nur aufgerufen werden, wenn alle Änderungen gespeichert sind ({@link #isDirty()}).
+     */
+    void unload() {
+        transactions = null;
+        dropIndexes();
+    }
+
+    /**
+     * Gibt an, ob die Transaktionen des Kontos geladen sind.
+     * @return true, wenn das Konto geladen ist, sonst false
+     */
+    boolean isLoaded() {
+        return transactions != null;
+    }
+
+    /**
+     * Gibt an, ob der Kontostand bekannt ist, ohne das Konto laden zu müssen.
+     * @return true, wenn {@link #getBalance()} gültig ist, sonst false
+     */
+    boolean isBalanceKnown() {
+        return balanceKnown;
+    }
+
+    /**
+     * Markiert das Konto als geändert, aber nicht (vollständig) gespeichert.
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Markiert das Konto als vollständig gespeichert.
+     */
+    void markClean() {
+        dirty = false;
+    }
+
+    /**
+     * Gibt an, ob das Konto Änderungen enthält, die noch nicht gespeichert werden konnten.
+     * @return true, wenn das Konto vor dem Verwerfen gespeichert werden muss, sonst false
+     */
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Gibt den laufend fortgeschriebenen Kontostand zurück.
+     * @return Kontostand
+     */
+    double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Gibt den laufend fortgeschriebenen Kontostand exakt in Cent zurück.
+     * @return Kontostand in Cent
+     */
+    long getBalanceMinor() {
+        return balance;
+    }
+
+    /**
+     * Gibt die Epoche der Zinssätze zurück, mit der Kontostand und Summen berechnet wurden.
+     * @return Epoche der Zinssätze
+     */
+    long getRateEpoch() {
+        return rateEpoch;
+    }
+
+    /**
+     * Setzt die Epoche der Zinssätze, mit der Kontostand und Summen berechnet wurden. Die Epoche muss vor dem
+     * Berechnen gelesen werden, damit eine gleichzeitige Neubewertung beim nächsten Zugriff erkannt wird.
+     * @param rateEpoch Epoche der Zinssätze
+     */
+    void setRateEpoch(long rateEpoch) {
+        this.rateEpoch = rateEpoch;
+    }
+
+    /**
+     * Gibt die laufend fortgeschriebene Summe der positiven oder negativen Transaktionen zurück.
+     * @param positive wählt positive (inklusive 0) oder negative Transaktionen
+     * @return Summe der berechneten Beträge
+     */
+    double getSum(boolean positive) {
+        return Money.toDouble(positive ? creditSum : debitSum);
+    }
+
+    /**
+     * Berechnet den Kontostand und die Summen nach Vorzeichen aus allen Transaktionen neu und übernimmt sie.
+     * Die Beträge werden dafür in ein long-Array kopiert und ohne Verzweigung summiert. Ein Betrag, der erst
+     * durch die Rundung auf 0 Cent fällt, zählt dabei zu den Gutschriften statt zu den Belastungen,
+     * an den Summen ändert das nichts.
+     * @return neu berechneter Kontostand in Cent
+     */
+    long recalculateBalance() {
+        long[] values = new long[transactions.size()];
+        int count = 0;
+        for (Transaction transaction : transactions)
+            values[count++] = transaction.calculateMinor();
+        long sum = Money.sum(values, count);
+        long credit = Money.sumCredits(values, count);
+        balance = sum;
+        creditSum = credit;
+        debitSum = sum - credit;
+        return sum;
+    }
+
+    /**
+     * Sperrt das Konto für den aufrufenden Thread (wiedereintrittsfähig).
+     */
+    void lock() {
+        lock.lock();
+    }
+
+    /**
+     * Versucht, das Konto zu sperren, ohne zu warten.
+     * Hält der aufrufende Thread die Sperre bereits, wird sie nicht erneut vergeben.
+     * @return true, wenn das Konto jetzt gesperrt ist, sonst false
+     */
+    boolean tryLock() {
+        if (lock.isHeldByCurrentThread())
+            return false;
+        return lock.tryLock();
+    }
+
+    /**
+     * Gibt die Sperre des Kontos wieder frei.
+     */
+    void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Markiert das Konto als entfernt. Threads, die danach die Sperre erhalten, müssen das Konto neu nachschlagen.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Gibt an, ob das Konto aus der Bank entfernt wurde.
+     * @return true, wenn das Konto entfernt wurde, sonst false
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gibt die Anzahl der Transaktionen zurück.
+     * @return Anzahl der Transaktionen
+     */
+    int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Gibt eine nicht veränderbare Sicht auf alle Transaktionen in Einfügereihenfolge zurück (ohne Kopie).
+     * @return Sicht auf alle Transaktionen
+     */
+    Collection<Transaction> view() {
+        return Collections.unmodifiableCollection(transactions);
+    }
+
+    /**
+     * Gibt alle Transaktionen zwischen zwei Tagen (jeweils einschließlich) nach Datum sortiert zurück.
+     * Baut den Index nach Datum beim ersten Aufruf auf.
+     * @param from erster Tag als Epochentag
+     * @param to letzter Tag als Epochentag
+     * @return Kopie der Transaktionen, bei gleichem Datum in Einfügereihenfolge
+     */
+    List<Transaction> between(long from, long to) {
+        if (dateIndex == null)
+            dateIndex = new DateIndex(transactions);
+        return dateIndex.between(from, to);
+    }
+
+    /**
+     * Gibt einen Ausschnitt der nach berechnetem Betrag sortierten Transaktionen zurück.
+     * Baut den Index nach Betrag beim ersten Aufruf auf.
+     * @param asc wählt auf- oder absteigende Sortierung
+     * @param offset Rang der ersten Transaktion
+     * @param limit maximale Anzahl an Transaktionen
+     * @return Kopie der Transaktionen, bei gleichem Betrag in Einfügereihenfolge
+     * @throws IllegalArgumentException wenn offset oder limit negativ ist
+     */
+    List<Transaction> sorted(boolean asc, int offset, int limit) {
+        if (amountIndex == null)
+            amountIndex = new AmountIndex(transactions);
+        return amountIndex.page(asc, offset, limit);
+    }
+
+    /**
+     * Gibt eine Kopie der positiven (inklusive 0) oder negativen Transaktionen in Einfügereihenfolge zurück.
+     * Teilt die Transaktionen beim ersten Aufruf auf, danach wird nur noch das Ergebnis kopiert.
+     * @param positive wählt positive oder negative Transaktionen
+     * @return Kopie der Transaktionen
+     */
+    List<Transaction> byType(boolean positive) {
+        if (credits == null) {
+            credits = new LinkedHashSet<>();
+            debits = new LinkedHashSet<>();
+            for (Transaction transaction : transactions)
+                (transaction.calculate() >= 0 ? credits : debits).add(transaction);
+        }
+        return new ArrayList<>(positive ? credits : debits);
+    }
+
+    /**
+     * Gibt eine Kopie aller Transaktionen in Einfügereihenfolge zurück.
+     * @return Liste aller Transaktionen
+     */
+    List<Transaction> toList() {
+        return new ArrayList<>(transactions);
+    }
+
+    /**
+     * Vergleicht zwei Konten miteinander.
+     * Gibt true zurück, wenn beide dieselben Transaktionen in derselben Reihenfolge enthalten, sonst false.
+     * @param o Objekt, mit dem das Konto verglichen werden soll
+     * @return true, wenn beide Konten gleich sind, sonst false
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AccountLedger that = (AccountLedger) o;
+        if (transactions.size() != that.transactions.size()) return false;
+        Iterator<Transaction> other = that.transactions.iterator();
+        for (Transaction transaction : transactions) {
+            if (!transaction.equals(other.next())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Berechnet den Hashwert des Kontos aus seinen Transaktionen (passend zu {@link #equals(Object)}).
+     * @return Hashwert des Kontos
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (Transaction transaction : transactions)
+            result = 31 * result + transaction.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schnittstelle für die Persistenz der Konten einer {@link PrivateBank}.
+ * Die Bank meldet jede Änderung an einem Konto über diese Schnittstelle,
+ * die Implementierung entscheidet, wie die Änderung auf dem Datenträger abgelegt wird.
+ * @author Tobias Schnuerpel
+ * @version 1.3
+ */
+public interface AccountStorage {
+
+    /**
+     * Gibt den Speicherort (Pfad) der Konten zurück.
+     * @return Speicherort (Pfad)
+     */
+    String getDirectoryName();
+
+    /**
+     * Lädt alle gespeicherten Konten.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     */
+    Map<String, List<Transaction>> readAccounts();
+
+    /**
+     * Gibt an, ob einzelne Konten effizient geladen werden können ({@link #readAccountNames()} und
+     * {@link #readAccount(String)}), sodass eine {@link PrivateBank} Konten erst bei Bedarf laden kann.
+     * @return true, wenn verzögertes Laden unterstützt wird, sonst false
+     */
+    default boolean supportsLazyLoading() {
+        return false;
+    }
+
+    /**
+     * Gibt die Namen aller gespeicherten Konten zurück, ohne deren Transaktionen zu laden.
+     * @return Namen aller Konten
+     * @throws UnsupportedOperationException wenn {@link #supportsLazyLoading()} false ist
+     */
+    default Set<String> readAccountNames() {
+        throw new UnsupportedOperationException("Lazy loading is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Lädt die Transaktionen eines einzelnen Kontos.
+     * @param account Name des Kontos
+     * @return Transaktionen des Kontos, leer, wenn das Konto nicht gespeichert ist
+     * @throws UnsupportedOperationException wenn {@link #supportsLazyLoading()} false ist
+     */
+    default List<Transaction> readAccount(String account) {
+        throw new UnsupportedOperationException("Lazy loading is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Gibt an, ob gespeicherte Zahlungen auf die Version ihrer Zinssätze verweisen ({@link Payment#getRateVersion()})
+     * statt die Zinssätze selbst zu speichern. Nur dann gilt eine Neubewertung der Zinssätze
+     * ({@link PrivateBank#reprice(double, double)}) ohne erneutes Schreiben aller Konten auch nach einem Neustart.
+     * @return true, wenn Versionen der Zinssätze gespeichert werden, sonst false
+     */
+    default boolean storesRateVersions() {
+        return false;
+    }
+
+    /**
+     * Lädt die Versionen der Zinssätze. Die Standardimplementierung liest die Datei rates/rates.json
+     * im Speicherort ({@link BankFileHandler#readRates(String)}).
+     * @return Tabelle der Zinssätze, leer, wenn noch keine gespeichert ist
+     */
+    default RateTable readRates() {
+        return BankFileHandler.readRates(getDirectoryName());
+    }
+
+    /**
+     * Speichert die Versionen der Zinssätze. Die Standardimplementierung schreibt die Datei rates/rates.json
+     * im Speicherort ({@link BankFileHandler#writeRates(String, RateTable)}).
+     * @param rates Tabelle der Zinssätze
+     * @return true bei Erfolg, ansonsten false
+     */
+    default boolean writeRates(RateTable rates) {
+        return BankFileHandler.writeRates(getDirectoryName(), rates);
+    }
+
+    /**
+     * Speichert ein Konto mit allen Transaktionen vollständig (neu).
+     * @param account Name des Kontos
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    boolean writeAccount(String account, Collection<Transaction> transactions);
+
+    /**
+     * Löscht ein Konto mit allen Transaktionen.
+     * @param account Name des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    boolean deleteAccount(String account);
+
+    /**
+     * Speichert eine Transaktion, die einem Konto hinzugefügt wurde.
+     * @param account Name des Kontos
+     * @param transaction hinzugefügte Transaktion
+     * @param transactions alle Transaktionen des Kontos (inklusive der neuen Transaktion)
+     * @return true bei Erfolg, ansonsten false
+     */
+    boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions);
+
+    /**
+     * Speichert mehrere Transaktionen, die einem Konto auf einmal hinzugefügt wurden (Massenimport).
+     * Die Standardimplementierung schreibt das Konto einmal vollständig über {@link #writeAccount(String, Collection)}.
+     * @param account Name des Kontos
+     * @param added hinzugefügte Transaktionen in Importreihenfolge
+     * @param transactions alle Transaktionen des Kontos (inklusive der neuen Transaktionen)
+     * @return true bei Erfolg, ansonsten false
+     */
+    default boolean addTransactions(String account, List<Transaction> added, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Speichert das Entfernen einer Transaktion aus einem Konto.
+     * @param account Name des Kontos
+     * @param transaction entfernte Transaktion
+     * @param transactions alle verbleibenden Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions);
+
+    /**
+     * Speichert eine Überweisung, deren beide Buchungen den Konten bereits hinzugefügt wurden.
+     * Implementierungen sollten beide Buchungen atomar speichern. Die Standardimplementierung speichert
+     * sie nacheinander über {@link #addTransaction(String, Transaction, Collection)} und ist damit
+     * bei einem Absturz zwischen den beiden Schreibzugriffen nicht atomar (z.B. eine Datei pro Konto).
+     * Schlägt das Speichern der zweiten Buchung fehl, wird die erste nach Möglichkeit zurückgenommen.
+     * @param sender Name des Kontos des Senders
+     * @param outgoing Buchung auf dem Konto des Senders
+     * @param senderTransactions alle Transaktionen des Senders (inklusive der neuen Buchung)
+     * @param recipient Name des Kontos des Empfängers
+     * @param incoming Buchung auf dem Konto des Empfängers
+     * @param recipientTransactions alle Transaktionen des Empfängers (inklusive der neuen Buchung)
+     * @return true bei Erfolg, false, wenn keine der beiden Buchungen gespeichert wurde
+     */
+    default boolean addTransfer(String sender, Transaction outgoing, Collection<Transaction> senderTransactions,
+                                String recipient, Transaction incoming, Collection<Transaction> recipientTransactions) {
+        if (!addTransaction(sender, outgoing, senderTransactions))
+            return false;
+        if (addTransaction(recipient, incoming, recipientTransactions))
+            return true;
+        List<Transaction> withoutOutgoing = new ArrayList<>(senderTransactions);
+        withoutOutgoing.remove(outgoing);
+        removeTransaction(sender, outgoing, withoutOutgoing);
+        return false;
+    }
+
+    /**
+     * Prüft, ob die gespeicherten Daten kompaktiert werden sollten (z.B. weil ein Journal zu lang geworden ist).
+     * @return true, wenn {@link #compact(Map)} aufgerufen werden sollte, sonst false
+     */
+    default boolean needsCompaction() {
+        return false;
+    }
+
+    /**
+     * Schreibt einen kompakten Stand aller Konten (Snapshot) und verwirft nicht mehr benötigte Daten.
+     * Bei verzögertem Laden ({@link #supportsLazyLoading()}) enthält die Map nur die geladenen Konten;
+     * für alle übrigen Konten muss der gespeicherte Stand übernommen werden.
+     * @param accounts alle (geladenen) Konten der Bank
+     * @return true bei Erfolg, ansonsten false
+     */
+    default boolean compact(Map<String, ? extends Collection<Transaction>> accounts) {
+        return true;
+    }
+
+    /**
+     * Schreibt alle Änderungen, die noch nicht auf dem Datenträger liegen (z.B. bei verzögertem Schreiben).
+     * @return true, wenn alle Änderungen geschrieben sind, sonst false
+     */
+    default boolean flush() {
+        // standardmaessig wird jede Aenderung sofort geschrieben
+        return true;
+    }
+
+    /**
+     * Gibt alle offenen Ressourcen (z.B. Dateikanäle) frei.
+     */
+    default void close() {
+        // standardmaessig gibt es nichts freizugeben
+    }
+}
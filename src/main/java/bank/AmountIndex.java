@@ -0,0 +1,113 @@
+package bank;
+
+import java.util.*;
+
+/**
+ * Nach berechnetem Betrag ({@link Transaction#calculate()}) sortierter Index über die Transaktionen eines Kontos
+ * ({@link AccountLedger}). Die Einträge liegen in einem {@link RankTree}, sodass Hinzufügen und Entfernen
+ * in O(log n) laufen und der Index die k Transaktionen ab einem beliebigen Rang in O(log n + k) ohne erneutes
+ * Sortieren liefert ({@link #page(boolean, int, int)}).
+ * <p>
+ * Aufgebaut wird der Index mit {@link KeySort} über die vorberechneten Beträge.
+ * Die Reihenfolge entspricht einer stabilen Sortierung der Transaktionen in Einfügereihenfolge:
+ * Transaktionen mit gleichem Betrag bleiben sowohl auf- als auch absteigend in Einfügereihenfolge.
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+final class AmountIndex {
+
+    /** Transaktionen nach berechnetem Betrag, bei gleichem Betrag in Einfügereihenfolge */
+    private final RankTree tree;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse AmountIndex. Baut den Index über die übergebenen Transaktionen auf.
+     * @param transactions Transaktionen in Einfügereihenfolge
+     */
+    AmountIndex(Collection<Transaction> transactions) {
+        Transaction[] unsorted = transactions.toArray(new Transaction[0]);
+        int size = unsorted.length;
+        double[] keys = new double[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = unsorted[i].calculate();
+        // stabile Sortierung: gleiche Beträge behalten die Einfügereihenfolge
+        int[] order = KeySort.order(keys, size, true);
+        Transaction[] entries = new Transaction[size];
+        double[] amounts = new double[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = unsorted[order[i]];
+            amounts[i] = keys[order[i]];
+        }
+        tree = new RankTree(amounts, entries, size);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Fügt eine Transaktion hinter allen Transaktionen mit gleichem oder kleinerem Betrag ein.
+     * @param transaction neue Transaktion
+     */
+    void add(Transaction transaction) {
+        tree.add(transaction.calculate(), transaction);
+    }
+
+    /**
+     * Entfernt eine Transaktion. Gesucht wird nur unter den Einträgen mit demselben Betrag.
+     * @param transaction zu entfernende Transaktion
+     * @return true, wenn die Transaktion entfernt wurde, false, wenn sie nicht enthalten war
+     */
+    boolean remove(Transaction transaction) {
+        return tree.remove(transaction.calculate(), transaction);
+    }
+
+    /**
+     * Gibt einen Ausschnitt der sortierten Transaktionen zurück.
+     * @param asc wählt auf- oder absteigende Sortierung
+     * @param offset Rang der ersten Transaktion (0 = kleinster bzw. größter Betrag)
+     * @param limit maximale Anzahl an Transaktionen
+     * @return Kopie der Transaktionen ab dem angegebenen Rang, leer, wenn der Rang hinter der letzten liegt
+     * @throws IllegalArgumentException wenn offset oder limit negativ ist
+     */
+    List<Transaction> page(boolean asc, int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("offset und limit dürfen nicht negativ sein.");
+        int size = tree.size();
+        int end = (int) Math.min(size, (long) offset + limit);
+        List<Transaction> result = new ArrayList<>(Math.max(0, end - offset));
+        if (offset >= end)
+            return result;
+        if (asc) {
+            tree.collect(offset, end, result);
+            return result;
+        }
+        // absteigend: Gruppen gleicher Beträge von hinten nach vorne, innerhalb einer Gruppe in Einfügereihenfolge
+        double amount = tree.keyAt(size - 1 - offset);
+        int runStart = tree.lowerRank(amount);
+        int runEnd = tree.upperRank(amount);
+        int position = runStart + (offset - (size - runEnd));
+        int remaining = end - offset;
+        while (true) {
+            int count = Math.min(remaining, runEnd - position);
+            tree.collect(position, position + count, result);
+            remaining -= count;
+            if (remaining == 0)
+                return result;
+            runEnd = runStart;
+            runStart = tree.lowerRank(tree.keyAt(runEnd - 1));
+            position = runStart;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     * @return Anzahl der Einträge
+     */
+    int size() {
+        return tree.size();
+    }
+}
@@ -2,6 +2,9 @@ package bank;
 
 import bank.exceptions.*;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -51,6 +54,38 @@ public interface Bank {
     void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException;
 
+    /**
+     * Adds many transactions to an already existing account (bulk import). Unlike
+     * {@link #addTransaction(String, Transaction)}, a rejected transaction does not abort the import:
+     * duplicates and invalid transactions are skipped and reported in the result, all others are added.
+     * <p>
+     * This default implementation adds the transactions one by one.
+     * Implementations should override it to check all transactions in one pass and persist the account once.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions to be added, in order
+     * @return the added transactions and, for every rejected one, its index and the reason
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    default ImportResult importTransactions(String account, List<Transaction> transactions)
+            throws AccountDoesNotExistException {
+        if (!getAllAccounts().contains(account))
+            throw new AccountDoesNotExistException("Account does not exist: " + account);
+        ImportResult result = new ImportResult();
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            try {
+                if (transaction == null)
+                    throw new TransactionAttributeException("Transaction must not be null");
+                addTransaction(account, transaction);
+                result.imported(transaction);
+            } catch (TransactionAlreadyExistException | TransactionAttributeException e) {
+                result.rejected(i, transaction, e);
+            }
+        }
+        return result;
+    }
+
     /**
      * Removes a transaction from an account. If the transaction does not exist, an exception is
      * thrown.
@@ -63,6 +98,46 @@ public interface Bank {
     void removeTransaction(String account, Transaction transaction)
             throws AccountDoesNotExistException, TransactionDoesNotExistException;
 
+    /**
+     * Books a transfer between two accounts of this bank: an {@link OutgoingTransfer} on the sender's account
+     * and an {@link IncomingTransfer} on the recipient's account. Sender and recipient of both bookings are set
+     * to the account names.
+     * <p>
+     * This default implementation books both legs one after another and removes the outgoing leg again
+     * if the incoming leg fails, so concurrent readers may see a half-applied transfer.
+     * Implementations should override it to book both legs atomically.
+     *
+     * @param sender    the account the amount is taken from
+     * @param recipient the account the amount is credited to
+     * @param transfer  date, amount and description of the transfer
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAlreadyExistException if one of the two bookings already exists
+     * @throws TransactionAttributeException    if sender and recipient are the same account
+     */
+    default void transfer(String sender, String recipient, Transfer transfer)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException {
+        if (sender.equals(recipient))
+            throw new TransactionAttributeException("Sender and recipient must be different accounts: " + sender);
+        OutgoingTransfer outgoing = new OutgoingTransfer(transfer);
+        outgoing.setSender(sender);
+        outgoing.setRecipient(recipient);
+        IncomingTransfer incoming = new IncomingTransfer(transfer);
+        incoming.setSender(sender);
+        incoming.setRecipient(recipient);
+
+        addTransaction(sender, outgoing);
+        try {
+            addTransaction(recipient, incoming);
+        } catch (AccountDoesNotExistException | TransactionAlreadyExistException | TransactionAttributeException e) {
+            try {
+                removeTransaction(sender, outgoing);
+            } catch (TransactionDoesNotExistException ignored) {
+                // bereits von einem anderen Aufrufer entfernt
+            }
+            throw e;
+        }
+    }
+
     /**
      * Checks whether the specified transaction for a given account exists.
      *
@@ -104,6 +179,29 @@ public interface Bank {
      */
     List<Transaction> getTransactionsSorted(String account, boolean asc);
 
+    /**
+     * Returns one page of the sorted list (-> calculated amounts) of transactions for a specific account,
+     * in the same order as {@link #getTransactionsSorted(String, boolean)}.
+     * <p>
+     * This default implementation sorts all transactions and copies the requested page.
+     * Implementations should override it with an index on the calculated amount.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param offset  the position of the first transaction in the sorted list
+     * @param limit   the maximum number of transactions
+     * @return the transactions from {@code offset}, empty if {@code offset} is behind the last transaction
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    default List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        List<Transaction> transactions = getTransactionsSorted(account, asc);
+        int from = Math.min(offset, transactions.size());
+        int to = (int) Math.min(transactions.size(), (long) from + limit);
+        return new ArrayList<>(transactions.subList(from, to));
+    }
+
     /**
      * Returns a list of either positive or negative transactions (-> calculated amounts).
      *
@@ -112,4 +210,42 @@ public interface Bank {
      * @return the list of all transactions by type
      */
     List<Transaction> getTransactionsByType(String account, boolean positive);
+
+    /**
+     * Returns the sum of either the positive or the negative transactions (-> calculated amounts) of an account.
+     * <p>
+     * This default implementation adds up {@link #getTransactionsByType(String, boolean)}.
+     * Implementations should override it with a maintained sum.
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are summed up
+     * @return the sum of the calculated amounts, 0 if there are none
+     */
+    default double getAccountBalanceByType(String account, boolean positive) {
+        double sum = 0;
+        for (Transaction transaction : getTransactionsByType(account, positive))
+            sum += transaction.calculate();
+        return sum;
+    }
+
+    /**
+     * Returns all transactions of an account whose date lies between two dates (both inclusive),
+     * sorted by date. Transactions with the same date keep their insertion order.
+     * <p>
+     * This default implementation filters and sorts all transactions of the account.
+     * Implementations should override it with an index on the date.
+     *
+     * @param account the selected account
+     * @param from    the first date of the range
+     * @param to      the last date of the range
+     * @return the list of transactions in the range, empty if {@code from} is after {@code to}
+     */
+    default List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        List<Transaction> transactions = new ArrayList<>(getTransactions(account));
+        transactions.removeIf(transaction -> transaction.getEpochDay() < first || transaction.getEpochDay() > last);
+        transactions.sort(Comparator.comparingInt(Transaction::getEpochDay));
+        return transactions;
+    }
 }
\ No newline at end of file
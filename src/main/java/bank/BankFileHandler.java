@@ -4,73 +4,166 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Serialisiert und Deserialisiert {@link Transaction} Objekte
  * und speichert diese am angegebenen Pfad.
+ * Jede Methode gibt es ohne Format (JSON, Datei [account].json) und mit einem {@link AccountFileFormat};
+ * es werden nur Dateien mit der Endung des jeweiligen Formats berücksichtigt.
+ * Die Versionen der Zinssätze ({@link RateTable}), auf die Zahlungen in JSON-Dateien verweisen, liegen in
+ * [directory]/rates/rates.json; gelesene Zahlungen werden beim Lesen mit ihrer Version verknüpft.
+ * Dauer und Größe jedes Lesens und Schreibens einer Kontodatei werden an {@link BankMetrics} gemeldet
+ * ({@link #setMetrics(BankMetrics)}, standardmäßig {@link BankMetrics#NONE}).
+ * <p>
+ * Eine Kontodatei, die nicht gelesen werden kann, ergibt nie ein leeres Konto, da das nächste Speichern die Datei
+ * sonst überschreiben würde: Die Methoden zum Lesen werfen dann eine {@link IllegalStateException}.
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 5.8
  */
 public final class BankFileHandler {
 
-    /** Gson-Instanz (Singleton) */
-    private static Gson myGson;
+    /** Gson-Instanz (Singleton), Gson selbst ist threadsicher */
+    private static final Gson myGson = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Transaction.class, new TransactionAdapter())
+            .setPrettyPrinting()
+            .create();
+
+    /** Messwerte der Dateizugriffe, gilt für alle Verzeichnisse */
+    private static volatile BankMetrics metrics = BankMetrics.NONE;
 
     private BankFileHandler() {
         // private constructor to prevent instantiation
     }
 
     /**
-     * Gibt die Gson Instanz der Klasse zurück bzw. erstellt diese, fallse noch nicht vorhanden.
+     * Setzt die Messwerte, an die Dauer und Größe aller gelesenen und geschriebenen Kontodateien gemeldet werden.
+     * @param metrics Messwerte, null erfasst nichts
+     */
+    public static void setMetrics(BankMetrics metrics) {
+        BankFileHandler.metrics = metrics == null ? BankMetrics.NONE : metrics;
+    }
+
+    /**
+     * Gibt die Messwerte der Dateizugriffe zurück.
+     * @return Messwerte, {@link BankMetrics#NONE}, wenn nichts erfasst wird
+     */
+    public static BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gibt die Gson Instanz der Klasse zurück.
      * @return Gson Instanz
      */
     private static Gson getGson() {
-        // basically a singleton
-        if (myGson == null) {
-            myGson = new GsonBuilder()
-                    .registerTypeHierarchyAdapter(Transaction.class, new TransactionAdapter())
-                    .setPrettyPrinting()
-                    .create();
-        }
         return myGson;
     }
 
     /**
-     * Serialisiert die übergebene Liste von {@link Transaction} Objekten und speichert diese
+     * Serialisiert die übergebenen {@link Transaction} Objekte und speichert diese
      * in der Datei [account].json unter dem angegebenen Pfad directory.
+     * Die Transaktionen werden einzeln über einen gepufferten {@link JsonWriter} in die Datei geschrieben,
+     * sodass das Konto nie als Ganzes als String im Speicher liegt. Das Format entspricht dem
+     * von {@link Gson#toJson(Object)} mit Pretty-Printing, ein leeres Konto ergibt eine leere Datei.
      * Gibt bei Erfolg true zurück, ansonsten false.
      * @param directory Pfad, unter dem die Datei gespeichert werden soll
      * @param account Name der Datei
-     * @param transactions Liste von {@link Transaction} Objekten
+     * @param transactions {@link Transaction} Objekte des Kontos
      * @return true bei Erfolg, ansonsten false
      */
-    public static boolean writeAccount(String directory, String account, List<Transaction> transactions) {
-        String json = "";
-        if (transactions != null && !transactions.isEmpty())
-            json = getGson().toJson(transactions);
-        String fileName = directory + "/" + account + ".json";
-        Path path = Paths.get(fileName);
+    public static boolean writeAccount(String directory, String account, Collection<Transaction> transactions) {
+        return writeAccount(directory, account, transactions, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Serialisiert die übergebenen {@link Transaction} Objekte im angegebenen Format und speichert diese
+     * in der Datei [account][Endung] unter dem angegebenen Pfad directory.
+     * Gibt bei Erfolg true zurück, ansonsten false.
+     * @param directory Pfad, unter dem die Datei gespeichert werden soll
+     * @param account Name der Datei
+     * @param transactions {@link Transaction} Objekte des Kontos
+     * @param format Format der Datei
+     * @return true bei Erfolg, ansonsten false
+     */
+    public static boolean writeAccount(String directory, String account, Collection<Transaction> transactions,
+                                       AccountFileFormat format) {
+        Path path = getPath(directory, account, format);
+        BankMetrics metrics = BankFileHandler.metrics;
         try {
             Files.createDirectories(path.getParent());
-            Files.writeString(path, json);
-        } catch(IOException e) {
-            System.out.println("Error writing file: " + e.getMessage());
+            long start = metrics.isEnabled() ? System.nanoTime() : 0;
+            writeAccount(path, transactions == null ? List.of() : transactions, format);
+            if (metrics.isEnabled())
+                metrics.fileWritten(System.nanoTime() - start, Files.size(path));
+        } catch(IOException | JsonIOException e) {
+            BankLog.error("Error writing file: {}", e.getMessage());
             return false;
         }
         return true;
     }
 
+    /**
+     * Schreibt die übergebenen {@link Transaction} Objekte im angegebenen Format in die Datei.
+     * @param path Pfad der Datei
+     * @param transactions {@link Transaction} Objekte
+     * @param format Format der Datei
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private static void writeAccount(Path path, Collection<Transaction> transactions, AccountFileFormat format)
+            throws IOException {
+        if (format == AccountFileFormat.BINARY) {
+            BinaryAccountFormat.write(path, transactions);
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (!transactions.isEmpty())
+                writeTransactions(writer, transactions);
+        }
+    }
+
+    /**
+     * Schreibt die übergebenen {@link Transaction} Objekte als JSON-Array in den Writer.
+     * @param writer Ziel, wird nicht geschlossen
+     * @param transactions {@link Transaction} Objekte
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private static void writeTransactions(Writer writer, Collection<Transaction> transactions) throws IOException {
+        JsonWriter json = getGson().newJsonWriter(writer);
+        json.beginArray();
+        for (Transaction transaction : transactions)
+            getGson().toJson(transaction, Transaction.class, json);
+        json.endArray();
+        json.flush();
+    }
+
     /**
      * Löscht die Datei [account].json unter dem angegebenen Pfad directory.
      * Und damit auch alle darin befindlichen Transaktionen
@@ -79,12 +172,22 @@ public final class BankFileHandler {
      * @return true bei Erfolg, ansonsten false
      */
     public static boolean deleteAccount(String directory, String account) {
-        String fileName = directory + "/" + account + ".json";
-        Path path = Paths.get(fileName);
+        return deleteAccount(directory, account, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Löscht die Datei [account][Endung] des angegebenen Formats unter dem angegebenen Pfad directory.
+     * @param directory Pfad, unter dem die Datei gespeichert ist
+     * @param account Name der Datei (ohne Endung)
+     * @param format Format der Datei
+     * @return true bei Erfolg, ansonsten false
+     */
+    public static boolean deleteAccount(String directory, String account, AccountFileFormat format) {
+        Path path = getPath(directory, account, format);
         try {
             Files.deleteIfExists(path);
         } catch(IOException e) {
-            System.out.println("Error deleting file: " + e.getMessage());
+            BankLog.error("Error deleting file: {}", e.getMessage());
             return false;
         }
         return true;
@@ -92,31 +195,413 @@ public final class BankFileHandler {
 
     /**
      * Deserialisiert alle Account-Dateien im angegebenen Verzeichnis und speichert diese in einer Map,
-     * welche zurückgegeben wird.
+     * welche zurückgegeben wird. Die Dateien werden nacheinander gelesen.
      * @param directory Pfad, in dem die Dateien gespeichert sind
      * @return Map mit Accountnamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn eine Datei nicht gelesen werden kann oder kein gültiges Konto enthält
      */
     public static Map<String, List<Transaction>> readAccounts(String directory) {
-        Map<String, List<Transaction>> accounts = new HashMap<>();
-        File[] files = new File(directory).listFiles();
+        return readAccounts(directory, 1);
+    }
+
+    /**
+     * Deserialisiert alle Account-Dateien im angegebenen Verzeichnis und speichert diese in einer Map,
+     * welche zurückgegeben wird. Bei einer Parallelität größer 1 werden die Dateien von einem Thread-Pool
+     * mit höchstens so vielen Threads gleichzeitig gelesen, das Ergebnis ist dann eine {@link ConcurrentHashMap}.
+     * Fehler werden pro Datei gemeldet: Es werden alle Dateien gelesen, danach wird eine {@link IllegalStateException}
+     * geworfen, die jede fehlerhafte Datei nennt. Ein Ergebnis ohne die fehlerhaften Konten wird nie zurückgegeben.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param parallelism maximale Anzahl gleichzeitig gelesener Dateien (mindestens 1)
+     * @return Map mit Accountnamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn eine Datei nicht gelesen werden kann oder kein gültiges Konto enthält
+     */
+    public static Map<String, List<Transaction>> readAccounts(String directory, int parallelism) {
+        return readAccounts(directory, parallelism, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Deserialisiert alle Account-Dateien des angegebenen Formats im angegebenen Verzeichnis,
+     * wie {@link #readAccounts(String, int)}.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param parallelism maximale Anzahl gleichzeitig gelesener Dateien (mindestens 1)
+     * @param format Format der Dateien
+     * @return Map mit Accountnamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn eine Datei nicht gelesen werden kann oder kein gültiges Konto enthält,
+     *                               oder wenn der Thread beim Warten auf die Dateien unterbrochen wurde
+     */
+    public static Map<String, List<Transaction>> readAccounts(String directory, int parallelism,
+                                                              AccountFileFormat format) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism muss mindestens 1 sein.");
+        File[] files = listAccountFiles(directory, format);
         if (files == null) // no accounts stored
+            return new HashMap<>();
+
+        List<IllegalStateException> errors = new ArrayList<>();
+        if (parallelism == 1 || files.length < 2) {
+            Map<String, List<Transaction>> accounts = new HashMap<>();
+            for (File file : files) {
+                try {
+                    accounts.putIfAbsent(getAccountName(file, format), readAccountFile(file, format));
+                } catch (IllegalStateException e) {
+                    errors.add(e);
+                }
+            }
+            checkErrors(directory, errors);
+            resolveRates(directory, accounts.values());
             return accounts;
+        }
 
+        Map<String, List<Transaction>> accounts = new ConcurrentHashMap<>();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, files.length), runnable -> {
+            Thread thread = new Thread(runnable, "account-loader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.length);
+            for (File file : files)
+                futures.add(executor.submit(() ->
+                        accounts.putIfAbsent(getAccountName(file, format), readAccountFile(file, format))));
+            for (int i = 0; i < files.length; i++) {
+                // get() prüft die Unterbrechung nicht, wenn die Datei bereits gelesen ist
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    errors.add(e.getCause() instanceof IllegalStateException unreadable ? unreadable
+                            : new IllegalStateException("Error reading file " + files[i].getName() + ": "
+                                    + e.getCause(), e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            // shutdownNow() im finally bricht die übrigen Dateien ab, ein Teil der Konten wird nie zurückgegeben
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading accounts: " + directory, e);
+        } finally {
+            executor.shutdownNow();
+        }
+        checkErrors(directory, errors);
+        resolveRates(directory, accounts.values());
+        return accounts;
+    }
+
+    /**
+     * Wirft eine {@link IllegalStateException}, die alle fehlerhaften Dateien nennt, sofern es welche gibt.
+     * Die erste Ausnahme ist die Ursache, alle weiteren werden als unterdrückte Ausnahmen angehängt.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param errors Fehler der einzelnen Dateien
+     * @throws IllegalStateException wenn mindestens eine Datei nicht gelesen werden konnte
+     */
+    private static void checkErrors(String directory, List<IllegalStateException> errors) {
+        if (errors.isEmpty())
+            return;
+        if (errors.size() == 1)
+            throw errors.get(0);
+        StringBuilder message = new StringBuilder("Error reading ").append(errors.size())
+                .append(" files in ").append(directory).append(':');
+        for (IllegalStateException error : errors)
+            message.append("\n  ").append(error.getMessage());
+        IllegalStateException exception = new IllegalStateException(message.toString(), errors.get(0));
+        for (IllegalStateException error : errors.subList(1, errors.size()))
+            exception.addSuppressed(error);
+        throw exception;
+    }
+
+    /**
+     * Gibt die Namen aller Accounts im angegebenen Verzeichnis zurück, ohne die Dateien zu lesen.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @return Namen aller Accounts
+     */
+    public static Set<String> readAccountNames(String directory) {
+        return readAccountNames(directory, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Gibt die Namen aller Accounts des angegebenen Formats im angegebenen Verzeichnis zurück,
+     * ohne die Dateien zu lesen.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param format Format der Dateien
+     * @return Namen aller Accounts
+     */
+    public static Set<String> readAccountNames(String directory, AccountFileFormat format) {
+        Set<String> accounts = new HashSet<>();
+        File[] files = listAccountFiles(directory, format);
+        if (files == null) // no accounts stored
+            return accounts;
+        for (File file : files)
+            accounts.add(getAccountName(file, format));
+        return accounts;
+    }
+
+    /**
+     * Deserialisiert die Datei [account].json im angegebenen Verzeichnis.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param account Name des Accounts
+     * @return Liste von {@link Transaction} Objekten, leer, wenn die Datei nicht existiert
+     * @throws IllegalStateException wenn die Datei nicht gelesen werden kann oder kein gültiges Konto enthält
+     */
+    public static List<Transaction> readAccount(String directory, String account) {
+        return readAccount(directory, account, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Deserialisiert die Datei [account][Endung] des angegebenen Formats im angegebenen Verzeichnis.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param account Name des Accounts
+     * @param format Format der Datei
+     * @return Liste von {@link Transaction} Objekten, leer, wenn die Datei nicht existiert
+     * @throws IllegalStateException wenn die Datei nicht gelesen werden kann oder kein gültiges Konto enthält
+     */
+    public static List<Transaction> readAccount(String directory, String account, AccountFileFormat format) {
+        File file = getPath(directory, account, format).toFile();
+        if (!file.isFile())
+            return new ArrayList<>();
+        List<Transaction> transactions = readAccountFile(file, format);
+        resolveRates(directory, List.of(transactions));
+        return transactions;
+    }
+
+    /**
+     * Wandelt alle Account-Dateien eines Verzeichnisses in ein anderes Format um, z.B. von JSON in das Binärformat.
+     * Die Konten werden nacheinander gelesen und geschrieben, sodass immer nur ein Konto im Speicher liegt.
+     * Die Quelldateien bleiben erhalten; Quelle und Ziel dürfen dasselbe Verzeichnis sein, wenn sich die Formate
+     * unterscheiden. Fehlerhafte Quelldateien werden gemeldet und übersprungen, statt ein leeres Konto zu schreiben.
+     * @param sourceDirectory Verzeichnis der Quelldateien
+     * @param sourceFormat Format der Quelldateien
+     * @param targetDirectory Verzeichnis der Zieldateien
+     * @param targetFormat Format der Zieldateien
+     * @return true, wenn alle Konten umgewandelt wurden, sonst false
+     */
+    public static boolean convertAccounts(String sourceDirectory, AccountFileFormat sourceFormat,
+                                          String targetDirectory, AccountFileFormat targetFormat) {
+        File[] files = listAccountFiles(sourceDirectory, sourceFormat);
+        if (files == null) // no accounts stored
+            return true;
+        RateTable rates = readRates(sourceDirectory);
+        boolean converted = rates.size() == 0 || writeRates(targetDirectory, rates);
         for (File file : files) {
-            if (!file.isFile())
+            List<Transaction> transactions;
+            try {
+                transactions = readAccount(file.toPath(), sourceFormat);
+            } catch (IOException | RuntimeException e) {
+                BankLog.error("Error reading file {}: {}", file.getName(), e.getMessage());
+                converted = false;
                 continue;
+            }
+            rates.resolve(transactions);
+            converted &= writeAccount(targetDirectory, getAccountName(file, sourceFormat), transactions, targetFormat);
+        }
+        return converted;
+    }
 
-            String accountName = file.getName().replace(".json", "");
-            List<Transaction> transactions = new ArrayList<>();
+    /**
+     * Liest die Versionen der Zinssätze aus der Datei rates/rates.json im angegebenen Verzeichnis.
+     * Format: [{"version": 0, "incomingInterest": ..., "outgoingInterest": ...}, ...]
+     * @param directory Pfad, in dem die Konten gespeichert sind
+     * @return Tabelle der Zinssätze, leer, wenn die Datei nicht existiert oder fehlerhaft ist
+     */
+    public static RateTable readRates(String directory) {
+        RateTable rates = new RateTable();
+        Path path = getRatesPath(directory);
+        if (!Files.isRegularFile(path))
+            return rates;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonReader json = getGson().newJsonReader(reader);
+            json.beginArray();
+            while (json.hasNext()) {
+                int version = -1;
+                double incomingInterest = Double.NaN;
+                double outgoingInterest = Double.NaN;
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "version" -> version = json.nextInt();
+                        case "incomingInterest" -> incomingInterest = json.nextDouble();
+                        case "outgoingInterest" -> outgoingInterest = json.nextDouble();
+                        default -> json.skipValue();
+                    }
+                }
+                json.endObject();
+                // die Nummern muessen lueckenlos sein, da Zahlungen ueber die Nummer auf ihre Version verweisen
+                if (version != rates.size() || Double.isNaN(incomingInterest) || Double.isNaN(outgoingInterest))
+                    throw new JsonSyntaxException("Invalid rate version at " + json.getPath());
+                rates.add(incomingInterest, outgoingInterest);
+            }
+            json.endArray();
+        } catch (JsonSyntaxException | IllegalStateException | NumberFormatException | IOException e) {
+            BankLog.error("Error reading file {}: {}", path, e.getMessage());
+            return new RateTable();
+        }
+        return rates;
+    }
+
+    /**
+     * Schreibt die Versionen der Zinssätze in die Datei rates/rates.json im angegebenen Verzeichnis.
+     * Die Datei wird zuerst unter einem temporären Namen geschrieben und dann ersetzt,
+     * sodass nach einem Absturz immer eine vollständige Tabelle vorliegt.
+     * @param directory Pfad, in dem die Konten gespeichert sind
+     * @param rates Tabelle der Zinssätze
+     * @return true bei Erfolg, ansonsten false
+     */
+    public static boolean writeRates(String directory, RateTable rates) {
+        Path path = getRatesPath(directory);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                JsonWriter json = getGson().newJsonWriter(writer);
+                json.beginArray();
+                synchronized (rates) {
+                    for (int version = 0; version < rates.size(); version++) {
+                        json.beginObject();
+                        json.name("version").value(version);
+                        json.name("incomingInterest").value(rates.getIncomingInterest(version));
+                        json.name("outgoingInterest").value(rates.getOutgoingInterest(version));
+                        json.endObject();
+                    }
+                }
+                json.endArray();
+                json.flush();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            BankLog.error("Error writing file: {}", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Verknüpft gelesene Zahlungen mit den Versionen der Zinssätze des Verzeichnisses.
+     * Die Tabelle wird nur gelesen, wenn eine Zahlung auf eine Version verweist.
+     * @param directory Pfad, in dem die Konten gespeichert sind
+     * @param accounts Transaktionen der gelesenen Konten
+     */
+    private static void resolveRates(String directory, Collection<List<Transaction>> accounts) {
+        RateTable rates = null;
+        for (List<Transaction> transactions : accounts) {
+            for (Transaction transaction : transactions) {
+                if (transaction instanceof Payment payment && payment.isUnresolved()) {
+                    if (rates == null)
+                        rates = readRates(directory);
+                    rates.resolve(transactions);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gibt den Pfad der Datei mit den Versionen der Zinssätze zurück.
+     * Die Datei liegt in einem Unterverzeichnis, damit sie nicht als Konto gelesen wird.
+     * @param directory Pfad, in dem die Konten gespeichert sind
+     * @return Pfad der Datei [directory]/rates/rates.json
+     */
+    private static Path getRatesPath(String directory) {
+        return Paths.get(directory, "rates", "rates.json");
+    }
+
+    /**
+     * Gibt den Pfad der Datei eines Kontos zurück.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param account Name des Accounts
+     * @param format Format der Datei
+     * @return Pfad der Datei [account][Endung]
+     */
+    private static Path getPath(String directory, String account, AccountFileFormat format) {
+        return Paths.get(directory + "/" + account + format.getExtension());
+    }
+
+    /**
+     * Gibt alle Account-Dateien des angegebenen Formats im Verzeichnis zurück.
+     * @param directory Pfad, in dem die Dateien gespeichert sind
+     * @param format Format der Dateien
+     * @return Account-Dateien oder null, wenn das Verzeichnis nicht existiert
+     */
+    private static File[] listAccountFiles(String directory, AccountFileFormat format) {
+        return new File(directory).listFiles(file -> file.isFile() && file.getName().endsWith(format.getExtension()));
+    }
+
+    /**
+     * Gibt den Namen des Kontos einer Account-Datei zurück.
+     * @param file Account-Datei
+     * @param format Format der Datei
+     * @return Name des Kontos (Dateiname ohne Endung)
+     */
+    private static String getAccountName(File file, AccountFileFormat format) {
+        String name = file.getName();
+        return name.substring(0, name.length() - format.getExtension().length());
+    }
+
+    /**
+     * Deserialisiert eine Account-Datei.
+     * @param file Account-Datei
+     * @param format Format der Datei
+     * @return Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn die Datei nicht gelesen werden kann oder kein gültiges Konto enthält
+     */
+    private static List<Transaction> readAccountFile(File file, AccountFileFormat format) {
+        BankMetrics metrics = BankFileHandler.metrics;
+        try {
+            if (!metrics.isEnabled())
+                return readAccount(file.toPath(), format);
+            long start = System.nanoTime();
+            List<Transaction> transactions = readAccount(file.toPath(), format);
+            metrics.fileRead(System.nanoTime() - start, file.length());
+            return transactions;
+        } catch (IOException | RuntimeException e) {
+            // auch unerwartete Fehler beim Dekodieren (z.B. im Binärformat) betreffen nur diese Datei
+            throw new IllegalStateException("Error reading file " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deserialisiert eine Account-Datei im angegebenen Format.
+     * @param path Pfad der Datei
+     * @param format Format der Datei
+     * @return Liste von {@link Transaction} Objekten
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     * @throws JsonSyntaxException wenn die JSON-Datei kein gültiges Konto enthält
+     */
+    private static List<Transaction> readAccount(Path path, AccountFileFormat format) throws IOException {
+        if (format == AccountFileFormat.BINARY)
+            return BinaryAccountFormat.read(path);
+        return readAccount(path);
+    }
+
+    /**
+     * Deserialisiert eine JSON-Account-Datei.
+     * Die Datei wird über einen gepufferten {@link JsonReader} Transaktion für Transaktion gelesen,
+     * ohne sie vorher vollständig als String einzulesen.
+     * @param path Pfad der Datei
+     * @return Liste von {@link Transaction} Objekten, leer bei einer leeren Datei
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     * @throws JsonSyntaxException wenn die Datei kein gültiges Konto enthält
+     */
+    private static List<Transaction> readAccount(Path path) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonReader json = getGson().newJsonReader(reader);
+            // wie Gson#fromJson(String, Type) tolerant lesen, damit bestehende Dateien lesbar bleiben
+            json.setLenient(true);
             try {
-                String json = Files.readString(file.toPath());
-                transactions = getGson().fromJson(json, new TypeToken<List<Transaction>>() {}.getType());
-            } catch (JsonIOException | JsonSyntaxException | IOException e) {
-                System.out.println("Error reading file: " + e.getMessage());
+                if (json.peek() == JsonToken.NULL)
+                    return transactions;
+            } catch (EOFException e) {
+                // leere Datei: Konto ohne Transaktionen
+                return transactions;
             }
-            accounts.putIfAbsent(accountName, transactions);
+            json.beginArray();
+            while (json.hasNext())
+                transactions.add(getGson().fromJson(json, Transaction.class));
+            json.endArray();
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
         }
-        return accounts;
+        return transactions;
     }
 
 }
@@ -0,0 +1,340 @@
+package bank;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchrone Meldungen (Fehler, Warnungen, Hinweise) des Pakets bank.
+ * <p>
+ * Meldungen werden nicht im aufrufenden Thread ausgegeben, sondern in einen Ringpuffer fester Größe eingetragen,
+ * den ein Hintergrund-Thread ("bank-log") leert und an die Ausgabe ({@link #setSink(Consumer)}, standardmäßig
+ * {@link System#out}) übergibt. Das Eintragen ist ohne Sperren: ein Platz wird per CAS reserviert, beschrieben und
+ * über seine Sequenznummer veröffentlicht. Ist der Puffer voll, wird die Meldung verworfen und gezählt
+ * ({@link #getDropped()}), statt den Aufrufer warten zu lassen.
+ * <p>
+ * Meldungen bestehen aus einer Vorlage mit Platzhaltern {} und bis zu zwei Argumenten. Der Text wird erst im
+ * Hintergrund-Thread zusammengesetzt. Liegt die Stufe einer Meldung unter {@link #getLevel()}, kehren die Methoden
+ * sofort zurück, es werden keine Zeichenketten gebaut. Standard ist {@link Level#WARN}, {@link #setLevel(Level)}
+ * mit {@link Level#OFF} schaltet alle Meldungen ab.
+ * <p>
+ * Beispiel:
+ * <pre>
+ *     BankLog.error("Error writing file {}: {}", path, e.getMessage());
+ * </pre>
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public final class BankLog {
+
+    /**
+     * Stufen der Meldungen, nach Wichtigkeit absteigend.
+     */
+    public enum Level {
+        /** Keine Meldungen (nur für {@link #setLevel(Level)}) */
+        OFF,
+        /** Fehler, z.B. eine Datei konnte nicht geschrieben werden */
+        ERROR,
+        /** Behobene Probleme, z.B. ein unvollständiger Eintrag wurde ignoriert */
+        WARN,
+        /** Allgemeine Hinweise */
+        INFO,
+        /** Details, z.B. abgelehnte Eingaben, die zusätzlich als Exception gemeldet werden */
+        DEBUG
+    }
+
+    /** Anzahl der Plätze im Ringpuffer (Zweierpotenz) */
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    /** Wartezeit des Hintergrund-Threads, wenn der Puffer leer ist */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /** Maximale Wartezeit von {@link #flush()} */
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Plätze des Ringpuffers, werden wiederverwendet */
+    private static final Entry[] ENTRIES = new Entry[CAPACITY];
+    /** Sequenznummer, mit der ein Platz zuletzt veröffentlicht wurde, -1, wenn noch nie */
+    private static final AtomicLongArray PUBLISHED = new AtomicLongArray(CAPACITY);
+    /** Nächste zu reservierende Sequenznummer */
+    private static final AtomicLong TAIL = new AtomicLong();
+    /** Nächste auszugebende Sequenznummer, nur vom Hintergrund-Thread geschrieben */
+    private static final AtomicLong HEAD = new AtomicLong();
+    /** Anzahl der verworfenen Meldungen */
+    private static final LongAdder DROPPED = new LongAdder();
+    /** Gibt an, ob der Hintergrund-Thread gestartet wurde */
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+    /** Kleinste Stufe ({@link Level#ordinal()}), die noch ausgegeben wird */
+    private static volatile int threshold = Level.WARN.ordinal();
+    /** Ausgabe der fertigen Meldungen */
+    private static volatile Consumer<String> sink = line -> System.out.println(line);
+    /** Hintergrund-Thread, der den Puffer leert */
+    private static volatile Thread drainer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ENTRIES[i] = new Entry();
+            PUBLISHED.set(i, -1);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Privater Konstruktor, da nur statische Methoden.
+     */
+    private BankLog() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt an, ob Meldungen einer Stufe ausgegeben werden.
+     * Nur nötig, wenn schon das Berechnen der Argumente teuer ist.
+     * @param level Stufe
+     * @return true, wenn Meldungen der Stufe ausgegeben werden, sonst false
+     */
+    public static boolean isEnabled(Level level) {
+        return level != Level.OFF && level.ordinal() <= threshold;
+    }
+
+    /**
+     * Meldet einen Fehler.
+     * @param message Meldung
+     */
+    public static void error(String message) {
+        if (Level.ERROR.ordinal() <= threshold)
+            publish(message, null, null, 0);
+    }
+
+    /**
+     * Meldet einen Fehler.
+     * @param template Vorlage mit einem Platzhalter {}
+     * @param arg Argument für den Platzhalter
+     */
+    public static void error(String template, Object arg) {
+        if (Level.ERROR.ordinal() <= threshold)
+            publish(template, arg, null, 1);
+    }
+
+    /**
+     * Meldet einen Fehler.
+     * @param template Vorlage mit zwei Platzhaltern {}
+     * @param arg1 Argument für den ersten Platzhalter
+     * @param arg2 Argument für den zweiten Platzhalter
+     */
+    public static void error(String template, Object arg1, Object arg2) {
+        if (Level.ERROR.ordinal() <= threshold)
+            publish(template, arg1, arg2, 2);
+    }
+
+    /**
+     * Meldet eine Warnung.
+     * @param message Meldung
+     */
+    public static void warn(String message) {
+        if (Level.WARN.ordinal() <= threshold)
+            publish(message, null, null, 0);
+    }
+
+    /**
+     * Meldet eine Warnung.
+     * @param template Vorlage mit einem Platzhalter {}
+     * @param arg Argument für den Platzhalter
+     */
+    public static void warn(String template, Object arg) {
+        if (Level.WARN.ordinal() <= threshold)
+            publish(template, arg, null, 1);
+    }
+
+    /**
+     * Meldet eine Warnung.
+     * @param template Vorlage mit zwei Platzhaltern {}
+     * @param arg1 Argument für den ersten Platzhalter
+     * @param arg2 Argument für den zweiten Platzhalter
+     */
+    public static void warn(String template, Object arg1, Object arg2) {
+        if (Level.WARN.ordinal() <= threshold)
+            publish(template, arg1, arg2, 2);
+    }
+
+    /**
+     * Meldet einen Hinweis.
+     * @param template Vorlage mit einem Platzhalter {}
+     * @param arg Argument für den Platzhalter
+     */
+    public static void info(String template, Object arg) {
+        if (Level.INFO.ordinal() <= threshold)
+            publish(template, arg, null, 1);
+    }
+
+    /**
+     * Meldet ein Detail.
+     * @param template Vorlage mit einem Platzhalter {}
+     * @param arg Argument für den Platzhalter
+     */
+    public static void debug(String template, Object arg) {
+        if (Level.DEBUG.ordinal() <= threshold)
+            publish(template, arg, null, 1);
+    }
+
+    /**
+     * Wartet, bis alle bisher eingetragenen Meldungen ausgegeben wurden, höchstens eine Sekunde.
+     */
+    public static void flush() {
+        long target = TAIL.get();
+        Thread thread = drainer;
+        if (thread == null || thread == Thread.currentThread())
+            return;
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (HEAD.get() < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(thread);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Trägt eine Meldung in den Ringpuffer ein und startet bei Bedarf den Hintergrund-Thread.
+     * Ist der Puffer voll, wird die Meldung verworfen.
+     * @param template Vorlage
+     * @param arg1 erstes Argument
+     * @param arg2 zweites Argument
+     * @param args Anzahl der Argumente
+     */
+    private static void publish(String template, Object arg1, Object arg2, int args) {
+        if (!STARTED.get() && STARTED.compareAndSet(false, true))
+            startDrainer();
+        long sequence;
+        do {
+            sequence = TAIL.get();
+            if (sequence - HEAD.get() >= CAPACITY) {
+                DROPPED.increment();
+                return;
+            }
+        } while (!TAIL.compareAndSet(sequence, sequence + 1));
+        int index = (int) sequence & MASK;
+        Entry entry = ENTRIES[index];
+        entry.template = template;
+        entry.arg1 = arg1;
+        entry.arg2 = arg2;
+        entry.args = args;
+        // das volatile Schreiben macht die Felder für den Hintergrund-Thread sichtbar
+        PUBLISHED.set(index, sequence);
+    }
+
+    /**
+     * Startet den Hintergrund-Thread und gibt beim Beenden der JVM die restlichen Meldungen aus.
+     */
+    private static void startDrainer() {
+        Thread thread = new Thread(BankLog::runDrainer, "bank-log");
+        thread.setDaemon(true);
+        drainer = thread;
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(BankLog::flush, "bank-log-flush"));
+    }
+
+    /**
+     * Hauptschleife des Hintergrund-Threads: gibt alle veröffentlichten Meldungen aus und wartet kurz,
+     * wenn der Puffer leer ist.
+     */
+    private static void runDrainer() {
+        while (true) {
+            long head = HEAD.get();
+            int index = (int) head & MASK;
+            if (PUBLISHED.get(index) != head) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            Entry entry = ENTRIES[index];
+            String line = format(entry.template, entry.arg1, entry.arg2, entry.args);
+            entry.template = null;
+            entry.arg1 = null;
+            entry.arg2 = null;
+            try {
+                sink.accept(line);
+            } catch (RuntimeException ignored) {
+                // eine fehlerhafte Ausgabe darf den Hintergrund-Thread nicht beenden
+            }
+            // erst danach darf der Platz neu reserviert werden und flush() zurückkehren
+            HEAD.set(head + 1);
+        }
+    }
+
+    /**
+     * Setzt die Argumente in die Platzhalter {} einer Vorlage ein.
+     * @param template Vorlage
+     * @param arg1 erstes Argument
+     * @param arg2 zweites Argument
+     * @param args Anzahl der Argumente
+     * @return fertige Meldung
+     */
+    static String format(String template, Object arg1, Object arg2, int args) {
+        if (args == 0 || template == null)
+            return String.valueOf(template);
+        StringBuilder line = new StringBuilder(template.length() + 32);
+        int start = 0;
+        for (int i = 0; i < args; i++) {
+            int placeholder = template.indexOf("{}", start);
+            if (placeholder < 0)
+                break;
+            line.append(template, start, placeholder).append(i == 0 ? arg1 : arg2);
+            start = placeholder + 2;
+        }
+        return line.append(template, start, template.length()).toString();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die kleinste Stufe zurück, die noch ausgegeben wird.
+     * @return Stufe, {@link Level#OFF}, wenn keine Meldungen ausgegeben werden
+     */
+    public static Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    /**
+     * Setzt die kleinste Stufe, die noch ausgegeben wird.
+     * @param level Stufe, {@link Level#OFF} oder null schalten alle Meldungen ab
+     */
+    public static void setLevel(Level level) {
+        threshold = level == null ? Level.OFF.ordinal() : level.ordinal();
+    }
+
+    /**
+     * Setzt die Ausgabe der fertigen Meldungen. Sie wird nur vom Hintergrund-Thread aufgerufen.
+     * @param sink Ausgabe, null für {@link System#out}
+     */
+    public static void setSink(Consumer<String> sink) {
+        BankLog.sink = sink == null ? line -> System.out.println(line) : sink;
+    }
+
+    /**
+     * Gibt die Anzahl der verworfenen Meldungen zurück, weil der Ringpuffer voll war.
+     * @return Anzahl der verworfenen Meldungen
+     */
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Platz im Ringpuffer. Wird vom eintragenden Thread beschrieben, bevor er seine Sequenznummer veröffentlicht,
+     * und vom Hintergrund-Thread gelesen, bevor er ihn freigibt.
+     */
+    private static final class Entry {
+        String template;
+        Object arg1;
+        Object arg2;
+        int args;
+    }
+}
@@ -0,0 +1,85 @@
+package bank;
+
+/**
+ * Schnittstelle für Messwerte einer {@link PrivateBank} und des {@link BankFileHandler}.
+ * Alle Methoden haben eine leere Standardimplementierung, {@link #NONE} erfasst nichts.
+ * Implementierungen müssen threadsicher sein und sollten nicht blockieren, da sie aus dem Buchungspfad
+ * (unter der Sperre eines Kontos) aufgerufen werden. {@link MetricsRegistry} erfasst alle Werte ohne Sperren.
+ * <p>
+ * Latenzen werden in Nanosekunden ({@link System#nanoTime()}) übergeben. Ist {@link #isEnabled()} false,
+ * messen die Aufrufer keine Zeiten und die übrigen Methoden werden nicht aufgerufen.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public interface BankMetrics {
+
+    /** Messwerte, die nichts erfassen (Standard) */
+    BankMetrics NONE = new BankMetrics() {
+    };
+
+    /**
+     * Gibt an, ob Messwerte erfasst werden.
+     * @return true, wenn Messwerte erfasst werden, sonst false
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Eine Transaktion wurde einem Konto hinzugefügt ({@link PrivateBank#addTransaction(String, Transaction)}).
+     * @param nanos Dauer inklusive Warten auf die Sperre und Speichern
+     */
+    default void transactionAdded(long nanos) {
+    }
+
+    /**
+     * Eine Transaktion wurde aus einem Konto entfernt ({@link PrivateBank#removeTransaction(String, Transaction)}).
+     * @param nanos Dauer inklusive Warten auf die Sperre und Speichern
+     */
+    default void transactionRemoved(long nanos) {
+    }
+
+    /**
+     * Eine Transaktion wurde abgelehnt, weil sie im Konto bereits existiert.
+     */
+    default void duplicateRejected() {
+    }
+
+    /**
+     * Ein Konto wurde bei Bedarf geladen.
+     * @param nanos Dauer des Ladens
+     */
+    default void accountLoaded(long nanos) {
+    }
+
+    /**
+     * Größe eines geladenen Kontos, beim Öffnen der Bank bzw. beim Laden bei Bedarf.
+     * @param transactions Anzahl der Transaktionen des Kontos
+     */
+    default void accountSize(int transactions) {
+    }
+
+    /**
+     * Die Konten einer Bank wurden beim Öffnen gelesen (beim verzögerten Laden nur die Namen).
+     * @param nanos Dauer des Lesens
+     * @param accounts Anzahl der Konten
+     */
+    default void bankLoaded(long nanos, int accounts) {
+    }
+
+    /**
+     * Eine Kontodatei wurde geschrieben.
+     * @param nanos Dauer des Schreibens
+     * @param bytes Größe der Datei
+     */
+    default void fileWritten(long nanos, long bytes) {
+    }
+
+    /**
+     * Eine Kontodatei wurde gelesen.
+     * @param nanos Dauer des Lesens
+     * @param bytes Größe der Datei
+     */
+    default void fileRead(long nanos, long bytes) {
+    }
+}
@@ -0,0 +1,570 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Liest und schreibt eine Kontodatei im kompakten Binärformat ({@link AccountFileFormat#BINARY}).
+ * <p>
+ * Aufbau der Datei (alle festen Zahlen big-endian):
+ * <pre>
+ * Kopf:      int Kennung "OOSB" | byte Version | int Anzahl n der Transaktionen
+ * Datensatz: byte Typ | varint Datum (Tage seit 01.01.1970, ZigZag) | double Betrag | string Beschreibung
+ *            Payment:  double incomingInterest | double outgoingInterest
+ *                      | varint (Nummer der Version der Zinssätze + 1, 0 = keine; ab Version 3)
+ *            Transfer: string sender | string recipient
+ * string:    varint (Länge in Bytes + 1, 0 = null) | UTF-8 Bytes
+ * Index (ab Version 2, hinter dem letzten Datensatz):
+ *            int[n] Position jedes Datensatzes in der Datei
+ *            int[n] Zeilen aufsteigend nach {@link Transaction#calculate()} (gleiche Beträge in Einfügereihenfolge)
+ *            int[n] Zeilen absteigend nach {@link Transaction#calculate()} (gleiche Beträge in Einfügereihenfolge)
+ *            int[n] Zeilen aufsteigend nach Datum (gleiche Daten in Einfügereihenfolge)
+ *            int[n] erst die Zeilen mit calculate() &gt;= 0, dann die übrigen, jeweils in Einfügereihenfolge
+ *            int Anzahl der Zeilen mit calculate() &gt;= 0
+ *            | long Kontostand | long Summe &gt;= 0 | long Summe &lt; 0 (in Cent, {@link Transaction#calculateMinor()})
+ *            (Version 2 und 3: double Summen von {@link Transaction#calculate()})
+ * Ende:      long Position des Index
+ * </pre>
+ * Gelesen und geschrieben wird über einen {@link FileChannel} mit einem direkten {@link ByteBuffer},
+ * sodass die Datei nie vollständig im Speicher liegt. Der Index wird von {@link #read(Path)} übersprungen
+ * und erlaubt {@link MappedAccount}, eine eingeblendete Datei abzufragen, ohne sie vorher zu lesen.
+ * Da die Positionen als int gespeichert werden, darf eine Datei höchstens 2 GiB groß sein.
+ * Mit {@link #encode(Collection)} und {@link #decode(ByteBuffer)} kann ein Konto auch als Teil einer anderen
+ * Datei gespeichert werden (siehe {@link SegmentedAccountStorage}).
+ * @author Tobias Schnuerpel
+ * @version 2.4
+ */
+final class BinaryAccountFormat {
+
+    /** Kennung am Anfang jeder Datei ("OOSB") */
+    static final int MAGIC = 0x4F4F5342;
+    /** Aktuelle Version des Formats */
+    static final byte VERSION = 4;
+    /** Erste Version mit Index */
+    static final byte INDEXED_VERSION = 2;
+    /** Erste Version, die die Nummer der Version der Zinssätze einer Zahlung speichert */
+    static final byte RATE_VERSION_VERSION = 3;
+    /** Erste Version, die die Summen im Index exakt in Cent speichert */
+    static final byte MINOR_SUMS_VERSION = 4;
+    /** Größe des Kopfes in Bytes */
+    static final int HEADER_SIZE = 9;
+
+    /** Typ einer {@link Payment} */
+    static final byte PAYMENT = 1;
+    /** Typ eines {@link Transfer} */
+    static final byte TRANSFER = 2;
+    /** Typ eines {@link IncomingTransfer} */
+    static final byte INCOMING_TRANSFER = 3;
+    /** Typ eines {@link OutgoingTransfer} */
+    static final byte OUTGOING_TRANSFER = 4;
+
+    /** Größe des Puffers in Bytes */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinaryAccountFormat() {
+        // private constructor to prevent instantiation
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Schreibt die Transaktionen in die Datei, eine bestehende Datei wird überschrieben.
+     * @param path Pfad der Datei
+     * @param transactions Transaktionen des Kontos
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    static void write(Path path, Collection<Transaction> transactions) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, transactions);
+        }
+    }
+
+    /**
+     * Kodiert die Transaktionen eines Kontos im Binärformat, z.B. um sie in eine andere Datei einzubetten.
+     * @param transactions Transaktionen des Kontos
+     * @return Inhalt einer Kontodatei
+     * @throws IOException wenn die Transaktionen nicht kodiert werden können
+     */
+    static byte[] encode(Collection<Transaction> transactions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(Channels.newChannel(bytes), transactions);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Schreibt die Transaktionen ab der aktuellen Position in den Kanal.
+     * Alle Positionen im Index beziehen sich auf den Beginn des Kontos.
+     * @param channel Ziel
+     * @param transactions Transaktionen des Kontos
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private static void write(WritableByteChannel channel, Collection<Transaction> transactions) throws IOException {
+        int count = transactions.size();
+        int[] offsets = new int[count];
+        double[] amounts = new double[count];
+        long[] minors = new long[count];
+        int[] epochDays = new int[count];
+        Output out = new Output(channel);
+        out.putInt(MAGIC);
+        out.putByte(VERSION);
+        out.putInt(count);
+        int row = 0;
+        for (Transaction transaction : transactions) {
+            if (row == count)
+                throw new IOException("Transaktionen wurden während des Schreibens verändert.");
+            offsets[row] = position(out);
+            amounts[row] = transaction.calculate();
+            minors[row] = transaction.calculateMinor();
+            epochDays[row] = transaction.getEpochDay();
+            writeTransaction(out, transaction);
+            row++;
+        }
+        if (row != count)
+            throw new IOException("Transaktionen wurden während des Schreibens verändert.");
+        int index = position(out);
+        writeIndex(out, offsets, amounts, minors, epochDays);
+        out.putLong(index);
+        out.flush();
+    }
+
+    /**
+     * Schreibt den Index hinter die Datensätze.
+     * @param out Ziel
+     * @param offsets Position jedes Datensatzes
+     * @param amounts berechneter Betrag jedes Datensatzes
+     * @param minors berechneter Betrag jedes Datensatzes in Cent
+     * @param epochDays Datum jedes Datensatzes
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private static void writeIndex(Output out, int[] offsets, double[] amounts, long[] minors, int[] epochDays)
+            throws IOException {
+        int count = offsets.length;
+        for (int offset : offsets)
+            out.putInt(offset);
+
+        // stabil, gleiche Beträge bleiben in beiden Richtungen in Einfügereihenfolge
+        for (int row : KeySort.order(amounts, count, true))
+            out.putInt(row);
+        for (int row : KeySort.order(amounts, count, false))
+            out.putInt(row);
+
+        // Datum in den oberen, Zeile in den unteren 32 Bit ergibt eine stabile Sortierung ohne Objekte
+        long[] dates = new long[count];
+        for (int i = 0; i < count; i++)
+            dates[i] = (long) epochDays[i] << 32 | i;
+        Arrays.sort(dates);
+        for (long date : dates)
+            out.putInt((int) date);
+
+        // Summen exakt in Cent wie der Kontostand der PrivateBank (AccountLedger), nicht als double
+        int credits = 0;
+        long balance = 0;
+        long creditSum = 0;
+        long debitSum = 0;
+        for (int i = 0; i < count; i++) {
+            balance += minors[i];
+            if (amounts[i] >= 0) {
+                out.putInt(i);
+                creditSum += minors[i];
+                credits++;
+            } else {
+                debitSum += minors[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (amounts[i] < 0)
+                out.putInt(i);
+        }
+        out.putInt(credits);
+        out.putLong(balance);
+        out.putLong(creditSum);
+        out.putLong(debitSum);
+    }
+
+    /**
+     * Gibt die aktuelle Position in der Datei als int zurück.
+     * @param out Ziel
+     * @return Position in Bytes
+     * @throws IOException wenn die Datei größer als 2 GiB wird
+     */
+    private static int position(Output out) throws IOException {
+        long position = out.position();
+        if (position > Integer.MAX_VALUE)
+            throw new IOException("Kontodatei ist größer als 2 GiB.");
+        return (int) position;
+    }
+
+    /**
+     * Liest alle Transaktionen aus der Datei.
+     * @param path Pfad der Datei
+     * @return Liste von {@link Transaction} Objekten
+     * @throws IOException wenn die Datei nicht gelesen werden kann oder kein gültiges Konto enthält
+     */
+    static List<Transaction> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(new Input(channel));
+        }
+    }
+
+    /**
+     * Liest alle Transaktionen aus dem Inhalt einer Kontodatei (siehe {@link #encode(Collection)}).
+     * @param buffer Inhalt einer Kontodatei von der Position bis zum Limit, wird nicht verändert
+     * @return Liste von {@link Transaction} Objekten
+     * @throws IOException wenn der Inhalt kein gültiges Konto ist
+     */
+    static List<Transaction> decode(ByteBuffer buffer) throws IOException {
+        return read(new Input(buffer.slice()));
+    }
+
+    /**
+     * Liest Kopf und alle Datensätze eines Kontos.
+     * @param in Quelle, steht am Anfang des Kontos
+     * @return Liste von {@link Transaction} Objekten
+     * @throws IOException wenn nicht gelesen werden kann oder kein gültiges Konto vorliegt
+     */
+    private static List<Transaction> read(Input in) throws IOException {
+        if (in.getInt() != MAGIC)
+            throw new IOException("Keine binäre Kontodatei.");
+        byte version = in.getByte();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Nicht unterstützte Version " + version + ".");
+        int count = in.getInt();
+        // jeder Datensatz ist mindestens 11 Bytes groß, eine fehlerhafte Anzahl soll keinen riesigen Puffer anlegen
+        if (count < 0 || count > in.size() / 11)
+            throw new IOException("Ungültige Anzahl von Transaktionen: " + count);
+        if (version >= INDEXED_VERSION)
+            checkIndex(in, count);
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            transactions.add(readTransaction(in, version));
+        // ein Index ab Version 2 wird hier nicht benötigt
+        return transactions;
+    }
+
+    /**
+     * Prüft anhand der Position des Index am Ende des Kontos, ob es vollständig ist.
+     * @param in Quelle
+     * @param count Anzahl der Transaktionen laut Kopf
+     * @throws IOException wenn das Konto unvollständig ist
+     */
+    private static void checkIndex(Input in, int count) throws IOException {
+        long size = in.size();
+        if (size < HEADER_SIZE + Long.BYTES)
+            throw new EOFException("Unerwartetes Dateiende.");
+        long index = in.lastLong();
+        if (index < HEADER_SIZE || index + indexSize(count) + Long.BYTES != size)
+            throw new IOException("Ungültiger Index.");
+    }
+
+    /**
+     * Gibt die Größe des Index ohne die abschließende Position zurück.
+     * @param count Anzahl der Transaktionen
+     * @return Größe in Bytes
+     */
+    static long indexSize(int count) {
+        return 20L * count + Integer.BYTES + 3 * Long.BYTES;
+    }
+
+    /**
+     * Liest den Datensatz an der angegebenen Position einer eingeblendeten Datei.
+     * @param buffer eingeblendete Datei ab dem Kopf, Position und Limit werden nicht verändert
+     * @param offset Position des Datensatzes
+     * @return gelesene Transaktion
+     * @throws IOException wenn der Datensatz ungültig ist
+     */
+    static Transaction readTransaction(ByteBuffer buffer, int offset) throws IOException {
+        return readTransaction(new Input(buffer.duplicate().position(offset)), buffer.get(4));
+    }
+
+    /**
+     * Liest nur das Datum des Datensatzes an der angegebenen Position einer eingeblendeten Datei.
+     * @param buffer eingeblendete Datei, Position und Limit werden nicht verändert
+     * @param offset Position des Datensatzes
+     * @return Tage seit dem 01.01.1970
+     * @throws IOException wenn der Datensatz ungültig ist
+     */
+    static long readEpochDay(ByteBuffer buffer, int offset) throws IOException {
+        return unZigZag(new Input(buffer.duplicate().position(offset + 1)).getVarLong());
+    }
+
+    /**
+     * Schreibt einen Datensatz.
+     * @param out Ziel
+     * @param transaction Transaktion
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private static void writeTransaction(Output out, Transaction transaction) throws IOException {
+        byte type;
+        if (transaction instanceof Payment)
+            type = PAYMENT;
+        else if (transaction instanceof IncomingTransfer)
+            type = INCOMING_TRANSFER;
+        else if (transaction instanceof OutgoingTransfer)
+            type = OUTGOING_TRANSFER;
+        else if (transaction instanceof Transfer)
+            type = TRANSFER;
+        else
+            throw new IOException("Unbekannter Transaktionstyp: " + transaction.getClass().getSimpleName());
+
+        out.putByte(type);
+        out.putVarLong(zigZag(transaction.getEpochDay()));
+        out.putDouble(transaction.getAmount());
+        out.putString(transaction.getDescription());
+        if (transaction instanceof Payment payment) {
+            out.putDouble(payment.getIncomingInterest());
+            out.putDouble(payment.getOutgoingInterest());
+            // damit Zahlungen, die sich nur in der Version unterscheiden, beim Lesen verschieden bleiben
+            out.putVarLong(payment.getLastRateVersion() + 1);
+        } else {
+            Transfer transfer = (Transfer) transaction;
+            out.putString(transfer.getSender());
+            out.putString(transfer.getRecipient());
+        }
+    }
+
+    /**
+     * Liest einen Datensatz.
+     * @param in Quelle
+     * @param version Version des Formats
+     * @return gelesene Transaktion
+     * @throws IOException wenn nicht gelesen werden kann oder der Datensatz ungültig ist
+     */
+    private static Transaction readTransaction(Input in, byte version) throws IOException {
+        byte type = in.getByte();
+        long epochDay = unZigZag(in.getVarLong());
+        double amount = in.getDouble();
+        String description = in.getString();
+        try {
+            String date = TransactionDate.format(epochDay);
+            return switch (type) {
+                case PAYMENT -> new Payment(date, amount, description, in.getDouble(), in.getDouble(),
+                        version >= RATE_VERSION_VERSION ? (int) in.getVarLong() - 1 : -1);
+                case TRANSFER -> new Transfer(date, amount, description, in.getString(), in.getString());
+                case INCOMING_TRANSFER -> new IncomingTransfer(date, amount, description, in.getString(), in.getString());
+                case OUTGOING_TRANSFER -> new OutgoingTransfer(date, amount, description, in.getString(), in.getString());
+                default -> throw new IOException("Unbekannter Transaktionstyp: " + type);
+            };
+        } catch (TransactionAttributeException | DateTimeException e) {
+            throw new IOException("Ungültige Transaktion: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bildet eine vorzeichenbehaftete Zahl so ab, dass betragsmäßig kleine Zahlen kurze varints ergeben.
+     * @param value Zahl
+     * @return ZigZag-kodierte Zahl
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Kehrt {@link #zigZag(long)} um.
+     * @param value ZigZag-kodierte Zahl
+     * @return ursprüngliche Zahl
+     */
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Gepuffertes Schreiben in einen Kanal, z.B. einen {@link FileChannel}.
+     */
+    private static final class Output {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        /** Anzahl bereits in den Kanal geschriebener Bytes */
+        private long written = 0;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length + 1L);
+            // lange Zeichenketten werden stückweise in den Puffer kopiert
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining())
+                    flush();
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Stellt sicher, dass mindestens bytes Bytes im Puffer frei sind.
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void flush() throws IOException {
+            written += buffer.position();
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Gepuffertes Lesen aus einem {@link FileChannel} oder direkt aus einer eingeblendeten Datei.
+     */
+    private static final class Input {
+
+        /** Quelle, null beim Lesen aus einer eingeblendeten Datei */
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        /** Größe der Datei, zur Prüfung gelesener Längen */
+        private final long size;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.size = channel.size();
+            buffer.limit(0);
+        }
+
+        Input(ByteBuffer buffer) {
+            this.channel = null;
+            this.buffer = buffer;
+            this.size = buffer.limit();
+        }
+
+        long size() {
+            return size;
+        }
+
+        /**
+         * Liest die letzten 8 Bytes der Quelle, ohne die Leseposition zu verändern.
+         */
+        long lastLong() throws IOException {
+            if (channel == null)
+                return buffer.getLong((int) size - Long.BYTES);
+            ByteBuffer end = ByteBuffer.allocate(Long.BYTES);
+            if (channel.read(end, size - Long.BYTES) != Long.BYTES)
+                throw new EOFException("Unerwartetes Dateiende.");
+            return end.getLong(0);
+        }
+
+        byte getByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        double getDouble() throws IOException {
+            require(Double.BYTES);
+            return buffer.getDouble();
+        }
+
+        long getVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = getByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Ungültige Zahl.");
+        }
+
+        String getString() throws IOException {
+            long encoded = getVarLong();
+            if (encoded == 0)
+                return null;
+            if (encoded - 1 > size)
+                throw new IOException("Ungültige Länge einer Zeichenkette: " + (encoded - 1));
+            byte[] bytes = new byte[(int) (encoded - 1)];
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining())
+                    require(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Stellt sicher, dass mindestens bytes ungelesene Bytes im Puffer liegen.
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return;
+            if (channel == null)
+                throw new EOFException("Unerwartetes Dateiende.");
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("Unerwartetes Dateiende.");
+            }
+            buffer.flip();
+        }
+    }
+}
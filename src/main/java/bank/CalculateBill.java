@@ -4,7 +4,7 @@ package bank;
  * Interface CalculateBill. Wird von den Klassen
  * {@link Payment} und {@link Transfer} implementiert.
  * @author Tobias Schnuerpel
- * @version 2.0
+ * @version 2.1
  */
 public interface CalculateBill {
 
@@ -14,4 +14,10 @@ public interface CalculateBill {
      */
     double calculate();
 
+    /**
+     * Wie {@link #calculate()}, aber exakt in Cent ({@link Money}).
+     * @return Betrag nach Abzug bzw. Addition der Zinsen in Cent
+     */
+    long calculateMinor();
+
 }
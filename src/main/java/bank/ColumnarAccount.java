@@ -0,0 +1,546 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+
+import java.util.*;
+
+/**
+ * Speicherplatzsparende Alternative zu einer Liste von {@link Transaction} Objekten für ein einzelnes Konto.
+ * Die Transaktionen liegen spaltenweise in primitiven Arrays: Art (byte), Datum als Epochentag (int),
+ * Betrag (double), Betrag nach Zinsen in Cent (long) sowie Beschreibung, Sender, Empfänger und Zinssätze als Codes
+ * eines Wörterbuchs (int). Pro Transaktion werden so statt eines Objekts mit Header und eigenen Strings nur 33 Byte
+ * in den Spalten belegt.
+ * <p>
+ * Kontostand ({@link #getBalance()}, exakt über die Cent-Spalte mit {@link Money#sum}) und Filter nach Vorzeichen ({@link #getTransactionsByType(boolean)})
+ * laufen direkt über die Spalten. Nach außen erscheinen die Transaktionen nur als Sichten
+ * ({@link #getTransactions()}), die beim Zugriff auf ein Element ein kurzlebiges {@link Transaction} Objekt
+ * der passenden Klasse erzeugen, damit {@link Transaction#equals(Object)} und die Serialisierung unverändert gelten.
+ * <p>
+ * Wie bei einem Konto einer {@link PrivateBank} werden doppelte Transaktionen abgelehnt, die Einfügereihenfolge
+ * bleibt erhalten. Das Datum wird als Epochentag ({@link Transaction#getEpochDay()}) gespeichert.
+ * Die Klasse ist nicht threadsicher.
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public final class ColumnarAccount {
+
+    /** Art einer Zeile: entfernt (Platzhalter bis zum nächsten Verdichten) */
+    private static final byte REMOVED = 0;
+    /** Art einer Zeile: {@link Payment} */
+    private static final byte PAYMENT = 1;
+    /** Art einer Zeile: {@link Transfer} */
+    private static final byte TRANSFER = 2;
+    /** Art einer Zeile: {@link IncomingTransfer} */
+    private static final byte INCOMING_TRANSFER = 3;
+    /** Art einer Zeile: {@link OutgoingTransfer} */
+    private static final byte OUTGOING_TRANSFER = 4;
+
+    /** Anfangsgröße der Spalten */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Art jeder Zeile */
+    private byte[] types;
+    /** Datum jeder Zeile als Tage seit dem 01.01.1970 */
+    private int[] epochDays;
+    /** Betrag jeder Zeile (vor Zinsen) */
+    private double[] amounts;
+    /** Betrag jeder Zeile nach Zinsen in Cent ({@link Transaction#calculateMinor()}), 0 für entfernte Zeilen */
+    private long[] calculated;
+    /** Code der Beschreibung jeder Zeile */
+    private int[] descriptions;
+    /** Code des Senders jeder Zeile (nur Überweisungen, sonst {@link StringDictionary#NULL}) */
+    private int[] senders;
+    /** Code des Empfängers jeder Zeile (nur Überweisungen, sonst {@link StringDictionary#NULL}) */
+    private int[] recipients;
+    /** Code der Zinssätze jeder Zeile (nur Ein- und Auszahlungen, sonst -1) */
+    private int[] interests;
+
+    /** Anzahl der belegten Zeilen (inklusive entfernter) */
+    private int rows = 0;
+    /** Anzahl der entfernten Zeilen, die noch Platz belegen */
+    private int removed = 0;
+
+    /** Wörterbuch für Beschreibungen, Sender und Empfänger */
+    private final StringDictionary strings = new StringDictionary();
+    /** Unterschiedliche Zinssätze: an Position 2 * Code der Zinssatz für Einzahlungen, danach für Auszahlungen */
+    private double[] interestTable = new double[8];
+    /** Anzahl der unterschiedlichen Zinssätze */
+    private int interestCount = 0;
+
+    /** Hash-Index über alle Zeilen (offene Adressierung), enthält Zeilennummer + 1 oder 0 für leer */
+    private int[] index;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse ColumnarAccount. Erstellt ein leeres Konto.
+     */
+    public ColumnarAccount() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Konstruktor der Klasse ColumnarAccount. Erstellt ein Konto mit den übergebenen Transaktionen.
+     * Doppelte Transaktionen werden nur einmal übernommen.
+     * @param transactions Transaktionen des Kontos
+     * @throws TransactionAttributeException wenn die Art einer Transaktion unbekannt ist
+     */
+    public ColumnarAccount(Collection<Transaction> transactions) {
+        allocate(Math.max(INITIAL_CAPACITY, transactions.size()));
+        for (Transaction transaction : transactions)
+            add(transaction);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Fügt eine Transaktion am Ende hinzu, sofern sie noch nicht enthalten ist.
+     * @param transaction hinzuzufügende Transaktion
+     * @return true, wenn die Transaktion hinzugefügt wurde, false, wenn sie bereits enthalten war
+     * @throws TransactionAttributeException wenn die Art der Transaktion unbekannt ist
+     */
+    public boolean add(Transaction transaction) {
+        if (contains(transaction))
+            return false;
+        if (rows == types.length)
+            grow();
+        int row = rows++;
+        types[row] = typeOf(transaction);
+        epochDays[row] = transaction.getEpochDay();
+        amounts[row] = transaction.getAmount() + 0.0;
+        calculated[row] = transaction.calculateMinor();
+        descriptions[row] = strings.encode(transaction.getDescription());
+        senders[row] = StringDictionary.NULL;
+        recipients[row] = StringDictionary.NULL;
+        interests[row] = -1;
+        if (transaction instanceof Payment payment) {
+            interests[row] = encodeInterest(payment.getIncomingInterest(), payment.getOutgoingInterest());
+        } else if (transaction instanceof Transfer transfer) {
+            senders[row] = strings.encode(transfer.getSender());
+            recipients[row] = strings.encode(transfer.getRecipient());
+        }
+        insertIntoIndex(row);
+        return true;
+    }
+
+    /**
+     * Entfernt eine Transaktion. Die Reihenfolge der übrigen Transaktionen bleibt erhalten.
+     * @param transaction zu entfernende Transaktion
+     * @return true, wenn die Transaktion entfernt wurde, false, wenn sie nicht enthalten war
+     */
+    public boolean remove(Transaction transaction) {
+        int row = find(transaction);
+        if (row < 0)
+            return false;
+        removeFromIndex(row);
+        types[row] = REMOVED;
+        calculated[row] = 0;
+        removed++;
+        // Platz entfernter Zeilen freigeben, sobald sie die Hälfte ausmachen
+        if (removed > INITIAL_CAPACITY && removed * 2 > rows)
+            compact();
+        return true;
+    }
+
+    /**
+     * Prüft, ob eine Transaktion enthalten ist.
+     * @param transaction gesuchte Transaktion
+     * @return true, wenn die Transaktion enthalten ist, sonst false
+     */
+    public boolean contains(Transaction transaction) {
+        return find(transaction) >= 0;
+    }
+
+    /**
+     * Gibt die Anzahl der Transaktionen zurück.
+     * @return Anzahl der Transaktionen
+     */
+    public int size() {
+        return rows - removed;
+    }
+
+    /**
+     * Berechnet den Kontostand (Summe aller {@link Transaction#calculateMinor()}) direkt aus der Cent-Spalte.
+     * @return Kontostand
+     */
+    public double getBalance() {
+        return Money.toDouble(getBalanceMinor());
+    }
+
+    /**
+     * Berechnet den Kontostand exakt in Cent direkt aus der Cent-Spalte.
+     * Entfernte Zeilen enthalten 0 und müssen daher nicht übersprungen werden.
+     * @return Kontostand in Cent
+     */
+    public long getBalanceMinor() {
+        return Money.sum(calculated, rows);
+    }
+
+    /**
+     * Gibt eine nicht veränderbare Sicht auf alle Transaktionen in Einfügereihenfolge zurück.
+     * Jeder Zugriff auf ein Element erzeugt ein neues {@link Transaction} Objekt.
+     * Die Sicht ist nur gültig, bis das Konto das nächste Mal verändert wird.
+     * @return Sicht auf alle Transaktionen
+     */
+    public List<Transaction> getTransactions() {
+        if (removed == 0)
+            return new RowView(null, rows);
+        return new RowView(liveRows(), size());
+    }
+
+    /**
+     * Gibt eine nicht veränderbare Sicht auf die positiven (inklusive 0) oder negativen Transaktionen
+     * (-> berechnete Beträge) in Einfügereihenfolge zurück. Gefiltert wird direkt über die Spalten.
+     * Die Sicht ist nur gültig, bis das Konto das nächste Mal verändert wird.
+     * @param positive wählt positive oder negative Transaktionen
+     * @return Sicht auf die gefilterten Transaktionen
+     */
+    public List<Transaction> getTransactionsByType(boolean positive) {
+        int[] selected = new int[size()];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] == REMOVED)
+                continue;
+            if ((calculate(row) >= 0) == positive)
+                selected[count++] = row;
+        }
+        return new RowView(selected, count);
+    }
+
+    /**
+     * Gibt eine Kopie aller Transaktionen in Einfügereihenfolge zurück.
+     * @return Liste aller Transaktionen
+     */
+    public List<Transaction> toList() {
+        return new ArrayList<>(getTransactions());
+    }
+
+    /**
+     * Vergleicht zwei Konten miteinander.
+     * Gibt true zurück, wenn beide dieselben Transaktionen in derselben Reihenfolge enthalten, sonst false.
+     * @param o Objekt, mit dem das Konto verglichen werden soll
+     * @return true, wenn beide Konten gleich sind, sonst false
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return getTransactions().equals(((ColumnarAccount) o).getTransactions());
+    }
+
+    /**
+     * Berechnet den Hashwert des Kontos aus seinen Transaktionen (passend zu {@link #equals(Object)}).
+     * @return Hashwert des Kontos
+     */
+    @Override
+    public int hashCode() {
+        return getTransactions().hashCode();
+    }
+
+    //--------------------- Methoden für die Spalten ---------------------
+
+    /**
+     * Berechnet den Betrag einer Zeile nach Zinsen wie {@link Transaction#calculate()}.
+     * @param row Zeile
+     * @return berechneter Betrag, 0 für entfernte Zeilen
+     */
+    private double calculate(int row) {
+        double amount = amounts[row];
+        return switch (types[row]) {
+            case PAYMENT -> amount >= 0
+                    ? amount * (1 - interestTable[2 * interests[row]])
+                    : amount * (1 + interestTable[2 * interests[row] + 1]);
+            case TRANSFER, INCOMING_TRANSFER -> amount;
+            case OUTGOING_TRANSFER -> -amount;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Erzeugt ein {@link Transaction} Objekt mit den Werten einer Zeile.
+     * @param row Zeile
+     * @return neue Transaktion der passenden Klasse
+     */
+    private Transaction materialize(int row) {
+        String date = TransactionDate.format(epochDays[row]);
+        String description = strings.decode(descriptions[row]);
+        double amount = amounts[row];
+        return switch (types[row]) {
+            case PAYMENT -> new Payment(date, amount, description,
+                    interestTable[2 * interests[row]], interestTable[2 * interests[row] + 1]);
+            case TRANSFER -> new Transfer(date, amount, description,
+                    strings.decode(senders[row]), strings.decode(recipients[row]));
+            case INCOMING_TRANSFER -> new IncomingTransfer(date, amount, description,
+                    strings.decode(senders[row]), strings.decode(recipients[row]));
+            case OUTGOING_TRANSFER -> new OutgoingTransfer(date, amount, description,
+                    strings.decode(senders[row]), strings.decode(recipients[row]));
+            default -> throw new IllegalStateException("Row was removed: " + row);
+        };
+    }
+
+    /**
+     * Gibt die Nummern aller nicht entfernten Zeilen zurück.
+     * @return Zeilennummern in Einfügereihenfolge
+     */
+    private int[] liveRows() {
+        int[] live = new int[size()];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] != REMOVED)
+                live[count++] = row;
+        }
+        return live;
+    }
+
+    /**
+     * Sucht die Zeile einer Transaktion über den Hash-Index.
+     * @param transaction gesuchte Transaktion
+     * @return Zeilennummer oder -1, wenn die Transaktion nicht enthalten ist
+     */
+    private int find(Transaction transaction) {
+        byte type = typeOf(transaction);
+        int epochDay = transaction.getEpochDay();
+        int description = strings.find(transaction.getDescription());
+        if (description < -1)
+            return -1;
+        int sender = StringDictionary.NULL;
+        int recipient = StringDictionary.NULL;
+        int interest = -1;
+        if (transaction instanceof Payment payment) {
+            interest = findInterest(payment.getIncomingInterest(), payment.getOutgoingInterest());
+            if (interest < 0)
+                return -1;
+        } else if (transaction instanceof Transfer transfer) {
+            sender = strings.find(transfer.getSender());
+            recipient = strings.find(transfer.getRecipient());
+            if (sender < -1 || recipient < -1)
+                return -1;
+        }
+        double amount = transaction.getAmount();
+        int mask = index.length - 1;
+        for (int slot = hash(type, epochDay, amount, description, sender, recipient, interest) & mask;
+             index[slot] != 0; slot = (slot + 1) & mask) {
+            int row = index[slot] - 1;
+            if (types[row] == type && epochDays[row] == epochDay && amounts[row] == amount
+                    && descriptions[row] == description && senders[row] == sender
+                    && recipients[row] == recipient && interests[row] == interest)
+                return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Berechnet den Hashwert einer Zeile aus ihren Spaltenwerten.
+     * @return Hashwert
+     */
+    private static int hash(byte type, int epochDay, double amount, int description, int sender, int recipient,
+                            int interest) {
+        int result = type;
+        result = 31 * result + epochDay;
+        result = 31 * result + Double.hashCode(amount + 0.0);
+        result = 31 * result + description;
+        result = 31 * result + sender;
+        result = 31 * result + recipient;
+        result = 31 * result + interest;
+        // Bits mischen, da die Tabelle nur die unteren Bits verwendet
+        return result ^ (result >>> 16);
+    }
+
+    /**
+     * Berechnet den Hashwert einer vorhandenen Zeile.
+     * @param row Zeile
+     * @return Hashwert
+     */
+    private int hash(int row) {
+        return hash(types[row], epochDays[row], amounts[row], descriptions[row], senders[row], recipients[row],
+                interests[row]);
+    }
+
+    /**
+     * Trägt eine Zeile in den Hash-Index ein und vergrößert ihn bei Bedarf.
+     * @param row Zeile
+     */
+    private void insertIntoIndex(int row) {
+        // Füllgrad höchstens 50 %, entfernte Zeilen stehen nicht im Index
+        if (2 * (size() + 1) > index.length) {
+            rebuildIndex(index.length * 2);
+            return;
+        }
+        int mask = index.length - 1;
+        int slot = hash(row) & mask;
+        while (index[slot] != 0)
+            slot = (slot + 1) & mask;
+        index[slot] = row + 1;
+    }
+
+    /**
+     * Entfernt eine Zeile aus dem Hash-Index. Nachfolgende Einträge werden zurückgeschoben,
+     * damit keine Lücken in den Suchketten entstehen.
+     * @param row Zeile
+     */
+    private void removeFromIndex(int row) {
+        int mask = index.length - 1;
+        int slot = hash(row) & mask;
+        while (index[slot] != row + 1)
+            slot = (slot + 1) & mask;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+            int home = hash(index[next] - 1) & mask;
+            // Eintrag darf nur in die Lücke, wenn diese zwischen seiner Heimatposition und seiner Position liegt
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                index[gap] = index[next];
+                gap = next;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    /**
+     * Baut den Hash-Index mit der angegebenen Größe neu auf.
+     * @param capacity Größe des Index (Zweierpotenz)
+     */
+    private void rebuildIndex(int capacity) {
+        index = new int[capacity];
+        int mask = capacity - 1;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] == REMOVED)
+                continue;
+            int slot = hash(row) & mask;
+            while (index[slot] != 0)
+                slot = (slot + 1) & mask;
+            index[slot] = row + 1;
+        }
+    }
+
+    /**
+     * Entfernt die Platzhalter entfernter Zeilen aus den Spalten und baut den Index neu auf.
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < rows; row++) {
+            if (types[row] == REMOVED)
+                continue;
+            types[target] = types[row];
+            epochDays[target] = epochDays[row];
+            amounts[target] = amounts[row];
+            calculated[target] = calculated[row];
+            descriptions[target] = descriptions[row];
+            senders[target] = senders[row];
+            recipients[target] = recipients[row];
+            interests[target] = interests[row];
+            target++;
+        }
+        rows = target;
+        removed = 0;
+        rebuildIndex(index.length);
+    }
+
+    /**
+     * Legt alle Spalten und den Index mit der angegebenen Kapazität an.
+     * @param capacity Anzahl der Zeilen
+     */
+    private void allocate(int capacity) {
+        types = new byte[capacity];
+        epochDays = new int[capacity];
+        amounts = new double[capacity];
+        calculated = new long[capacity];
+        descriptions = new int[capacity];
+        senders = new int[capacity];
+        recipients = new int[capacity];
+        interests = new int[capacity];
+        index = new int[Integer.highestOneBit(Math.max(2, capacity - 1)) << 2];
+    }
+
+    /**
+     * Vergrößert alle Spalten um die Hälfte.
+     */
+    private void grow() {
+        int capacity = types.length + (types.length >> 1) + 1;
+        types = Arrays.copyOf(types, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        calculated = Arrays.copyOf(calculated, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        senders = Arrays.copyOf(senders, capacity);
+        recipients = Arrays.copyOf(recipients, capacity);
+        interests = Arrays.copyOf(interests, capacity);
+    }
+
+    /**
+     * Gibt den Code eines Zinssatz-Paares zurück und legt es bei Bedarf an.
+     * @param incoming Zinssatz für Einzahlungen
+     * @param outgoing Zinssatz für Auszahlungen
+     * @return Code der Zinssätze
+     */
+    private int encodeInterest(double incoming, double outgoing) {
+        int code = findInterest(incoming, outgoing);
+        if (code >= 0)
+            return code;
+        if (2 * interestCount == interestTable.length)
+            interestTable = Arrays.copyOf(interestTable, interestTable.length * 2);
+        interestTable[2 * interestCount] = incoming + 0.0;
+        interestTable[2 * interestCount + 1] = outgoing + 0.0;
+        return interestCount++;
+    }
+
+    /**
+     * Sucht den Code eines Zinssatz-Paares. Es gibt üblicherweise nur sehr wenige unterschiedliche Zinssätze.
+     * @param incoming Zinssatz für Einzahlungen
+     * @param outgoing Zinssatz für Auszahlungen
+     * @return Code der Zinssätze oder -1, wenn sie nicht vorkommen
+     */
+    private int findInterest(double incoming, double outgoing) {
+        for (int code = 0; code < interestCount; code++) {
+            if (interestTable[2 * code] == incoming && interestTable[2 * code + 1] == outgoing)
+                return code;
+        }
+        return -1;
+    }
+
+    /**
+     * Bestimmt die Art einer Transaktion.
+     * @param transaction Transaktion
+     * @return Art der Transaktion
+     * @throws TransactionAttributeException wenn die Klasse der Transaktion unbekannt ist
+     */
+    private static byte typeOf(Transaction transaction) {
+        Class<?> type = transaction.getClass();
+        if (type == Payment.class) return PAYMENT;
+        if (type == Transfer.class) return TRANSFER;
+        if (type == IncomingTransfer.class) return INCOMING_TRANSFER;
+        if (type == OutgoingTransfer.class) return OUTGOING_TRANSFER;
+        throw new TransactionAttributeException("Unknown transaction type: " + type.getSimpleName());
+    }
+
+    /**
+     * Nicht veränderbare Sicht auf ausgewählte Zeilen, erzeugt Transaktionen erst beim Zugriff.
+     */
+    private final class RowView extends AbstractList<Transaction> implements RandomAccess {
+
+        /** Ausgewählte Zeilen oder null für die Zeilen 0 bis size - 1 */
+        private final int[] selected;
+        /** Anzahl der Elemente */
+        private final int size;
+
+        private RowView(int[] selected, int size) {
+            this.selected = selected;
+            this.size = size;
+        }
+
+        @Override
+        public Transaction get(int i) {
+            Objects.checkIndex(i, size);
+            return materialize(selected == null ? i : selected[i]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
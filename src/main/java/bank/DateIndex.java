@@ -0,0 +1,80 @@
+package bank;
+
+import java.util.*;
+
+/**
+ * Nach Datum sortierter Index über die Transaktionen eines Kontos ({@link AccountLedger}).
+ * Die Einträge liegen nach Epochentag sortiert in einem {@link RankTree}, sodass Hinzufügen und Entfernen
+ * in O(log n) laufen und Bereichsabfragen ({@link #between(long, long)}) die Grenzen in O(log n) finden
+ * und nur die Treffer kopieren.
+ * Transaktionen mit gleichem Datum bleiben in Einfügereihenfolge.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+final class DateIndex {
+
+    /** Transaktionen nach Epochentag, bei gleichem Tag in Einfügereihenfolge */
+    private final RankTree tree;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse DateIndex. Baut den Index über die übergebenen Transaktionen auf.
+     * @param transactions Transaktionen in Einfügereihenfolge
+     */
+    DateIndex(Collection<Transaction> transactions) {
+        Transaction[] entries = transactions.toArray(new Transaction[0]);
+        // stabile Sortierung: gleiche Tage behalten die Einfügereihenfolge
+        Arrays.sort(entries, Comparator.comparingInt(Transaction::getEpochDay));
+        double[] days = new double[entries.length];
+        for (int i = 0; i < entries.length; i++)
+            days[i] = entries[i].getEpochDay();
+        tree = new RankTree(days, entries, entries.length);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Fügt eine Transaktion hinter allen Transaktionen mit gleichem oder früherem Datum ein.
+     * @param transaction neue Transaktion
+     */
+    void add(Transaction transaction) {
+        tree.add(transaction.getEpochDay(), transaction);
+    }
+
+    /**
+     * Entfernt eine Transaktion. Gesucht wird nur unter den Einträgen mit demselben Datum.
+     * @param transaction zu entfernende Transaktion
+     * @return true, wenn die Transaktion entfernt wurde, false, wenn sie nicht enthalten war
+     */
+    boolean remove(Transaction transaction) {
+        return tree.remove(transaction.getEpochDay(), transaction);
+    }
+
+    /**
+     * Gibt alle Transaktionen zwischen zwei Tagen (jeweils einschließlich) zurück.
+     * @param from erster Tag als Epochentag
+     * @param to letzter Tag als Epochentag
+     * @return Kopie der Transaktionen, nach Datum sortiert
+     */
+    List<Transaction> between(long from, long to) {
+        List<Transaction> result = new ArrayList<>();
+        if (from > to)
+            return result;
+        // Epochentage sind int-Werte und als double exakt
+        tree.collect(tree.lowerRank(from), tree.upperRank(to), result);
+        return result;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     * @return Anzahl der Einträge
+     */
+    int size() {
+        return tree.size();
+    }
+}
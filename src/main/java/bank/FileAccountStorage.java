@@ -0,0 +1,179 @@
+package bank;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Speichert jedes Konto als eigene Datei [account].json (bzw. [account].bin im {@link AccountFileFormat#BINARY}
+ * Format) im angegebenen Verzeichnis.
+ * Jede Änderung schreibt die komplette Datei des Kontos neu (siehe {@link BankFileHandler}).
+ * @author Tobias Schnuerpel
+ * @version 1.5
+ */
+public class FileAccountStorage implements AccountStorage {
+
+    /** Standardmäßige Anzahl gleichzeitig gelesener Kontodateien: eine pro Prozessor */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /** Speicherort (Pfad) der Kontodateien */
+    private final String directoryName;
+    /** Maximale Anzahl gleichzeitig gelesener Kontodateien beim Laden */
+    private final int parallelism;
+    /** Format der Kontodateien */
+    private final AccountFileFormat format;
+
+    /**
+     * Konstruktor der Klasse FileAccountStorage.
+     * Beim Laden werden bis zu {@link #DEFAULT_PARALLELISM} Kontodateien gleichzeitig gelesen.
+     * @param directoryName Speicherort (Pfad) der Kontodateien
+     */
+    public FileAccountStorage(String directoryName) {
+        this(directoryName, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Konstruktor der Klasse FileAccountStorage.
+     * @param directoryName Speicherort (Pfad) der Kontodateien
+     * @param parallelism maximale Anzahl gleichzeitig gelesener Kontodateien beim Laden (1 = nacheinander)
+     */
+    public FileAccountStorage(String directoryName, int parallelism) {
+        this(directoryName, parallelism, AccountFileFormat.JSON);
+    }
+
+    /**
+     * Konstruktor der Klasse FileAccountStorage.
+     * Beim Laden werden bis zu {@link #DEFAULT_PARALLELISM} Kontodateien gleichzeitig gelesen.
+     * @param directoryName Speicherort (Pfad) der Kontodateien
+     * @param format Format der Kontodateien
+     */
+    public FileAccountStorage(String directoryName, AccountFileFormat format) {
+        this(directoryName, DEFAULT_PARALLELISM, format);
+    }
+
+    /**
+     * Konstruktor der Klasse FileAccountStorage.
+     * @param directoryName Speicherort (Pfad) der Kontodateien
+     * @param parallelism maximale Anzahl gleichzeitig gelesener Kontodateien beim Laden (1 = nacheinander)
+     * @param format Format der Kontodateien
+     */
+    public FileAccountStorage(String directoryName, int parallelism, AccountFileFormat format) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism muss mindestens 1 sein.");
+        if (format == null)
+            throw new IllegalArgumentException("format darf nicht null sein.");
+        this.directoryName = directoryName;
+        this.parallelism = parallelism;
+        this.format = format;
+    }
+
+    /**
+     * Gibt den Speicherort (Pfad) der Kontodateien zurück.
+     * @return Speicherort (Pfad)
+     */
+    @Override
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * Gibt das Format der Kontodateien zurück.
+     * @return Format der Kontodateien
+     */
+    public AccountFileFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Liest alle Kontodateien im Verzeichnis ein, bis zu {@code parallelism} Dateien gleichzeitig.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     */
+    @Override
+    public Map<String, List<Transaction>> readAccounts() {
+        return BankFileHandler.readAccounts(directoryName, parallelism, format);
+    }
+
+    /**
+     * Einzelne Kontodateien können unabhängig voneinander gelesen werden.
+     * @return true
+     */
+    @Override
+    public boolean supportsLazyLoading() {
+        return true;
+    }
+
+    /**
+     * Im JSON-Format verweisen Zahlungen auf die Version ihrer Zinssätze, das Binärformat speichert die Zinssätze.
+     * @return true im JSON-Format, sonst false
+     */
+    @Override
+    public boolean storesRateVersions() {
+        return format == AccountFileFormat.JSON;
+    }
+
+    /**
+     * Gibt die Namen aller Kontodateien im Verzeichnis zurück, ohne sie zu lesen.
+     * @return Namen aller Konten
+     */
+    @Override
+    public Set<String> readAccountNames() {
+        return BankFileHandler.readAccountNames(directoryName, format);
+    }
+
+    /**
+     * Liest die Datei [account].json (bzw. [account].bin) ein.
+     * @param account Name des Kontos
+     * @return Transaktionen des Kontos, leer, wenn die Datei nicht existiert
+     * @throws IllegalStateException wenn die Datei nicht gelesen werden kann
+     */
+    @Override
+    public List<Transaction> readAccount(String account) {
+        return BankFileHandler.readAccount(directoryName, account, format);
+    }
+
+    /**
+     * Schreibt die Datei [account].json (bzw. [account].bin) komplett neu.
+     * @param account Name des Kontos
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean writeAccount(String account, Collection<Transaction> transactions) {
+        return BankFileHandler.writeAccount(directoryName, account, transactions, format);
+    }
+
+    /**
+     * Löscht die Datei [account].json (bzw. [account].bin).
+     * @param account Name des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean deleteAccount(String account) {
+        return BankFileHandler.deleteAccount(directoryName, account, format);
+    }
+
+    /**
+     * Schreibt die Datei des Kontos inklusive der neuen Transaktion komplett neu.
+     * @param account Name des Kontos
+     * @param transaction hinzugefügte Transaktion
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Schreibt die Datei des Kontos ohne die entfernte Transaktion komplett neu.
+     * @param account Name des Kontos
+     * @param transaction entfernte Transaktion
+     * @param transactions alle verbleibenden Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+}
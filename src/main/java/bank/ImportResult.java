@@ -0,0 +1,161 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ergebnis eines Massenimports von Transaktionen ({@link Bank#importTransactions(String, List)}).
+ * Enthält die übernommenen Transaktionen in Importreihenfolge sowie für jede abgelehnte Transaktion
+ * ihre Position in der Eingabe und den Grund der Ablehnung.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public final class ImportResult {
+
+    /** Übernommene Transaktionen in Importreihenfolge */
+    private final List<Transaction> imported = new ArrayList<>();
+    /** Abgelehnte Transaktionen in Importreihenfolge */
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse ImportResult. Erstellt ein leeres Ergebnis, das während des Imports gefüllt wird.
+     */
+    ImportResult() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Vermerkt eine übernommene Transaktion.
+     * @param transaction übernommene Transaktion
+     */
+    void imported(Transaction transaction) {
+        imported.add(transaction);
+    }
+
+    /**
+     * Vermerkt eine abgelehnte Transaktion.
+     * @param index Position der Transaktion in der Eingabe
+     * @param transaction abgelehnte Transaktion, kann null sein
+     * @param cause Grund der Ablehnung
+     */
+    void rejected(int index, Transaction transaction, Exception cause) {
+        rejections.add(new Rejection(index, transaction, cause));
+    }
+
+    /**
+     * Gibt an, ob alle Transaktionen übernommen wurden.
+     * @return true, wenn keine Transaktion abgelehnt wurde, sonst false
+     */
+    public boolean isComplete() {
+        return rejections.isEmpty();
+    }
+
+    /**
+     * Gibt das Ergebnis als String zurück.
+     * @return Anzahl der übernommenen und abgelehnten Transaktionen
+     */
+    @Override
+    public String toString() {
+        return "ImportResult{" +
+                "imported=" + imported.size() +
+                ", rejected=" + rejections.size() +
+                '}';
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die übernommenen Transaktionen zurück.
+     * @return nicht veränderbare Liste der übernommenen Transaktionen in Importreihenfolge
+     */
+    public List<Transaction> getImported() {
+        return Collections.unmodifiableList(imported);
+    }
+
+    /**
+     * Gibt die abgelehnten Transaktionen zurück.
+     * @return nicht veränderbare Liste der Ablehnungen in Importreihenfolge
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * Eine abgelehnte Transaktion mit ihrer Position in der Eingabe und dem Grund der Ablehnung.
+     */
+    public static final class Rejection {
+
+        /** Position der Transaktion in der Eingabe */
+        private final int index;
+        /** Abgelehnte Transaktion, kann null sein */
+        private final Transaction transaction;
+        /** Grund der Ablehnung, z.B. {@link bank.exceptions.TransactionAlreadyExistException} */
+        private final Exception cause;
+
+        /**
+         * Konstruktor der Klasse Rejection.
+         * @param index Position der Transaktion in der Eingabe
+         * @param transaction abgelehnte Transaktion, kann null sein
+         * @param cause Grund der Ablehnung
+         */
+        Rejection(int index, Transaction transaction, Exception cause) {
+            this.index = index;
+            this.transaction = transaction;
+            this.cause = cause;
+        }
+
+        /**
+         * Gibt die Ablehnung als String zurück.
+         * @return Position und Grund der Ablehnung
+         */
+        @Override
+        public String toString() {
+            return "Rejection{" +
+                    "index=" + index +
+                    ", reason='" + getReason() + '\'' +
+                    '}';
+        }
+
+        /**
+         * Gibt die Position der Transaktion in der Eingabe zurück.
+         * @return Position der Transaktion
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gibt die abgelehnte Transaktion zurück.
+         * @return abgelehnte Transaktion, kann null sein
+         */
+        public Transaction getTransaction() {
+            return transaction;
+        }
+
+        /**
+         * Gibt den Grund der Ablehnung als Exception zurück.
+         * @return Grund der Ablehnung
+         */
+        public Exception getCause() {
+            return cause;
+        }
+
+        /**
+         * Gibt den Grund der Ablehnung als Text zurück.
+         * @return Fehlermeldung des Grundes
+         */
+        public String getReason() {
+            return cause.getMessage();
+        }
+    }
+}
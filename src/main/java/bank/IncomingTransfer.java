@@ -1,10 +1,12 @@
 package bank;
 
+import bank.exceptions.TransactionAttributeException;
+
 /**
  * Repraesentiert eingehende Ueberweisungen im Banksystem.
  * Erbt von der Klasse {@link Transfer}.
  * @author Tobias Schnuerpel
- * @version 3.0
+ * @version 3.2
  */
 public class IncomingTransfer extends Transfer {
 
@@ -19,8 +21,9 @@ public class IncomingTransfer extends Transfer {
      * @param date        Datum der Ueberweisung, Format: "DD.MM.YYYY"
      * @param amount      Betrag der Ueberweisung, positiv
      * @param description Beschreibung der Ueberweisung
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public IncomingTransfer(String date, double amount, String description) {
+    public IncomingTransfer(String date, double amount, String description) throws TransactionAttributeException {
         super(date, amount, description);
     }
 
@@ -32,8 +35,10 @@ public class IncomingTransfer extends Transfer {
      * @param description Beschreibung der Ueberweisung
      * @param sender      Akteur, der die Ueberweisung initiiert hat
      * @param recipient   Akteur, der die Ueberweisung empfaengt
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public IncomingTransfer(String date, double amount, String description, String sender, String recipient) {
+    public IncomingTransfer(String date, double amount, String description, String sender, String recipient)
+            throws TransactionAttributeException {
         super(date, amount, description, sender, recipient);
     }
 
@@ -46,14 +51,4 @@ public class IncomingTransfer extends Transfer {
     public IncomingTransfer(Transfer transfer) {
         super(transfer);
     }
-
-    /**
-     * Berechnet den Betrag der eingehenden Ueberweisung.
-     *
-     * @return Betrag der Ueberweisung
-     */
-    @Override
-    public double calculate() {
-        return super.calculate();
-    }
 }
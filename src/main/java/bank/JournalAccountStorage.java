@@ -0,0 +1,492 @@
+package bank;
+
+import bank.TransactionJournal.Entry;
+import bank.TransactionJournal.Operation;
+import bank.TransactionJournal.SyncPolicy;
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Speichert Kontoänderungen in einem append-only {@link TransactionJournal}, statt bei jeder Änderung
+ * die komplette Datei des Kontos neu zu schreiben.
+ * <p>
+ * In regelmäßigen Abständen (Anzahl der Einträge bzw. Zeitintervall) wird ein kompakter Snapshot aller Konten
+ * geschrieben und das Journal danach verworfen. Beim Laden wird der Snapshot gelesen und nur das kurze Journal
+ * seit dem Snapshot abgespielt. Snapshot und Journal tragen eine Generationsnummer, damit nach einem Absturz
+ * zwischen Snapshot und Verwerfen des alten Journals keine Einträge doppelt angewendet werden.
+ * <p>
+ * Alle Dateien liegen unter [directory]/journal. Existieren weder Snapshot noch Journal,
+ * werden vorhandene Kontodateien ([account].json) übernommen.
+ * <p>
+ * Können Snapshot oder Journal nicht gelesen werden, bricht {@link #readAccounts()} mit einer Exception ab und die
+ * Persistenz verweigert danach jedes Schreiben, damit der Snapshot nicht durch einen unvollständigen Stand
+ * ersetzt wird.
+ * @author Tobias Schnuerpel
+ * @version 2.4
+ */
+public class JournalAccountStorage implements AccountStorage {
+
+    /** Name des Unterverzeichnisses für Journal und Snapshot */
+    static final String JOURNAL_DIRECTORY = "journal";
+    /** Dateiname des Snapshots */
+    static final String SNAPSHOT_FILE = "snapshot.json";
+    /** Standardmäßige Anzahl an Journal-Einträgen, nach der ein Snapshot geschrieben wird */
+    public static final long DEFAULT_SNAPSHOT_ENTRIES = 10_000;
+
+    /** Typ einer Map von Konten für Gson */
+    private static final Type ACCOUNT_MAP = new TypeToken<Map<String, Collection<Transaction>>>() {}.getType();
+
+    /** Gson-Instanz für den Snapshot, ohne Pretty-Printing */
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Transaction.class, new TransactionAdapter())
+            .create();
+
+    /** Speicherort (Pfad) der Konten */
+    private final String directoryName;
+    /** Wann das Journal auf den Datenträger gezwungen wird */
+    private final SyncPolicy syncPolicy;
+    /** Anzahl der Einträge zwischen zwei fsync-Aufrufen bei {@link SyncPolicy#BATCH} */
+    private final int batchSize;
+    /** Anzahl an Journal-Einträgen, nach der ein Snapshot geschrieben wird (0 = nie) */
+    private final long snapshotEntries;
+    /** Zeit in Millisekunden, nach der ein Snapshot geschrieben wird (0 = nie) */
+    private final long snapshotIntervalMillis;
+
+    /** Generation des aktuellen Snapshots bzw. Journals */
+    private long generation = 0;
+    /** Journal der aktuellen Generation, in das alle Änderungen geschrieben werden */
+    private TransactionJournal journal;
+    /** Zeitpunkt des letzten Snapshots (bzw. des Ladens) in Millisekunden */
+    private long lastSnapshotMillis = System.currentTimeMillis();
+    /** Gibt an, ob Snapshot oder Journal nicht gelesen werden konnten; dann wird nichts mehr geschrieben */
+    private boolean failed = false;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse JournalAccountStorage.
+     * Jeder Eintrag wird sofort mit fsync auf den Datenträger geschrieben,
+     * ein Snapshot wird alle {@value #DEFAULT_SNAPSHOT_ENTRIES} Einträge geschrieben.
+     * @param directoryName Speicherort (Pfad) der Konten
+     */
+    public JournalAccountStorage(String directoryName) {
+        this(directoryName, SyncPolicy.ALWAYS, 1);
+    }
+
+    /**
+     * Konstruktor der Klasse JournalAccountStorage.
+     * Ein Snapshot wird alle {@value #DEFAULT_SNAPSHOT_ENTRIES} Einträge geschrieben.
+     * @param directoryName Speicherort (Pfad) der Konten
+     * @param syncPolicy wann das Journal auf den Datenträger gezwungen wird
+     * @param batchSize Anzahl der Einträge zwischen zwei fsync-Aufrufen bei {@link SyncPolicy#BATCH}
+     */
+    public JournalAccountStorage(String directoryName, SyncPolicy syncPolicy, int batchSize) {
+        this(directoryName, syncPolicy, batchSize, DEFAULT_SNAPSHOT_ENTRIES, 0);
+    }
+
+    /**
+     * Konstruktor der Klasse JournalAccountStorage.
+     * @param directoryName Speicherort (Pfad) der Konten
+     * @param syncPolicy wann das Journal auf den Datenträger gezwungen wird
+     * @param batchSize Anzahl der Einträge zwischen zwei fsync-Aufrufen bei {@link SyncPolicy#BATCH}
+     * @param snapshotEntries Anzahl an Journal-Einträgen, nach der ein Snapshot geschrieben wird (0 = nie)
+     * @param snapshotIntervalMillis Zeit in Millisekunden, nach der ein Snapshot geschrieben wird (0 = nie)
+     */
+    public JournalAccountStorage(String directoryName, SyncPolicy syncPolicy, int batchSize,
+                                 long snapshotEntries, long snapshotIntervalMillis) {
+        if (snapshotEntries < 0 || snapshotIntervalMillis < 0)
+            throw new IllegalArgumentException("Snapshot-Grenzen duerfen nicht negativ sein.");
+        this.directoryName = directoryName;
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+        this.snapshotEntries = snapshotEntries;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.journal = new TransactionJournal(getJournalPath(directoryName, generation), syncPolicy, batchSize);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt den Speicherort (Pfad) der Konten zurück.
+     * @return Speicherort (Pfad)
+     */
+    @Override
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * Journal und Snapshot speichern Zahlungen im JSON-Format und damit mit der Version ihrer Zinssätze.
+     * @return true
+     */
+    @Override
+    public boolean storesRateVersions() {
+        return true;
+    }
+
+    /**
+     * Lädt den letzten Snapshot und spielt das Journal seiner Generation ab.
+     * Existieren weder Snapshot noch Journal, werden die Kontodateien eingelesen und als Ausgangszustand
+     * ins Journal übernommen.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn der Snapshot nicht gelesen werden kann oder das Journal mitten im
+     *                               Journal beschädigt ist
+     */
+    @Override
+    public synchronized Map<String, List<Transaction>> readAccounts() {
+        // waehrend des Abspielens als Hash-Index, damit REMOVE-Eintraege in O(1) angewendet werden
+        Map<String, Collection<Transaction>> accounts = new HashMap<>();
+        Path snapshot = getSnapshotPath(directoryName);
+        if (Files.exists(snapshot)) {
+            try {
+                generation = readSnapshot(snapshot, accounts);
+            } catch (IOException | JsonParseException e) {
+                // ohne Snapshot fehlt die kompaktierte Historie, ein Abspielen nur des Journals waere unvollstaendig
+                failed = true;
+                throw new IllegalStateException("Error reading snapshot " + snapshot + ": " + e.getMessage(), e);
+            }
+        } else if (!journal.exists()) {
+            return importAccountFiles();
+        }
+
+        switchJournal(generation);
+        try {
+            journal.replay(entry -> apply(accounts, entry));
+        } catch (IOException e) {
+            failed = true;
+            throw new IllegalStateException("Error reading journal " + journal.getPath() + ": " + e.getMessage(), e);
+        }
+        lastSnapshotMillis = System.currentTimeMillis();
+
+        Map<String, List<Transaction>> result = new HashMap<>();
+        accounts.forEach((account, transactions) -> result.put(account, new ArrayList<>(transactions)));
+        return result;
+    }
+
+    /**
+     * Hängt einen PUT-Eintrag mit allen Transaktionen des Kontos an das Journal an.
+     * @param account Name des Kontos
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean writeAccount(String account, Collection<Transaction> transactions) {
+        List<Transaction> copy = transactions == null ? new ArrayList<>() : new ArrayList<>(transactions);
+        return append(new Entry(Operation.PUT, account, null, copy));
+    }
+
+    /**
+     * Hängt einen DELETE-Eintrag an das Journal an.
+     * @param account Name des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean deleteAccount(String account) {
+        return append(new Entry(Operation.DELETE, account, null, null));
+    }
+
+    /**
+     * Hängt einen ADD-Eintrag mit der neuen Transaktion an das Journal an.
+     * @param account Name des Kontos
+     * @param transaction hinzugefügte Transaktion
+     * @param transactions alle Transaktionen des Kontos (werden nicht geschrieben)
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return append(new Entry(Operation.ADD, account, transaction, null));
+    }
+
+    /**
+     * Hängt einen REMOVE-Eintrag mit der entfernten Transaktion an das Journal an.
+     * @param account Name des Kontos
+     * @param transaction entfernte Transaktion
+     * @param transactions alle verbleibenden Transaktionen des Kontos (werden nicht geschrieben)
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return append(new Entry(Operation.REMOVE, account, transaction, null));
+    }
+
+    /**
+     * Hängt einen einzigen TRANSFER-Eintrag mit beiden Buchungen an das Journal an.
+     * Da ein Eintrag genau eine Zeile ist, wird beim Abspielen entweder die ganze Überweisung
+     * oder (bei einem Absturz während des Schreibens) keine der beiden Buchungen übernommen.
+     * @param sender Name des Kontos des Senders
+     * @param outgoing Buchung auf dem Konto des Senders
+     * @param senderTransactions alle Transaktionen des Senders (werden nicht geschrieben)
+     * @param recipient Name des Kontos des Empfängers
+     * @param incoming Buchung auf dem Konto des Empfängers
+     * @param recipientTransactions alle Transaktionen des Empfängers (werden nicht geschrieben)
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean addTransfer(String sender, Transaction outgoing, Collection<Transaction> senderTransactions,
+                               String recipient, Transaction incoming, Collection<Transaction> recipientTransactions) {
+        return append(new Entry(sender, outgoing, recipient, incoming));
+    }
+
+    /**
+     * Hängt einen einzigen ADD_ALL-Eintrag mit allen importierten Transaktionen an das Journal an.
+     * Die übrigen Transaktionen des Kontos werden nicht erneut geschrieben.
+     * @param account Name des Kontos
+     * @param added hinzugefügte Transaktionen in Importreihenfolge
+     * @param transactions alle Transaktionen des Kontos (werden nicht geschrieben)
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean addTransactions(String account, List<Transaction> added, Collection<Transaction> transactions) {
+        return append(new Entry(Operation.ADD_ALL, account, null, new ArrayList<>(added)));
+    }
+
+    /**
+     * Prüft, ob das Journal so groß bzw. der letzte Snapshot so alt ist, dass ein neuer Snapshot fällig ist.
+     * @return true, wenn ein Snapshot geschrieben werden sollte, sonst false
+     */
+    @Override
+    public synchronized boolean needsCompaction() {
+        long entries = journal.getEntryCount();
+        if (entries == 0)
+            return false;
+        if (snapshotEntries > 0 && entries >= snapshotEntries)
+            return true;
+        return snapshotIntervalMillis > 0 && System.currentTimeMillis() - lastSnapshotMillis >= snapshotIntervalMillis;
+    }
+
+    /**
+     * Schreibt einen Snapshot aller Konten und verwirft danach das abgespielte Journal.
+     * Der Snapshot wird zuerst in eine temporäre Datei geschrieben, mit fsync gesichert und dann atomar
+     * umbenannt. Erst danach wird auf das Journal der neuen Generation gewechselt und das alte gelöscht.
+     * Konnten Snapshot oder Journal nicht gelesen werden, wird kein Snapshot geschrieben.
+     * @param accounts alle Konten der Bank
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public synchronized boolean compact(Map<String, ? extends Collection<Transaction>> accounts) {
+        if (failed) {
+            BankLog.error("Error - Refusing to write snapshot, accounts could not be read: {}", directoryName);
+            return false;
+        }
+        long next = generation + 1;
+        Path snapshot = getSnapshotPath(directoryName);
+        Path temp = snapshot.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.createDirectories(snapshot.getParent());
+            writeSnapshot(temp, next, accounts);
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(snapshot.getParent());
+        } catch (IOException e) {
+            BankLog.error("Error writing snapshot: {}", e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // die temporaere Datei wird beim naechsten Snapshot ueberschrieben
+            }
+            return false;
+        }
+
+        TransactionJournal old = journal;
+        generation = next;
+        switchJournal(next);
+        lastSnapshotMillis = System.currentTimeMillis();
+        try {
+            old.delete();
+        } catch (IOException e) {
+            // unkritisch: das alte Journal gehoert zu einer veralteten Generation und wird nicht mehr gelesen
+            BankLog.error("Error deleting old journal: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Schreibt ausstehende Einträge auf den Datenträger und schließt das Journal.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            BankLog.error("Error closing journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hängt Einträge an das Journal an. Konnten Snapshot oder Journal nicht gelesen werden, wird nichts angehängt.
+     * @param entries anzuhängende Einträge
+     * @return true bei Erfolg, ansonsten false
+     */
+    private synchronized boolean append(Entry... entries) {
+        if (failed) {
+            BankLog.error("Error - Refusing to write journal, accounts could not be read: {}", directoryName);
+            return false;
+        }
+        try {
+            journal.append(entries);
+        } catch (IOException e) {
+            BankLog.error("Error writing journal: {}", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wechselt auf das Journal der angegebenen Generation.
+     * @param generation Generation des Journals
+     */
+    private void switchJournal(long generation) {
+        Path path = getJournalPath(directoryName, generation);
+        if (!journal.getPath().equals(path)) {
+            close();
+            journal = new TransactionJournal(path, syncPolicy, batchSize);
+        }
+    }
+
+    /**
+     * Liest die vorhandenen Kontodateien ein und schreibt sie als PUT-Einträge in ein neues Journal.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     */
+    private Map<String, List<Transaction>> importAccountFiles() {
+        Map<String, List<Transaction>> accounts =
+                BankFileHandler.readAccounts(directoryName, FileAccountStorage.DEFAULT_PARALLELISM);
+        if (accounts.isEmpty())
+            return accounts;
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, List<Transaction>> account : accounts.entrySet()) {
+            if (account.getValue() == null)
+                account.setValue(new ArrayList<>());
+            entries.add(new Entry(Operation.PUT, account.getKey(), null, new ArrayList<>(account.getValue())));
+        }
+        append(entries.toArray(new Entry[0]));
+        return accounts;
+    }
+
+    /**
+     * Wendet einen Eintrag des Journals auf die übergebene Map an.
+     * @param accounts Map mit Kontonamen als Schlüssel und den {@link Transaction} Objekten des Kontos
+     * @param entry anzuwendender Eintrag
+     */
+    static void apply(Map<String, Collection<Transaction>> accounts, Entry entry) {
+        switch (entry.getOperation()) {
+            case PUT -> accounts.put(entry.getAccount(), new LinkedHashSet<>(entry.getTransactions()));
+            case DELETE -> accounts.remove(entry.getAccount());
+            case ADD -> accounts.computeIfAbsent(entry.getAccount(), k -> new LinkedHashSet<>()).add(entry.getTransaction());
+            case ADD_ALL -> accounts.computeIfAbsent(entry.getAccount(), k -> new LinkedHashSet<>())
+                    .addAll(entry.getTransactions());
+            case REMOVE -> {
+                Collection<Transaction> transactions = accounts.get(entry.getAccount());
+                if (transactions != null)
+                    transactions.remove(entry.getTransaction());
+            }
+            case TRANSFER -> {
+                accounts.computeIfAbsent(entry.getAccount(), k -> new LinkedHashSet<>()).add(entry.getTransaction());
+                accounts.computeIfAbsent(entry.getCounterAccount(), k -> new LinkedHashSet<>())
+                        .add(entry.getCounterTransaction());
+            }
+        }
+    }
+
+    /**
+     * Schreibt einen Snapshot im Format {"generation": n, "accounts": {...}} und sichert ihn mit fsync.
+     * @param path Zieldatei
+     * @param generation Generation des Snapshots
+     * @param accounts alle Konten der Bank
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    private static void writeSnapshot(Path path, long generation, Map<String, ? extends Collection<Transaction>> accounts)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("generation").value(generation);
+            json.name("accounts");
+            GSON.toJson(accounts, ACCOUNT_MAP, json);
+            json.endObject();
+            json.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Liest einen Snapshot in die übergebene Map ein.
+     * @param path Snapshot-Datei
+     * @param accounts Map, in die die Konten eingelesen werden
+     * @return Generation des Snapshots
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    private static long readSnapshot(Path path, Map<String, Collection<Transaction>> accounts) throws IOException {
+        long generation = 0;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "generation" -> generation = json.nextLong();
+                    case "accounts" -> {
+                        Map<String, Collection<Transaction>> read = GSON.fromJson(json, ACCOUNT_MAP);
+                        read.forEach((account, transactions) ->
+                                accounts.put(account, transactions == null ? new LinkedHashSet<>() : new LinkedHashSet<>(transactions)));
+                    }
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        return generation;
+    }
+
+    /**
+     * Sichert das Umbenennen im Verzeichnis mit fsync. Nicht jedes Dateisystem unterstützt das, Fehler werden ignoriert.
+     * @param directory Verzeichnis
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // z.B. unter Windows lassen sich Verzeichnisse nicht oeffnen
+        }
+    }
+
+    /**
+     * Gibt den Pfad der Journal-Datei einer Generation zurück.
+     * @param directoryName Speicherort (Pfad) der Konten
+     * @param generation Generation des Journals
+     * @return Pfad der Journal-Datei
+     */
+    static Path getJournalPath(String directoryName, long generation) {
+        String file = generation == 0 ? "transactions.journal" : "transactions." + generation + ".journal";
+        return Paths.get(directoryName, JOURNAL_DIRECTORY, file);
+    }
+
+    /**
+     * Gibt den Pfad der Snapshot-Datei zurück.
+     * @param directoryName Speicherort (Pfad) der Konten
+     * @return Pfad der Snapshot-Datei
+     */
+    static Path getSnapshotPath(String directoryName) {
+        return Paths.get(directoryName, JOURNAL_DIRECTORY, SNAPSHOT_FILE);
+    }
+}
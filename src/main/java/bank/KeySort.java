@@ -0,0 +1,133 @@
+package bank;
+
+/**
+ * Stabile Sortierung von Zeilennummern nach einem Array vorberechneter Schlüssel,
+ * z.B. der berechneten Beträge ({@link Transaction#calculate()}) aller Transaktionen eines Kontos.
+ * <p>
+ * Die double-Schlüssel werden vorab in long-Werte umgerechnet, deren Reihenfolge der von {@link Double#compare}
+ * entspricht. Sortiert wird dann ein Mergesort über die primitiven Arrays aus Schlüsseln und Zeilennummern,
+ * sodass in der inneren Schleife weder ein Comparator aufgerufen noch ein Objekt ausgepackt wird.
+ * Zeilen mit gleichem Schlüssel behalten auf- wie absteigend ihre ursprüngliche Reihenfolge.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+final class KeySort {
+
+    /** Länge der Abschnitte, die vor dem Mischen mit Insertionsort sortiert werden */
+    private static final int RUN = 32;
+
+    /**
+     * Keine Instanzen, nur statische Methoden.
+     */
+    private KeySort() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sortiert die Zeilen 0 bis size - 1 nach ihren Schlüsseln.
+     * @param values Schlüssel jeder Zeile
+     * @param size Anzahl der Zeilen
+     * @param asc wählt auf- oder absteigende Sortierung
+     * @return Zeilennummern in sortierter Reihenfolge, bei gleichem Schlüssel in ursprünglicher Reihenfolge
+     */
+    static int[] order(double[] values, int size, boolean asc) {
+        long[] keys = new long[size];
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            // negative Zahlen: alle Bits ausser dem Vorzeichen kippen, dann gilt die Reihenfolge von long
+            long bits = Double.doubleToLongBits(values[i]);
+            long key = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+            keys[i] = asc ? key : ~key;
+            rows[i] = i;
+        }
+        return sort(keys, rows, size);
+    }
+
+    /**
+     * Sortiert Schlüssel und Zeilennummern gemeinsam: Abschnitte der Länge {@link #RUN} mit Insertionsort,
+     * danach abwechselnd zwischen den Arrays und einem Puffer gemischt.
+     * @param keys Schlüssel
+     * @param rows Zeilennummern parallel zu den Schlüsseln
+     * @param size Anzahl der Zeilen
+     * @return sortierte Zeilennummern (das übergebene Array oder der Puffer)
+     */
+    private static int[] sort(long[] keys, int[] rows, int size) {
+        for (int start = 0; start < size; start += RUN)
+            insertionSort(keys, rows, start, Math.min(start + RUN, size));
+        if (size <= RUN)
+            return rows;
+
+        long[] keyBuffer = new long[size];
+        int[] rowBuffer = new int[size];
+        for (int width = RUN; width < size; width <<= 1) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                merge(keys, rows, keyBuffer, rowBuffer, low, middle, high);
+            }
+            long[] swapKeys = keys;
+            keys = keyBuffer;
+            keyBuffer = swapKeys;
+            int[] swapRows = rows;
+            rows = rowBuffer;
+            rowBuffer = swapRows;
+        }
+        return rows;
+    }
+
+    /**
+     * Sortiert einen Abschnitt stabil durch Einfügen.
+     * @param keys Schlüssel
+     * @param rows Zeilennummern parallel zu den Schlüsseln
+     * @param from erste Position des Abschnitts
+     * @param to erste Position hinter dem Abschnitt
+     */
+    private static void insertionSort(long[] keys, int[] rows, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long key = keys[i];
+            int row = rows[i];
+            int j = i - 1;
+            for (; j >= from && keys[j] > key; j--) {
+                keys[j + 1] = keys[j];
+                rows[j + 1] = rows[j];
+            }
+            keys[j + 1] = key;
+            rows[j + 1] = row;
+        }
+    }
+
+    /**
+     * Mischt zwei sortierte, aufeinanderfolgende Abschnitte stabil in die Ziel-Arrays.
+     * @param keys Schlüssel der Quelle
+     * @param rows Zeilennummern der Quelle
+     * @param targetKeys Schlüssel des Ziels
+     * @param targetRows Zeilennummern des Ziels
+     * @param low erste Position des linken Abschnitts
+     * @param middle erste Position des rechten Abschnitts
+     * @param high erste Position hinter dem rechten Abschnitt
+     */
+    private static void merge(long[] keys, int[] rows, long[] targetKeys, int[] targetRows,
+                              int low, int middle, int high) {
+        // bereits in Reihenfolge (z.B. bei vorsortierten Eingaben): nur kopieren
+        if (middle == high || keys[middle - 1] <= keys[middle]) {
+            System.arraycopy(keys, low, targetKeys, low, high - low);
+            System.arraycopy(rows, low, targetRows, low, high - low);
+            return;
+        }
+        int left = low;
+        int right = middle;
+        for (int target = low; target < high; target++) {
+            // bei Gleichheit zuerst links, damit die Sortierung stabil bleibt
+            if (right >= high || (left < middle && keys[left] <= keys[right])) {
+                targetKeys[target] = keys[left];
+                targetRows[target] = rows[left++];
+            } else {
+                targetKeys[target] = keys[right];
+                targetRows[target] = rows[right++];
+            }
+        }
+    }
+}
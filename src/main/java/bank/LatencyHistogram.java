@@ -0,0 +1,147 @@
+package bank;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramm über nicht negative long-Werte (z.B. Latenzen in Nanosekunden) nach dem Vorbild von HdrHistogram.
+ * <p>
+ * Die Werte werden in Klassen mit logarithmisch wachsender Breite gezählt: Werte unter 32 exakt, darüber
+ * wird jede Zweierpotenz in 32 gleich breite Klassen geteilt. Der relative Fehler eines Perzentils ist damit
+ * höchstens 1/32 (ca. 3 %), unabhängig von der Größenordnung, bei fester Größe von 1888 Zählern.
+ * <p>
+ * {@link #record(long)} ist threadsicher und ohne Sperren: ein atomares Inkrement des Zählers der Klasse sowie
+ * {@link LongAdder} für Anzahl und Summe. Auswertungen lesen die Zähler ohne Sperre und sind daher bei gleichzeitigem
+ * Erfassen nur näherungsweise konsistent (z.B. kann die Anzahl einen Wert mehr enthalten als die Klassen).
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+
+    /** Anzahl der Bits für die Unterteilung einer Zweierpotenz */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** Anzahl der Klassen pro Zweierpotenz */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Anzahl aller Klassen: exakte Werte unter {@link #SUB_BUCKETS} und je eine Gruppe pro weiterer Zweierpotenz */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Anzahl der Werte pro Klasse */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /** Anzahl aller Werte */
+    private final LongAdder count = new LongAdder();
+    /** Summe aller Werte */
+    private final LongAdder sum = new LongAdder();
+    /** Größter Wert */
+    private final AtomicLong max = new AtomicLong();
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse LatencyHistogram. Erstellt ein leeres Histogramm.
+     */
+    public LatencyHistogram() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Erfasst einen Wert. Negative Werte (z.B. durch eine rückwärts laufende Uhr) werden als 0 erfasst.
+     * @param value Wert, z.B. eine Latenz in Nanosekunden
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    /**
+     * Gibt den Wert zurück, unter dem (inklusive) der angegebene Anteil aller Werte liegt,
+     * auf die obere Grenze seiner Klasse gerundet, höchstens aber den größten Wert.
+     * @param percentile Perzentil (0.0 - 100.0)
+     * @return Wert des Perzentils, 0, wenn noch kein Wert erfasst wurde
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target)
+                return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Gibt die Klasse eines Wertes zurück.
+     * @param value nicht negativer Wert
+     * @return Index der Klasse
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // die SUB_BUCKET_BITS Bits nach dem hoechsten gesetzten Bit bestimmen die Klasse in der Gruppe
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gibt den größten Wert einer Klasse zurück.
+     * @param index Index der Klasse
+     * @return obere Grenze (inklusive) der Klasse
+     */
+    static long upperBound(int index) {
+        int group = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (group == 0)
+            return sub;
+        // fuer die letzte Klasse laeuft die Verschiebung ueber, -1 ergibt dann genau Long.MAX_VALUE
+        return ((long) (SUB_BUCKETS + sub + 1) << (group - 1)) - 1;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die Anzahl der erfassten Werte zurück.
+     * @return Anzahl der Werte
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gibt die Summe der erfassten Werte zurück.
+     * @return Summe der Werte
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gibt den größten erfassten Wert zurück.
+     * @return größter Wert, 0, wenn noch kein Wert erfasst wurde
+     */
+    public long getMax() {
+        return max.get();
+    }
+}
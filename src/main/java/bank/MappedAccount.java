@@ -0,0 +1,324 @@
+package bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Schreibgeschützte Sicht auf eine in den Speicher eingeblendete Kontodatei im Binärformat
+ * ({@link BinaryAccountFormat}, ab Version 2 mit Index).
+ * Beim Einblenden werden nur Kopf und Ende der Datei gelesen. Alle Abfragen arbeiten auf dem Index der Datei
+ * und geben Listen zurück, die eine {@link Transaction} erst beim Zugriff auf das jeweilige Element erzeugen.
+ * Welche Teile der Datei im Speicher liegen, entscheidet das Betriebssystem.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+final class MappedAccount {
+
+    /** Größe der Summen am Ende des Index: int Anzahl, drei long Summen in Cent (bis Version 3 double) */
+    private static final int SUMS_SIZE = Integer.BYTES + 3 * Long.BYTES;
+
+    /** Eingeblendete Datei, wird nur über absolute Positionen gelesen */
+    private final ByteBuffer buffer;
+    /** Anzahl der Transaktionen */
+    private final int count;
+    /** Position der Tabelle mit den Positionen der Datensätze */
+    private final int offsets;
+    /** Position der Zeilen aufsteigend nach berechnetem Betrag */
+    private final int ascending;
+    /** Position der Zeilen absteigend nach berechnetem Betrag */
+    private final int descending;
+    /** Position der Zeilen aufsteigend nach Datum */
+    private final int dates;
+    /** Position der Zeilen, erst die positiven, dann die negativen */
+    private final int typed;
+    /** Anzahl der Transaktionen mit calculate() >= 0 */
+    private final int credits;
+    /** Kontostand in Cent */
+    private final long balance;
+    /** Summe der Transaktionen mit calculate() >= 0 in Cent */
+    private final long creditSum;
+    /** Summe der Transaktionen mit calculate() < 0 in Cent */
+    private final long debitSum;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse MappedAccount.
+     * @param buffer Inhalt einer Kontodatei
+     * @throws IOException wenn die Datei keine binäre Kontodatei mit Index ist
+     */
+    private MappedAccount(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int size = buffer.limit();
+        if (size < BinaryAccountFormat.HEADER_SIZE || buffer.getInt(0) != BinaryAccountFormat.MAGIC)
+            throw new IOException("Keine binäre Kontodatei.");
+        byte version = buffer.get(4);
+        if (version < BinaryAccountFormat.INDEXED_VERSION)
+            throw new IOException("Version " + version + " hat keinen Index, die Datei muss neu geschrieben werden.");
+        if (version > BinaryAccountFormat.VERSION)
+            throw new IOException("Nicht unterstützte Version " + version + ".");
+        count = buffer.getInt(5);
+        long index = size >= Long.BYTES ? buffer.getLong(size - Long.BYTES) : -1;
+        if (count < 0 || index < BinaryAccountFormat.HEADER_SIZE
+                || index + BinaryAccountFormat.indexSize(count) + Long.BYTES != size)
+            throw new IOException("Ungültiger Index.");
+
+        offsets = (int) index;
+        ascending = offsets + 4 * count;
+        descending = ascending + 4 * count;
+        dates = descending + 4 * count;
+        typed = dates + 4 * count;
+        int sums = typed + 4 * count;
+        credits = buffer.getInt(sums);
+        if (version >= BinaryAccountFormat.MINOR_SUMS_VERSION) {
+            balance = buffer.getLong(sums + Integer.BYTES);
+            creditSum = buffer.getLong(sums + Integer.BYTES + Long.BYTES);
+            debitSum = buffer.getLong(sums + Integer.BYTES + 2 * Long.BYTES);
+        } else {
+            // ältere Versionen speichern double Summen, bis zum nächsten Schreiben nur auf Cent gerundet
+            balance = Money.toMinor(buffer.getDouble(sums + Integer.BYTES));
+            creditSum = Money.toMinor(buffer.getDouble(sums + Integer.BYTES + Double.BYTES));
+            debitSum = Money.toMinor(buffer.getDouble(sums + Integer.BYTES + 2 * Double.BYTES));
+        }
+        if (credits < 0 || credits > count)
+            throw new IOException("Ungültiger Index.");
+    }
+
+    /**
+     * Blendet eine Kontodatei schreibgeschützt in den Speicher ein.
+     * Die Einblendung bleibt gültig, nachdem der Kanal geschlossen wurde.
+     * @param path Pfad der Datei
+     * @return eingeblendetes Konto
+     * @throws IOException wenn die Datei nicht eingeblendet werden kann oder keinen Index hat
+     */
+    static MappedAccount map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Kontodatei ist größer als 2 GiB.");
+            return new MappedAccount(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Erstellt ein Konto ohne Transaktionen, z.B. für eine Datei, die nicht eingeblendet werden kann.
+     * @return leeres Konto
+     */
+    static MappedAccount empty() {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryAccountFormat.HEADER_SIZE + SUMS_SIZE + Long.BYTES);
+        buffer.putInt(BinaryAccountFormat.MAGIC).put(BinaryAccountFormat.VERSION).putInt(0)
+                .putInt(0).putLong(0).putLong(0).putLong(0)
+                .putLong(BinaryAccountFormat.HEADER_SIZE);
+        try {
+            return new MappedAccount(buffer.flip());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die Anzahl der Transaktionen zurück.
+     * @return Anzahl der Transaktionen
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Gibt den Kontostand zurück, ohne die Transaktionen zu lesen.
+     * @return Kontostand
+     */
+    double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    /**
+     * Gibt den Kontostand exakt in Cent zurück, ohne die Transaktionen zu lesen.
+     * @return Kontostand in Cent
+     */
+    long getBalanceMinor() {
+        return balance;
+    }
+
+    /**
+     * Gibt die Summe der positiven bzw. negativen Transaktionen zurück, ohne die Transaktionen zu lesen.
+     * @param positive true für calculate() &gt;= 0, false für calculate() &lt; 0
+     * @return Summe der berechneten Beträge
+     */
+    double getSum(boolean positive) {
+        return Money.toDouble(positive ? creditSum : debitSum);
+    }
+
+    /**
+     * Gibt alle Transaktionen in Einfügereihenfolge zurück.
+     * @return schreibgeschützte Liste, die jede Transaktion erst beim Zugriff liest
+     */
+    List<Transaction> transactions() {
+        return new Rows(-1, 0, count);
+    }
+
+    /**
+     * Gibt einen Ausschnitt der nach berechnetem Betrag sortierten Transaktionen zurück.
+     * @param asc aufsteigend oder absteigend
+     * @param offset Position der ersten Transaktion in der sortierten Liste
+     * @param limit maximale Anzahl an Transaktionen
+     * @return schreibgeschützte Liste, die jede Transaktion erst beim Zugriff liest
+     */
+    List<Transaction> sorted(boolean asc, int offset, int limit) {
+        int from = Math.min(offset, count);
+        int to = (int) Math.min(count, (long) from + limit);
+        return new Rows(asc ? ascending : descending, from, to);
+    }
+
+    /**
+     * Gibt die positiven bzw. negativen Transaktionen in Einfügereihenfolge zurück.
+     * @param positive true für calculate() &gt;= 0, false für calculate() &lt; 0
+     * @return schreibgeschützte Liste, die jede Transaktion erst beim Zugriff liest
+     */
+    List<Transaction> byType(boolean positive) {
+        return positive ? new Rows(typed, 0, credits) : new Rows(typed, credits, count);
+    }
+
+    /**
+     * Gibt die Transaktionen zwischen zwei Daten (jeweils einschließlich) sortiert nach Datum zurück.
+     * Die Grenzen werden per binärer Suche über den Datumsindex gefunden.
+     * @param from erster Tag (Tage seit dem 01.01.1970)
+     * @param to letzter Tag (Tage seit dem 01.01.1970)
+     * @return schreibgeschützte Liste, die jede Transaktion erst beim Zugriff liest
+     */
+    List<Transaction> between(long from, long to) {
+        if (from > to)
+            return List.of();
+        return new Rows(dates, firstDate(from), firstDate(to + 1));
+    }
+
+    /**
+     * Prüft, ob eine Transaktion enthalten ist. Gesucht wird per binärer Suche über den aufsteigenden Index,
+     * verglichen werden nur Transaktionen mit gleichem berechneten Betrag.
+     * @param transaction gesuchte Transaktion
+     * @return true, wenn die Transaktion enthalten ist, sonst false
+     */
+    boolean contains(Transaction transaction) {
+        if (transaction == null)
+            return false;
+        double amount = transaction.calculate();
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(get(row(ascending, middle)).calculate(), amount) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        for (int i = low; i < count; i++) {
+            Transaction candidate = get(row(ascending, i));
+            if (Double.compare(candidate.calculate(), amount) != 0)
+                return false;
+            if (candidate.equals(transaction))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sucht die erste Position im Datumsindex, deren Datum nicht vor dem angegebenen Tag liegt.
+     * @param epochDay Tag
+     * @return Position im Datumsindex
+     */
+    private int firstDate(long epochDay) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDay(row(dates, middle)) < epochDay)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Gibt die Zeile an einer Position eines Index zurück.
+     * @param table Position des Index in der Datei, negativ für die Einfügereihenfolge
+     * @param position Position im Index
+     * @return Zeile
+     */
+    private int row(int table, int position) {
+        return table < 0 ? position : buffer.getInt(table + 4 * position);
+    }
+
+    /**
+     * Liest die Transaktion einer Zeile.
+     * @param row Zeile
+     * @return neue Transaktion
+     */
+    private Transaction get(int row) {
+        try {
+            return BinaryAccountFormat.readTransaction(buffer, buffer.getInt(offsets + 4 * row));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Liest nur das Datum einer Zeile.
+     * @param row Zeile
+     * @return Tage seit dem 01.01.1970
+     */
+    private long epochDay(int row) {
+        try {
+            return BinaryAccountFormat.readEpochDay(buffer, buffer.getInt(offsets + 4 * row));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Schreibgeschützte Liste über einen Bereich eines Index. Jeder Zugriff liest die Transaktion neu aus der Datei.
+     */
+    private final class Rows extends AbstractList<Transaction> implements RandomAccess {
+
+        private final int table;
+        private final int from;
+        private final int to;
+
+        Rows(int table, int from, int to) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            Objects.checkIndex(index, size());
+            return MappedAccount.this.get(row(table, from + index));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<Transaction> subList(int fromIndex, int toIndex) {
+            Objects.checkFromToIndex(fromIndex, toIndex, size());
+            return new Rows(table, from + fromIndex, from + toIndex);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package bank;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stellt eine schreibgeschützte Bank dar, die die Kontodateien eines Verzeichnisses im Binärformat
+ * ({@link AccountFileFormat#BINARY}, geschrieben z.B. von einer {@link PrivateBank} oder
+ * {@link BankFileHandler#convertAccounts}) in den Speicher einblendet, z.B. für Auswertungen großer Konten.
+ * <p>
+ * Beim Erstellen werden nur die Namen der Konten gelesen, jede Datei wird beim ersten Zugriff eingeblendet
+ * ({@link MappedAccount}). Kontostand und Summen stehen im Index der Datei, die Listen der Abfragen erzeugen
+ * eine {@link Transaction} erst beim Zugriff auf das jeweilige Element. Speicherbedarf und Startzeit hängen
+ * daher nicht von der Anzahl der Transaktionen ab.
+ * <p>
+ * Alle ändernden Methoden werfen eine {@link UnsupportedOperationException}. Die Dateien dürfen nicht geändert
+ * werden, solange die Bank verwendet wird.
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public class MappedBank implements Bank {
+
+    /** Name der Bank */
+    private final String name;
+    /** Speicherort (Pfad) der Kontodateien */
+    private final String directoryName;
+    /** Namen aller Konten */
+    private final Set<String> accountNames;
+    /** Bereits eingeblendete Konten */
+    private final Map<String, MappedAccount> accounts = new ConcurrentHashMap<>();
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse MappedBank. Liest nur die Namen der Kontodateien im Verzeichnis.
+     * @param name Name der Bank
+     * @param directoryName Speicherort der Kontodateien im Binärformat
+     */
+    public MappedBank(String name, String directoryName) {
+        this.name = name;
+        this.directoryName = directoryName;
+        this.accountNames = BankFileHandler.readAccountNames(directoryName, AccountFileFormat.BINARY);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account the account to be added
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void createAccount(String account) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account      the account to be added
+     * @param transactions the transactions of the account
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void createAccount(String account, List<Transaction> transactions) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account the account to be deleted
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void deleteAccount(String account) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account     the account to which the transaction is added
+     * @param transaction the transaction which should be added
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addTransaction(String account, Transaction transaction) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions to be added
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public ImportResult importTransactions(String account, List<Transaction> transactions) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param account     the account from which the transaction is removed
+     * @param transaction the transaction which is removed
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void removeTransaction(String account, Transaction transaction) {
+        throw readOnly();
+    }
+
+    /**
+     * Not supported, the bank is read-only.
+     *
+     * @param sender    the account the amount is taken from
+     * @param recipient the account the amount is credited to
+     * @param transfer  the transfer
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void transfer(String sender, String recipient, Transfer transfer) {
+        throw readOnly();
+    }
+
+    /**
+     * Checks whether the specified transaction for a given account exists.
+     * Uses a binary search over the index sorted by calculated amount.
+     *
+     * @param account     the account from which the transaction is checked
+     * @param transaction the transaction to search/look for
+     */
+    @Override
+    public boolean containsTransaction(String account, Transaction transaction) {
+        MappedAccount mapped = getAccount(account);
+        return mapped != null && mapped.contains(transaction);
+    }
+
+    /**
+     * Returns the names of all accounts in the bank in a list.
+     *
+     * @return a list of all account names
+     */
+    @Override
+    public List<String> getAllAccounts() {
+        return new ArrayList<>(accountNames);
+    }
+
+    /**
+     * Returns the account balance stored in the index of the account file, without reading any transaction.
+     *
+     * @param account the selected account
+     * @return the account balance, 0 if the account does not exist
+     */
+    @Override
+    public double getAccountBalance(String account) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? 0 : mapped.getBalance();
+    }
+
+    /**
+     * Returns the exact account balance in cents stored in the index of the account file,
+     * like {@link PrivateBank#getAccountBalanceMinor(String)}, without reading any transaction.
+     *
+     * @param account the selected account
+     * @return the account balance in cents, 0 if the account does not exist
+     */
+    public long getAccountBalanceMinor(String account) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? 0 : mapped.getBalanceMinor();
+    }
+
+    /**
+     * Returns a read-only list of transactions for an account, in insertion order.
+     * Each transaction is read from the mapped file when it is accessed.
+     *
+     * @param account the selected account
+     * @return the list of all transactions for the specified account
+     */
+    @Override
+    public List<Transaction> getTransactions(String account) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? new ArrayList<>() : mapped.transactions();
+    }
+
+    /**
+     * Returns a read-only list of transactions sorted by calculated amount, from the index of the account file.
+     * Transactions with the same calculated amount keep their insertion order in both directions.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @return the sorted list of all transactions for the specified account
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc) {
+        return getTransactionsSorted(account, asc, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns one page of the sorted list (-> calculated amounts) of transactions as a read-only list.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param offset  the position of the first transaction in the sorted list
+     * @param limit   the maximum number of transactions
+     * @return the transactions from {@code offset}, empty if {@code offset} is behind the last transaction
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? new ArrayList<>() : mapped.sorted(asc, offset, limit);
+    }
+
+    /**
+     * Returns a read-only list of either positive or negative transactions (-> calculated amounts),
+     * in insertion order.
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are listed
+     * @return the list of all transactions by type
+     */
+    @Override
+    public List<Transaction> getTransactionsByType(String account, boolean positive) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? new ArrayList<>() : mapped.byType(positive);
+    }
+
+    /**
+     * Returns the sum of either the positive or the negative transactions, stored in the index of the account file.
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are summed up
+     * @return the sum of the calculated amounts, 0 if there are none
+     */
+    @Override
+    public double getAccountBalanceByType(String account, boolean positive) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? 0 : mapped.getSum(positive);
+    }
+
+    /**
+     * Returns a read-only list of all transactions of an account whose date lies between two dates
+     * (both inclusive), sorted by date, using the date index of the account file.
+     *
+     * @param account the selected account
+     * @param from    the first date of the range
+     * @param to      the last date of the range
+     * @return the list of transactions in the range, empty if {@code from} is after {@code to}
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to) {
+        MappedAccount mapped = getAccount(account);
+        return mapped == null ? new ArrayList<>() : mapped.between(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Gibt die Anzahl der bereits eingeblendeten Konten zurück.
+     * @return Anzahl der eingeblendeten Konten
+     */
+    public int getMappedAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Gibt das eingeblendete Konto zurück und blendet es beim ersten Zugriff ein.
+     * Kann eine Datei nicht eingeblendet werden, wird der Fehler gemeldet und das Konto ist leer.
+     * @param account Name des Kontos
+     * @return eingeblendetes Konto oder null, wenn das Konto nicht existiert
+     */
+    private MappedAccount getAccount(String account) {
+        if (!accountNames.contains(account))
+            return null;
+        return accounts.computeIfAbsent(account, key -> {
+            Path path = Paths.get(directoryName, key + AccountFileFormat.BINARY.getExtension());
+            try {
+                return MappedAccount.map(path);
+            } catch (IOException e) {
+                BankLog.error("Error reading file {}: {}", path.getFileName(), e.getMessage());
+                return MappedAccount.empty();
+            }
+        });
+    }
+
+    /**
+     * Erstellt die Ausnahme für ändernde Methoden.
+     * @return Ausnahme
+     */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("MappedBank is read-only.");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt den Namen der Bank zurück.
+     * @return Name der Bank
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gibt den Speicherort (Pfad) der Kontodateien zurück.
+     * @return Speicherort (Pfad)
+     */
+    public String getDirectoryName() {
+        return directoryName;
+    }
+}
@@ -0,0 +1,328 @@
+package bank;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Erfasst die Messwerte einer {@link PrivateBank} und des {@link BankFileHandler} ohne Sperren:
+ * Zähler als {@link LongAdder}, Latenzen und Kontogrößen in {@link LatencyHistogram}en.
+ * <p>
+ * {@link #export()} gibt einen Snapshot im Textformat von Prometheus aus (Latenzen als Summary in Sekunden mit
+ * Perzentilen, Zähler mit Endung _total), {@link #writeTo(String)} schreibt ihn atomar in eine Datei, z.B. für den
+ * Textfile-Collector eines lokalen node_exporter.
+ * <p>
+ * Beispiel:
+ * <pre>
+ *     MetricsRegistry metrics = new MetricsRegistry();
+ *     BankFileHandler.setMetrics(metrics);
+ *     PrivateBank bank = new PrivateBank("Bank", 0.1, 0.1, new FileAccountStorage("accounts"), 0, metrics);
+ *     ...
+ *     metrics.writeTo("metrics/bank.prom");
+ * </pre>
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public class MetricsRegistry implements BankMetrics {
+
+    /** Perzentile, die für jede Latenz exportiert werden */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LatencyHistogram addTransactionLatency = new LatencyHistogram();
+    private final LatencyHistogram removeTransactionLatency = new LatencyHistogram();
+    private final LatencyHistogram accountLoadLatency = new LatencyHistogram();
+    private final LatencyHistogram accountSizes = new LatencyHistogram();
+    private final LatencyHistogram bankLoadLatency = new LatencyHistogram();
+    private final LatencyHistogram fileWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram fileReadLatency = new LatencyHistogram();
+    private final LongAdder duplicateRejections = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder loadedAccounts = new LongAdder();
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse MetricsRegistry. Erstellt eine Registry ohne Messwerte.
+     */
+    public MetricsRegistry() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Die Registry erfasst immer.
+     * @return true
+     */
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Erfasst die Latenz einer hinzugefügten Transaktion.
+     * @param nanos Dauer in Nanosekunden
+     */
+    @Override
+    public void transactionAdded(long nanos) {
+        addTransactionLatency.record(nanos);
+    }
+
+    /**
+     * Erfasst die Latenz einer entfernten Transaktion.
+     * @param nanos Dauer in Nanosekunden
+     */
+    @Override
+    public void transactionRemoved(long nanos) {
+        removeTransactionLatency.record(nanos);
+    }
+
+    /**
+     * Zählt eine abgelehnte doppelte Transaktion.
+     */
+    @Override
+    public void duplicateRejected() {
+        duplicateRejections.increment();
+    }
+
+    /**
+     * Erfasst die Latenz des Ladens eines Kontos.
+     * @param nanos Dauer in Nanosekunden
+     */
+    @Override
+    public void accountLoaded(long nanos) {
+        accountLoadLatency.record(nanos);
+    }
+
+    /**
+     * Erfasst die Größe eines geladenen Kontos.
+     * @param transactions Anzahl der Transaktionen des Kontos
+     */
+    @Override
+    public void accountSize(int transactions) {
+        accountSizes.record(transactions);
+    }
+
+    /**
+     * Erfasst die Latenz des Öffnens einer Bank und zählt ihre Konten.
+     * @param nanos Dauer in Nanosekunden
+     * @param accounts Anzahl der Konten
+     */
+    @Override
+    public void bankLoaded(long nanos, int accounts) {
+        bankLoadLatency.record(nanos);
+        loadedAccounts.add(accounts);
+    }
+
+    /**
+     * Erfasst die Latenz und Größe einer geschriebenen Kontodatei.
+     * @param nanos Dauer in Nanosekunden
+     * @param bytes Größe der Datei
+     */
+    @Override
+    public void fileWritten(long nanos, long bytes) {
+        fileWriteLatency.record(nanos);
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Erfasst die Latenz und Größe einer gelesenen Kontodatei.
+     * @param nanos Dauer in Nanosekunden
+     * @param bytes Größe der Datei
+     */
+    @Override
+    public void fileRead(long nanos, long bytes) {
+        fileReadLatency.record(nanos);
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Gibt einen Snapshot aller Messwerte im Textformat von Prometheus zurück.
+     * @return Messwerte, eine Zeile pro Wert
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder(4096);
+        appendLatency(out, "bank_add_transaction_seconds",
+                "Latency of PrivateBank.addTransaction", addTransactionLatency);
+        appendLatency(out, "bank_remove_transaction_seconds",
+                "Latency of PrivateBank.removeTransaction", removeTransactionLatency);
+        appendLatency(out, "bank_account_load_seconds",
+                "Latency of loading one account on demand", accountLoadLatency);
+        appendLatency(out, "bank_open_seconds",
+                "Latency of reading all accounts when a bank is opened", bankLoadLatency);
+        appendLatency(out, "bank_file_write_seconds",
+                "Latency of writing an account file", fileWriteLatency);
+        appendLatency(out, "bank_file_read_seconds",
+                "Latency of reading an account file", fileReadLatency);
+        appendSummary(out, "bank_account_transactions",
+                "Number of transactions per loaded account", accountSizes, 1);
+        appendCounter(out, "bank_duplicate_rejections_total",
+                "Transactions rejected because they already exist", duplicateRejections.sum());
+        appendCounter(out, "bank_file_written_bytes_total",
+                "Bytes of account files written", bytesWritten.sum());
+        appendCounter(out, "bank_file_read_bytes_total",
+                "Bytes of account files read", bytesRead.sum());
+        appendCounter(out, "bank_opened_accounts_total",
+                "Accounts found when banks were opened", loadedAccounts.sum());
+        return out.toString();
+    }
+
+    /**
+     * Schreibt einen Snapshot aller Messwerte ({@link #export()}) in eine Datei. Die Datei wird zuerst unter einem
+     * temporären Namen geschrieben und dann ersetzt, sodass ein Leser nie eine halbe Datei sieht.
+     * @param path Pfad der Datei, z.B. metrics/bank.prom
+     * @return true bei Erfolg, ansonsten false
+     */
+    public boolean writeTo(String path) {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            Files.writeString(temp, export(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            BankLog.error("Error writing metrics: {}", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hängt eine Latenz in Nanosekunden als Summary in Sekunden an.
+     * @param out Ziel
+     * @param name Name des Messwerts
+     * @param help Beschreibung des Messwerts
+     * @param histogram Histogramm in Nanosekunden
+     */
+    private static void appendLatency(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        appendSummary(out, name, help, histogram, 1e-9);
+    }
+
+    /**
+     * Hängt ein Histogramm als Summary (Perzentile, Summe, Anzahl) und seinen größten Wert als Gauge an.
+     * @param out Ziel
+     * @param name Name des Messwerts
+     * @param help Beschreibung des Messwerts
+     * @param histogram Histogramm
+     * @param scale Faktor, mit dem die erfassten Werte umgerechnet werden
+     */
+    private static void appendSummary(StringBuilder out, String name, String help, LatencyHistogram histogram,
+                                      double scale) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getValueAtPercentile(quantile * 100) * scale).append('\n');
+        }
+        out.append(name).append("_sum ").append(histogram.getSum() * scale).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        out.append("# HELP ").append(name).append("_max Maximum of ").append(name).append('\n');
+        out.append("# TYPE ").append(name).append("_max gauge\n");
+        out.append(name).append("_max ").append(histogram.getMax() * scale).append('\n');
+    }
+
+    /**
+     * Hängt einen Zähler an.
+     * @param out Ziel
+     * @param name Name des Messwerts
+     * @param help Beschreibung des Messwerts
+     * @param value Stand des Zählers
+     */
+    private static void appendCounter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die Latenzen von {@link PrivateBank#addTransaction(String, Transaction)} zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getAddTransactionLatency() {
+        return addTransactionLatency;
+    }
+
+    /**
+     * Gibt die Latenzen von {@link PrivateBank#removeTransaction(String, Transaction)} zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getRemoveTransactionLatency() {
+        return removeTransactionLatency;
+    }
+
+    /**
+     * Gibt die Latenzen des Ladens einzelner Konten bei Bedarf zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getAccountLoadLatency() {
+        return accountLoadLatency;
+    }
+
+    /**
+     * Gibt die Anzahl der Transaktionen der geladenen Konten zurück.
+     * @return Histogramm der Kontogrößen
+     */
+    public LatencyHistogram getAccountSizes() {
+        return accountSizes;
+    }
+
+    /**
+     * Gibt die Latenzen des Öffnens von Banken zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getBankLoadLatency() {
+        return bankLoadLatency;
+    }
+
+    /**
+     * Gibt die Latenzen des Schreibens von Kontodateien zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getFileWriteLatency() {
+        return fileWriteLatency;
+    }
+
+    /**
+     * Gibt die Latenzen des Lesens von Kontodateien zurück.
+     * @return Histogramm in Nanosekunden
+     */
+    public LatencyHistogram getFileReadLatency() {
+        return fileReadLatency;
+    }
+
+    /**
+     * Gibt die Anzahl der abgelehnten doppelten Transaktionen zurück.
+     * @return Anzahl der Ablehnungen
+     */
+    public long getDuplicateRejections() {
+        return duplicateRejections.sum();
+    }
+
+    /**
+     * Gibt die Anzahl der geschriebenen Bytes von Kontodateien zurück.
+     * @return geschriebene Bytes
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Gibt die Anzahl der gelesenen Bytes von Kontodateien zurück.
+     * @return gelesene Bytes
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+}
@@ -0,0 +1,120 @@
+package bank;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exakte Geldbeträge als ganze Zahl in der kleinsten Einheit (Cent) in einem {@code long}.
+ * <p>
+ * Beträge werden beim Umrechnen aus {@code double} über ihre Dezimaldarstellung ({@link Double#toString(double)})
+ * auf ganze Cent gerundet, Zinsen werden exakt (dezimal) berechnet und danach auf ganze Cent gerundet.
+ * Gerundet wird jeweils kaufmännisch auf die nächste gerade Zahl ({@link RoundingMode#HALF_EVEN}), damit sich
+ * Rundungsfehler über viele Transaktionen nicht in eine Richtung aufsummieren. Summen in Cent sind danach exakt,
+ * unabhängig von Anzahl und Reihenfolge der Transaktionen.
+ * <p>
+ * Die Summen über Arrays ({@link #sum(long[], int)}, {@link #sumCredits(long[], int)}) sind einfache Schleifen
+ * ohne Verzweigung über primitive Werte, die der JIT-Compiler mit SIMD-Befehlen ausführen kann.
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public final class Money {
+
+    /** Anzahl der Nachkommastellen der kleinsten Einheit */
+    public static final int SCALE = 2;
+    /** Rundung aller Umrechnungen */
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
+    /**
+     * Schranke für Beträge (2^62 / 100): betragsmäßig kleinere Beträge passen in Cent auch nach Zinsen von bis zu
+     * 100 % ({@link #withInterest(long, double)}) sicher in ein long
+     */
+    public static final double MAX_AMOUNT = 0x1p62 / 100;
+
+    /**
+     * Keine Instanzen, nur statische Methoden.
+     */
+    private Money() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Prüft, ob ein Betrag in Cent umgerechnet werden kann ({@link #toMinor(double)}), also endlich und betragsmäßig
+     * kleiner als {@link #MAX_AMOUNT} ist.
+     * @param amount Betrag
+     * @return true, wenn der Betrag gültig ist
+     */
+    public static boolean isValid(double amount) {
+        return Math.abs(amount) < MAX_AMOUNT;
+    }
+
+    /**
+     * Rechnet einen Betrag in Cent um, gerundet nach {@link #ROUNDING}.
+     * @param amount Betrag
+     * @return Betrag in Cent
+     * @throws ArithmeticException wenn der Betrag nicht endlich ist oder nicht in ein long passt
+     */
+    public static long toMinor(double amount) {
+        if (!Double.isFinite(amount))
+            throw new ArithmeticException("Betrag ist keine endliche Zahl: " + amount);
+        return BigDecimal.valueOf(amount).setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Rechnet einen Betrag in Cent in einen Betrag mit Nachkommastellen um.
+     * Beträge bis 2^53 Cent werden dabei exakt auf den nächstgelegenen double-Wert abgebildet.
+     * @param minor Betrag in Cent
+     * @return Betrag
+     */
+    public static double toDouble(long minor) {
+        return minor / 100.0;
+    }
+
+    /**
+     * Wendet einen Zinssatz auf einen Betrag an: {@code minor * (1 + rate)}, gerundet nach {@link #ROUNDING}.
+     * Der Zinssatz wird wie ein Betrag über seine Dezimaldarstellung übernommen, 0.1 ist also exakt 10 %.
+     * @param minor Betrag in Cent
+     * @param rate Zinssatz, z.B. -0.1 für den Abzug von 10 %
+     * @return Betrag nach Zinsen in Cent
+     * @throws ArithmeticException wenn das Ergebnis nicht in ein long passt
+     */
+    public static long withInterest(long minor, double rate) {
+        if (rate == 0)
+            return minor;
+        return BigDecimal.valueOf(minor)
+                .multiply(BigDecimal.ONE.add(BigDecimal.valueOf(rate)))
+                .setScale(0, ROUNDING)
+                .longValueExact();
+    }
+
+    /**
+     * Summiert die ersten {@code length} Beträge.
+     * @param values Beträge in Cent
+     * @param length Anzahl der summierten Beträge
+     * @return Summe in Cent
+     */
+    public static long sum(long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += values[i];
+        return sum;
+    }
+
+    /**
+     * Summiert die positiven (inklusive 0) unter den ersten {@code length} Beträgen ohne Verzweigung:
+     * {@code value >> 63} ist -1 für negative und 0 für positive Beträge, negative werden so ausgeblendet.
+     * Die Summe der negativen Beträge ist {@code sum(values, length) - sumCredits(values, length)}.
+     * @param values Beträge in Cent
+     * @param length Anzahl der betrachteten Beträge
+     * @return Summe der positiven Beträge in Cent
+     */
+    public static long sumCredits(long[] values, int length) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            long value = values[i];
+            sum += value & ~(value >> 63);
+        }
+        return sum;
+    }
+}
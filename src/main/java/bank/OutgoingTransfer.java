@@ -1,10 +1,12 @@
 package bank;
 
+import bank.exceptions.TransactionAttributeException;
+
 /**
  * Repraesentiert ausgehende Ueberweisungen im Banksystem.
  * Erbt von der Klasse {@link Transfer}.
  * @author Tobias Schnuerpel
- * @version 3.0
+ * @version 3.3
  */
 public class OutgoingTransfer extends Transfer {
 
@@ -19,8 +21,9 @@ public class OutgoingTransfer extends Transfer {
      * @param date        Datum der Ueberweisung, Format: "DD.MM.YYYY"
      * @param amount      Betrag der Ueberweisung, positiv
      * @param description Beschreibung der Ueberweisung
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public OutgoingTransfer(String date, double amount, String description) {
+    public OutgoingTransfer(String date, double amount, String description) throws TransactionAttributeException {
         super(date, amount, description);
     }
 
@@ -32,8 +35,10 @@ public class OutgoingTransfer extends Transfer {
      * @param description Beschreibung der Ueberweisung
      * @param sender      Akteur, der die Ueberweisung initiiert hat
      * @param recipient   Akteur, der die Ueberweisung empfaengt
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public OutgoingTransfer(String date, double amount, String description, String sender, String recipient) {
+    public OutgoingTransfer(String date, double amount, String description, String sender, String recipient)
+            throws TransactionAttributeException {
         super(date, amount, description, sender, recipient);
     }
 
@@ -53,7 +58,17 @@ public class OutgoingTransfer extends Transfer {
      * @return Betrag der Ueberweisung
      */
     @Override
-    public double calculate() {
-        return (-1 * super.calculate());
+    protected double compute() {
+        return (-1 * super.compute());
+    }
+
+    /**
+     * Berechnet den Betrag der ausgehenden Ueberweisung in Cent.
+     *
+     * @return Betrag der Ueberweisung in Cent
+     */
+    @Override
+    protected long computeMinor() {
+        return -super.computeMinor();
     }
 }
@@ -6,8 +6,14 @@ import bank.exceptions.TransactionAttributeException;
  * Repraesentiert Ein- und Auszahlungen im Banksystem.
  * Der Betrag kann entsprechend positiv (Einzahlung) oder negativ (Auszahlung) sein.
  * Erbt von der Klasse {@link Transaction}.
+ * Eine Zahlung hat entweder eigene Zinssätze oder ist mit einer Version der Zinssätze einer Bank verknüpft
+ * ({@link RateTable}); dann gelten die aktuellen Zinssätze dieser Version und der Betrag nach Zinsen wird nach einer
+ * Neubewertung beim nächsten Zugriff neu berechnet.
+ * Zwei Zahlungen, die mit Versionen derselben Tabelle verknüpft sind, werden über die Nummern ihrer Versionen
+ * verglichen. So bleiben Zahlungen, die sich nur in der Version unterscheiden, auch nach einer Neubewertung
+ * verschieden, obwohl dann alle Versionen dieselben Zinssätze haben.
  * @author Tobias Schnuerpel
- * @version 3.0
+ * @version 3.6
  */
 public class Payment extends Transaction {
 
@@ -15,6 +21,14 @@ public class Payment extends Transaction {
     private double incomingInterest = 0;
     /** Zinsen, die bei einer Auszahlung (Withdrawal) anfallen, in Prozent (0.0 - 1.0) */
     private double outgoingInterest = 0;
+    /** Version der Zinssätze einer Bank, null, wenn die Zahlung eigene Zinssätze hat */
+    private RateTable.Version rateVersion;
+    /** Zinssätze der Version, mit denen der Betrag nach Zinsen zuletzt berechnet wurde */
+    private RateTable.Rates pricedRates;
+    /** Nummer einer gelesenen, aber noch nicht verknüpften Version, sonst -1 */
+    private int unresolvedRateVersion = -1;
+    /** Nummer der Version, die zusammen mit eigenen Zinssätzen gelesen wurde (Binärformat), sonst -1 */
+    private int rateVersionHint = -1;
 
     //------------------------------------------------------------------------------------------------------------------
     // Konstruktoren
@@ -27,8 +41,9 @@ public class Payment extends Transaction {
      * @param date Datum der Transaktion, Format: "DD.MM.YYYY"
      * @param amount Betrag der Transaktion, positiv oder negativ
      * @param description Beschreibung der Transaktion
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public Payment(String date, double amount, String description) {
+    public Payment(String date, double amount, String description) throws TransactionAttributeException {
         super(date, amount, description);
     }
 
@@ -40,16 +55,51 @@ public class Payment extends Transaction {
      * @param description Beschreibung der Transaktion
      * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) anfallen, in Prozent (0.0 - 1.0)
      * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) anfallen, in Prozent (0.0 - 1.0)
+     * @throws TransactionAttributeException wenn Datum, Betrag oder Zinsen ungültig sind
      */
-    public Payment(String date, double amount, String description, double incomingInterest, double outgoingInterest) {
+    public Payment(String date, double amount, String description, double incomingInterest, double outgoingInterest)
+            throws TransactionAttributeException {
         super(date, amount, description);
         setIncomingInterest(incomingInterest);
         setOutgoingInterest(outgoingInterest);
     }
 
+    /**
+     * Konstruktor der Klasse Payment für gelesene Zahlungen, die statt der Zinssätze nur die Nummer einer Version
+     * der Zinssätze ihrer Bank gespeichert haben. Bis zur Verknüpfung mit der Version ({@link RateTable}) sind die
+     * Zinsen 0.
+     * @param date Datum der Transaktion, Format: "DD.MM.YYYY"
+     * @param amount Betrag der Transaktion, positiv oder negativ
+     * @param description Beschreibung der Transaktion
+     * @param rateVersion Nummer der Version der Zinssätze
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
+     */
+    Payment(String date, double amount, String description, int rateVersion) throws TransactionAttributeException {
+        super(date, amount, description);
+        this.unresolvedRateVersion = rateVersion;
+    }
+
+    /**
+     * Konstruktor der Klasse Payment für gelesene Zahlungen, die ihre Zinssätze und zusätzlich die Nummer ihrer
+     * Version gespeichert haben ({@link BinaryAccountFormat}). Die Zahlung hat eigene Zinssätze, bis sie mit einer
+     * Version verknüpft wird; dabei wird die gespeicherte Nummer bevorzugt ({@link RateTable#link}).
+     * @param date Datum der Transaktion, Format: "DD.MM.YYYY"
+     * @param amount Betrag der Transaktion, positiv oder negativ
+     * @param description Beschreibung der Transaktion
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) anfallen, in Prozent (0.0 - 1.0)
+     * @param rateVersion Nummer der Version der Zinssätze oder -1
+     * @throws TransactionAttributeException wenn Datum, Betrag oder Zinsen ungültig sind
+     */
+    Payment(String date, double amount, String description, double incomingInterest, double outgoingInterest,
+            int rateVersion) throws TransactionAttributeException {
+        this(date, amount, description, incomingInterest, outgoingInterest);
+        this.rateVersionHint = rateVersion;
+    }
+
     /**
      * Copy-Konstruktor der Klasse Payment. Erstellt eine neue Transaktion,
-     * die alle Werte der uebergebenen Transaktion uebernimmt.
+     * die alle Werte der uebergebenen Transaktion uebernimmt, auch die Verknüpfung mit einer Version der Zinssätze.
      * @param payment Transaktion, die kopiert werden soll
      */
     public Payment(Payment payment) {
@@ -59,6 +109,10 @@ public class Payment extends Transaction {
                 payment.getDescription(),
                 payment.getIncomingInterest(),
                 payment.getOutgoingInterest());
+        this.unresolvedRateVersion = payment.unresolvedRateVersion;
+        this.rateVersionHint = payment.rateVersionHint;
+        if (payment.rateVersion != null)
+            linkRates(payment.rateVersion);
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -66,21 +120,104 @@ public class Payment extends Transaction {
     //------------------------------------------------------------------------------------------------------------------
 
     /**
-     * Gibt den Wert der Ein- oder Auszahlung nach
-     * Abzug (Einzahlung) oder Addition (Auszahlung) der Zinsen zurueck.
+     * Berechnet den Wert der Ein- oder Auszahlung nach
+     * Abzug (Einzahlung) oder Addition (Auszahlung) der Zinsen.
      * @return Betrag der Transaktion nach Abzug der Zinsen
      */
     @Override
-    public double calculate() {
+    protected double compute() {
         if (amount >= 0) {
             // Einzahlung
-            return amount * (1 - incomingInterest);
+            return amount * (1 - (pricedRates != null ? pricedRates.incoming : incomingInterest));
         } else {
             // Auszahlung
-            return amount * (1 + outgoingInterest);
+            return amount * (1 + (pricedRates != null ? pricedRates.outgoing : outgoingInterest));
         }
     }
 
+    /**
+     * Berechnet den Wert der Ein- oder Auszahlung nach Zinsen exakt in Cent,
+     * gerundet nach {@link Money#ROUNDING}.
+     * @return Betrag der Transaktion nach Abzug der Zinsen in Cent
+     */
+    @Override
+    protected long computeMinor() {
+        if (amount >= 0)
+            return Money.withInterest(amountMinor, -(pricedRates != null ? pricedRates.incoming : incomingInterest));
+        return Money.withInterest(amountMinor, pricedRates != null ? pricedRates.outgoing : outgoingInterest);
+    }
+
+    /**
+     * Merkt sich die aktuellen Zinssätze der verknüpften Version und berechnet damit den Betrag nach Zinsen neu.
+     */
+    @Override
+    protected void updateCalculated() {
+        // wird bereits aus dem Konstruktor von Transaction aufgerufen, bevor die Felder initialisiert sind
+        pricedRates = rateVersion != null ? rateVersion.getRates() : null;
+        super.updateCalculated();
+    }
+
+    /**
+     * Prüft, ob die Zinssätze der verknüpften Version seit der letzten Berechnung neu bewertet wurden.
+     * @return true, wenn der Betrag nach Zinsen neu berechnet werden muss, sonst false
+     */
+    @Override
+    protected boolean isStale() {
+        RateTable.Version version = rateVersion;
+        return version != null && version.getRates() != pricedRates;
+    }
+
+    /**
+     * Verknüpft die Zahlung mit einer Version der Zinssätze einer Bank.
+     * Ab jetzt gelten deren aktuelle Zinssätze, die eigenen Zinssätze werden nicht mehr verwendet.
+     * @param version Version der Zinssätze
+     */
+    void linkRates(RateTable.Version version) {
+        rateVersion = version;
+        unresolvedRateVersion = -1;
+        updateCalculated();
+    }
+
+    /**
+     * Löst die Verknüpfung mit einer Version und übernimmt deren aktuelle Zinssätze als eigene.
+     */
+    private void unlinkRates() {
+        RateTable.Version version = rateVersion;
+        if (version == null)
+            return;
+        incomingInterest = version.getRates().incoming;
+        outgoingInterest = version.getRates().outgoing;
+        rateVersion = null;
+    }
+
+    /**
+     * Prüft, ob die Zahlung mit einer Version der angegebenen Tabelle verknüpft ist.
+     * @param table Tabelle der Zinssätze
+     * @return true, wenn die Zahlung mit einer Version der Tabelle verknüpft ist, sonst false
+     */
+    boolean isLinkedTo(RateTable table) {
+        RateTable.Version version = rateVersion;
+        return version != null && version.getTable() == table;
+    }
+
+    /**
+     * Gibt die Nummer der Version zurück, mit der die Zahlung verknüpft ist oder verknüpft werden soll: die Nummer
+     * der verknüpften Version, einer noch nicht aufgelösten Version oder die mit eigenen Zinssätzen gelesene Nummer.
+     * @return Nummer der Version oder -1, wenn keine bekannt ist
+     */
+    int getLastRateVersion() {
+        int version = getRateVersion();
+        return version >= 0 ? version : rateVersionHint;
+    }
+
+    /**
+     * Prüft, ob die Zahlung nur die Nummer einer Version kennt, aber noch nicht mit ihr verknüpft ist.
+     * @return true, wenn die Version noch nicht aufgelöst ist, sonst false
+     */
+    boolean isUnresolved() {
+        return rateVersion == null && unresolvedRateVersion >= 0;
+    }
+
     /**
      * Gibt alle Attribute des Objekts als String zurueck.
      * @return String mit allen Attributen des Objekts
@@ -89,14 +226,16 @@ public class Payment extends Transaction {
     public String toString() {
         return "Payment{" +
                 super.toString() +
-                ", incomingInterest=" + incomingInterest +
-                ", outgoingInterest=" + outgoingInterest +
+                ", incomingInterest=" + getIncomingInterest() +
+                ", outgoingInterest=" + getOutgoingInterest() +
                 '}';
     }
 
     /**
      * Vergleicht zwei Objekte der Klasse Payment.
-     * Gibt true zurueck, wenn alle Attribute gleich sind, sonst false.
+     * Gibt true zurueck, wenn alle Attribute gleich sind, sonst false. Sind beide Zahlungen mit Versionen derselben
+     * Tabelle verknüpft oder ist die Version einer der beiden noch nicht aufgelöst, werden die Nummern der Versionen
+     * verglichen, sonst die aktuell geltenden Zinssätze.
      * @param o Objekt, mit dem die Transaktion verglichen werden soll
      * @return true, wenn alle Attribute gleich sind, sonst false
      */
@@ -107,8 +246,25 @@ public class Payment extends Transaction {
         if (!super.equals(o)) return false;
         Payment payment = (Payment) o;
 
-        if (payment.incomingInterest != this.incomingInterest) return false;
-        return payment.outgoingInterest == this.outgoingInterest;
+        RateTable.Version version = this.rateVersion;
+        RateTable.Version other = payment.rateVersion;
+        if (version != null && other != null && version.getTable() == other.getTable())
+            return version.getId() == other.getId();
+        if (payment.isUnresolved() || this.isUnresolved())
+            return payment.getRateVersion() == this.getRateVersion();
+        if (payment.getIncomingInterest() != this.getIncomingInterest()) return false;
+        return payment.getOutgoingInterest() == this.getOutgoingInterest();
+    }
+
+    /**
+     * Berechnet den Hashwert der Ein- oder Auszahlung (passend zu {@link #equals(Object)}).
+     * Die Zinssätze fließen nicht ein, da sie sich durch eine Neubewertung ändern können,
+     * während die Zahlung in einem Set eines Kontos liegt.
+     * @return Hashwert der Transaktion
+     */
+    @Override
+    public int hashCode() {
+        return super.hashCode();
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -120,20 +276,26 @@ public class Payment extends Transaction {
      * @return Zinsen bei einer Einzahlung, in Prozent (0.0 - 1.0)
      */
     public double getIncomingInterest() {
-        return incomingInterest;
+        RateTable.Version version = rateVersion;
+        return version != null ? version.getRates().incoming : incomingInterest;
     }
 
     /**
      * Setzt die Zinsen, die bei einer Einzahlung (Deposit) anfallen.
+     * Eine Verknüpfung mit einer Version der Zinssätze einer Bank wird dabei aufgehoben.
      * @param incomingInterest Zinsen bei einer Einzahlung, in Prozent (0.0 - 1.0)
      * @throws TransactionAttributeException wenn {@param incomingInterest} nicht zwischen 0 und 1 liegt
      */
     public void setIncomingInterest(double incomingInterest) throws TransactionAttributeException {
         if (incomingInterest < 0.0 || incomingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + incomingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
+            BankLog.debug("Fehlerhafte Eingabe: {} ist keine gueltige (0.0 - 1.0) Zinssatzangabe.", incomingInterest);
             throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
         }
+        unlinkRates();
         this.incomingInterest = incomingInterest;
+        unresolvedRateVersion = -1;
+        rateVersionHint = -1;
+        updateCalculated();
     }
 
     /**
@@ -141,20 +303,35 @@ public class Payment extends Transaction {
      * @return Zinsen bei einer Auszahlung, in Prozent (0.0 - 1.0)
      */
     public double getOutgoingInterest() {
-        return outgoingInterest;
+        RateTable.Version version = rateVersion;
+        return version != null ? version.getRates().outgoing : outgoingInterest;
     }
 
     /**
      * Setzt die Zinsen, die bei einer Auszahlung (Withdrawal) anfallen.
+     * Eine Verknüpfung mit einer Version der Zinssätze einer Bank wird dabei aufgehoben.
      * @param outgoingInterest Zinsen bei einer Auszahlung, in Prozent (0.0 - 1.0)
      * @throws TransactionAttributeException wenn {@param outgoingInterest} nicht zwischen 0 und 1 liegt
      */
-    public void setOutgoingInterest(double outgoingInterest) throws TransactionAttributeException {
+    public void setOutgoingInterest(double outgoingInterest)
+            throws TransactionAttributeException {
         if (outgoingInterest < 0.0 || outgoingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + outgoingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
+            BankLog.debug("Fehlerhafte Eingabe: {} ist keine gueltige (0.0 - 1.0) Zinssatzangabe.", outgoingInterest);
             throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
         }
+        unlinkRates();
         this.outgoingInterest = outgoingInterest;
+        unresolvedRateVersion = -1;
+        rateVersionHint = -1;
+        updateCalculated();
     }
 
+    /**
+     * Gibt die Nummer der Version der Zinssätze zurück, mit der die Zahlung verknüpft ist ({@link RateTable}).
+     * @return Nummer der Version oder -1, wenn die Zahlung eigene Zinssätze hat
+     */
+    public int getRateVersion() {
+        RateTable.Version version = rateVersion;
+        return version != null ? version.getId() : unresolvedRateVersion;
+    }
 }
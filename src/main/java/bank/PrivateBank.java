@@ -2,31 +2,84 @@ package bank;
 
 import bank.exceptions.*;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Stellt eine private Bank dar, welche Konten verwaltet.
  * Implementiert das Interface Bank.
+ * <p>
+ * Die Bank ist threadsicher. Jedes Konto hat eine eigene Sperre, sodass Buchungen auf verschiedenen Konten
+ * parallel laufen, während Buchungen auf demselben Konto (inklusive Duplikatprüfung und Speichern)
+ * nacheinander ausgeführt werden. Nur das Anlegen und Löschen von Konten wird zusätzlich gegen das
+ * Schreiben eines Snapshots ({@link #compact()}) abgesichert.
+ * <p>
+ * Optional lädt die Bank Konten erst bei Bedarf: Beim Start werden nur die Kontonamen gelesen, die Transaktionen
+ * eines Kontos beim ersten Zugriff. Übersteigt die Anzahl der Transaktionen aller geladenen Konten das angegebene
+ * Maximum, werden die am längsten nicht verwendeten Konten wieder verworfen (LRU).
+ * <p>
+ * Kann ein gespeichertes Konto nicht gelesen werden (z.B. wegen eines ungültigen Datums), wird nur dieses Konto
+ * abgelehnt, sofern die Persistenz einzelne Konten lesen kann: Der Fehler wird protokolliert, das Konto bleibt
+ * ungeladen und wird nie überschrieben, jeder Zugriff darauf wirft eine {@link IllegalStateException} mit dem
+ * Fehler. Alle anderen Konten sind normal verwendbar.
+ * <p>
+ * Zahlungen übernehmen die Zinssätze der Bank nicht als Kopie, sondern verweisen auf eine Version der Zinssätze
+ * ({@link RateTable}). Neue Zinssätze über die Setter gelten nur für neue Zahlungen, eine Neubewertung
+ * ({@link #reprice(double, double)}) ändert die Zinssätze aller Zahlungen, ohne sie einzeln anzufassen.
+ * <p>
+ * Latenzen von Buchungen und Ladevorgängen, Kontogrößen und abgelehnte Duplikate werden an {@link BankMetrics}
+ * gemeldet (standardmäßig {@link BankMetrics#NONE}, dann wird auch keine Zeit gemessen).
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 5.8
  */
 public class PrivateBank implements Bank {
 
     /** Name der Bank */
     private String name;
     /** Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0) */
-    private double incomingInterest = 0;
+    private volatile double incomingInterest = 0;
     /** Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0) */
-    private double outgoingInterest = 0;
+    private volatile double outgoingInterest = 0;
     /**
      * Liste aller Konten mit beliebig vielen zugehörigen Transaktionen dieser Bank.
-     * Der Schlüssel ist der Name des Kontos, der Wert ist eine Liste aller Transaktionen dieses Kontos.
+     * Der Schlüssel ist der Name des Kontos, der Wert enthält alle Transaktionen dieses Kontos
+     * mit einem Hash-Index für Duplikatprüfung und Entfernen in O(1) sowie der Sperre des Kontos.
      */
-    private Map<String, List<Transaction>> accountsToTransactions = new HashMap<>();
+    private final Map<String, AccountLedger> accountsToTransactions = new ConcurrentHashMap<>();
+
+    /**
+     * Sperre für die Menge der Konten. Anlegen und Löschen von Konten teilen sich die Lese-Sperre,
+     * {@link #compact()} hält die Schreib-Sperre, damit kein Konto während eines Snapshots entsteht oder verschwindet.
+     * Buchungen auf bestehenden Konten benötigen nur die Sperre des jeweiligen Kontos.
+     */
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
 
     /** Speicherort (Pfad) der Konten bzw. Transaktionen des PrivateBank-Objektes */
     private String directoryName;
 
+    /** Persistenz der Konten, z.B. eine Datei pro Konto oder ein append-only Journal */
+    private final AccountStorage storage;
+    /** Anzahl der nicht geschlossenen Banken, die sich die Persistenz teilen (siehe Copy-Konstruktor) */
+    private final AtomicInteger storageUsers;
+    /** true, sobald diese Bank geschlossen wurde */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /** Geladene Konten in LRU-Reihenfolge, null, wenn immer alle Konten geladen sind */
+    private final AccountCache cache;
+
+    /** Versionen der Zinssätze, auf die die Zahlungen der Bank verweisen */
+    private RateTable rates;
+    /** Version mit den aktuellen Zinssätzen der Bank, wird neuen Zahlungen zugewiesen */
+    private volatile RateTable.Version currentRates;
+
+    /** Messwerte der Bank, {@link BankMetrics#NONE}, wenn nichts erfasst wird */
+    private volatile BankMetrics metrics;
+
     //------------------------------------------------------------------------------------------------------------------
     // Konstruktoren
     //------------------------------------------------------------------------------------------------------------------
@@ -40,25 +93,116 @@ public class PrivateBank implements Bank {
      * @param directoryName Speicherort für die Konten bzw. Transaktionen des PrivateBank-Objektes
      */
     public PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName) {
+        this(name, incomingInterest, outgoingInterest, new FileAccountStorage(directoryName));
+    }
+
+    /**
+     * Konstruktor der Klasse PrivateBank, die Konten werden im angegebenen Dateiformat gespeichert.
+     * @param name Name der Bank
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param directoryName Speicherort für die Konten bzw. Transaktionen des PrivateBank-Objektes
+     * @param format Format der Kontodateien, z.B. {@link AccountFileFormat#BINARY}
+     */
+    public PrivateBank(String name, double incomingInterest, double outgoingInterest, String directoryName,
+                       AccountFileFormat format) {
+        this(name, incomingInterest, outgoingInterest, new FileAccountStorage(directoryName, format));
+    }
+
+    /**
+     * Konstruktor der Klasse PrivateBank. Erstellt eine neue Bank, deren Konten über die
+     * übergebene {@link AccountStorage} gespeichert werden (z.B. {@link JournalAccountStorage}).
+     * @param name Name der Bank
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param storage Persistenz der Konten bzw. Transaktionen des PrivateBank-Objektes
+     */
+    public PrivateBank(String name, double incomingInterest, double outgoingInterest, AccountStorage storage) {
+        this(name, incomingInterest, outgoingInterest, storage, 0);
+    }
+
+    /**
+     * Konstruktor der Klasse PrivateBank. Erstellt eine neue Bank, die ihre Konten erst bei Bedarf lädt.
+     * Beim Start werden nur die Kontonamen gelesen. Enthalten die geladenen Konten zusammen mehr als
+     * {@code maxLoadedTransactions} Transaktionen, werden die am längsten nicht verwendeten Konten verworfen
+     * und beim nächsten Zugriff erneut geladen.
+     * @param name Name der Bank
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param storage Persistenz der Konten, muss {@link AccountStorage#supportsLazyLoading()} unterstützen
+     * @param maxLoadedTransactions maximale Anzahl der Transaktionen aller geladenen Konten
+     *                              (jedes Konto zählt mindestens 1), 0 lädt immer alle Konten
+     * @throws IllegalArgumentException wenn die Persistenz verzögertes Laden nicht unterstützt
+     */
+    public PrivateBank(String name, double incomingInterest, double outgoingInterest, AccountStorage storage,
+                       long maxLoadedTransactions) {
+        this(name, incomingInterest, outgoingInterest, storage, maxLoadedTransactions, BankMetrics.NONE);
+    }
+
+    /**
+     * Konstruktor der Klasse PrivateBank wie {@link #PrivateBank(String, double, double, AccountStorage, long)},
+     * der zusätzlich Messwerte erfasst, bereits beim Laden der Konten.
+     * @param name Name der Bank
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param storage Persistenz der Konten
+     * @param maxLoadedTransactions maximale Anzahl der Transaktionen aller geladenen Konten, 0 lädt immer alle Konten
+     * @param metrics Messwerte der Bank, z.B. eine {@link MetricsRegistry}
+     * @throws IllegalArgumentException wenn die Persistenz verzögertes Laden nicht unterstützt
+     */
+    public PrivateBank(String name, double incomingInterest, double outgoingInterest, AccountStorage storage,
+                       long maxLoadedTransactions, BankMetrics metrics) {
+        this(name, incomingInterest, outgoingInterest, storage, maxLoadedTransactions, metrics, new AtomicInteger(1));
+    }
+
+    /**
+     * Konstruktor der Klasse PrivateBank, über den sich mehrere Banken eine Persistenz teilen.
+     * @param name Name der Bank
+     * @param incomingInterest Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param outgoingInterest Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0)
+     * @param storage Persistenz der Konten
+     * @param maxLoadedTransactions maximale Anzahl der Transaktionen aller geladenen Konten, 0 lädt immer alle Konten
+     * @param metrics Messwerte der Bank
+     * @param storageUsers Anzahl der Banken, die die Persistenz verwenden, diese Bank bereits mitgezählt
+     */
+    private PrivateBank(String name, double incomingInterest, double outgoingInterest, AccountStorage storage,
+                        long maxLoadedTransactions, BankMetrics metrics, AtomicInteger storageUsers) {
+        this.storageUsers = storageUsers;
+        setMetrics(metrics);
         setName(name);
-        setIncomingInterest(incomingInterest);
-        setOutgoingInterest(outgoingInterest);
-        setDirectoryName(directoryName);
+        setInterest(incomingInterest, outgoingInterest);
+        setDirectoryName(storage.getDirectoryName());
+        if (maxLoadedTransactions > 0 && !storage.supportsLazyLoading())
+            throw new IllegalArgumentException("Lazy loading is not supported by " + storage.getClass().getSimpleName());
+        this.storage = storage;
+        this.cache = maxLoadedTransactions > 0 ? new AccountCache(maxLoadedTransactions) : null;
+        this.rates = storage.readRates();
+        updateCurrentRates();
+        long start = System.nanoTime();
         readAccounts();
+        if (this.metrics.isEnabled())
+            this.metrics.bankLoaded(System.nanoTime() - start, accountsToTransactions.size());
     }
 
     /**
      * Copy-Konstruktor der Klasse PrivateBank. Erstellt eine neue Bank,
      * die die Werte der uebergebenen Bank uebernimmt.
-     * Die Liste der Konten wird nicht kopiert, sondern über das Dateisystem geladen.
+     * Die Liste der Konten wird nicht kopiert, sondern über die {@link AccountStorage} der Bank geladen.
+     * Die Kopie ist eine Sicht auf denselben Speicherort: Beide Banken verwenden dieselbe Persistenz
+     * (ein zweites Journal oder eine zweite Segmentdatei auf demselben Verzeichnis wäre nicht sicher).
+     * Die Persistenz wird erst geschlossen, wenn alle Banken, die sie verwenden, geschlossen sind ({@link #close()}).
      * @param bank Bank, die kopiert werden soll
+     * @throws IllegalStateException wenn {@param bank} bereits geschlossen ist
      */
     public PrivateBank(PrivateBank bank) {
         this(
                 bank.getName(),
                 bank.getIncomingInterest(),
                 bank.getOutgoingInterest(),
-                bank.getDirectoryName());
+                bank.storage,
+                bank.cache == null ? 0 : bank.cache.getMaxWeight(),
+                bank.metrics,
+                bank.retainStorage());
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -94,7 +238,12 @@ public class PrivateBank implements Bank {
         if (outgoingInterest != that.outgoingInterest) return false;
         if (!name.equals(that.name)) return false;
         if (!directoryName.equals(that.directoryName)) return false;
-        return accountsToTransactions.equals(that.accountsToTransactions);
+        if (!accountsToTransactions.keySet().equals(that.accountsToTransactions.keySet())) return false;
+        // ueber Kopien vergleichen, damit auch nicht geladene Konten beruecksichtigt werden
+        for (String account : accountsToTransactions.keySet()) {
+            if (!copyTransactions(account).equals(that.copyTransactions(account))) return false;
+        }
+        return true;
     }
 
     /**
@@ -105,15 +254,26 @@ public class PrivateBank implements Bank {
      */
     @Override
     public void createAccount(String account) throws AccountAlreadyExistsException {
-        if (accountsToTransactions.containsKey(account))
-            throw new AccountAlreadyExistsException("Account already exists: " + account);
-        accountsToTransactions.put(account, new ArrayList<>());
-        writeAccount(account);
+        structureLock.readLock().lock();
+        try {
+            AccountLedger ledger = publishLockedLedger(account);
+            try {
+                writeAccount(account, ledger);
+            } finally {
+                unlockLedger(account, ledger);
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        compactIfNeeded();
+        evictIfNeeded();
     }
 
     /**
      * Adds an account (with specified transactions) to the bank.
      * Important: duplicate transactions must not be added to the account!
+     * All transactions are checked in one pass and the account is written once. If one of them is rejected,
+     * the account is not created (all or nothing).
      *
      * @param account      the account to be added
      * @param transactions a list of already existing transactions which should be added to the newly created account
@@ -124,19 +284,29 @@ public class PrivateBank implements Bank {
     @Override
     public void createAccount(String account, List<Transaction> transactions)
             throws AccountAlreadyExistsException, TransactionAlreadyExistException, TransactionAttributeException {
-        if (accountsToTransactions.containsKey(account))
-            throw new AccountAlreadyExistsException("Account already exists: " + account);
-        accountsToTransactions.put(account, new ArrayList<>());
-
-        for (Transaction transaction : transactions) {
+        structureLock.readLock().lock();
+        try {
+            AccountLedger ledger = publishLockedLedger(account);
             try {
-                addTransaction(account, transaction);
-            } catch (AccountDoesNotExistException e) {
-                // Kann nicht auftreten, da das Konto zuvor erstellt wurde
-                System.out.println("Account does not exists: " + e.getMessage());
+                ImportResult result = importTransactions(ledger, transactions);
+                if (!result.isComplete()) {
+                    // nichts wurde gespeichert, das Konto wird wieder entfernt
+                    ledger.close();
+                    accountsToTransactions.remove(account, ledger);
+                    Exception cause = result.getRejections().get(0).getCause();
+                    if (cause instanceof TransactionAlreadyExistException e)
+                        throw e;
+                    throw (TransactionAttributeException) cause;
+                }
+                writeAccount(account, ledger);
+            } finally {
+                unlockLedger(account, ledger);
             }
+        } finally {
+            structureLock.readLock().unlock();
         }
-        writeAccount(account);
+        compactIfNeeded();
+        evictIfNeeded();
     }
 
     /**
@@ -147,10 +317,25 @@ public class PrivateBank implements Bank {
      */
     @Override
     public void deleteAccount(String account) throws AccountDoesNotExistException {
-        if (!accountsToTransactions.containsKey(account))
-            throw new AccountDoesNotExistException("Account does not exist: " + account);
-        accountsToTransactions.remove(account);
-        deleteAccountFile(account);
+        structureLock.readLock().lock();
+        try {
+            // zum Loeschen muss das Konto nicht geladen werden
+            AccountLedger ledger = lockLedger(account, false);
+            if (ledger == null)
+                throw new AccountDoesNotExistException("Account does not exist: " + account);
+            try {
+                ledger.close();
+                accountsToTransactions.remove(account, ledger);
+                if (cache != null)
+                    cache.remove(account);
+                deleteAccountFile(account);
+            } finally {
+                ledger.unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        compactIfNeeded();
     }
 
     /**
@@ -165,21 +350,112 @@ public class PrivateBank implements Bank {
     @Override
     public void addTransaction(String account, Transaction transaction)
             throws TransactionAlreadyExistException, AccountDoesNotExistException, TransactionAttributeException {
-        if (!accountsToTransactions.containsKey(account))
+        BankMetrics metrics = this.metrics;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
+            throw new AccountDoesNotExistException("Account does not exist: " + account);
+        try {
+            addTransaction(account, ledger, transaction);
+        } finally {
+            unlockLedger(account, ledger);
+        }
+        if (metrics.isEnabled())
+            metrics.transactionAdded(System.nanoTime() - start);
+        compactIfNeeded();
+        evictIfNeeded();
+    }
+
+    /**
+     * Adds many transactions to an already existing account (bulk import).
+     * Duplicates (within the list or with the account) and invalid transactions are skipped and reported,
+     * the interest rates of the bank are applied to all payments and the account is persisted exactly once.
+     *
+     * @param account      the account to which the transactions are added
+     * @param transactions the transactions to be added, in order
+     * @return the added transactions and, for every rejected one, its index and the reason
+     * @throws AccountDoesNotExistException if the specified account does not exist
+     */
+    @Override
+    public ImportResult importTransactions(String account, List<Transaction> transactions)
+            throws AccountDoesNotExistException {
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
             throw new AccountDoesNotExistException("Account does not exist: " + account);
+        ImportResult result;
+        try {
+            result = importTransactions(ledger, transactions);
+            if (!result.getImported().isEmpty()
+                    && !storage.addTransactions(account, result.getImported(), ledger.view())) {
+                ledger.markDirty();
+                BankLog.error("Error - Could not write account: {}", account);
+            }
+        } finally {
+            unlockLedger(account, ledger);
+        }
+        compactIfNeeded();
+        evictIfNeeded();
+        return result;
+    }
 
+    /**
+     * Fügt viele Transaktionen einem Konto hinzu, dessen Sperre der aufrufende Thread bereits hält,
+     * ohne die Änderung zu speichern. Doppelte und ungültige Transaktionen werden übersprungen und vermerkt.
+     * Die Indizes des Kontos werden vorher verworfen, damit sie nicht für jede Transaktion verschoben werden.
+     * @param ledger gesperrtes Konto
+     * @param transactions hinzuzufügende Transaktionen
+     * @return übernommene und abgelehnte Transaktionen
+     */
+    private ImportResult importTransactions(AccountLedger ledger, List<Transaction> transactions) {
+        ImportResult result = new ImportResult();
+        // Zinsen einmal lesen, damit alle Zahlungen eines Imports dieselben Zinsen erhalten
+        RateTable.Version version = currentRates;
+        ledger.dropIndexes();
+        int index = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction == null) {
+                result.rejected(index++, null, new TransactionAttributeException("Transaction must not be null"));
+                continue;
+            }
+            if (transaction instanceof Payment payment)
+                payment.linkRates(version);
+            if (ledger.add(transaction)) {
+                result.imported(transaction);
+            } else {
+                metrics.duplicateRejected();
+                result.rejected(index, transaction,
+                        new TransactionAlreadyExistException("Transaction already exists: " + transaction));
+            }
+            index++;
+        }
+        return result;
+    }
+
+    /**
+     * Fügt eine Transaktion einem Konto hinzu, dessen Sperre der aufrufende Thread bereits hält,
+     * und speichert die Änderung.
+     * @param account Name des Kontos
+     * @param ledger gesperrtes Konto
+     * @param transaction hinzuzufügende Transaktion
+     * @throws TransactionAlreadyExistException wenn die Transaktion bereits existiert
+     * @throws TransactionAttributeException wenn die Zinsen der Bank nicht übernommen werden können
+     */
+    private void addTransaction(String account, AccountLedger ledger, Transaction transaction)
+            throws TransactionAlreadyExistException, TransactionAttributeException {
         if (transaction instanceof Payment payment) {
             // update interest BEFORE checking for duplicates in account list!
-            // TransactionAttributeException kann hier nach oben gleitet werden
-            payment.setIncomingInterest(this.getIncomingInterest());
-            payment.setOutgoingInterest(this.getOutgoingInterest());
+            payment.linkRates(currentRates);
         }
 
-        if (accountsToTransactions.get(account).contains(transaction))
+        if (!ledger.add(transaction)) {
+            metrics.duplicateRejected();
             throw new TransactionAlreadyExistException("Transaction already exists: " + transaction);
+        }
 
-        accountsToTransactions.get(account).add(transaction);
-        writeAccount(account);
+        if (!storage.addTransaction(account, transaction, ledger.view())) {
+            ledger.markDirty();
+            BankLog.error("Error - Could not write account: {}", account);
+        }
     }
 
     /**
@@ -195,12 +471,94 @@ public class PrivateBank implements Bank {
     @Override
     public void removeTransaction(String account, Transaction transaction)
             throws AccountDoesNotExistException, TransactionDoesNotExistException {
-        if (!accountsToTransactions.containsKey(account))
+        BankMetrics metrics = this.metrics;
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
             throw new AccountDoesNotExistException("Account does not exist: " + account);
-        if (!accountsToTransactions.get(account).contains(transaction))
-            throw new TransactionDoesNotExistException("Transaction does not exist: " + transaction);
-        accountsToTransactions.get(account).remove(transaction);
-        writeAccount(account);
+        try {
+            if (!ledger.remove(transaction))
+                throw new TransactionDoesNotExistException("Transaction does not exist: " + transaction);
+            if (!storage.removeTransaction(account, transaction, ledger.view())) {
+                ledger.markDirty();
+                BankLog.error("Error - Could not write account: {}", account);
+            }
+        } finally {
+            unlockLedger(account, ledger);
+        }
+        if (metrics.isEnabled())
+            metrics.transactionRemoved(System.nanoTime() - start);
+        compactIfNeeded();
+        evictIfNeeded();
+    }
+
+    /**
+     * Books a transfer between two accounts atomically: an {@link OutgoingTransfer} on the sender's account
+     * and an {@link IncomingTransfer} on the recipient's account.
+     * Both accounts are locked in a fixed (alphabetical) order, so concurrent transfers in opposite
+     * directions cannot deadlock. Both legs are checked for duplicates before any account is changed
+     * and are persisted together via {@link AccountStorage#addTransfer}.
+     * If the storage cannot persist the transfer, both legs stay booked and both accounts are marked as
+     * not saved, like {@link #addTransaction(String, Transaction)}; they are written completely later.
+     *
+     * @param sender    the account the amount is taken from
+     * @param recipient the account the amount is credited to
+     * @param transfer  date, amount and description of the transfer
+     * @throws AccountDoesNotExistException     if one of the accounts does not exist
+     * @throws TransactionAlreadyExistException if one of the two bookings already exists
+     * @throws TransactionAttributeException    if sender and recipient are the same account
+     */
+    @Override
+    public void transfer(String sender, String recipient, Transfer transfer)
+            throws AccountDoesNotExistException, TransactionAlreadyExistException, TransactionAttributeException {
+        if (sender.equals(recipient))
+            throw new TransactionAttributeException("Sender and recipient must be different accounts: " + sender);
+        OutgoingTransfer outgoing = new OutgoingTransfer(transfer);
+        outgoing.setSender(sender);
+        outgoing.setRecipient(recipient);
+        IncomingTransfer incoming = new IncomingTransfer(transfer);
+        incoming.setSender(sender);
+        incoming.setRecipient(recipient);
+
+        // Konten immer in derselben Reihenfolge sperren, damit sich gegenlaeufige Ueberweisungen nicht verklemmen
+        boolean senderFirst = sender.compareTo(recipient) < 0;
+        String first = senderFirst ? sender : recipient;
+        String second = senderFirst ? recipient : sender;
+        AccountLedger firstLedger = lockLedger(first);
+        if (firstLedger == null)
+            throw new AccountDoesNotExistException("Account does not exist: " + first);
+        try {
+            AccountLedger secondLedger = lockLedger(second);
+            if (secondLedger == null)
+                throw new AccountDoesNotExistException("Account does not exist: " + second);
+            try {
+                AccountLedger senderLedger = senderFirst ? firstLedger : secondLedger;
+                AccountLedger recipientLedger = senderFirst ? secondLedger : firstLedger;
+                if (senderLedger.contains(outgoing)) {
+                    metrics.duplicateRejected();
+                    throw new TransactionAlreadyExistException("Transaction already exists: " + outgoing);
+                }
+                if (recipientLedger.contains(incoming)) {
+                    metrics.duplicateRejected();
+                    throw new TransactionAlreadyExistException("Transaction already exists: " + incoming);
+                }
+
+                senderLedger.add(outgoing);
+                recipientLedger.add(incoming);
+                if (!storage.addTransfer(sender, outgoing, senderLedger.view(),
+                        recipient, incoming, recipientLedger.view())) {
+                    senderLedger.markDirty();
+                    recipientLedger.markDirty();
+                    BankLog.error("Error - Could not write transfer: {} -> {}", sender, recipient);
+                }
+            } finally {
+                unlockLedger(second, secondLedger);
+            }
+        } finally {
+            unlockLedger(first, firstLedger);
+        }
+        compactIfNeeded();
+        evictIfNeeded();
     }
 
     /**
@@ -211,11 +569,20 @@ public class PrivateBank implements Bank {
      */
     @Override
     public boolean containsTransaction(String account, Transaction transaction) {
-        return accountsToTransactions.containsKey(account) && accountsToTransactions.get(account).contains(transaction);
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
+            return false;
+        try {
+            return ledger.contains(transaction);
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
     }
 
     /**
      * Returns the names of all accounts in the bank in a list.
+     * Accounts that are not loaded are listed as well, their transactions are not read.
      *
      * @return a list of all account names
      */
@@ -225,39 +592,104 @@ public class PrivateBank implements Bank {
     }
 
     /**
-     * Calculates and returns the current account balance.
+     * Returns the current account balance.
+     * The balance is maintained on every change of the account, so this is O(1).
+     * An account that has never been loaded is loaded once to calculate its balance.
      *
      * @param account the selected account
      * @return the current account balance
      */
     @Override
     public double getAccountBalance(String account) {
-        if (!accountsToTransactions.containsKey(account))
+        AccountLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null)
+            return 0;
+        // der Kontostand ist volatile und wird nur unter der Sperre des Kontos geschrieben,
+        // nach einer Neubewertung der Zinssaetze wird er unter der Sperre neu berechnet
+        if (ledger.isBalanceKnown() && ledger.getRateEpoch() == rates.getEpoch())
+            return ledger.getBalance();
+        ledger = lockLedger(account);
+        if (ledger == null)
+            return 0;
+        try {
+            return ledger.getBalance();
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Gibt den Kontostand exakt in Cent zurück, wie {@link #getAccountBalance(String)}.
+     * @param account Name des Kontos
+     * @return Kontostand in Cent, 0, wenn das Konto nicht existiert
+     */
+    public long getAccountBalanceMinor(String account) {
+        AccountLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null)
             return 0;
-        double balance = 0;
-        for (Transaction transaction : accountsToTransactions.get(account)) {
-            System.out.println(transaction);
-            balance += transaction.calculate();
+        if (ledger.isBalanceKnown() && ledger.getRateEpoch() == rates.getEpoch())
+            return ledger.getBalanceMinor();
+        ledger = lockLedger(account);
+        if (ledger == null)
+            return 0;
+        try {
+            return ledger.getBalanceMinor();
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
         }
-        return balance;
+    }
+
+    /**
+     * Gibt die Anzahl der aktuell geladenen Konten zurück.
+     * Ohne verzögertes Laden sind immer alle Konten geladen.
+     * @return Anzahl der geladenen Konten
+     */
+    public int getLoadedAccountCount() {
+        return cache == null ? accountsToTransactions.size() : cache.size();
+    }
+
+    /**
+     * Berechnet die Kontostände aller Konten aus den Transaktionen neu (z.B. für eine Prüfung)
+     * und vergleicht sie mit den laufend gepflegten Kontoständen.
+     * Die neu berechneten Kontostände werden übernommen.
+     * @return Namen der Konten, deren gepflegter Kontostand abgewichen ist (leer, wenn alles stimmt)
+     */
+    public List<String> auditBalances() {
+        List<String> deviations = new ArrayList<>();
+        for (String account : accountsToTransactions.keySet()) {
+            AccountLedger ledger = lockLedger(account);
+            if (ledger == null)
+                continue;
+            try {
+                long maintained = ledger.getBalanceMinor();
+                if (ledger.recalculateBalance() != maintained)
+                    deviations.add(account);
+            } finally {
+                unlockLedger(account, ledger);
+            }
+            evictIfNeeded();
+        }
+        return deviations;
     }
 
     /**
      * Returns a list of transactions for an account.
+     * The list is a copy in insertion order, changes to it do not affect the account.
      *
      * @param account the selected account
      * @return the list of transactions
      */
     @Override
     public List<Transaction> getTransactions(String account) {
-        if (!accountsToTransactions.containsKey(account))
-            return new ArrayList<>();
-        return accountsToTransactions.get(account);
+        return copyTransactions(account);
     }
 
     /**
      * Returns a sorted list (-> calculated amounts) of transactions for a specific account.
      * Sorts the list either in ascending or descending order (or empty).
+     * Transactions with the same calculated amount keep their insertion order in both directions.
      *
      * @param account the selected account
      * @param asc     selects if the transaction list is sorted in ascending or descending order
@@ -265,21 +697,40 @@ public class PrivateBank implements Bank {
      */
     @Override
     public List<Transaction> getTransactionsSorted(String account, boolean asc) {
-        if (!accountsToTransactions.containsKey(account))
-            return new ArrayList<>();
-        if (accountsToTransactions.get(account) == null)
+        return getTransactionsSorted(account, asc, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns one page of the sorted list (-> calculated amounts) of transactions for a specific account.
+     * The account keeps an index sorted by calculated amount that is maintained on every change,
+     * so a page of k transactions is copied in O(k) without sorting.
+     *
+     * @param account the selected account
+     * @param asc     selects if the transaction list is sorted in ascending or descending order
+     * @param offset  the position of the first transaction in the sorted list
+     * @param limit   the maximum number of transactions
+     * @return the transactions from {@code offset}, empty if the account does not exist
+     * @throws IllegalArgumentException if {@code offset} or {@code limit} is negative
+     */
+    @Override
+    public List<Transaction> getTransactionsSorted(String account, boolean asc, int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
             return new ArrayList<>();
-        List<Transaction> transactions = new ArrayList<>(accountsToTransactions.get(account));
-        if (asc) {
-            transactions.sort(Comparator.comparingDouble(Transaction::calculate));
-        } else {
-            transactions.sort(Comparator.comparingDouble(Transaction::calculate).reversed());
+        try {
+            return ledger.sorted(asc, offset, limit);
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
         }
-        return transactions;
     }
 
     /**
      * Returns a list of either positive or negative transactions (-> calculated amounts).
+     * The account keeps both partitions in insertion order and maintains them on every change,
+     * so only the result is copied.
      *
      * @param account  the selected account
      * @param positive selects if positive or negative transactions are listed
@@ -287,53 +738,458 @@ public class PrivateBank implements Bank {
      */
     @Override
     public List<Transaction> getTransactionsByType(String account, boolean positive) {
-        if (!accountsToTransactions.containsKey(account))
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
             return new ArrayList<>();
-        if (accountsToTransactions.get(account) == null)
+        try {
+            return ledger.byType(positive);
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Returns the sum of either the positive or the negative transactions (-> calculated amounts) of an account.
+     * Both sums are maintained on every change of the account, so this is O(1).
+     *
+     * @param account  the selected account
+     * @param positive selects if positive or negative transactions are summed up
+     * @return the sum of the calculated amounts, 0 if the account does not exist
+     */
+    @Override
+    public double getAccountBalanceByType(String account, boolean positive) {
+        AccountLedger ledger = accountsToTransactions.get(account);
+        if (ledger == null)
+            return 0;
+        // wie der Kontostand volatile und nur unter der Sperre des Kontos geschrieben
+        if (ledger.isBalanceKnown() && ledger.getRateEpoch() == rates.getEpoch())
+            return ledger.getSum(positive);
+        ledger = lockLedger(account);
+        if (ledger == null)
+            return 0;
+        try {
+            return ledger.getSum(positive);
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Returns all transactions of an account whose date lies between two dates (both inclusive),
+     * sorted by date. Transactions with the same date keep their insertion order.
+     * The range is looked up by binary search in a per-account index sorted by date.
+     *
+     * @param account the selected account
+     * @param from    the first date of the range
+     * @param to      the last date of the range
+     * @return the list of transactions in the range, empty if the account does not exist
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(String account, LocalDate from, LocalDate to) {
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
             return new ArrayList<>();
-        List<Transaction> transactions = new ArrayList<>(accountsToTransactions.get(account));
-        if (positive)
-            transactions.removeIf(transaction -> transaction.calculate() < 0);
-        else
-            transactions.removeIf(transaction -> transaction.calculate() >= 0);
-        return transactions;
+        try {
+            return ledger.between(from.toEpochDay(), to.toEpochDay());
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
+    }
+
+    //--------------------- Methoden für Sperren ---------------------
+
+    /**
+     * Sperrt das Konto mit dem angegebenen Namen für den aufrufenden Thread und lädt es bei Bedarf.
+     * Wurde das Konto gelöscht, während auf die Sperre gewartet wurde, wird erneut nachgesehen.
+     * @param account Name des Kontos
+     * @return das gesperrte, geladene Konto oder null, wenn es nicht existiert
+     */
+    private AccountLedger lockLedger(String account) {
+        return lockLedger(account, true);
+    }
+
+    /**
+     * Sperrt das Konto mit dem angegebenen Namen für den aufrufenden Thread.
+     * Wurde das Konto gelöscht, während auf die Sperre gewartet wurde, wird erneut nachgesehen.
+     * Wurden die Zinssätze seit der letzten Berechnung neu bewertet, wird ein geladenes Konto neu berechnet.
+     * @param account Name des Kontos
+     * @param load wenn true, werden die Transaktionen eines nicht geladenen Kontos geladen
+     * @return das gesperrte Konto oder null, wenn es nicht existiert
+     * @throws IllegalStateException wenn die Persistenz das Konto nicht lesen kann; das Konto ist dann nicht gesperrt
+     */
+    private AccountLedger lockLedger(String account, boolean load) {
+        while (true) {
+            AccountLedger ledger = accountsToTransactions.get(account);
+            if (ledger == null)
+                return null;
+            ledger.lock();
+            if (!ledger.isClosed()) {
+                if (load && !ledger.isLoaded()) {
+                    long start = System.nanoTime();
+                    long epoch = rates.getEpoch();
+                    List<Transaction> transactions;
+                    try {
+                        transactions = storage.readAccount(account);
+                    } catch (RuntimeException e) {
+                        // das Konto bleibt ungeladen, damit es nicht durch einen leeren Stand ersetzt wird
+                        ledger.unlock();
+                        throw e;
+                    }
+                    boolean migrated = linkRates(transactions);
+                    ledger.load(transactions);
+                    ledger.setRateEpoch(epoch);
+                    if (metrics.isEnabled()) {
+                        metrics.accountLoaded(System.nanoTime() - start);
+                        metrics.accountSize(ledger.size());
+                    }
+                    if (migrated)
+                        writeAccount(account, ledger);
+                }
+                ledger.reprice(rates.getEpoch());
+                return ledger;
+            }
+            ledger.unlock();
+        }
+    }
+
+    /**
+     * Vermerkt den Zugriff auf ein geladenes Konto für die LRU-Reihenfolge und gibt seine Sperre frei.
+     * @param account Name des Kontos
+     * @param ledger vom aufrufenden Thread gesperrtes Konto
+     */
+    private void unlockLedger(String account, AccountLedger ledger) {
+        if (cache != null && ledger.isLoaded() && !ledger.isClosed())
+            cache.touch(account, ledger.size());
+        ledger.unlock();
+    }
+
+    /**
+     * Verwirft die am längsten nicht verwendeten Konten, solange die geladenen Konten zu viele Transaktionen
+     * enthalten. Konten, die gerade verwendet werden, bleiben geladen. Konten mit nicht gespeicherten
+     * Änderungen werden vorher vollständig gespeichert und nur verworfen, wenn das gelingt.
+     * Darf nur aufgerufen werden, wenn der aufrufende Thread keine Sperre hält.
+     */
+    private void evictIfNeeded() {
+        if (cache == null || !cache.isOverBudget())
+            return;
+        for (String account : cache.getEvictionCandidates()) {
+            AccountLedger ledger = accountsToTransactions.get(account);
+            if (ledger == null || !ledger.tryLock())
+                continue;
+            try {
+                if (ledger.isClosed() || !ledger.isLoaded())
+                    continue;
+                if (ledger.isDirty())
+                    writeAccount(account, ledger);
+                if (ledger.isDirty())
+                    continue;
+                ledger.unload();
+                cache.remove(account);
+            } finally {
+                ledger.unlock();
+            }
+        }
+    }
+
+    /**
+     * Legt ein neues, bereits gesperrtes Konto an. Andere Threads sehen das Konto sofort,
+     * können es aber erst verwenden, nachdem der aufrufende Thread es wieder freigibt.
+     * @param account Name des Kontos
+     * @return das neue, gesperrte Konto
+     * @throws AccountAlreadyExistsException wenn das Konto bereits existiert
+     */
+    private AccountLedger publishLockedLedger(String account) throws AccountAlreadyExistsException {
+        AccountLedger ledger = new AccountLedger();
+        ledger.setRateEpoch(rates.getEpoch());
+        ledger.lock();
+        if (accountsToTransactions.putIfAbsent(account, ledger) != null) {
+            ledger.unlock();
+            throw new AccountAlreadyExistsException("Account already exists: " + account);
+        }
+        return ledger;
+    }
+
+    /**
+     * Kopiert alle Transaktionen eines Kontos unter dessen Sperre.
+     * @param account Name des Kontos
+     * @return Kopie aller Transaktionen in Einfügereihenfolge, leer, wenn das Konto nicht existiert
+     */
+    private List<Transaction> copyTransactions(String account) {
+        AccountLedger ledger = lockLedger(account);
+        if (ledger == null)
+            return new ArrayList<>();
+        try {
+            return ledger.toList();
+        } finally {
+            unlockLedger(account, ledger);
+            evictIfNeeded();
+        }
     }
 
     //--------------------- Methoden für Serialisierung ---------------------
 
     /**
-     * Serialisiert den übergebenen Account und speichert ihn in einer Datei.
+     * Serialisiert den übergebenen Account vollständig und speichert ihn über die {@link AccountStorage}.
+     * Der aufrufende Thread muss die Sperre des Kontos halten.
      * @param account der zu serialisierende Account
+     * @param ledger das gesperrte Konto
      */
-    private void writeAccount(String account) {
-        boolean result = BankFileHandler.writeAccount(directoryName, account, accountsToTransactions.get(account));
-        if (!result) {
-            System.out.println("Error - Could not write account: " + account);
+    private void writeAccount(String account, AccountLedger ledger) {
+        boolean result = storage.writeAccount(account, ledger.view());
+        if (result) {
+            ledger.markClean();
+        } else {
+            ledger.markDirty();
+            BankLog.error("Error - Could not write account: {}", account);
         }
     }
 
     /**
-     * Löscht die Datei des übergebenen Accounts mithilfe des BankFileHandlers.
-     * @param account der Account, dessen Datei gelöscht werden soll
+     * Löscht die gespeicherten Daten des übergebenen Accounts mithilfe der {@link AccountStorage}.
+     * @param account der Account, dessen Daten gelöscht werden sollen
      */
     private void deleteAccountFile(String account) {
-        boolean result = BankFileHandler.deleteAccount(directoryName, account);
+        boolean result = storage.deleteAccount(account);
         if (!result) {
-            System.out.println("Error - Could not delete account: " + account);
+            BankLog.error("Error - Could not delete account: {}", account);
         }
     }
 
+    /**
+     * Schreibt einen Snapshot aller Konten, falls die {@link AccountStorage} das verlangt
+     * (z.B. weil das Journal zu lang geworden ist).
+     * Darf nur aufgerufen werden, wenn der aufrufende Thread keine Sperre hält.
+     */
+    private void compactIfNeeded() {
+        if (storage.needsCompaction())
+            compact(true);
+    }
+
+    /**
+     * Schreibt einen kompakten Stand (Snapshot) aller Konten über die {@link AccountStorage}.
+     * Bei einem Journal wird dadurch der Neustart beschleunigt, da nur noch der Snapshot
+     * und die Einträge seit dem Snapshot gelesen werden müssen.
+     * Während des Snapshots sind alle Konten gesperrt, damit er einen konsistenten Stand enthält.
+     * Beim verzögerten Laden werden nicht geladene Konten dafür nicht geladen: Sie wurden vor dem Verwerfen
+     * vollständig gespeichert, die {@link AccountStorage} übernimmt ihren gespeicherten Stand.
+     */
+    public void compact() {
+        compact(false);
+    }
+
+    /**
+     * Schreibt einen Snapshot aller Konten über die {@link AccountStorage}.
+     * @param onlyIfNeeded wenn true, wird nach dem Sperren erneut geprüft, ob der Snapshot noch nötig ist
+     *                     (ein anderer Thread kann ihn inzwischen geschrieben haben)
+     */
+    private void compact(boolean onlyIfNeeded) {
+        structureLock.writeLock().lock();
+        if (onlyIfNeeded && !storage.needsCompaction()) {
+            structureLock.writeLock().unlock();
+            return;
+        }
+        // Konten in fester Reihenfolge sperren
+        List<String> names = new ArrayList<>(accountsToTransactions.keySet());
+        Collections.sort(names);
+        Map<String, AccountLedger> locked = new LinkedHashMap<>();
+        try {
+            Map<String, Collection<Transaction>> accounts = new HashMap<>();
+            for (String account : names) {
+                // nicht geladene Konten nur sperren, nicht alle Konten unter der Schreib-Sperre laden
+                AccountLedger ledger = lockLedger(account, false);
+                if (ledger == null)
+                    continue;
+                locked.put(account, ledger);
+                if (ledger.isLoaded())
+                    accounts.put(account, ledger.view());
+            }
+            if (!storage.compact(accounts))
+                BankLog.error("Error - Could not compact accounts of bank: {}", name);
+        } finally {
+            locked.forEach(this::unlockLedger);
+            structureLock.writeLock().unlock();
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Schreibt alle Änderungen, die die {@link AccountStorage} noch nicht gespeichert hat
+     * (z.B. bei {@link WriteBehindAccountStorage}).
+     * @return true, wenn alle Änderungen geschrieben sind, sonst false
+     */
+    public boolean flush() {
+        return storage.flush();
+    }
+
+    /**
+     * Gibt alle offenen Ressourcen der {@link AccountStorage} frei (z.B. den Kanal des Journals).
+     * Ausstehende Änderungen werden vorher geschrieben. Verwenden noch Kopien dieser Bank die Persistenz
+     * ({@link #PrivateBank(PrivateBank)}), werden nur die ausstehenden Änderungen geschrieben; geschlossen wird
+     * die Persistenz von der letzten Bank. Weitere Aufrufe haben keine Wirkung.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+        if (storageUsers.decrementAndGet() == 0)
+            storage.close();
+        else
+            storage.flush();
+    }
+
+    /**
+     * Meldet eine weitere Bank an, die die Persistenz dieser Bank verwendet.
+     * @return Zähler der Banken, die sich die Persistenz teilen
+     * @throws IllegalStateException wenn diese Bank bereits geschlossen ist
+     */
+    private AtomicInteger retainStorage() {
+        if (closed.get() || storageUsers.getAndUpdate(users -> users > 0 ? users + 1 : users) == 0)
+            throw new IllegalStateException("Bank is closed: " + name);
+        return storageUsers;
+    }
+
     /**
      * Deserialisiert alle Accounts und speichert sie in der Map.
+     * Beim verzögerten Laden werden nur die Namen der Accounts übernommen.
+     * @throws IllegalStateException wenn ein Konto nicht gelesen werden kann und die Persistenz keine einzelnen
+     *                               Konten lesen kann
      */
     private void readAccounts() {
-        Map<String, List<Transaction>> result = BankFileHandler.readAccounts(directoryName);
-        if (!result.isEmpty()) {
-            // add arraylist if the value for key is null
-            for (String key : result.keySet()) {
-                result.computeIfAbsent(key, k -> new ArrayList<>());
+        if (cache != null) {
+            // nur die Namen lesen, die Transaktionen werden beim ersten Zugriff geladen
+            for (String account : storage.readAccountNames())
+                accountsToTransactions.put(account, AccountLedger.unloaded());
+            return;
+        }
+        Map<String, List<Transaction>> result;
+        try {
+            result = storage.readAccounts();
+        } catch (IllegalStateException e) {
+            if (!storage.supportsLazyLoading())
+                throw e;
+            result = readReadableAccounts();
+        }
+        long epoch = rates.getEpoch();
+        // leere Konten (null) werden als leeres Konto uebernommen
+        result.forEach((account, transactions) -> {
+            boolean migrated = linkRates(transactions);
+            AccountLedger ledger = new AccountLedger(transactions);
+            ledger.setRateEpoch(epoch);
+            accountsToTransactions.put(account, ledger);
+            metrics.accountSize(ledger.size());
+            if (migrated)
+                writeAccount(account, ledger);
+        });
+    }
+
+    /**
+     * Liest die Konten einzeln, nachdem nicht alle zusammen gelesen werden konnten. Nicht lesbare Konten werden
+     * abgelehnt: Sie bleiben ungeladen, sodass jeder Zugriff erneut liest und den Fehler wirft, statt das Konto
+     * durch einen leeren Stand zu ersetzen.
+     * @return Map mit den lesbaren Konten
+     */
+    private Map<String, List<Transaction>> readReadableAccounts() {
+        Map<String, List<Transaction>> result = new HashMap<>();
+        for (String account : storage.readAccountNames()) {
+            try {
+                result.put(account, storage.readAccount(account));
+            } catch (IllegalStateException e) {
+                BankLog.error("Account {} rejected: {}", account, e.getMessage());
+                accountsToTransactions.put(account, AccountLedger.unloaded());
+            }
+        }
+        return result;
+    }
+
+    //--------------------- Methoden für Zinssätze ---------------------
+
+    /**
+     * Verknüpft die Zahlungen eines gelesenen Kontos mit den Versionen der Zinssätze der Bank
+     * und speichert die Tabelle, falls dafür eine Version angelegt wurde.
+     * @param transactions gelesene Transaktionen, darf null sein
+     * @return true, wenn Zahlungen ohne passende Version gelesen wurden (z.B. aus Dateien älterer Versionen)
+     *         und das Konto neu geschrieben werden sollte, damit sie auf ihre Version verweisen
+     */
+    private boolean linkRates(List<Transaction> transactions) {
+        if (transactions == null)
+            return false;
+        int versions = rates.size();
+        boolean changed = rates.link(transactions, currentRates);
+        if (rates.size() != versions)
+            saveRates();
+        // Formate ohne Versionen (z.B. das Binaerformat) speichern die Zinssaetze immer selbst
+        return changed && storage.storesRateVersions();
+    }
+
+    /**
+     * Sucht die Version mit den aktuellen Zinssätzen der Bank oder legt sie an.
+     */
+    private void updateCurrentRates() {
+        synchronized (rates) {
+            RateTable.Version version = rates.find(incomingInterest, outgoingInterest);
+            if (version == null) {
+                version = rates.add(incomingInterest, outgoingInterest);
+                saveRates();
+            }
+            currentRates = version;
+        }
+    }
+
+    /**
+     * Speichert die Versionen der Zinssätze über die {@link AccountStorage}.
+     */
+    private void saveRates() {
+        if (!storage.writeRates(rates))
+            BankLog.error("Error - Could not write rates of bank: {}", name);
+    }
+
+    /**
+     * Changes the interest rates of the bank and applies them to all existing payments as well, unlike
+     * {@link #setIncomingInterest(double)} and {@link #setOutgoingInterest(double)}, which only apply to new payments.
+     * Only the versioned rates are changed ({@link RateTable}); payments and balances are recalculated lazily,
+     * the next time an account is used. If the storage does not persist rate versions
+     * ({@link AccountStorage#storesRateVersions()}), all accounts are written again.
+     *
+     * @param incomingInterest the new interest for deposits, in percent (0.0 - 1.0)
+     * @param outgoingInterest the new interest for withdrawals, in percent (0.0 - 1.0)
+     * @throws TransactionAttributeException if one of the rates is not between 0 and 1
+     */
+    public void reprice(double incomingInterest, double outgoingInterest) throws TransactionAttributeException {
+        checkInterest(incomingInterest);
+        checkInterest(outgoingInterest);
+        synchronized (rates) {
+            rates.reprice(incomingInterest, outgoingInterest);
+            this.incomingInterest = incomingInterest;
+            this.outgoingInterest = outgoingInterest;
+            // die aktuelle Version bleibt aktuell, damit eine erneut gebuchte Zahlung als doppelt erkannt wird
+            saveRates();
+        }
+        if (storage.storesRateVersions())
+            return;
+        for (String account : getAllAccounts()) {
+            AccountLedger ledger = lockLedger(account);
+            if (ledger == null)
+                continue;
+            try {
+                writeAccount(account, ledger);
+            } finally {
+                unlockLedger(account, ledger);
             }
-            accountsToTransactions = result;
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Prüft einen Zinssatz.
+     * @param interest Zinssatz
+     * @throws TransactionAttributeException wenn {@param interest} nicht zwischen 0 und 1 liegt
+     */
+    private static void checkInterest(double interest) throws TransactionAttributeException {
+        if (interest < 0.0 || interest > 1.0) {
+            BankLog.debug("Fehlerhafte Eingabe: {} ist keine gueltige (0.0 - 1.0) Zinssatzangabe.", interest);
+            throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
         }
     }
 
@@ -367,15 +1223,16 @@ public class PrivateBank implements Bank {
 
     /**
      * Setzt die Zinsen, die bei einer Einzahlung (Deposit) für diese Bank anfallen, in Prozent (0.0 - 1.0).
+     * Die Zinsen gelten nur für neue Zahlungen, bestehende Zahlungen ändert {@link #reprice(double, double)}.
      * @param incomingInterest Zinsen bei Einzahlung
      * @throws TransactionAttributeException wenn {@param incomingInterest} nicht zwischen 0 und 1 liegt
      */
     public void setIncomingInterest(double incomingInterest) throws TransactionAttributeException {
-        if (incomingInterest < 0.0 || incomingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + incomingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
-            throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
-        }
+        checkInterest(incomingInterest);
         this.incomingInterest = incomingInterest;
+        // im Konstruktor gibt es die Tabelle erst, wenn die Persistenz bekannt ist
+        if (rates != null)
+            updateCurrentRates();
     }
 
     /**
@@ -388,15 +1245,49 @@ public class PrivateBank implements Bank {
 
     /**
      * Setzt die Zinsen, die bei einer Auszahlung (Withdrawal) für diese Bank anfallen, in Prozent (0.0 - 1.0).
+     * Die Zinsen gelten nur für neue Zahlungen, bestehende Zahlungen ändert {@link #reprice(double, double)}.
      * @param outgoingInterest Zinsen bei Auszahlung
      * @throws TransactionAttributeException wenn {@param outgoingInterest} nicht zwischen 0 und 1 liegt
      */
     public void setOutgoingInterest(double outgoingInterest) throws TransactionAttributeException {
-        if (outgoingInterest < 0.0 || outgoingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + outgoingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
-            throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
-        }
+        checkInterest(outgoingInterest);
         this.outgoingInterest = outgoingInterest;
+        if (rates != null)
+            updateCurrentRates();
+    }
+
+    /**
+     * Setzt beide Zinssätze der Bank auf einmal, sodass höchstens eine neue Version der Zinssätze angelegt und
+     * gespeichert wird ({@link RateTable}), statt einer Version je Setter.
+     * Die Zinsen gelten nur für neue Zahlungen, bestehende Zahlungen ändert {@link #reprice(double, double)}.
+     * @param incomingInterest Zinsen bei Einzahlung
+     * @param outgoingInterest Zinsen bei Auszahlung
+     * @throws TransactionAttributeException wenn einer der Zinssätze nicht zwischen 0 und 1 liegt
+     */
+    public void setInterest(double incomingInterest, double outgoingInterest) throws TransactionAttributeException {
+        checkInterest(incomingInterest);
+        checkInterest(outgoingInterest);
+        this.incomingInterest = incomingInterest;
+        this.outgoingInterest = outgoingInterest;
+        if (rates != null)
+            updateCurrentRates();
+    }
+
+    /**
+     * Gibt die Messwerte der Bank zurück.
+     * @return Messwerte, {@link BankMetrics#NONE}, wenn nichts erfasst wird
+     */
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Setzt die Messwerte der Bank. Dateizugriffe des {@link BankFileHandler} werden getrennt über
+     * {@link BankFileHandler#setMetrics(BankMetrics)} erfasst.
+     * @param metrics Messwerte, null erfasst nichts
+     */
+    public void setMetrics(BankMetrics metrics) {
+        this.metrics = metrics == null ? BankMetrics.NONE : metrics;
     }
 
     /**
@@ -409,6 +1300,7 @@ public class PrivateBank implements Bank {
 
     /**
      * Setzt den Speicherort für Konten und Transaktionen des Bank-Objekts.
+     * Die {@link AccountStorage} der Bank behält den Speicherort, mit dem sie erstellt wurde.
      * @param directoryName Speicherort (Pfad)
      */
     public void setDirectoryName(String directoryName) {
@@ -8,7 +8,7 @@ import java.util.*;
  * Stellt eine alternative private Bank dar, welche Konten verwaltet.
  * Implementiert das Interface Bank.
  * @author Tobias Schnuerpel
- * @version 3.0
+ * @version 3.2
  */
 public class PrivateBankAlt implements Bank {
 
@@ -119,7 +119,7 @@ public class PrivateBankAlt implements Bank {
                 addTransaction(account, transaction);
             } catch (AccountDoesNotExistException e) {
                 // Kann nicht auftreten, da das Konto zuvor erstellt wurde
-                System.out.println("Account does not exists: " + e.getMessage());
+                BankLog.error("Account does not exists: {}", e.getMessage());
             }
         }
     }
@@ -221,7 +221,7 @@ public class PrivateBankAlt implements Bank {
                 } else if (transfer.getRecipient().equals(account)) {
                     balance += transfer.calculate();
                 } else {
-                    System.out.println("Error - Transaction does not belong to account: " + transaction);
+                    BankLog.error("Error - Transaction does not belong to account: {}", transaction);
                 }
             }
         }
@@ -251,11 +251,14 @@ public class PrivateBankAlt implements Bank {
     public List<Transaction> getTransactionsSorted(String account, boolean asc) {
         List<Transaction> transactions = accountsToTransactions.get(account);
         if (transactions != null) {
-            if (asc) {
-                transactions.sort(Comparator.comparingDouble(Transaction::calculate));
-            } else {
-                transactions.sort(Comparator.comparingDouble(Transaction::calculate).reversed());
-            }
+            // ueber vorberechnete Betraege sortieren, statt fuer jeden Vergleich einen Comparator aufzurufen
+            Transaction[] unsorted = transactions.toArray(new Transaction[0]);
+            double[] amounts = new double[unsorted.length];
+            for (int i = 0; i < unsorted.length; i++)
+                amounts[i] = unsorted[i].calculate();
+            int[] order = KeySort.order(amounts, unsorted.length, asc);
+            for (int i = 0; i < order.length; i++)
+                transactions.set(i, unsorted[order[i]]);
         }
         return transactions;
     }
@@ -312,7 +315,7 @@ public class PrivateBankAlt implements Bank {
      */
     public void setIncomingInterest(double incomingInterest) throws TransactionAttributeException {
         if (incomingInterest < 0.0 || incomingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + incomingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
+            BankLog.debug("Fehlerhafte Eingabe: {} ist keine gueltige (0.0 - 1.0) Zinssatzangabe.", incomingInterest);
             throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
         }
         this.incomingInterest = incomingInterest;
@@ -333,7 +336,7 @@ public class PrivateBankAlt implements Bank {
      */
     public void setOutgoingInterest(double outgoingInterest) throws TransactionAttributeException {
         if (outgoingInterest < 0.0 || outgoingInterest > 1.0) {
-            System.out.println("Fehlerhafte Eingabe: " + outgoingInterest + " ist keine gueltige (0.0 - 1.0) Zinssatzangabe.");
+            BankLog.debug("Fehlerhafte Eingabe: {} ist keine gueltige (0.0 - 1.0) Zinssatzangabe.", outgoingInterest);
             throw new TransactionAttributeException("Zinsen muessen zwischen 0.0 und 1.0 liegen.");
         }
         this.outgoingInterest = outgoingInterest;
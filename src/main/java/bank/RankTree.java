@@ -0,0 +1,372 @@
+package bank;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Balancierter Suchbaum (AVL) über Transaktionen, sortiert nach einem double-Schlüssel und bei gleichem Schlüssel
+ * nach Einfügereihenfolge. Jeder Knoten kennt die Größe seines Teilbaums, sodass neben Einfügen und Entfernen
+ * auch die Suche nach einem Rang in O(log n) läuft, ein Ausschnitt ab einem Rang kostet O(log n + k).
+ * Grundlage für {@link AmountIndex} und {@link DateIndex}, die damit jede Buchung in O(log n) statt durch
+ * Verschieben aller nachfolgenden Einträge einsortieren.
+ * <p>
+ * Schlüssel werden wie bei {@link KeySort} mit {@link Double#compare} verglichen.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+final class RankTree {
+
+    /** Wurzel des Baums, null, wenn der Baum leer ist */
+    private Node root;
+    /** Einfügenummer der nächsten Transaktion, ordnet Einträge mit gleichem Schlüssel */
+    private long nextSequence;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse RankTree. Baut den Baum in O(n) aus bereits sortierten Einträgen auf.
+     * @param keys Schlüssel, aufsteigend sortiert, bei gleichem Schlüssel in Einfügereihenfolge
+     * @param values Transaktionen, parallel zu {@code keys}
+     * @param size Anzahl der Einträge
+     */
+    RankTree(double[] keys, Transaction[] values, int size) {
+        root = build(keys, values, 0, size);
+        nextSequence = size;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Fügt eine Transaktion hinter allen Einträgen mit gleichem oder kleinerem Schlüssel ein.
+     * @param key Schlüssel der Transaktion
+     * @param value neue Transaktion
+     */
+    void add(double key, Transaction value) {
+        root = insert(root, new Node(key, nextSequence++, value));
+    }
+
+    /**
+     * Entfernt eine Transaktion. Gesucht wird nur unter den Einträgen mit demselben Schlüssel.
+     * @param key Schlüssel der Transaktion
+     * @param value zu entfernende Transaktion
+     * @return true, wenn die Transaktion entfernt wurde, false, wenn sie nicht enthalten war
+     */
+    boolean remove(double key, Transaction value) {
+        // Pfad zum ersten Eintrag mit diesem Schlüssel, danach in Sortierreihenfolge weiter
+        Deque<Node> path = new ArrayDeque<>();
+        for (Node node = root; node != null; ) {
+            if (Double.compare(node.key, key) < 0) {
+                node = node.right;
+            } else {
+                path.push(node);
+                node = node.left;
+            }
+        }
+        while (!path.isEmpty()) {
+            Node node = path.pop();
+            if (Double.compare(node.key, key) != 0)
+                return false;
+            if (node.value.equals(value)) {
+                root = delete(root, node.key, node.sequence);
+                return true;
+            }
+            for (Node next = node.right; next != null; next = next.left)
+                path.push(next);
+        }
+        return false;
+    }
+
+    /**
+     * Zählt die Einträge, deren Schlüssel kleiner als der angegebene ist.
+     * @param key Schlüssel
+     * @return Rang des ersten Eintrags mit einem Schlüssel größer oder gleich {@code key}
+     */
+    int lowerRank(double key) {
+        int rank = 0;
+        for (Node node = root; node != null; ) {
+            if (Double.compare(node.key, key) < 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Zählt die Einträge, deren Schlüssel kleiner oder gleich dem angegebenen ist.
+     * @param key Schlüssel
+     * @return Rang des ersten Eintrags mit einem Schlüssel größer als {@code key}
+     */
+    int upperRank(double key) {
+        int rank = 0;
+        for (Node node = root; node != null; ) {
+            if (Double.compare(node.key, key) <= 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Gibt den Schlüssel des Eintrags mit dem angegebenen Rang zurück.
+     * @param rank Rang, 0 bis size() - 1
+     * @return Schlüssel des Eintrags
+     */
+    double keyAt(int rank) {
+        Node node = root;
+        while (true) {
+            int left = size(node.left);
+            if (rank < left) {
+                node = node.left;
+            } else if (rank == left) {
+                return node.key;
+            } else {
+                rank -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Hängt die Transaktionen mit den Rängen {@code from} (einschließlich) bis {@code to} (ausschließlich)
+     * in Sortierreihenfolge an die Liste an.
+     * @param from erster Rang
+     * @param to Rang hinter dem letzten
+     * @param result Liste, an die angehängt wird
+     */
+    void collect(int from, int to, List<Transaction> result) {
+        if (from < to)
+            collect(root, 0, from, to, result);
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     * @return Anzahl der Einträge
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Hängt die Transaktionen eines Teilbaums im angegebenen Rangbereich an.
+     * Teilbäume außerhalb des Bereichs werden übersprungen.
+     * @param node Wurzel des Teilbaums
+     * @param base Rang des kleinsten Eintrags im Teilbaum
+     * @param from erster Rang
+     * @param to Rang hinter dem letzten
+     * @param result Liste, an die angehängt wird
+     */
+    private static void collect(Node node, int base, int from, int to, List<Transaction> result) {
+        if (node == null || base >= to || base + node.size <= from)
+            return;
+        int rank = base + size(node.left);
+        collect(node.left, base, from, to, result);
+        if (rank >= from && rank < to)
+            result.add(node.value);
+        collect(node.right, rank + 1, from, to, result);
+    }
+
+    /**
+     * Baut einen vollständig balancierten Teilbaum aus sortierten Einträgen auf.
+     * @param keys Schlüssel
+     * @param values Transaktionen
+     * @param from erster Eintrag
+     * @param to Eintrag hinter dem letzten
+     * @return Wurzel des Teilbaums, null, wenn der Bereich leer ist
+     */
+    private static Node build(double[] keys, Transaction[] values, int from, int to) {
+        if (from >= to)
+            return null;
+        int middle = (from + to) >>> 1;
+        // die Position entspricht der Einfügereihenfolge unter gleichen Schlüsseln
+        Node node = new Node(keys[middle], middle, values[middle]);
+        node.left = build(keys, values, from, middle);
+        node.right = build(keys, values, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Fügt einen Knoten in einen Teilbaum ein.
+     * @param node Wurzel des Teilbaums
+     * @param entry neuer Knoten
+     * @return neue Wurzel des Teilbaums
+     */
+    private static Node insert(Node node, Node entry) {
+        if (node == null)
+            return entry;
+        if (compare(entry.key, entry.sequence, node) < 0)
+            node.left = insert(node.left, entry);
+        else
+            node.right = insert(node.right, entry);
+        return balance(node);
+    }
+
+    /**
+     * Entfernt den Knoten mit dem angegebenen Schlüssel und der Einfügenummer aus einem Teilbaum.
+     * @param node Wurzel des Teilbaums, enthält den Knoten
+     * @param key Schlüssel des Knotens
+     * @param sequence Einfügenummer des Knotens
+     * @return neue Wurzel des Teilbaums
+     */
+    private static Node delete(Node node, double key, long sequence) {
+        int comparison = compare(key, sequence, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, key, sequence);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, key, sequence);
+        } else {
+            if (node.left == null)
+                return node.right;
+            if (node.right == null)
+                return node.left;
+            // durch den nächstgrößeren Eintrag ersetzen
+            Node successor = node.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = deleteFirst(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    /**
+     * Entfernt den kleinsten Knoten aus einem Teilbaum.
+     * @param node Wurzel des Teilbaums
+     * @return neue Wurzel des Teilbaums
+     */
+    private static Node deleteFirst(Node node) {
+        if (node.left == null)
+            return node.right;
+        node.left = deleteFirst(node.left);
+        return balance(node);
+    }
+
+    /**
+     * Stellt die AVL-Bedingung für einen Knoten wieder her, dessen Teilbäume balanciert sind.
+     * @param node Knoten
+     * @return neue Wurzel des Teilbaums
+     */
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * @param node Knoten mit linkem Kind
+     * @return neue Wurzel des Teilbaums (das linke Kind)
+     */
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    /**
+     * @param node Knoten mit rechtem Kind
+     * @return neue Wurzel des Teilbaums (das rechte Kind)
+     */
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Berechnet Höhe und Größe eines Knotens aus seinen Kindern.
+     * @param node Knoten
+     */
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Vergleicht einen Eintrag mit einem Knoten nach Schlüssel und Einfügenummer.
+     * @param key Schlüssel des Eintrags
+     * @param sequence Einfügenummer des Eintrags
+     * @param node Knoten
+     * @return negativ, 0 oder positiv, wenn der Eintrag vor, an oder hinter dem Knoten steht
+     */
+    private static int compare(double key, long sequence, Node node) {
+        int comparison = Double.compare(key, node.key);
+        return comparison != 0 ? comparison : Long.compare(sequence, node.sequence);
+    }
+
+    /**
+     * @param node Knoten oder null
+     * @return Höhe des Teilbaums, 0 für null
+     */
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * @param node Knoten oder null
+     * @return Anzahl der Einträge im Teilbaum, 0 für null
+     */
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Knoten des Baums mit einer Transaktion.
+     */
+    private static final class Node {
+
+        /** Schlüssel der Transaktion */
+        final double key;
+        /** Einfügenummer, ordnet Knoten mit gleichem Schlüssel */
+        final long sequence;
+        /** Transaktion */
+        final Transaction value;
+        /** Teilbaum mit kleineren Einträgen */
+        Node left;
+        /** Teilbaum mit größeren Einträgen */
+        Node right;
+        /** Höhe des Teilbaums */
+        int height = 1;
+        /** Anzahl der Einträge im Teilbaum */
+        int size = 1;
+
+        /**
+         * Konstruktor der Klasse Node.
+         * @param key Schlüssel der Transaktion
+         * @param sequence Einfügenummer
+         * @param value Transaktion
+         */
+        Node(double key, long sequence, Transaction value) {
+            this.key = key;
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
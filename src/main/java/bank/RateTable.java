@@ -0,0 +1,232 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Versionierte Zinssätze einer {@link PrivateBank}.
+ * <p>
+ * Jede Zahlung ({@link Payment}) einer Bank verweist auf eine Version dieser Tabelle, statt die Zinssätze selbst
+ * zu speichern. In den JSON-Dateien steht daher nur die Nummer der Version ({@link Payment#getRateVersion()}),
+ * die Tabelle selbst liegt einmal pro Verzeichnis in [directory]/rates/rates.json
+ * ({@link BankFileHandler#writeRates(String, RateTable)}).
+ * <p>
+ * Ändert die Bank ihre Zinssätze über die Setter, kommt eine neue Version hinzu und bestehende Zahlungen behalten
+ * ihre Zinssätze. Eine Neubewertung ({@link #reprice(double, double)}) ersetzt dagegen die Zinssätze aller Versionen
+ * und erhöht die Epoche ({@link #getEpoch()}); die Versionen selbst bleiben erhalten, damit Zahlungen, die sich nur in
+ * ihrer Version unterscheiden, verschieden bleiben ({@link Payment#equals(Object)}). Zahlungen berechnen ihren Betrag erst beim nächsten Zugriff neu,
+ * Konten ihren Kontostand erst, wenn sie das nächste Mal gesperrt werden ({@link AccountLedger#reprice(long)}).
+ * Eine Neubewertung kostet so unabhängig von der Anzahl der Zahlungen nur O(Anzahl der Versionen).
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public final class RateTable {
+
+    /** alle Versionen, die Nummer einer Version ist ihre Position */
+    private final List<Version> versions = new ArrayList<>();
+    /** Anzahl der Neubewertungen seit dem Laden, nur im Speicher */
+    private volatile long epoch = 0;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse RateTable. Erstellt eine leere Tabelle.
+     */
+    public RateTable() {
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sucht die neueste Version mit den angegebenen Zinssätzen.
+     * @param incomingInterest Zinsen bei einer Einzahlung
+     * @param outgoingInterest Zinsen bei einer Auszahlung
+     * @return Version mit genau diesen Zinssätzen oder null
+     */
+    synchronized Version find(double incomingInterest, double outgoingInterest) {
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            Version version = versions.get(i);
+            Rates rates = version.getRates();
+            if (rates.incoming == incomingInterest && rates.outgoing == outgoingInterest)
+                return version;
+        }
+        return null;
+    }
+
+    /**
+     * Hängt eine neue Version an.
+     * @param incomingInterest Zinsen bei einer Einzahlung
+     * @param outgoingInterest Zinsen bei einer Auszahlung
+     * @return neue Version
+     */
+    synchronized Version add(double incomingInterest, double outgoingInterest) {
+        Version version = new Version(this, versions.size(), new Rates(incomingInterest, outgoingInterest));
+        versions.add(version);
+        return version;
+    }
+
+    /**
+     * Gibt die Version mit der angegebenen Nummer zurück.
+     * @param id Nummer der Version
+     * @return Version oder null, wenn es die Nummer nicht gibt
+     */
+    synchronized Version get(int id) {
+        return id >= 0 && id < versions.size() ? versions.get(id) : null;
+    }
+
+    /**
+     * Setzt die Zinssätze aller Versionen neu und erhöht danach die Epoche.
+     * Zahlungen und Konten bemerken die Änderung beim nächsten Zugriff.
+     * @param incomingInterest neue Zinsen bei einer Einzahlung
+     * @param outgoingInterest neue Zinsen bei einer Auszahlung
+     */
+    synchronized void reprice(double incomingInterest, double outgoingInterest) {
+        Rates rates = new Rates(incomingInterest, outgoingInterest);
+        for (Version version : versions)
+            version.rates = rates;
+        // erst nach den Zinssaetzen, wer die neue Epoche liest, sieht auch die neuen Zinssaetze
+        epoch++;
+    }
+
+    /**
+     * Verknüpft aus einer Datei gelesene Zahlungen mit ihrer Version (siehe {@link Payment#getRateVersion()}).
+     * Zahlungen mit unbekannter Versionsnummer bleiben unverknüpft.
+     * @param transactions gelesene Transaktionen
+     */
+    void resolve(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            if (transaction instanceof Payment payment && payment.isUnresolved()) {
+                Version version = get(payment.getRateVersion());
+                if (version != null)
+                    payment.linkRates(version);
+            }
+        }
+    }
+
+    /**
+     * Verknüpft alle Zahlungen eines Kontos mit einer Version dieser Tabelle: nicht aufgelöste Versionsnummern über
+     * {@link #get(int)}, alle anderen Zahlungen (mit eigenen Zinssätzen, z.B. aus dem Binärformat, oder mit einer
+     * Version einer anderen Tabelle) über die Version mit denselben Zinssätzen, die bei Bedarf angelegt wird.
+     * Die bisherige Versionsnummer ({@link Payment#getLastRateVersion()}) wird dabei bevorzugt, wenn sie dieselben
+     * Zinssätze hat.
+     * @param transactions Transaktionen eines Kontos
+     * @param fallback Version für Zahlungen mit unbekannter Versionsnummer
+     * @return true, wenn sich die Versionsnummer einer Zahlung geändert hat und das Konto neu gespeichert
+     *         werden sollte, sonst false
+     */
+    boolean link(Collection<Transaction> transactions, Version fallback) {
+        boolean changed = false;
+        for (Transaction transaction : transactions) {
+            if (!(transaction instanceof Payment payment) || payment.isLinkedTo(this))
+                continue;
+            int stored = payment.getLastRateVersion();
+            Version version;
+            if (payment.isUnresolved()) {
+                version = get(stored);
+                if (version == null) {
+                    BankLog.warn("Error: unknown rate version {}, using version {}", stored, fallback.getId());
+                    version = fallback;
+                }
+            } else {
+                double incoming = payment.getIncomingInterest();
+                double outgoing = payment.getOutgoingInterest();
+                synchronized (this) {
+                    version = get(stored);
+                    if (version == null || version.getRates().incoming != incoming
+                            || version.getRates().outgoing != outgoing)
+                        version = find(incoming, outgoing);
+                    if (version == null)
+                        version = add(incoming, outgoing);
+                }
+            }
+            payment.linkRates(version);
+            changed |= version.getId() != stored;
+        }
+        return changed;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die Anzahl der Versionen zurück.
+     * @return Anzahl der Versionen
+     */
+    public synchronized int size() {
+        return versions.size();
+    }
+
+    /**
+     * Gibt die Anzahl der Neubewertungen seit dem Laden zurück.
+     * @return Epoche der Tabelle
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Gibt die Zinsen bei einer Einzahlung einer Version zurück.
+     * @param id Nummer der Version
+     * @return Zinsen bei einer Einzahlung, in Prozent (0.0 - 1.0)
+     * @throws IndexOutOfBoundsException wenn es die Version nicht gibt
+     */
+    public synchronized double getIncomingInterest(int id) {
+        return versions.get(id).getRates().incoming;
+    }
+
+    /**
+     * Gibt die Zinsen bei einer Auszahlung einer Version zurück.
+     * @param id Nummer der Version
+     * @return Zinsen bei einer Auszahlung, in Prozent (0.0 - 1.0)
+     * @throws IndexOutOfBoundsException wenn es die Version nicht gibt
+     */
+    public synchronized double getOutgoingInterest(int id) {
+        return versions.get(id).getRates().outgoing;
+    }
+
+    /**
+     * Unveränderliches Paar von Zinssätzen; wird bei einer Neubewertung als Ganzes ersetzt.
+     */
+    static final class Rates {
+        final double incoming;
+        final double outgoing;
+
+        Rates(double incoming, double outgoing) {
+            this.incoming = incoming;
+            this.outgoing = outgoing;
+        }
+    }
+
+    /**
+     * Eine Version der Tabelle mit fester Nummer und (durch Neubewertung) veränderlichen Zinssätzen.
+     */
+    static final class Version {
+        private final RateTable table;
+        private final int id;
+        private volatile Rates rates;
+
+        private Version(RateTable table, int id, Rates rates) {
+            this.table = table;
+            this.id = id;
+            this.rates = rates;
+        }
+
+        RateTable getTable() {
+            return table;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        Rates getRates() {
+            return rates;
+        }
+    }
+}
@@ -0,0 +1,710 @@
+package bank;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Speichert alle Konten in einer einzigen Datei [directory]/accounts.seg statt einer Datei pro Konto.
+ * <p>
+ * Die Datei besteht aus Segmenten, die nur angehängt werden: Jedes Speichern eines Kontos hängt ein Segment mit
+ * allen Transaktionen des Kontos im Binärformat ({@link BinaryAccountFormat}) an, das Löschen ein leeres Segment.
+ * Ein Index im Speicher merkt sich für jedes Konto Position und Länge seines letzten Segments, sodass ein einzelnes
+ * Konto mit einem einzigen wahlfreien Zugriff gelesen wird. Beim Schließen und nach dem Kompaktieren wird der Index
+ * in [directory]/accounts.idx gesichert; beim Öffnen wird er geladen und nur der danach angehängte Teil der Datei
+ * gelesen. Ein unvollständiges Segment am Ende der Datei (z.B. nach einem Absturz während des Schreibens) wird
+ * ignoriert und abgeschnitten. Ein beschädigtes Segment, hinter dem noch Daten liegen, wird nicht abgeschnitten:
+ * Das Öffnen bricht dann mit einer {@link IllegalStateException} ab, ebenso das Lesen eines Kontos, dessen
+ * Segment beschädigt ist.
+ * <p>
+ * Belegen überholte Segmente mehr Platz als die gültigen (und mindestens {@code minGarbageBytes}), werden die
+ * gültigen Segmente beim nächsten Schreiben in eine neue Datei kopiert. Existiert die Datei noch nicht, werden
+ * vorhandene Kontodateien ([account].json) übernommen. Wie bei {@link FileAccountStorage} wird nicht bei jedem
+ * Schreiben fsync aufgerufen, sondern erst beim Schließen.
+ * <pre>
+ * Datei:   int Kennung "OOSS" | byte Version | Segment*
+ * Segment: byte Art (1 = Konto, 2 = gelöscht) | int Länge Name | UTF-8 Name | int Länge Konto | Konto
+ *          | int CRC32 über alle vorherigen Bytes des Segments
+ * </pre>
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public class SegmentedAccountStorage implements AccountStorage {
+
+    /** Dateiname der Segmente */
+    static final String DATA_FILE = "accounts.seg";
+    /** Dateiname des gesicherten Index */
+    static final String INDEX_FILE = "accounts.idx";
+    /** Standardmäßige Anzahl überholter Bytes, ab der kompaktiert werden darf */
+    public static final long DEFAULT_MIN_GARBAGE_BYTES = 16 * 1024 * 1024;
+
+    /** Kennung am Anfang der Datei ("OOSS") */
+    private static final int DATA_MAGIC = 0x4F4F5353;
+    /** Kennung am Anfang des gesicherten Index ("OOSI") */
+    private static final int INDEX_MAGIC = 0x4F4F5349;
+    /** Version von Datei und Index */
+    private static final byte VERSION = 1;
+    /** Größe des Dateikopfes in Bytes */
+    private static final int DATA_HEADER_SIZE = 5;
+    /** Art eines Segments mit einem Konto */
+    private static final byte ACCOUNT = 1;
+    /** Art eines Segments, das ein Konto löscht */
+    private static final byte DELETED = 2;
+    /** Größe eines Segments ohne Name und Konto: Art, zwei Längen und CRC32 */
+    private static final int SEGMENT_OVERHEAD = 1 + 3 * Integer.BYTES;
+    /** Größe des Puffers beim Lesen der Datei in Bytes */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Speicherort (Pfad) der Konten */
+    private final String directoryName;
+    /** Anzahl überholter Bytes, ab der kompaktiert werden darf */
+    private final long minGarbageBytes;
+    /** Lesesperre für Zugriffe auf einzelne Konten, Schreibsperre für Anhängen und Kompaktieren */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Letztes Segment jedes Kontos */
+    private final Map<String, Segment> index = new HashMap<>();
+
+    /** Kanal der Datei, null, wenn sie nicht geöffnet werden konnte oder geschlossen wurde */
+    private FileChannel channel;
+    /** Ende des letzten gültigen Segments, hier wird angehängt */
+    private long end;
+    /** Anzahl der Bytes in überholten Segmenten */
+    private long garbage;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse SegmentedAccountStorage.
+     * Kompaktiert wird frühestens ab {@link #DEFAULT_MIN_GARBAGE_BYTES} überholten Bytes.
+     * @param directoryName Speicherort (Pfad) der Konten
+     */
+    public SegmentedAccountStorage(String directoryName) {
+        this(directoryName, DEFAULT_MIN_GARBAGE_BYTES);
+    }
+
+    /**
+     * Konstruktor der Klasse SegmentedAccountStorage. Öffnet die Datei und lädt den Index.
+     * @param directoryName Speicherort (Pfad) der Konten
+     * @param minGarbageBytes Anzahl überholter Bytes, ab der kompaktiert werden darf (mindestens 0)
+     * @throws IllegalStateException wenn die Datei vor ihrem Ende beschädigt ist oder eine zu übernehmende
+     *                               Kontodatei nicht gelesen werden kann
+     */
+    public SegmentedAccountStorage(String directoryName, long minGarbageBytes) {
+        if (minGarbageBytes < 0)
+            throw new IllegalArgumentException("minGarbageBytes darf nicht negativ sein.");
+        this.directoryName = directoryName;
+        this.minGarbageBytes = minGarbageBytes;
+        lock.writeLock().lock();
+        try {
+            open();
+        } catch (IOException e) {
+            BankLog.error("Error opening accounts file: {}", e.getMessage());
+            closeChannel();
+        } catch (IllegalStateException e) {
+            closeChannel();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt den Speicherort (Pfad) der Konten zurück.
+     * @return Speicherort (Pfad)
+     */
+    @Override
+    public String getDirectoryName() {
+        return directoryName;
+    }
+
+    /**
+     * Liest alle Konten über den Index.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     * @throws IllegalStateException wenn das Segment eines Kontos nicht gelesen werden kann
+     */
+    @Override
+    public Map<String, List<Transaction>> readAccounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, List<Transaction>> accounts = new HashMap<>();
+            for (String account : index.keySet())
+                accounts.put(account, readSegment(account));
+            return accounts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Einzelne Konten werden über den Index mit einem wahlfreien Zugriff gelesen.
+     * @return true
+     */
+    @Override
+    public boolean supportsLazyLoading() {
+        return true;
+    }
+
+    /**
+     * Gibt die Namen aller Konten aus dem Index zurück, ohne die Datei zu lesen.
+     * @return Namen aller Konten
+     */
+    @Override
+    public Set<String> readAccountNames() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Liest das letzte Segment eines Kontos.
+     * @param account Name des Kontos
+     * @return Transaktionen des Kontos, leer, wenn das Konto nicht gespeichert ist
+     * @throws IllegalStateException wenn das Segment nicht gelesen werden kann oder beschädigt ist
+     */
+    @Override
+    public List<Transaction> readAccount(String account) {
+        lock.readLock().lock();
+        try {
+            return readSegment(account);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hängt ein Segment mit allen Transaktionen des Kontos an.
+     * @param account Name des Kontos
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean writeAccount(String account, Collection<Transaction> transactions) {
+        byte[] payload;
+        try {
+            // das Kodieren braucht keine Sperre
+            payload = BinaryAccountFormat.encode(transactions);
+        } catch (IOException e) {
+            BankLog.error("Error writing account {}: {}", account, e.getMessage());
+            return false;
+        }
+        return append(account, ACCOUNT, payload);
+    }
+
+    /**
+     * Hängt ein Segment an, das das Konto löscht.
+     * @param account Name des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean deleteAccount(String account) {
+        return append(account, DELETED, new byte[0]);
+    }
+
+    /**
+     * Hängt ein Segment mit allen Transaktionen des Kontos inklusive der neuen Transaktion an.
+     * @param account Name des Kontos
+     * @param transaction hinzugefügte Transaktion
+     * @param transactions alle Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Hängt ein Segment mit allen verbleibenden Transaktionen des Kontos an.
+     * @param account Name des Kontos
+     * @param transaction entfernte Transaktion
+     * @param transactions alle verbleibenden Transaktionen des Kontos
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Kopiert die gültigen Segmente in eine neue Datei und verwirft die überholten.
+     * Die übergebenen Konten werden nicht benötigt, da die Segmente unverändert kopiert werden.
+     * @param accounts alle Konten der Bank
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean compact(Map<String, ? extends Collection<Transaction>> accounts) {
+        lock.writeLock().lock();
+        try {
+            return compactSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Schreibt die Datei auf den Datenträger, sichert den Index und schließt die Datei.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel == null)
+                return;
+            channel.force(true);
+            writeIndexFile();
+        } catch (IOException e) {
+            BankLog.error("Error closing accounts file: {}", e.getMessage());
+        } finally {
+            closeChannel();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gibt die Größe der Datei bis zum Ende des letzten gültigen Segments zurück.
+     * @return Größe in Bytes
+     */
+    public long getDataSize() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Bytes in überholten Segmenten zurück.
+     * @return Anzahl überholter Bytes
+     */
+    public long getGarbageBytes() {
+        lock.readLock().lock();
+        try {
+            return garbage;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Öffnet bzw. erstellt die Datei und baut den Index auf. Muss unter der Schreibsperre aufgerufen werden.
+     * @throws IOException wenn die Datei nicht geöffnet oder gelesen werden kann
+     */
+    private void open() throws IOException {
+        Path path = getDataPath();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        boolean exists = Files.exists(path);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!exists || channel.size() == 0) {
+            // bestehende Kontodateien uebernehmen, vor dem Kopf, damit ein fehlgeschlagener Import wiederholt wird
+            Map<String, List<Transaction>> legacy =
+                    BankFileHandler.readAccounts(directoryName, FileAccountStorage.DEFAULT_PARALLELISM);
+            ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE).putInt(DATA_MAGIC).put(VERSION).flip();
+            channel.write(header, 0);
+            end = DATA_HEADER_SIZE;
+            for (Map.Entry<String, List<Transaction>> entry : legacy.entrySet())
+                write(entry.getKey(), ACCOUNT, BinaryAccountFormat.encode(entry.getValue()));
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.position() < DATA_HEADER_SIZE || header.getInt(0) != DATA_MAGIC)
+            throw new IOException(DATA_FILE + " ist keine Kontodatei.");
+        if (header.get(4) != VERSION)
+            throw new IOException("Nicht unterstützte Version " + header.get(4) + ".");
+        long covered = readIndexFile();
+        scan(covered < 0 ? DATA_HEADER_SIZE : covered);
+    }
+
+    /**
+     * Liest die Segmente ab der angegebenen Position und aktualisiert den Index.
+     * Ein Segment, das über das Ende der Datei hinausreicht oder als letztes Segment eine falsche Prüfsumme hat,
+     * wurde beim Schreiben unterbrochen und wird abgeschnitten. Liegen hinter einem beschädigten Segment noch Daten,
+     * wird nichts abgeschnitten.
+     * @param from Position des ersten Segments
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     * @throws IllegalStateException wenn ein Segment vor dem Ende der Datei beschädigt ist
+     */
+    private void scan(long from) throws IOException {
+        long size = channel.size();
+        long position = from;
+        // nicht schliessen, sonst wird auch der Kanal geschlossen
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(from)), BUFFER_SIZE));
+        byte[] chunk = new byte[BUFFER_SIZE];
+        CRC32 crc = new CRC32();
+        while (position < size) {
+            long remaining = size - position;
+            if (remaining < SEGMENT_OVERHEAD)
+                break;
+            byte kind = in.readByte();
+            int nameLength = in.readInt();
+            if ((kind != ACCOUNT && kind != DELETED) || nameLength < 0)
+                throw corrupt(position, "Ungültiger Segmentkopf.");
+            if (nameLength > remaining - SEGMENT_OVERHEAD)
+                break;
+            byte[] name = in.readNBytes(nameLength);
+            int payloadLength = in.readInt();
+            if (payloadLength < 0)
+                throw corrupt(position, "Ungültiger Segmentkopf.");
+            if (payloadLength > remaining - SEGMENT_OVERHEAD - nameLength)
+                break;
+            crc.reset();
+            crc.update(segmentHeader(kind, name, payloadLength));
+            for (int read = 0; read < payloadLength; ) {
+                int length = in.read(chunk, 0, Math.min(chunk.length, payloadLength - read));
+                if (length < 0)
+                    throw new EOFException("Unerwartetes Dateiende.");
+                crc.update(chunk, 0, length);
+                read += length;
+            }
+            int length = SEGMENT_OVERHEAD + nameLength + payloadLength;
+            if (in.readInt() != (int) crc.getValue()) {
+                if (position + length < size)
+                    throw corrupt(position, "Prüfsumme stimmt nicht.");
+                // letztes Segment der Datei: beim Schreiben unterbrochen
+                break;
+            }
+            apply(new String(name, StandardCharsets.UTF_8), kind, new Segment(position, length));
+            position += length;
+        }
+        if (position < size) {
+            BankLog.warn("Ignoring incomplete segment at offset {} of {}", position, DATA_FILE);
+            channel.truncate(position);
+        }
+        end = position;
+    }
+
+    /**
+     * Erstellt die Exception für ein beschädigtes Segment.
+     * @param position Position des Segments
+     * @param reason Grund
+     * @return Exception mit Position und Grund
+     */
+    private static IllegalStateException corrupt(long position, String reason) {
+        return new IllegalStateException("Corrupt segment at offset " + position + " of " + DATA_FILE + ": " + reason);
+    }
+
+    /**
+     * Lädt den gesicherten Index, sofern er zur Datei passt.
+     * @return Länge der Datei, die der Index abdeckt, oder -1, wenn es keinen gültigen Index gibt
+     */
+    private long readIndexFile() {
+        Path path = getIndexPath();
+        if (!Files.isRegularFile(path))
+            return -1;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            int checked = buffer.limit() - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, Math.max(0, checked));
+            if (checked < 0 || buffer.getInt(checked) != (int) crc.getValue()
+                    || buffer.getInt() != INDEX_MAGIC || buffer.get() != VERSION)
+                throw new IOException("Ungültiger Index.");
+            long covered = buffer.getLong();
+            long garbageBytes = buffer.getLong();
+            int count = buffer.getInt();
+            if (covered < DATA_HEADER_SIZE || covered > channel.size())
+                throw new IOException("Index passt nicht zur Datei.");
+            Map<String, Segment> segments = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                Segment segment = new Segment(buffer.getLong(), buffer.getInt());
+                if (segment.offset < DATA_HEADER_SIZE || segment.offset + segment.length > covered)
+                    throw new IOException("Index passt nicht zur Datei.");
+                segments.put(new String(name, StandardCharsets.UTF_8), segment);
+            }
+            index.putAll(segments);
+            garbage = garbageBytes;
+            return covered;
+        } catch (IOException | RuntimeException e) {
+            // der Index ist nur eine Abkuerzung, die Datei wird dann vollstaendig gelesen
+            BankLog.warn("Ignoring index file {}: {}", INDEX_FILE, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Sichert den Index für den nächsten Start. Muss unter der Schreibsperre aufgerufen werden.
+     * @throws IOException wenn der Index nicht geschrieben werden kann
+     */
+    private void writeIndexFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(INDEX_MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(end);
+        out.writeLong(garbage);
+        out.writeInt(index.size());
+        for (Map.Entry<String, Segment> entry : index.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+            out.writeLong(entry.getValue().offset);
+            out.writeInt(entry.getValue().length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path path = getIndexPath();
+        Path temp = path.resolveSibling(INDEX_FILE + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Hängt ein Segment an und kompaktiert bei Bedarf.
+     * @param account Name des Kontos
+     * @param kind Art des Segments
+     * @param payload kodiertes Konto, leer beim Löschen
+     * @return true bei Erfolg, ansonsten false
+     */
+    private boolean append(String account, byte kind, byte[] payload) {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                BankLog.error("Error - Accounts file is not open: {}", account);
+                return false;
+            }
+            try {
+                write(account, kind, payload);
+            } catch (IOException e) {
+                BankLog.error("Error writing account {}: {}", account, e.getMessage());
+                try {
+                    // ein halb geschriebenes Segment darf nicht hinter dem naechsten liegen bleiben
+                    channel.truncate(end);
+                } catch (IOException ignored) {
+                    // wird beim naechsten Oeffnen als unvollstaendiges Segment abgeschnitten
+                }
+                return false;
+            }
+            if (garbage >= minGarbageBytes && garbage > end - garbage)
+                compactSegments();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Schreibt ein Segment an das Ende der Datei und aktualisiert den Index.
+     * Muss unter der Schreibsperre aufgerufen werden.
+     * @param account Name des Kontos
+     * @param kind Art des Segments
+     * @param payload kodiertes Konto, leer beim Löschen
+     * @throws IOException wenn nicht geschrieben werden kann
+     */
+    private void write(String account, byte kind, byte[] payload) throws IOException {
+        byte[] name = account.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_OVERHEAD + name.length + payload.length);
+        segment.put(segmentHeader(kind, name, payload.length)).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(segment.array(), 0, segment.position());
+        segment.putInt((int) crc.getValue()).flip();
+        long offset = end;
+        while (segment.hasRemaining())
+            channel.write(segment, offset + segment.position());
+        end += segment.limit();
+        apply(account, kind, new Segment(offset, segment.limit()));
+    }
+
+    /**
+     * Übernimmt ein geschriebenes oder gelesenes Segment in den Index.
+     * @param account Name des Kontos
+     * @param kind Art des Segments
+     * @param segment Position und Länge des Segments
+     */
+    private void apply(String account, byte kind, Segment segment) {
+        Segment previous = kind == ACCOUNT ? index.put(account, segment) : index.remove(account);
+        if (previous != null)
+            garbage += previous.length;
+        if (kind == DELETED)
+            garbage += segment.length;
+    }
+
+    /**
+     * Liest das letzte Segment eines Kontos und prüft dessen Prüfsumme.
+     * Muss unter der Lese- oder Schreibsperre aufgerufen werden.
+     * @param account Name des Kontos
+     * @return Transaktionen des Kontos, leer, wenn das Konto nicht gespeichert ist
+     * @throws IllegalStateException wenn das Segment nicht gelesen werden kann oder beschädigt ist, damit ein
+     *                               folgendes Schreiben das Konto nicht durch einen leeren Stand ersetzt
+     */
+    private List<Transaction> readSegment(String account) {
+        Segment segment = index.get(account);
+        if (segment == null || channel == null)
+            return new ArrayList<>();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, segment.offset + buffer.position()) < 0)
+                    throw new EOFException("Unerwartetes Dateiende.");
+            }
+            int checked = segment.length - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, checked);
+            if (buffer.getInt(checked) != (int) crc.getValue())
+                throw new IOException("Prüfsumme stimmt nicht.");
+            int payload = 1 + Integer.BYTES + buffer.getInt(1) + Integer.BYTES;
+            return BinaryAccountFormat.decode(buffer.limit(checked).position(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading account " + account + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Kopiert alle gültigen Segmente in eine neue Datei, ersetzt die alte Datei und sichert den Index.
+     * Muss unter der Schreibsperre aufgerufen werden.
+     * @return true bei Erfolg, ansonsten false
+     */
+    private boolean compactSegments() {
+        if (channel == null)
+            return false;
+        Path path = getDataPath();
+        Path temp = path.resolveSibling(DATA_FILE + ".tmp");
+        Map<String, Segment> compacted = new HashMap<>();
+        long position = DATA_HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(DATA_HEADER_SIZE).putInt(DATA_MAGIC).put(VERSION).flip());
+            // in Reihenfolge der Datei kopieren, damit die alte Datei nacheinander gelesen wird
+            List<Map.Entry<String, Segment>> entries = new ArrayList<>(index.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().offset));
+            for (Map.Entry<String, Segment> entry : entries) {
+                Segment segment = entry.getValue();
+                for (long copied = 0; copied < segment.length; )
+                    copied += channel.transferTo(segment.offset + copied, segment.length - copied, out);
+                compacted.put(entry.getKey(), new Segment(position, segment.length));
+                position += segment.length;
+            }
+            out.force(true);
+        } catch (IOException e) {
+            BankLog.error("Error compacting {}: {}", DATA_FILE, e.getMessage());
+            return false;
+        }
+
+        try {
+            // ein alter Index wuerde nach dem Ersetzen auf falsche Positionen zeigen
+            Files.deleteIfExists(getIndexPath());
+            channel.close();
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            BankLog.error("Error compacting {}: {}", DATA_FILE, e.getMessage());
+            try {
+                // weiter mit der alten Datei
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException reopen) {
+                BankLog.error("Error opening accounts file: {}", reopen.getMessage());
+                channel = null;
+            }
+            return false;
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            BankLog.error("Error opening accounts file: {}", e.getMessage());
+            channel = null;
+            return false;
+        }
+        index.clear();
+        index.putAll(compacted);
+        end = position;
+        garbage = 0;
+        try {
+            writeIndexFile();
+        } catch (IOException e) {
+            // ohne Index wird beim naechsten Start die ganze Datei gelesen
+            BankLog.error("Error writing index file {}: {}", INDEX_FILE, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Schließt den Kanal der Datei, ohne Fehler zu melden.
+     */
+    private void closeChannel() {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nichts mehr zu retten
+        }
+        channel = null;
+    }
+
+    /**
+     * Kodiert den Kopf eines Segments (alles vor dem Konto).
+     * @param kind Art des Segments
+     * @param name Name des Kontos als UTF-8
+     * @param payloadLength Länge des kodierten Kontos
+     * @return Kopf des Segments
+     */
+    private static ByteBuffer segmentHeader(byte kind, byte[] name, int payloadLength) {
+        return ByteBuffer.allocate(1 + 2 * Integer.BYTES + name.length)
+                .put(kind).putInt(name.length).put(name).putInt(payloadLength).flip();
+    }
+
+    /**
+     * Gibt den Pfad der Datei mit den Segmenten zurück.
+     * @return Pfad der Datei
+     */
+    private Path getDataPath() {
+        return Paths.get(directoryName, DATA_FILE);
+    }
+
+    /**
+     * Gibt den Pfad des gesicherten Index zurück.
+     * @return Pfad des Index
+     */
+    private Path getIndexPath() {
+        return Paths.get(directoryName, INDEX_FILE);
+    }
+
+    /**
+     * Position und Länge eines Segments in der Datei.
+     */
+    private static final class Segment {
+
+        private final long offset;
+        private final int length;
+
+        Segment(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wörterbuch, das jeder unterschiedlichen Zeichenkette einen fortlaufenden int-Code zuordnet.
+ * Wird von {@link ColumnarAccount} verwendet, damit jede Zeichenkette nur einmal im Speicher liegt
+ * und die Spalten nur Codes enthalten. Der Code -1 steht für null.
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+final class StringDictionary {
+
+    /** Code für null */
+    static final int NULL = -1;
+
+    /** Code jeder Zeichenkette */
+    private final Map<String, Integer> codes = new HashMap<>();
+    /** Zeichenketten nach Code */
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Gibt den Code der Zeichenkette zurück und vergibt einen neuen, falls sie noch nicht enthalten ist.
+     * @param value Zeichenkette, darf null sein
+     * @return Code der Zeichenkette
+     */
+    int encode(String value) {
+        if (value == null)
+            return NULL;
+        Integer code = codes.get(value);
+        if (code != null)
+            return code;
+        codes.put(value, values.size());
+        values.add(value);
+        return values.size() - 1;
+    }
+
+    /**
+     * Sucht den Code einer Zeichenkette, ohne einen neuen zu vergeben.
+     * @param value Zeichenkette, darf null sein
+     * @return Code der Zeichenkette, {@link #NULL} für null oder -2, wenn sie nicht enthalten ist
+     */
+    int find(String value) {
+        if (value == null)
+            return NULL;
+        Integer code = codes.get(value);
+        return code == null ? -2 : code;
+    }
+
+    /**
+     * Gibt die Zeichenkette zu einem Code zurück.
+     * @param code Code der Zeichenkette
+     * @return Zeichenkette oder null für {@link #NULL}
+     */
+    String decode(int code) {
+        return code == NULL ? null : values.get(code);
+    }
+
+    /**
+     * Gibt die Anzahl der unterschiedlichen Zeichenketten zurück.
+     * @return Anzahl der Zeichenketten
+     */
+    int size() {
+        return values.size();
+    }
+}
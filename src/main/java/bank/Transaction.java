@@ -1,18 +1,37 @@
 package bank;
 
+import bank.exceptions.TransactionAttributeException;
+
+import java.time.LocalDate;
+
 /**
  * Repraesentiert eine abstrakte Transaktion im Banksystem und definiert
  * grundlegene Eigenschaften und Methoden.
  * Die Klassen {@link Payment} und {@link Transfer} erben von dieser Klasse.
+ * Das Datum wird beim Setzen geprüft und zusätzlich als Epochentag gespeichert,
+ * damit Vergleiche, Sortierung und Bereichsabfragen nicht jedes Mal den Text auswerten müssen.
+ * Ebenso wird der Betrag zusätzlich exakt in Cent ({@link Money}) gespeichert. Der Betrag nach Zinsen
+ * ({@link #calculate()} bzw. {@link #calculateMinor()}) wird bei jeder Änderung eines Attributs, von dem er abhängt,
+ * neu berechnet, sodass Kontostände, Sortierungen und Filter nur noch ein Feld lesen. Hängt der Betrag von außerhalb
+ * gespeicherten Werten ab (Zinssätze einer Bank, {@link RateTable}), wird er beim nächsten Lesen neu berechnet,
+ * sobald {@link #isStale()} eine Änderung meldet.
  * @author Tobias Schnuerpel
- * @version 2.0
+ * @version 2.5
  */
 public abstract class Transaction implements CalculateBill {
 
     /** Datum der Transaktion, Format: "DD.MM.YYYY" */
     protected String date;
+    /** Datum der Transaktion als Tage seit dem 01.01.1970, passend zu {@link #date} */
+    protected int epochDay;
     /** Betrag der Transaktion */
     protected double amount;
+    /** Betrag der Transaktion in Cent, passend zu {@link #amount} */
+    protected long amountMinor;
+    /** Betrag der Transaktion nach Zinsen, wird bei jeder Änderung neu berechnet */
+    private double calculated;
+    /** Betrag der Transaktion nach Zinsen in Cent, wird bei jeder Änderung neu berechnet */
+    private long calculatedMinor;
     /** Beschreibung der Transaktion */
     protected String description;
 
@@ -25,8 +44,9 @@ public abstract class Transaction implements CalculateBill {
      * @param date Datum der Transaktion, Format: "DD.MM.YYYY"
      * @param amount Betrag der Transaktion
      * @param description Beschreibung der Transaktion
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public Transaction(String date, double amount, String description) {
+    public Transaction(String date, double amount, String description) throws TransactionAttributeException {
         setDate(date);
         // Hinweis: setAmount() ist in Klasse Transfer ueberschrieben
         setAmount(amount);
@@ -37,6 +57,60 @@ public abstract class Transaction implements CalculateBill {
     // Methoden
     //------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Gibt den zuletzt berechneten Betrag nach Zinsen zurück ({@link #compute()}).
+     * @return Betrag nach Abzug bzw. Addition der Zinsen
+     */
+    @Override
+    public final double calculate() {
+        if (isStale())
+            updateCalculated();
+        return calculated;
+    }
+
+    /**
+     * Gibt den Betrag nach Zinsen exakt in Cent zurück.
+     * @return Betrag nach Abzug bzw. Addition der Zinsen in Cent
+     */
+    @Override
+    public long calculateMinor() {
+        if (isStale())
+            updateCalculated();
+        return calculatedMinor;
+    }
+
+    /**
+     * Berechnet den Betrag nach Zinsen. Das Ergebnis liefert {@link #calculate()}.
+     * Wird von den Klassen {@link Payment} und {@link Transfer} implementiert.
+     * @return Betrag nach Abzug bzw. Addition der Zinsen
+     */
+    protected abstract double compute();
+
+    /**
+     * Berechnet den Betrag nach Zinsen in Cent wie {@link #compute()}.
+     * Wird von den Klassen {@link Payment} und {@link Transfer} implementiert.
+     * @return Betrag nach Abzug bzw. Addition der Zinsen in Cent
+     */
+    protected abstract long computeMinor();
+
+    /**
+     * Berechnet den Betrag nach Zinsen und in Cent neu.
+     * Muss von jedem Setter aufgerufen werden, der den berechneten Betrag beeinflusst.
+     */
+    protected void updateCalculated() {
+        calculated = compute();
+        calculatedMinor = computeMinor();
+    }
+
+    /**
+     * Prüft, ob sich Werte außerhalb der Transaktion geändert haben, von denen der berechnete Betrag abhängt.
+     * Wird von der Klasse {@link Payment} überschrieben.
+     * @return true, wenn der Betrag nach Zinsen neu berechnet werden muss, sonst false
+     */
+    protected boolean isStale() {
+        return false;
+    }
+
     /**
      * Gibt die Attribute der Transaktion als String zurueck.
      * Wird von den Klassen {@link Payment} und {@link Transfer} genutzt.
@@ -62,10 +136,33 @@ public abstract class Transaction implements CalculateBill {
         Transaction that = (Transaction) o;
 
         if (that.amount != this.amount) return false;
-        if (!that.date.equals(this.date)) return false;
+        if (that.epochDay != this.epochDay) return false;
         return that.description.equals(this.description);
     }
 
+    /**
+     * Berechnet den Hashwert der Transaktion aus denselben Attributen wie {@link #equals(Object)}.
+     * Wird von den Klassen {@link Payment} und {@link Transfer} erweitert.
+     * @return Hashwert der Transaktion
+     */
+    @Override
+    public int hashCode() {
+        int result = epochDay;
+        result = 31 * result + hashDouble(amount);
+        result = 31 * result + description.hashCode();
+        return result;
+    }
+
+    /**
+     * Berechnet den Hashwert eines double-Wertes passend zum Vergleich mit {@code ==} in {@link #equals(Object)}.
+     * Da 0.0 == -0.0 gilt, wird -0.0 vorher auf 0.0 normalisiert.
+     * @param value Wert
+     * @return Hashwert des Wertes
+     */
+    protected static int hashDouble(double value) {
+        return Double.hashCode(value + 0.0);
+    }
+
     //------------------------------------------------------------------------------------------------------------------
     // Getter und Setter
     //------------------------------------------------------------------------------------------------------------------
@@ -78,12 +175,29 @@ public abstract class Transaction implements CalculateBill {
         return date;
     }
 
+    /**
+     * Gibt das Datum der Transaktion als Tage seit dem 01.01.1970 zurueck.
+     * @return Datum der Transaktion als Epochentag
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Gibt das Datum der Transaktion als {@link LocalDate} zurueck.
+     * @return Datum der Transaktion
+     */
+    public LocalDate getLocalDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
     /**
      * Setzt das Datum der Transaktion.
      * @param date Datum der Transaktion, Format: "DD.MM.YYYY"
+     * @throws bank.exceptions.TransactionAttributeException wenn das Datum nicht dem Format entspricht oder ungueltig ist
      */
     public void setDate(String date) {
-        // TODO: auf gueltiges Format pruefen
+        this.epochDay = TransactionDate.parse(date);
         this.date = date;
     }
 
@@ -95,13 +209,30 @@ public abstract class Transaction implements CalculateBill {
         return amount;
     }
 
+    /**
+     * Gibt den Betrag der Transaktion in Cent zurueck.
+     * @return Betrag der Transaktion in Cent
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
     /**
      * Setzt den Betrag der Transaktion.
      * Wird von der Unterklasse {@link Transfer} ueberschrieben.
-     * @param amount Betrag der Transaktion
+     * @param amount Betrag der Transaktion, betragsmäßig kleiner als {@link Money#MAX_AMOUNT}
+     * @throws TransactionAttributeException wenn der Betrag nicht endlich ist oder in Cent nicht in ein long passt
      */
-    public void setAmount(double amount) {
+    public void setAmount(double amount) throws TransactionAttributeException {
+        if (!Money.isValid(amount)) {
+            BankLog.debug("Der Betrag einer Transaktion ist ungueltig: {}", amount);
+            throw new TransactionAttributeException(
+                    "Der Betrag einer Transaktion muss eine endliche Zahl betragsmaessig kleiner als "
+                            + Money.MAX_AMOUNT + " sein.");
+        }
+        this.amountMinor = Money.toMinor(amount);
         this.amount = amount;
+        updateCalculated();
     }
 
     /**
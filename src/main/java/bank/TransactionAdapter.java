@@ -1,101 +1,189 @@
 package bank;
 
+import bank.exceptions.TransactionAttributeException;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * Serialisiert und Deserialisiert {@link Transaction} Objekte.
- * Implementiert die Interfaces {@link JsonSerializer} und {@link JsonDeserializer}.
+ * Das JSON-Format ist {"CLASSNAME": "...", "INSTANCE": {...}}.
+ * Erbt von {@link TypeAdapter} und liest bzw. schreibt die Transaktionen direkt aus dem bzw. in den
+ * Token-Strom, ohne dafür {@link JsonObject}-Bäume anzulegen.
+ * Die Reihenfolge der Felder beim Lesen ist beliebig, unbekannte Felder werden übersprungen.
+ * Ungültige Attribute (z.B. ein ungültiges Datum) werden als {@link JsonSyntaxException} gemeldet. Ein Datum in
+ * einer älteren Schreibweise wird beim Lesen in das strenge Format umgewandelt ({@link TransactionDate#normalize}).
+ * Zahlungen, die mit einer Version der Zinssätze ihrer Bank verknüpft sind ({@link RateTable}), werden nur mit der
+ * Nummer der Version ("rateVersion") geschrieben statt mit beiden Zinssätzen; gelesen werden beide Formen.
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 5.4
  */
-public class TransactionAdapter implements JsonSerializer<Transaction>, JsonDeserializer<Transaction> {
+public class TransactionAdapter extends TypeAdapter<Transaction> {
 
     /**
-     * Gson invokes this call-back method during serialization when it encounters a field of the
-     * specified type.
+     * Schreibt eine Transaktion in den übergebenen {@link JsonWriter}.
      *
-     * <p>In the implementation of this call-back method, you should consider invoking
-     * {@link JsonSerializationContext#serialize(Object, Type)} method to create JsonElements for any
-     * non-trivial field of the {@code src} object. However, you should never invoke it on the
-     * {@code src} object itself since that will cause an infinite loop (Gson will call your
-     * call-back method again).</p>
-     *
-     * @param src       the object that needs to be converted to Json.
-     * @param typeOfSrc the actual type (fully genericized version) of the source object.
-     * @param context  Context for serialization
-     * @return a JsonElement corresponding to the specified object.
+     * @param out   Ziel der Transaktion
+     * @param src   zu schreibende Transaktion, darf null sein
+     * @throws IOException wenn nicht geschrieben werden kann
      */
     @Override
-    public JsonElement serialize(Transaction src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject result = new JsonObject();
-        JsonObject instance = new JsonObject();
-
+    public void write(JsonWriter out, Transaction src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
         // Serialize the Transaction object's type
-        result.addProperty("CLASSNAME", src.getClass().getSimpleName());
+        out.name("CLASSNAME").value(src.getClass().getSimpleName());
 
+        out.name("INSTANCE").beginObject();
         if (src instanceof Payment p) {
-            instance.addProperty("incomingInterest", p.getIncomingInterest());
-            instance.addProperty("outgoingInterest", p.getOutgoingInterest());
+            int rateVersion = p.getRateVersion();
+            if (rateVersion >= 0) {
+                out.name("rateVersion").value(rateVersion);
+            } else {
+                out.name("incomingInterest").value(p.getIncomingInterest());
+                out.name("outgoingInterest").value(p.getOutgoingInterest());
+            }
         } else if (src instanceof Transfer t) {
-            instance.addProperty("sender", t.getSender());
-            instance.addProperty("recipient", t.getRecipient());
+            out.name("sender").value(t.getSender());
+            out.name("recipient").value(t.getRecipient());
         }
 
         // Serialize the Transaction object
-        instance.addProperty("date", src.getDate());
-        instance.addProperty("amount", src.getAmount());
-        instance.addProperty("description", src.getDescription());
+        out.name("date").value(src.getDate());
+        out.name("amount").value(src.getAmount());
+        out.name("description").value(src.getDescription());
+        out.endObject();
 
-        result.add("INSTANCE", instance);
-        return result;
+        out.endObject();
     }
 
     /**
-     * Gson invokes this call-back method during deserialization when it encounters a field of the
-     * specified type.
-     * <p>In the implementation of this call-back method, you should consider invoking
-     * {@link JsonDeserializationContext#deserialize(JsonElement, Type)} method to create objects
-     * for any non-trivial field of the returned object. However, you should never invoke it on the
-     * the same type passing {@code json} since that will cause an infinite loop (Gson will call your
-     * call-back method again).
+     * Liest eine Transaktion aus dem übergebenen {@link JsonReader}.
      *
-     * @param json    The Json data being deserialized
-     * @param typeOfT The type of the Object to deserialize to
-     * @param context Context for deserialization that is passed to a custom deserializer during invocation
-     * @return a deserialized object of the specified type typeOfT which is a subclass of {@code T}
-     * @throws JsonParseException if json is not in the expected format of {@code typeofT}
+     * @param in Quelle der Transaktion
+     * @return gelesene Transaktion oder null
+     * @throws IOException         wenn nicht gelesen werden kann
+     * @throws JsonSyntaxException wenn die Daten nicht dem erwarteten Format entsprechen
      */
     @Override
-    public Transaction deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        JsonObject obj = json.getAsJsonObject();
-        String type = obj.get("CLASSNAME").getAsString();
-        JsonObject inner = obj.get("INSTANCE").getAsJsonObject();
+    public Transaction read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String type = null;
+        Fields fields = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "CLASSNAME" -> type = in.nextString();
+                case "INSTANCE" -> fields = readFields(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == null || fields == null)
+            throw new JsonSyntaxException("Missing CLASSNAME or INSTANCE at " + in.getPath());
+        if (fields.date == null || fields.description == null || !fields.hasAmount)
+            throw new JsonSyntaxException("Missing date, amount or description at " + in.getPath());
 
-        String date, description;
-        double amount;
-        date = inner.get("date").getAsString();
-        amount = inner.get("amount").getAsDouble();
-        description = inner.get("description").getAsString();
+        if (type.equals("Payment") && fields.rateVersion < 0
+                && (!fields.hasIncomingInterest || !fields.hasOutgoingInterest))
+            throw new JsonSyntaxException("Missing interest of payment at " + in.getPath());
+        try {
+            // gespeicherte Daten koennen aus der Zeit vor der strengen Pruefung stammen
+            fields.date = TransactionDate.normalize(fields.date);
+            return create(type, fields);
+        } catch (TransactionAttributeException e) {
+            throw new JsonSyntaxException("Invalid transaction at " + in.getPath() + ": " + e.getMessage(), e);
+        }
+    }
 
-        if (type.equals("Payment")) {
-            double incomingInterest, outgoingInterest;
-            incomingInterest = inner.get("incomingInterest").getAsDouble();
-            outgoingInterest = inner.get("outgoingInterest").getAsDouble();
-            return new Payment(date, amount, description, incomingInterest, outgoingInterest);
-        } else {
-            String sender = "", recipient = "";
-            if (inner.get("sender") != null)
-                sender = inner.get("sender").getAsString();
-            if (inner.get("recipient") != null)
-                recipient = inner.get("recipient").getAsString();
-            return switch (type) {
-                case "Transfer" -> new Transfer(date, amount, description, sender, recipient);
-                case "IncomingTransfer" -> new IncomingTransfer(date, amount, description, sender, recipient);
-                case "OutgoingTransfer" -> new OutgoingTransfer(date, amount, description, sender, recipient);
-                default -> throw new JsonParseException("Unknown element type: " + type);
-            };
+    /**
+     * Erstellt eine Transaktion aus den gelesenen Attributen.
+     * @param type Name der Klasse der Transaktion
+     * @param fields gelesene Attribute
+     * @return neue Transaktion
+     * @throws JsonSyntaxException wenn die Klasse unbekannt ist
+     * @throws TransactionAttributeException wenn ein Attribut ungültig ist, z.B. das Datum
+     */
+    private static Transaction create(String type, Fields fields) {
+        return switch (type) {
+            case "Payment" -> fields.rateVersion >= 0
+                    ? new Payment(fields.date, fields.amount, fields.description, fields.rateVersion)
+                    : new Payment(fields.date, fields.amount, fields.description,
+                            fields.incomingInterest, fields.outgoingInterest);
+            case "Transfer" -> new Transfer(fields.date, fields.amount, fields.description, fields.sender, fields.recipient);
+            case "IncomingTransfer" -> new IncomingTransfer(fields.date, fields.amount, fields.description, fields.sender, fields.recipient);
+            case "OutgoingTransfer" -> new OutgoingTransfer(fields.date, fields.amount, fields.description, fields.sender, fields.recipient);
+            default -> throw new JsonSyntaxException("Unknown element type: " + type);
+        };
+    }
+
+    /**
+     * Liest die Attribute einer Transaktion (das INSTANCE-Objekt).
+     * @param in Quelle, steht vor dem INSTANCE-Objekt
+     * @return gelesene Attribute
+     * @throws IOException wenn nicht gelesen werden kann
+     */
+    private static Fields readFields(JsonReader in) throws IOException {
+        Fields fields = new Fields();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "date" -> fields.date = in.nextString();
+                case "amount" -> {
+                    fields.amount = in.nextDouble();
+                    fields.hasAmount = true;
+                }
+                case "description" -> fields.description = in.nextString();
+                case "incomingInterest" -> {
+                    fields.incomingInterest = in.nextDouble();
+                    fields.hasIncomingInterest = true;
+                }
+                case "outgoingInterest" -> {
+                    fields.outgoingInterest = in.nextDouble();
+                    fields.hasOutgoingInterest = true;
+                }
+                case "rateVersion" -> {
+                    fields.rateVersion = in.nextInt();
+                    if (fields.rateVersion < 0)
+                        throw new JsonSyntaxException("Invalid rateVersion at " + in.getPath());
+                }
+                case "sender" -> fields.sender = in.nextString();
+                case "recipient" -> fields.recipient = in.nextString();
+                default -> in.skipValue();
+            }
         }
+        in.endObject();
+        return fields;
+    }
+
+    /**
+     * Zwischenspeicher für die Attribute einer Transaktion, da CLASSNAME auch nach INSTANCE stehen darf.
+     */
+    private static final class Fields {
+        private String date;
+        private double amount;
+        private boolean hasAmount;
+        private String description;
+        private double incomingInterest;
+        private boolean hasIncomingInterest;
+        private double outgoingInterest;
+        private boolean hasOutgoingInterest;
+        private int rateVersion = -1;
+        private String sender = "";
+        private String recipient = "";
     }
 }
@@ -0,0 +1,144 @@
+package bank;
+
+import bank.exceptions.TransactionAttributeException;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Wandelt das Datum einer {@link Transaction} im Format "DD.MM.YYYY" in einen Epochentag
+ * (Tage seit dem 01.01.1970) um und zurück. Geprüft wird streng: Tag und Monat zweistellig,
+ * Jahr vierstellig und das Datum muss existieren (z.B. kein 31.02.).
+ * Da jedes Laden eines Kontos jedes Datum umwandelt, werden die festen Stellen direkt gelesen und geschrieben
+ * statt über einen {@link DateTimeFormatter}.
+ * <p>
+ * Gespeicherte Transaktionen stammen teilweise aus der Zeit vor der strengen Prüfung. Für sie wandelt
+ * {@link #normalize(String)} abweichende Schreibweisen in das strenge Format um.
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public final class TransactionDate {
+
+    /** Format des Datums einer Transaktion */
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT);
+    /** Ältere Schreibweise mit ein- oder zweistelligem Tag und Monat und '.', '/' oder '-' als Trennzeichen */
+    private static final Pattern LEGACY_FORMAT = Pattern.compile("(\\d{1,2})[./-](\\d{1,2})[./-](\\d{4})");
+    /** ISO-Schreibweise YYYY-MM-DD */
+    private static final Pattern ISO_FORMAT = Pattern.compile("(\\d{4})-(\\d{1,2})-(\\d{1,2})");
+
+    private TransactionDate() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Wandelt ein Datum im Format "DD.MM.YYYY" in einen Epochentag um.
+     * @param date Datum
+     * @return Tage seit dem 01.01.1970
+     * @throws TransactionAttributeException wenn das Datum fehlt oder ungültig ist
+     */
+    public static int parse(String date) {
+        if (date == null || date.length() != 10)
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): " + date);
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 2);
+        int year = digits(date, 6, 4);
+        if (day < 0 || month < 0 || year < 0 || date.charAt(2) != '.' || date.charAt(5) != '.')
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): " + date);
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): " + date, e);
+        }
+    }
+
+    /**
+     * Wandelt einen Epochentag in ein Datum im Format "DD.MM.YYYY" um.
+     * @param epochDay Tage seit dem 01.01.1970
+     * @return Datum
+     */
+    public static String format(long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year < 0 || year > 9999)
+            return FORMAT.format(date);
+        char[] chars = {
+                (char) ('0' + date.getDayOfMonth() / 10), (char) ('0' + date.getDayOfMonth() % 10), '.',
+                (char) ('0' + date.getMonthValue() / 10), (char) ('0' + date.getMonthValue() % 10), '.',
+                (char) ('0' + year / 1000), (char) ('0' + year / 100 % 10),
+                (char) ('0' + year / 10 % 10), (char) ('0' + year % 10)};
+        return new String(chars);
+    }
+
+    /**
+     * Wandelt ein gespeichertes Datum in das Format "DD.MM.YYYY" um. Neben dem strengen Format werden Leerzeichen
+     * am Rand, ein- oder zweistellige Tage und Monate, '/' oder '-' als Trennzeichen sowie das ISO-Format
+     * YYYY-MM-DD akzeptiert. Das Datum selbst muss trotzdem existieren.
+     * Ein Datum im strengen Format wird unverändert zurückgegeben und erst beim Setzen vollständig geprüft.
+     * @param date gespeichertes Datum
+     * @return Datum im Format "DD.MM.YYYY"
+     * @throws TransactionAttributeException wenn das Datum fehlt oder auch so nicht gelesen werden kann
+     */
+    public static String normalize(String date) {
+        if (date == null)
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): null");
+        if (date.length() == 10 && date.charAt(2) == '.' && date.charAt(5) == '.')
+            return date;
+        String trimmed = date.trim();
+        Matcher legacy = LEGACY_FORMAT.matcher(trimmed);
+        Matcher iso = ISO_FORMAT.matcher(trimmed);
+        int day, month, year;
+        if (legacy.matches()) {
+            day = Integer.parseInt(legacy.group(1));
+            month = Integer.parseInt(legacy.group(2));
+            year = Integer.parseInt(legacy.group(3));
+        } else if (iso.matches()) {
+            year = Integer.parseInt(iso.group(1));
+            month = Integer.parseInt(iso.group(2));
+            day = Integer.parseInt(iso.group(3));
+        } else {
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): " + date);
+        }
+        try {
+            return format(LocalDate.of(year, month, day).toEpochDay());
+        } catch (DateTimeException e) {
+            throw new TransactionAttributeException("Ungueltiges Datum (Format DD.MM.YYYY): " + date, e);
+        }
+    }
+
+    /**
+     * Liest eine Zahl aus einer festen Anzahl von Ziffern.
+     * @param date Zeichenkette
+     * @param start Index der ersten Ziffer
+     * @param length Anzahl der Ziffern
+     * @return gelesene Zahl oder -1, wenn ein Zeichen keine Ziffer ist
+     */
+    private static int digits(String date, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Prüft, ob ein Datum im Format "DD.MM.YYYY" vorliegt und gültig ist.
+     * @param date Datum
+     * @return true, wenn das Datum gültig ist, sonst false
+     */
+    public static boolean isValid(String date) {
+        try {
+            parse(date);
+            return true;
+        } catch (TransactionAttributeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package bank;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only Journal für Kontoänderungen.
+ * Jede Änderung wird als einzelne JSON-Zeile an das Ende der Journal-Datei angehängt,
+ * sodass die Kosten eines Eintrags nicht von der Anzahl der Transaktionen eines Kontos abhängen.
+ * Wann die Daten mit fsync auf den Datenträger gezwungen werden, legt die {@link SyncPolicy} fest.
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public class TransactionJournal {
+
+    /**
+     * Legt fest, wann das Journal mit fsync auf den Datenträger geschrieben wird.
+     */
+    public enum SyncPolicy {
+        /** Nach jedem Eintrag (sicher, aber langsam) */
+        ALWAYS,
+        /** Nach einer festen Anzahl von Einträgen */
+        BATCH,
+        /** Nie explizit, das Betriebssystem entscheidet */
+        NEVER
+    }
+
+    /**
+     * Art einer Änderung im Journal.
+     */
+    public enum Operation {
+        /** Konto wird (mit allen Transaktionen) angelegt bzw. komplett ersetzt */
+        PUT,
+        /** Konto wird gelöscht */
+        DELETE,
+        /** Transaktion wird einem Konto hinzugefügt */
+        ADD,
+        /** Mehrere Transaktionen werden einem Konto auf einmal hinzugefügt (Massenimport) */
+        ADD_ALL,
+        /** Transaktion wird aus einem Konto entfernt */
+        REMOVE,
+        /** Überweisung: beide Buchungen (Sender und Empfänger) in einem einzigen Eintrag */
+        TRANSFER
+    }
+
+    /**
+     * Ein einzelner Eintrag im Journal.
+     */
+    public static final class Entry {
+
+        /** Art der Änderung */
+        private final Operation operation;
+        /** Name des betroffenen Kontos */
+        private final String account;
+        /** Betroffene Transaktion (nur bei ADD und REMOVE) */
+        private final Transaction transaction;
+        /** Alle Transaktionen des Kontos (nur bei PUT) bzw. die hinzugefügten Transaktionen (nur bei ADD_ALL) */
+        private final List<Transaction> transactions;
+        /** Name des Gegenkontos (nur bei TRANSFER, das Konto des Empfängers) */
+        private final String counterAccount;
+        /** Buchung auf dem Gegenkonto (nur bei TRANSFER) */
+        private final Transaction counterTransaction;
+
+        /**
+         * Konstruktor der Klasse Entry.
+         * @param operation Art der Änderung
+         * @param account Name des betroffenen Kontos
+         * @param transaction betroffene Transaktion oder null
+         * @param transactions alle Transaktionen des Kontos oder null
+         */
+        public Entry(Operation operation, String account, Transaction transaction, List<Transaction> transactions) {
+            this(operation, account, transaction, transactions, null, null);
+        }
+
+        /**
+         * Konstruktor der Klasse Entry für eine Überweisung ({@link Operation#TRANSFER}).
+         * @param account Name des Kontos des Senders
+         * @param transaction Buchung auf dem Konto des Senders
+         * @param counterAccount Name des Kontos des Empfängers
+         * @param counterTransaction Buchung auf dem Konto des Empfängers
+         */
+        public Entry(String account, Transaction transaction, String counterAccount, Transaction counterTransaction) {
+            this(Operation.TRANSFER, account, transaction, null, counterAccount, counterTransaction);
+        }
+
+        /**
+         * Konstruktor der Klasse Entry mit allen Attributen.
+         * @param operation Art der Änderung
+         * @param account Name des betroffenen Kontos
+         * @param transaction betroffene Transaktion oder null
+         * @param transactions alle Transaktionen des Kontos oder null
+         * @param counterAccount Name des Gegenkontos oder null
+         * @param counterTransaction Buchung auf dem Gegenkonto oder null
+         */
+        private Entry(Operation operation, String account, Transaction transaction, List<Transaction> transactions,
+                      String counterAccount, Transaction counterTransaction) {
+            this.operation = operation;
+            this.account = account;
+            this.transaction = transaction;
+            this.transactions = transactions;
+            this.counterAccount = counterAccount;
+            this.counterTransaction = counterTransaction;
+        }
+
+        /**
+         * Gibt die Art der Änderung zurück.
+         * @return Art der Änderung
+         */
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * Gibt den Namen des betroffenen Kontos zurück.
+         * @return Name des Kontos
+         */
+        public String getAccount() {
+            return account;
+        }
+
+        /**
+         * Gibt die betroffene Transaktion zurück (nur bei ADD und REMOVE).
+         * @return Transaktion oder null
+         */
+        public Transaction getTransaction() {
+            return transaction;
+        }
+
+        /**
+         * Gibt alle Transaktionen des Kontos (nur bei PUT) bzw. die hinzugefügten Transaktionen (nur bei ADD_ALL) zurück.
+         * @return Liste von Transaktionen oder null
+         */
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * Gibt den Namen des Gegenkontos zurück (nur bei TRANSFER).
+         * @return Name des Gegenkontos oder null
+         */
+        public String getCounterAccount() {
+            return counterAccount;
+        }
+
+        /**
+         * Gibt die Buchung auf dem Gegenkonto zurück (nur bei TRANSFER).
+         * @return Transaktion oder null
+         */
+        public Transaction getCounterTransaction() {
+            return counterTransaction;
+        }
+    }
+
+    /** Typ einer Liste von Transaktionen für Gson */
+    private static final Type TRANSACTION_LIST = new TypeToken<List<Transaction>>() {}.getType();
+
+    /** Gson-Instanz ohne Pretty-Printing, damit jeder Eintrag genau eine Zeile belegt */
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeHierarchyAdapter(Transaction.class, new TransactionAdapter())
+            .create();
+
+    /** Pfad der Journal-Datei */
+    private final Path path;
+    /** Wann das Journal auf den Datenträger gezwungen wird */
+    private final SyncPolicy syncPolicy;
+    /** Anzahl der Einträge zwischen zwei fsync-Aufrufen bei {@link SyncPolicy#BATCH} */
+    private final int batchSize;
+    /** Kanal zum Anhängen, wird beim ersten Schreiben geöffnet */
+    private FileChannel channel;
+    /** Anzahl der Einträge seit dem letzten fsync */
+    private int unsynced = 0;
+    /** Anzahl der Einträge im Journal (nach {@link #replay(Consumer)} bzw. seit dem Anlegen) */
+    private long entryCount = 0;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse TransactionJournal.
+     * @param path Pfad der Journal-Datei
+     * @param syncPolicy wann das Journal auf den Datenträger gezwungen wird
+     * @param batchSize Anzahl der Einträge zwischen zwei fsync-Aufrufen bei {@link SyncPolicy#BATCH}
+     */
+    public TransactionJournal(Path path, SyncPolicy syncPolicy, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize muss mindestens 1 sein.");
+        this.path = path;
+        this.syncPolicy = syncPolicy;
+        this.batchSize = batchSize;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Prüft, ob die Journal-Datei existiert.
+     * @return true, wenn die Datei existiert, sonst false
+     */
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Gibt den Pfad der Journal-Datei zurück.
+     * @return Pfad der Journal-Datei
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge im Journal zurück.
+     * Gezählt werden alle abgespielten und alle seitdem angehängten Einträge.
+     * @return Anzahl der Einträge
+     */
+    public synchronized long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Hängt einen oder mehrere Einträge an das Journal an.
+     * Alle Einträge werden mit einem einzigen Schreibzugriff geschrieben.
+     * @param entries anzuhängende Einträge
+     * @throws IOException wenn das Journal nicht geschrieben werden kann
+     */
+    public synchronized void append(Entry... entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries)
+            lines.append(GSON.toJson(encode(entry))).append('\n');
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel out = getChannel();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+
+        unsynced += entries.length;
+        entryCount += entries.length;
+        if (syncPolicy == SyncPolicy.ALWAYS || (syncPolicy == SyncPolicy.BATCH && unsynced >= batchSize))
+            sync();
+    }
+
+    /**
+     * Zwingt alle bisher geschriebenen Einträge auf den Datenträger.
+     * @throws IOException wenn fsync fehlschlägt
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null && unsynced > 0)
+            channel.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * Liest alle Einträge des Journals in der Reihenfolge, in der sie geschrieben wurden.
+     * Eine unvollständige letzte Zeile (z.B. nach einem Absturz während des Schreibens) wird
+     * ignoriert und abgeschnitten, damit neue Einträge wieder an einer Zeilengrenze beginnen.
+     * @param consumer wird für jeden Eintrag aufgerufen
+     * @throws IOException wenn das Journal nicht gelesen werden kann oder mitten im Journal beschädigt ist
+     */
+    public synchronized void replay(Consumer<Entry> consumer) throws IOException {
+        entryCount = 0;
+        if (!exists())
+            return;
+        long offset = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (!line.isBlank()) {
+                    try {
+                        consumer.accept(decode(JsonParser.parseString(line).getAsJsonObject()));
+                        entryCount++;
+                    } catch (JsonParseException | IllegalStateException e) {
+                        if (next != null)
+                            throw new IOException("Corrupt journal entry: " + line, e);
+                        BankLog.warn("Ignoring incomplete journal entry: {}", e.getMessage());
+                        truncate(offset);
+                        return;
+                    }
+                }
+                offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                line = next;
+            }
+        }
+    }
+
+    /**
+     * Schließt den Kanal des Journals. Ausstehende Einträge werden vorher auf den Datenträger geschrieben.
+     * @throws IOException wenn der Kanal nicht geschlossen werden kann
+     */
+    public synchronized void close() throws IOException {
+        if (channel == null)
+            return;
+        sync();
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * Schließt das Journal und löscht die Journal-Datei.
+     * @throws IOException wenn die Datei nicht gelöscht werden kann
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+        entryCount = 0;
+    }
+
+    /**
+     * Gibt den Kanal zum Anhängen zurück bzw. öffnet diesen, falls noch nicht geschehen.
+     * @return Kanal zum Anhängen
+     * @throws IOException wenn die Datei nicht geöffnet werden kann
+     */
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            // nur dieses Objekt schreibt in die Datei, daher genuegt es, ans Ende zu springen
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            channel.position(size);
+            // ein Eintrag ohne Zeilenende (Absturz nach dem JSON) darf nicht mit dem naechsten verschmelzen
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, size - 1);
+                if (last.get(0) != '\n')
+                    channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Schneidet das Journal auf die angegebene Länge ab.
+     * @param length neue Länge in Bytes
+     * @throws IOException wenn die Datei nicht geändert werden kann
+     */
+    private void truncate(long length) throws IOException {
+        if (channel != null) {
+            channel.truncate(length);
+            channel.position(length);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.truncate(length);
+        }
+    }
+
+    /**
+     * Wandelt einen Eintrag in ein JSON-Objekt um.
+     * @param entry Eintrag
+     * @return JSON-Objekt des Eintrags
+     */
+    private static JsonObject encode(Entry entry) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("op", entry.getOperation().name());
+        obj.addProperty("account", entry.getAccount());
+        if (entry.getTransaction() != null)
+            obj.add("transaction", GSON.toJsonTree(entry.getTransaction(), Transaction.class));
+        if (entry.getTransactions() != null)
+            obj.add("transactions", GSON.toJsonTree(entry.getTransactions(), TRANSACTION_LIST));
+        if (entry.getCounterAccount() != null) {
+            obj.addProperty("counterAccount", entry.getCounterAccount());
+            obj.add("counterTransaction", GSON.toJsonTree(entry.getCounterTransaction(), Transaction.class));
+        }
+        return obj;
+    }
+
+    /**
+     * Wandelt ein JSON-Objekt in einen Eintrag um.
+     * @param obj JSON-Objekt eines Eintrags
+     * @return Eintrag
+     * @throws JsonParseException wenn das Objekt kein gültiger Eintrag ist
+     */
+    private static Entry decode(JsonObject obj) throws JsonParseException {
+        if (!obj.has("op") || !obj.has("account"))
+            throw new JsonParseException("Missing op or account: " + obj);
+        Operation operation;
+        try {
+            operation = Operation.valueOf(obj.get("op").getAsString());
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Unknown operation: " + obj.get("op"), e);
+        }
+        Transaction transaction = null;
+        List<Transaction> transactions = null;
+        if (obj.has("transaction"))
+            transaction = GSON.fromJson(obj.get("transaction"), Transaction.class);
+        if (obj.has("transactions"))
+            transactions = new ArrayList<>(GSON.<List<Transaction>>fromJson(obj.get("transactions"), TRANSACTION_LIST));
+        if (operation == Operation.TRANSFER) {
+            if (transaction == null || !obj.has("counterAccount") || !obj.has("counterTransaction"))
+                throw new JsonParseException("Incomplete transfer: " + obj);
+            return new Entry(obj.get("account").getAsString(), transaction, obj.get("counterAccount").getAsString(),
+                    GSON.fromJson(obj.get("counterTransaction"), Transaction.class));
+        }
+        if (operation == Operation.ADD_ALL && transactions == null)
+            throw new JsonParseException("Missing transactions: " + obj);
+        return new Entry(operation, obj.get("account").getAsString(), transaction, transactions);
+    }
+}
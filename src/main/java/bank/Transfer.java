@@ -7,7 +7,7 @@ import bank.exceptions.TransactionAttributeException;
  * Der Betrag kann nur positiv sein.
  * Erbt von der Klasse {@link Transaction}.
  * @author Tobias Schnuerpel
- * @version 3.0
+ * @version 3.4
  */
 public class Transfer extends Transaction {
 
@@ -26,8 +26,9 @@ public class Transfer extends Transaction {
      * @param date Datum der Ueberweisung, Format: "DD.MM.YYYY"
      * @param amount Betrag der Ueberweisung, positiv
      * @param description Beschreibung der Ueberweisung
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public Transfer(String date, double amount, String description) {
+    public Transfer(String date, double amount, String description) throws TransactionAttributeException {
         super(date, amount, description);
     }
 
@@ -38,8 +39,10 @@ public class Transfer extends Transaction {
      * @param description Beschreibung der Ueberweisung
      * @param sender Akteur, der die Ueberweisung initiiert hat
      * @param recipient Akteur, der die Ueberweisung empfaengt
+     * @throws TransactionAttributeException wenn Datum oder Betrag ungültig sind
      */
-    public Transfer(String date, double amount, String description, String sender, String recipient) {
+    public Transfer(String date, double amount, String description, String sender, String recipient)
+            throws TransactionAttributeException {
         super(date, amount, description);
         setSender(sender);
         setRecipient(recipient);
@@ -69,10 +72,20 @@ public class Transfer extends Transaction {
      * @return Betrag der Ueberweisung
      */
     @Override
-    public double calculate() {
+    protected double compute() {
         return amount;
     }
 
+    /**
+     * Da bei Ueberweisungen keine Zinsen anfallen,
+     * wird der Betrag in Cent unveraendert zurueckgegeben.
+     * @return Betrag der Ueberweisung in Cent
+     */
+    @Override
+    protected long computeMinor() {
+        return amountMinor;
+    }
+
     /**
      * Da bei Ueberweisungen (in diesem Szenario) keine
      * Zinsen anfallen, wird der Betrag unveraendert zurueckgegeben.
@@ -103,6 +116,18 @@ public class Transfer extends Transaction {
         return transfer.recipient.equals(this.recipient);
     }
 
+    /**
+     * Berechnet den Hashwert der Ueberweisung aus allen Werten (passend zu {@link #equals(Object)}).
+     * @return Hashwert der Ueberweisung
+     */
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + sender.hashCode();
+        result = 31 * result + recipient.hashCode();
+        return result;
+    }
+
     //------------------------------------------------------------------------------------------------------------------
     // Getter und Setter
     //------------------------------------------------------------------------------------------------------------------
@@ -110,12 +135,12 @@ public class Transfer extends Transaction {
     /**
      * Setzt den Betrag der Ueberweisung und ueberprueft, ob er positiv ist.
      * @param amount Betrag der Ueberweisung, positiv
-     * @throws TransactionAttributeException wenn der Betrag negativ ist
+     * @throws TransactionAttributeException wenn der Betrag nicht positiv oder zu groß ist
      */
     @Override
     public void setAmount(double amount) throws TransactionAttributeException {
         if (amount <= 0) {
-            System.out.println("Der Betrag einer Ueberweisung muss positiv sein, war aber " + amount + "!");
+            BankLog.debug("Der Betrag einer Ueberweisung muss positiv sein, war aber {}!", amount);
             throw new TransactionAttributeException("Der Betrag einer Ueberweisung muss positiv sein.");
         }
         super.setAmount(amount);
@@ -0,0 +1,531 @@
+package bank;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verzögert das Speichern einer anderen {@link AccountStorage} (Write-Behind).
+ * Jede Änderung an einem Konto merkt sich nur den neuesten Stand des Kontos (eine Kopie der Transaktionen)
+ * und kehrt sofort zurück. Ein Hintergrund-Thread schreibt ein Konto, sobald seine älteste noch nicht
+ * gespeicherte Änderung {@code maxLatencyMillis} alt ist. Mehrere Änderungen am selben Konto innerhalb dieses
+ * Zeitfensters werden so zu einem einzigen Schreibzugriff zusammengefasst.
+ * <p>
+ * Sind mehr als {@code maxDirtyAccounts} Konten ungespeichert, schreibt der Hintergrund-Thread sofort und
+ * ändernde Aufrufer warten, bis wieder Platz ist. {@link #flush()} schreibt alle ausstehenden Änderungen,
+ * {@link #close()} zusätzlich den Hintergrund-Thread beendet.
+ * <p>
+ * Wichtig: Bis zum Schreiben liegen Änderungen nur im Speicher und gehen bei einem Absturz verloren.
+ * Überweisungen werden als zwei einzelne Kontostände geschrieben, auch wenn die zugrunde liegende
+ * Persistenz sie atomar speichern könnte.
+ * @author Tobias Schnuerpel
+ * @version 1.4
+ */
+public class WriteBehindAccountStorage implements AccountStorage {
+
+    /** Standardmäßige maximale Verzögerung einer Änderung in Millisekunden */
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 1000;
+    /** Standardmäßige maximale Anzahl ungespeicherter Konten */
+    public static final int DEFAULT_MAX_DIRTY_ACCOUNTS = 1000;
+
+    /** Eigentliche Persistenz, in die verzögert geschrieben wird */
+    private final AccountStorage delegate;
+    /** Maximale Verzögerung einer Änderung in Nanosekunden */
+    private final long maxLatencyNanos;
+    /** Maximale Anzahl ungespeicherter Konten */
+    private final int maxDirtyAccounts;
+
+    /**
+     * Ungespeicherte Konten mit ihrem neuesten Stand, das am längsten ungespeicherte Konto zuerst.
+     * Geschützt durch den Monitor dieses Objekts.
+     */
+    private final LinkedHashMap<String, Pending> dirty = new LinkedHashMap<>();
+    /**
+     * Sperre für alle Schreibzugriffe auf {@link #delegate}. Wird vor dem Monitor dieses Objekts genommen,
+     * damit Schreibzugriffe in der Reihenfolge erfolgen, in der sie aus {@link #dirty} entnommen wurden.
+     */
+    private final ReentrantLock ioLock = new ReentrantLock();
+    /** Hintergrund-Thread, der fällige Konten schreibt */
+    private final Thread flusher;
+    /** Gibt an, ob {@link #close()} aufgerufen wurde */
+    private boolean closed = false;
+
+    /** Anzahl der erfolgreichen Schreibzugriffe auf {@link #delegate} */
+    private long flushedWrites = 0;
+    /** Anzahl der Änderungen, die mit einer früheren Änderung desselben Kontos zusammengefasst wurden */
+    private long coalescedChanges = 0;
+    /** Anzahl der fehlgeschlagenen Schreibzugriffe */
+    private long failedWrites = 0;
+    /** Verzögerung des letzten Schreibzugriffs (älteste Änderung bis Ende des Schreibens) in Nanosekunden */
+    private long lastFlushLagNanos = 0;
+    /** Größte bisherige Verzögerung eines Schreibzugriffs in Nanosekunden */
+    private long maxFlushLagNanos = 0;
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Konstruktoren
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Konstruktor der Klasse WriteBehindAccountStorage mit {@link #DEFAULT_MAX_LATENCY_MILLIS} und
+     * {@link #DEFAULT_MAX_DIRTY_ACCOUNTS}.
+     * @param delegate Persistenz, in die verzögert geschrieben wird
+     */
+    public WriteBehindAccountStorage(AccountStorage delegate) {
+        this(delegate, DEFAULT_MAX_LATENCY_MILLIS, DEFAULT_MAX_DIRTY_ACCOUNTS);
+    }
+
+    /**
+     * Konstruktor der Klasse WriteBehindAccountStorage. Startet den Hintergrund-Thread.
+     * @param delegate Persistenz, in die verzögert geschrieben wird
+     * @param maxLatencyMillis maximale Verzögerung einer Änderung in Millisekunden, mindestens 1
+     * @param maxDirtyAccounts maximale Anzahl ungespeicherter Konten, mindestens 1
+     */
+    public WriteBehindAccountStorage(AccountStorage delegate, long maxLatencyMillis, int maxDirtyAccounts) {
+        if (maxLatencyMillis < 1)
+            throw new IllegalArgumentException("maxLatencyMillis muss mindestens 1 sein.");
+        if (maxDirtyAccounts < 1)
+            throw new IllegalArgumentException("maxDirtyAccounts muss mindestens 1 sein.");
+        this.delegate = delegate;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.maxDirtyAccounts = maxDirtyAccounts;
+        this.flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Methoden
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt den Speicherort (Pfad) der zugrunde liegenden Persistenz zurück.
+     * @return Speicherort (Pfad)
+     */
+    @Override
+    public String getDirectoryName() {
+        return delegate.getDirectoryName();
+    }
+
+    /**
+     * Schreibt alle ausstehenden Änderungen und lädt dann alle Konten aus der zugrunde liegenden Persistenz.
+     * @return Map mit Kontonamen als Schlüssel und einer Liste von {@link Transaction} Objekten
+     */
+    @Override
+    public Map<String, List<Transaction>> readAccounts() {
+        ioLock.lock();
+        try {
+            flush();
+            return delegate.readAccounts();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Verzögertes Laden wird unterstützt, wenn die zugrunde liegende Persistenz es unterstützt.
+     * @return true, wenn verzögertes Laden unterstützt wird, sonst false
+     */
+    @Override
+    public boolean supportsLazyLoading() {
+        return delegate.supportsLazyLoading();
+    }
+
+    /**
+     * Versionen der Zinssätze werden gespeichert, wenn die zugrunde liegende Persistenz sie speichert.
+     * @return true, wenn Versionen der Zinssätze gespeichert werden, sonst false
+     */
+    @Override
+    public boolean storesRateVersions() {
+        return delegate.storesRateVersions();
+    }
+
+    /**
+     * Lädt die Versionen der Zinssätze aus der zugrunde liegenden Persistenz.
+     * @return Tabelle der Zinssätze
+     */
+    @Override
+    public RateTable readRates() {
+        return delegate.readRates();
+    }
+
+    /**
+     * Speichert die Versionen der Zinssätze sofort in der zugrunde liegenden Persistenz, damit sie vor den
+     * verzögert geschriebenen Konten, die auf sie verweisen, gespeichert sind.
+     * @param rates Tabelle der Zinssätze
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean writeRates(RateTable rates) {
+        return delegate.writeRates(rates);
+    }
+
+    /**
+     * Schreibt alle ausstehenden Änderungen und gibt dann die Namen aller gespeicherten Konten zurück.
+     * @return Namen aller Konten
+     */
+    @Override
+    public Set<String> readAccountNames() {
+        ioLock.lock();
+        try {
+            flush();
+            return delegate.readAccountNames();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Lädt die Transaktionen eines Kontos. Ein noch nicht geschriebener Stand wird direkt zurückgegeben.
+     * @param account Name des Kontos
+     * @return Transaktionen des Kontos, leer, wenn das Konto nicht gespeichert ist
+     */
+    @Override
+    public List<Transaction> readAccount(String account) {
+        // wartet ggf. auf einen laufenden Schreibzugriff, damit keine halb geschriebene Datei gelesen wird
+        ioLock.lock();
+        try {
+            synchronized (this) {
+                Pending pending = dirty.get(account);
+                if (pending != null)
+                    return pending.transactions == null ? new ArrayList<>() : new ArrayList<>(pending.transactions);
+            }
+            return delegate.readAccount(account);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Merkt sich den neuen Stand des Kontos zum verzögerten Schreiben.
+     * @param account Name des Kontos
+     * @param transactions alle Transaktionen des Kontos
+     * @return true, sofern die Persistenz nicht geschlossen ist
+     */
+    @Override
+    public boolean writeAccount(String account, Collection<Transaction> transactions) {
+        return markDirty(account, transactions == null ? new ArrayList<>() : new ArrayList<>(transactions));
+    }
+
+    /**
+     * Merkt sich das Löschen des Kontos zum verzögerten Schreiben.
+     * @param account Name des Kontos
+     * @return true, sofern die Persistenz nicht geschlossen ist
+     */
+    @Override
+    public boolean deleteAccount(String account) {
+        return markDirty(account, null);
+    }
+
+    /**
+     * Merkt sich den neuen Stand des Kontos inklusive der neuen Transaktion zum verzögerten Schreiben.
+     * @param account Name des Kontos
+     * @param transaction hinzugefügte Transaktion
+     * @param transactions alle Transaktionen des Kontos
+     * @return true, sofern die Persistenz nicht geschlossen ist
+     */
+    @Override
+    public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Merkt sich den neuen Stand des Kontos ohne die entfernte Transaktion zum verzögerten Schreiben.
+     * @param account Name des Kontos
+     * @param transaction entfernte Transaktion
+     * @param transactions alle verbleibenden Transaktionen des Kontos
+     * @return true, sofern die Persistenz nicht geschlossen ist
+     */
+    @Override
+    public boolean removeTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+        return writeAccount(account, transactions);
+    }
+
+    /**
+     * Gibt an, ob die zugrunde liegende Persistenz kompaktiert werden sollte.
+     * @return true, wenn {@link #compact(Map)} aufgerufen werden sollte, sonst false
+     */
+    @Override
+    public boolean needsCompaction() {
+        return delegate.needsCompaction();
+    }
+
+    /**
+     * Schreibt alle ausstehenden Änderungen und kompaktiert dann die zugrunde liegende Persistenz.
+     * @param accounts alle Konten der Bank
+     * @return true bei Erfolg, ansonsten false
+     */
+    @Override
+    public boolean compact(Map<String, ? extends Collection<Transaction>> accounts) {
+        ioLock.lock();
+        try {
+            flush();
+            return delegate.compact(accounts);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Schreibt sofort alle ausstehenden Änderungen.
+     * @return true, wenn alle Änderungen geschrieben wurden, false, wenn ein Schreibzugriff fehlgeschlagen ist
+     */
+    @Override
+    public boolean flush() {
+        return writePending(true);
+    }
+
+    /**
+     * Schreibt alle ausstehenden Änderungen, beendet den Hintergrund-Thread und schließt die zugrunde
+     * liegende Persistenz. Danach werden keine Änderungen mehr angenommen.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        delegate.close();
+    }
+
+    /**
+     * Merkt sich einen neuen Stand eines Kontos. Ein bereits ausstehender Stand wird ersetzt,
+     * behält aber den Zeitpunkt der ältesten Änderung. Wartet, solange zu viele Konten ungespeichert sind.
+     * @param account Name des Kontos
+     * @param transactions neuer Stand des Kontos oder null, wenn das Konto gelöscht wurde
+     * @return true, sofern die Persistenz nicht geschlossen ist
+     */
+    private synchronized boolean markDirty(String account, List<Transaction> transactions) {
+        if (closed) {
+            BankLog.error("Error - Write-behind storage is closed: {}", account);
+            return false;
+        }
+        Pending previous = dirty.get(account);
+        if (previous != null)
+            coalescedChanges++;
+        long dirtySince = previous == null ? System.nanoTime() : previous.dirtySince;
+        dirty.put(account, new Pending(transactions, dirtySince));
+        // der Hintergrund-Thread wartet ohne Zeitlimit, solange nichts aussteht
+        if (dirty.size() == 1 || dirty.size() >= maxDirtyAccounts)
+            notifyAll();
+        // Gegendruck: warten, bis der Hintergrund-Thread wieder Platz geschaffen hat
+        boolean interrupted = false;
+        while (dirty.size() > maxDirtyAccounts && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return true;
+    }
+
+    /**
+     * Hauptschleife des Hintergrund-Threads: wartet, bis ein Konto fällig ist, und schreibt alle fälligen Konten.
+     * Nach einem fehlgeschlagenen Schreibzugriff wird eine volle Verzögerung abgewartet.
+     */
+    private void runFlusher() {
+        boolean failed = false;
+        while (true) {
+            synchronized (this) {
+                try {
+                    if (failed)
+                        waitNanos(maxLatencyNanos);
+                    long delay;
+                    while (!closed && (delay = nanosUntilDue()) > 0)
+                        waitNanos(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed)
+                    return;
+            }
+            failed = !writePending(false);
+        }
+    }
+
+    /**
+     * Berechnet, wie lange es dauert, bis das nächste Konto geschrieben werden muss. Muss im Monitor aufgerufen werden.
+     * @return Nanosekunden bis zur Fälligkeit, höchstens 0, wenn sofort geschrieben werden muss,
+     *         {@link Long#MAX_VALUE}, wenn nichts aussteht
+     */
+    private long nanosUntilDue() {
+        if (dirty.isEmpty())
+            return Long.MAX_VALUE;
+        if (dirty.size() >= maxDirtyAccounts)
+            return 0;
+        // das erste Konto ist das am längsten ungespeicherte
+        return dirty.values().iterator().next().dirtySince + maxLatencyNanos - System.nanoTime();
+    }
+
+    /**
+     * Wartet im Monitor höchstens die angegebene Zeit oder bis zu einer Benachrichtigung.
+     * @param nanos maximale Wartezeit in Nanosekunden
+     * @throws InterruptedException wenn der Thread unterbrochen wurde
+     */
+    private void waitNanos(long nanos) throws InterruptedException {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (nanos == Long.MAX_VALUE)
+            wait();
+        else
+            wait(Math.max(1, millis));
+    }
+
+    /**
+     * Entnimmt die fälligen (bzw. alle) ausstehenden Konten und schreibt sie in der Reihenfolge ihrer ältesten
+     * Änderung. Fehlgeschlagene Konten werden wieder vorgemerkt ({@link #requeue(List)}).
+     * @param all wenn true, werden alle ausstehenden Konten geschrieben, sonst nur die fälligen
+     * @return true, wenn alle Schreibzugriffe erfolgreich waren, sonst false
+     */
+    private boolean writePending(boolean all) {
+        ioLock.lock();
+        try {
+            List<Map.Entry<String, Pending>> batch = new ArrayList<>();
+            synchronized (this) {
+                long now = System.nanoTime();
+                boolean full = dirty.size() >= maxDirtyAccounts;
+                Iterator<Map.Entry<String, Pending>> iterator = dirty.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Pending> entry = iterator.next();
+                    if (!all && !full && entry.getValue().dirtySince + maxLatencyNanos > now)
+                        break;
+                    batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                    iterator.remove();
+                }
+                notifyAll();
+            }
+            List<Map.Entry<String, Pending>> failed = new ArrayList<>();
+            for (Map.Entry<String, Pending> entry : batch) {
+                Pending pending = entry.getValue();
+                boolean written = pending.transactions == null
+                        ? delegate.deleteAccount(entry.getKey())
+                        : delegate.writeAccount(entry.getKey(), pending.transactions);
+                synchronized (this) {
+                    if (written) {
+                        flushedWrites++;
+                        lastFlushLagNanos = System.nanoTime() - pending.dirtySince;
+                        maxFlushLagNanos = Math.max(maxFlushLagNanos, lastFlushLagNanos);
+                    } else {
+                        failedWrites++;
+                        failed.add(entry);
+                        BankLog.error("Error - Could not write account: {}", entry.getKey());
+                    }
+                }
+            }
+            if (failed.isEmpty())
+                return true;
+            synchronized (this) {
+                requeue(failed);
+            }
+            return false;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Merkt fehlgeschlagene Konten wieder vor. Sie kommen an den Anfang, da ihre älteste Änderung älter ist als die
+     * aller anderen ausstehenden Konten ({@link #nanosUntilDue()} und {@link #writePending(boolean)} lesen nur den
+     * Anfang). Wurde ein Konto während des Schreibens erneut geändert, wird der neuere Stand mit dem Zeitpunkt der
+     * älteren Änderung übernommen. Muss im Monitor aufgerufen werden.
+     * @param failed fehlgeschlagene Konten in der Reihenfolge ihrer ältesten Änderung
+     */
+    private void requeue(List<Map.Entry<String, Pending>> failed) {
+        Map<String, Pending> newer = new LinkedHashMap<>(dirty);
+        dirty.clear();
+        for (Map.Entry<String, Pending> entry : failed) {
+            Pending pending = entry.getValue();
+            Pending latest = newer.remove(entry.getKey());
+            dirty.put(entry.getKey(), latest == null ? pending : new Pending(latest.transactions, pending.dirtySince));
+        }
+        dirty.putAll(newer);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Getter und Setter
+    //------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Gibt die Anzahl der Konten zurück, deren Änderungen noch nicht geschrieben wurden.
+     * @return Anzahl der ungespeicherten Konten
+     */
+    public synchronized int getDirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Gibt das Alter der ältesten noch nicht geschriebenen Änderung zurück (aktuelle Verzögerung).
+     * @return Alter in Millisekunden, 0, wenn nichts aussteht
+     */
+    public synchronized long getOldestDirtyAgeMillis() {
+        if (dirty.isEmpty())
+            return 0;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dirty.values().iterator().next().dirtySince);
+    }
+
+    /**
+     * Gibt die Verzögerung des letzten Schreibzugriffs zurück (älteste Änderung bis Ende des Schreibens).
+     * @return Verzögerung in Millisekunden
+     */
+    public synchronized long getLastFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastFlushLagNanos);
+    }
+
+    /**
+     * Gibt die größte bisherige Verzögerung eines Schreibzugriffs zurück.
+     * @return Verzögerung in Millisekunden
+     */
+    public synchronized long getMaxFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushLagNanos);
+    }
+
+    /**
+     * Gibt die Anzahl der erfolgreichen Schreibzugriffe zurück.
+     * @return Anzahl der Schreibzugriffe
+     */
+    public synchronized long getFlushedWrites() {
+        return flushedWrites;
+    }
+
+    /**
+     * Gibt die Anzahl der Änderungen zurück, die mit einer früheren Änderung desselben Kontos
+     * zu einem Schreibzugriff zusammengefasst wurden.
+     * @return Anzahl der zusammengefassten Änderungen
+     */
+    public synchronized long getCoalescedChanges() {
+        return coalescedChanges;
+    }
+
+    /**
+     * Gibt die Anzahl der fehlgeschlagenen Schreibzugriffe zurück.
+     * @return Anzahl der fehlgeschlagenen Schreibzugriffe
+     */
+    public synchronized long getFailedWrites() {
+        return failedWrites;
+    }
+
+    /**
+     * Ausstehender Stand eines Kontos.
+     */
+    private static final class Pending {
+
+        /** Neuer Stand des Kontos, null, wenn das Konto gelöscht wurde */
+        private final List<Transaction> transactions;
+        /** Zeitpunkt der ältesten noch nicht geschriebenen Änderung ({@link System#nanoTime()}) */
+        private final long dirtySince;
+
+        private Pending(List<Transaction> transactions, long dirtySince) {
+            this.transactions = transactions;
+            this.dirtySince = dirtySince;
+        }
+    }
+}
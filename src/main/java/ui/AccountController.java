@@ -25,7 +25,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * Stellt eine Übersicht über alle Transaktionen des Kontos dar.
  * Ermöglicht das Hinzufügen und Löschen von Transaktionen.
  * @author Tobias Schnuerpel
- * @version 5.0
+ * @version 5.2
  */
 public class AccountController implements Initializable {
 
@@ -262,7 +262,10 @@ public class AccountController implements Initializable {
                 // try to parse amount
                 try {
                     amountDouble = Double.parseDouble(amount);
-                    if (menuItem.getId().equals("transfer") && amountDouble <= 0) {
+                    if (!Money.isValid(amountDouble)) {
+                        invalid.setHeaderText("Amount must be a finite number below " + Money.MAX_AMOUNT + ".");
+                        valid = false;
+                    } else if (menuItem.getId().equals("transfer") && amountDouble <= 0) {
                         invalid.setHeaderText("Amount must be positive.");
                         valid = false;
                     }
@@ -271,6 +274,12 @@ public class AccountController implements Initializable {
                     valid = false;
                 }
 
+                // check date format
+                if (!TransactionDate.isValid(date)) {
+                    invalid.setHeaderText("Date must be a valid date in the format DD.MM.YYYY.");
+                    valid = false;
+                }
+
                 if (menuItem.getId().equals("payment")) {
                     // try to parse interests (only payment)
                     try {
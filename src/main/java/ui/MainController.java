@@ -23,7 +23,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * Controller für die Mainview.fxml.
  * Stellt eine Übersicht über alle Konten der Bank dar.
  * @author Tobias Schnuerpel
- * @version 5.0
+ * @version 5.1
  */
 public class MainController implements Initializable {
 
@@ -157,10 +157,18 @@ public class MainController implements Initializable {
 
     /**
      * Öffnet die Detailansicht für den derzeit in der Liste ausgewählten Account.
+     * Kann das Konto nicht gelesen werden, wird nur ein Hinweis angezeigt.
      */
     private void showAccount() {
-        if (selectedAccount.get() != null)
+        if (selectedAccount.get() == null)
+            return;
+        try {
             FxApplication.changeToAccountView(bank, selectedAccount.get());
+        } catch (IllegalStateException e) {
+            // abgelehntes Konto, dessen Datei nicht gelesen werden kann
+            System.out.println(e.getMessage());
+            text.setText("Account " + selectedAccount + " could not be read.");
+        }
     }
 
     /**
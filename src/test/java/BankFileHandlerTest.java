@@ -0,0 +1,310 @@
+import bank.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link BankFileHandler}
+ * @author Tobias Schnuerpel
+ * @version 1.6
+ */
+public class BankFileHandlerTest {
+
+    private static final String DIRECTORY = "src/test/resources/filehandlertest";
+    private List<Transaction> transactions;
+
+    @BeforeEach
+    public void init() {
+        transactions = List.of(
+                new Payment("01.01.2020", 100, "Payment1", 0.1, 0.2),
+                new Payment("02.01.2020", -50, "Payment2 <\"quoted\">", 0.1, 0.2),
+                new IncomingTransfer("03.01.2020", 30, "IncomingTransfer1", "abc", "xyz"),
+                new OutgoingTransfer("04.01.2020", 20, "OutgoingTransfer1", "xyz", "abc"),
+                new Transfer("05.01.2020", 10, "Transfer1", "abc", "xyz"));
+    }
+
+    @AfterEach
+    public void removeFiles() {
+        if (!Files.exists(Paths.get(DIRECTORY)))
+            return;
+        try {
+            Files.walk(Paths.get(DIRECTORY))
+                    .sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (Exception e) {
+            fail("Konnte Dateien nicht löschen!", e);
+        }
+    }
+
+    @Test
+    public void testWriteAndReadAccount() {
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account1", transactions));
+        Map<String, List<Transaction>> accounts = BankFileHandler.readAccounts(DIRECTORY);
+        assertEquals(1, accounts.size());
+        assertEquals(transactions, accounts.get("Account1"));
+    }
+
+    @Test
+    public void testFormatIsUnchanged() {
+        String expected = """
+                [
+                  {
+                    "CLASSNAME": "Payment",
+                    "INSTANCE": {
+                      "incomingInterest": 0.1,
+                      "outgoingInterest": 0.2,
+                      "date": "01.01.2020",
+                      "amount": 100.0,
+                      "description": "Payment1"
+                    }
+                  },
+                  {
+                    "CLASSNAME": "IncomingTransfer",
+                    "INSTANCE": {
+                      "sender": "abc",
+                      "recipient": "xyz",
+                      "date": "03.01.2020",
+                      "amount": 30.0,
+                      "description": "IncomingTransfer1"
+                    }
+                  }
+                ]""";
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account1", List.of(transactions.get(0), transactions.get(2))));
+        String written = assertDoesNotThrow(() -> Files.readString(Paths.get(DIRECTORY, "Account1.json")));
+        assertEquals(expected, written);
+    }
+
+    @Test
+    public void testAdapterReadsFieldsInAnyOrder() {
+        Gson gson = new GsonBuilder()
+                .registerTypeHierarchyAdapter(Transaction.class, new TransactionAdapter())
+                .create();
+        String json = "{\"INSTANCE\": {\"description\": \"Payment1\", \"unknown\": [1, 2], \"amount\": 100,"
+                + " \"outgoingInterest\": 0.2, \"date\": \"01.01.2020\", \"incomingInterest\": 0.1},"
+                + " \"CLASSNAME\": \"Payment\"}";
+        assertEquals(transactions.get(0), gson.fromJson(json, Transaction.class));
+        assertEquals(transactions.get(1), gson.fromJson(gson.toJson(transactions.get(1), Transaction.class), Transaction.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"CLASSNAME\": \"Payment\"}", Transaction.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson(
+                "{\"CLASSNAME\": \"Unknown\", \"INSTANCE\": {\"date\": \"01.01.2020\", \"amount\": 1, \"description\": \"x\"}}",
+                Transaction.class));
+    }
+
+    @Test
+    public void testParallelReadAccounts() {
+        for (int i = 0; i < 40; i++)
+            assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account" + i, transactions.subList(0, 1 + i % transactions.size())));
+        assertDoesNotThrow(() -> Files.writeString(Paths.get(DIRECTORY, "Broken.json"), "[{\"CLASSNAME\": "));
+
+        // eine fehlerhafte Datei ergibt kein leeres Konto, das beim naechsten Speichern die Datei ueberschreibt
+        assertThrows(IllegalStateException.class, () -> BankFileHandler.readAccounts(DIRECTORY));
+        assertThrows(IllegalStateException.class, () -> BankFileHandler.readAccounts(DIRECTORY, 4));
+        assertThrows(IllegalStateException.class, () -> BankFileHandler.readAccount(DIRECTORY, "Broken"));
+        assertDoesNotThrow(() -> Files.delete(Paths.get(DIRECTORY, "Broken.json")));
+
+        Map<String, List<Transaction>> sequential = BankFileHandler.readAccounts(DIRECTORY);
+        Map<String, List<Transaction>> parallel = BankFileHandler.readAccounts(DIRECTORY, 4);
+        assertEquals(40, parallel.size());
+        assertEquals(sequential, parallel);
+        assertEquals(transactions, parallel.get("Account4"));
+        assertThrows(IllegalArgumentException.class, () -> BankFileHandler.readAccounts(DIRECTORY, 0));
+    }
+
+    @Test
+    public void testParallelReadAccountsReportsEveryFile() {
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Good", transactions));
+        assertDoesNotThrow(() -> Files.writeString(Paths.get(DIRECTORY, "Bogus.json"),
+                "[{\"CLASSNAME\": \"Bogus\", \"INSTANCE\": {}}]"));
+        assertDoesNotThrow(() -> Files.writeString(Paths.get(DIRECTORY, "Broken.json"), "[{\"CLASSNAME\": "));
+
+        // jede fehlerhafte Datei wird genannt, ein Teilergebnis mit nur "Good" wird nie zurueckgegeben
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> BankFileHandler.readAccounts(DIRECTORY, 4));
+        assertTrue(e.getMessage().contains("Bogus.json"), e.getMessage());
+        assertTrue(e.getMessage().contains("Broken.json"), e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+    }
+
+    @Test
+    public void testReadAccountsInvalidTransaction() {
+        String valid = "{\"date\": \"01.01.2020\", \"amount\": %s, \"description\": \"Test\","
+                + " \"incomingInterest\": 0, \"outgoingInterest\": 0}";
+        Map<String, String> invalid = Map.of(
+                "Bogus", "[{\"CLASSNAME\": \"Bogus\", \"INSTANCE\": " + valid.formatted(1) + "}]",
+                "NoInstance", "[{\"CLASSNAME\": \"Payment\"}]",
+                "NoAmount", "[{\"CLASSNAME\": \"Payment\", \"INSTANCE\": {\"date\": \"01.01.2020\"}}]",
+                "Huge", "[{\"CLASSNAME\": \"Payment\", \"INSTANCE\": " + valid.formatted("1e300") + "}]");
+        for (Map.Entry<String, String> file : invalid.entrySet()) {
+            assertDoesNotThrow(() -> Files.createDirectories(Paths.get(DIRECTORY)));
+            assertDoesNotThrow(() -> Files.writeString(Paths.get(DIRECTORY, file.getKey() + ".json"), file.getValue()));
+            // jeder Fehler beim Dekodieren wird als IllegalStateException mit dem Dateinamen gemeldet
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> BankFileHandler.readAccount(DIRECTORY, file.getKey()));
+            assertTrue(e.getMessage().contains(file.getKey() + ".json"), e.getMessage());
+            e = assertThrows(IllegalStateException.class, () -> BankFileHandler.readAccounts(DIRECTORY));
+            assertTrue(e.getMessage().contains(file.getKey() + ".json"), e.getMessage());
+            assertFalse(BankFileHandler.convertAccounts(DIRECTORY, AccountFileFormat.JSON,
+                    DIRECTORY, AccountFileFormat.BINARY));
+            removeFiles();
+        }
+    }
+
+    @Test
+    public void testParallelReadAccountsInterrupted() {
+        for (int i = 0; i < 4; i++)
+            assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account" + i, transactions));
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IllegalStateException.class, () -> BankFileHandler.readAccounts(DIRECTORY, 4));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testEmptyAccount() {
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account1", List.of()));
+        assertDoesNotThrow(() -> assertEquals(0, Files.size(Paths.get(DIRECTORY, "Account1.json"))));
+        assertEquals(List.of(), BankFileHandler.readAccounts(DIRECTORY).get("Account1"));
+    }
+
+    @Test
+    public void testBinaryFormat() {
+        List<Transaction> large = new java.util.ArrayList<>(transactions);
+        // Beschreibung, die größer als der Puffer ist, sowie Umlaute und Daten vor 1970
+        large.add(new Payment("31.12.1969", 1.5, "ä".repeat(100_000), 0.1, 0.2));
+        for (int i = 0; i < 10_000; i++)
+            large.add(new Transfer("01.02.2021", i + 1, "Transfer" + i, "Sender€", "Empfänger"));
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account1", large, AccountFileFormat.BINARY));
+        assertTrue(Files.isRegularFile(Paths.get(DIRECTORY, "Account1.bin")));
+        assertEquals(large, BankFileHandler.readAccount(DIRECTORY, "Account1", AccountFileFormat.BINARY));
+        assertEquals(Map.of("Account1", large), BankFileHandler.readAccounts(DIRECTORY, 2, AccountFileFormat.BINARY));
+        // die Formate sehen nur ihre eigenen Dateien
+        assertEquals(Map.of(), BankFileHandler.readAccounts(DIRECTORY));
+
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account2", List.of(), AccountFileFormat.BINARY));
+        assertEquals(List.of(), BankFileHandler.readAccount(DIRECTORY, "Account2", AccountFileFormat.BINARY));
+        assertTrue(BankFileHandler.deleteAccount(DIRECTORY, "Account2", AccountFileFormat.BINARY));
+        assertEquals(java.util.Set.of("Account1"), BankFileHandler.readAccountNames(DIRECTORY, AccountFileFormat.BINARY));
+    }
+
+    @Test
+    public void testLegacyDates() {
+        String legacy = "[" + legacyPayment("1.2.2020") + "," + legacyPayment(" 03/04/2020 ") + ","
+                + legacyPayment("2020-05-06") + "," + legacyPayment("07.08.2020") + "]";
+        Path path = Paths.get(DIRECTORY, "Account1.json");
+        assertDoesNotThrow(() -> Files.createDirectories(path.getParent()));
+        assertDoesNotThrow(() -> Files.writeString(path, legacy));
+
+        List<Transaction> read = BankFileHandler.readAccount(DIRECTORY, "Account1");
+        assertEquals(List.of("01.02.2020", "03.04.2020", "06.05.2020", "07.08.2020"),
+                read.stream().map(Transaction::getDate).toList());
+
+        // beim naechsten Speichern wird das strenge Format geschrieben
+        PrivateBank bank = new PrivateBank("Legacybank", 0.1, 0.1, DIRECTORY);
+        assertEquals(4, bank.getTransactions("Account1").size());
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", new Payment("09.10.2020", 10, "Payment5")));
+        bank.close();
+        String written = assertDoesNotThrow(() -> Files.readString(path));
+        assertTrue(written.contains("\"01.02.2020\"") && written.contains("\"06.05.2020\""));
+        assertEquals(5, BankFileHandler.readAccount(DIRECTORY, "Account1").size());
+
+        // ein Datum, das es nicht gibt, lehnt nur dieses Konto ab, statt es zu leeren oder die Bank zu blockieren
+        String invalid = "[" + legacyPayment("01.01.2020") + "," + legacyPayment("19.121.2022") + "]";
+        assertDoesNotThrow(() -> Files.writeString(path, invalid));
+        for (int parallelism : new int[] {1, 4}) {
+            assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account2", transactions));
+            PrivateBank reopened = new PrivateBank("Legacybank", 0.1, 0.1,
+                    new FileAccountStorage(DIRECTORY, parallelism, AccountFileFormat.JSON));
+            assertEquals(List.of("Account1", "Account2"), reopened.getAllAccounts().stream().sorted().toList());
+            assertEquals(transactions.size(), reopened.getTransactions("Account2").size());
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> reopened.getTransactions("Account1"));
+            assertTrue(e.getMessage().contains("Account1.json") && e.getMessage().contains("19.121.2022"),
+                    e.getMessage());
+            assertThrows(IllegalStateException.class,
+                    () -> reopened.addTransaction("Account1", new Payment("09.10.2020", 10, "Payment5")));
+            assertDoesNotThrow(() -> reopened.addTransaction("Account2", new Payment("09.10.2020", 10, "Payment5")));
+            reopened.close();
+            assertEquals(invalid, assertDoesNotThrow(() -> Files.readString(path)));
+        }
+
+        // ohne einzeln lesbare Konten scheitert das Laden weiterhin als Ganzes
+        assertThrows(IllegalStateException.class, () -> new PrivateBank("Legacybank", 0.1, 0.1,
+                new JournalAccountStorage(DIRECTORY)));
+        assertEquals(invalid, assertDoesNotThrow(() -> Files.readString(path)));
+    }
+
+    @Test
+    public void testBankWithInvalidDateInFixture() {
+        // Mustermann.json enthaelt das Datum "19.121.2022"
+        Path source = Paths.get("src/main/resources/data/sparkasse");
+        assertDoesNotThrow(() -> Files.createDirectories(Paths.get(DIRECTORY)));
+        try (var files = Files.list(source)) {
+            for (Path file : files.filter(Files::isRegularFile).toList())
+                Files.copy(file, Paths.get(DIRECTORY, file.getFileName().toString()));
+        } catch (java.io.IOException e) {
+            fail("Konnte Dateien nicht kopieren!", e);
+        }
+        byte[] original = assertDoesNotThrow(() -> Files.readAllBytes(Paths.get(DIRECTORY, "Mustermann.json")));
+
+        PrivateBank bank = new PrivateBank("Sparkasse", 0.03, 0.01, DIRECTORY);
+        assertTrue(bank.getAllAccounts().contains("Mustermann"));
+        assertThrows(IllegalStateException.class, () -> bank.getAccountBalance("Mustermann"));
+        for (String account : bank.getAllAccounts())
+            if (!account.equals("Mustermann"))
+                assertDoesNotThrow(() -> bank.getAccountBalance(account));
+        bank.close();
+        assertArrayEquals(original, assertDoesNotThrow(() -> Files.readAllBytes(Paths.get(DIRECTORY, "Mustermann.json"))));
+    }
+
+    private static String legacyPayment(String date) {
+        return "{\"CLASSNAME\": \"Payment\", \"INSTANCE\": {\"incomingInterest\": 0.1, \"outgoingInterest\": 0.1,"
+                + " \"date\": \"" + date + "\", \"amount\": 100, \"description\": \"Payment " + date + "\"}}";
+    }
+
+    @Test
+    public void testBrokenBinaryFile() {
+        assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account1", transactions, AccountFileFormat.BINARY));
+        Path path = Paths.get(DIRECTORY, "Account1.bin");
+        byte[] bytes = assertDoesNotThrow(() -> Files.readAllBytes(path));
+        // abgeschnittene Datei
+        assertDoesNotThrow(() -> Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 3)));
+        assertThrows(IllegalStateException.class,
+                () -> BankFileHandler.readAccount(DIRECTORY, "Account1", AccountFileFormat.BINARY));
+        // JSON-Datei mit falscher Endung
+        assertDoesNotThrow(() -> Files.writeString(path, "[]"));
+        assertThrows(IllegalStateException.class,
+                () -> BankFileHandler.readAccount(DIRECTORY, "Account1", AccountFileFormat.BINARY));
+    }
+
+    @Test
+    public void testConvertAccounts() {
+        String target = DIRECTORY + "/binary";
+        for (int i = 0; i < 5; i++)
+            assertTrue(BankFileHandler.writeAccount(DIRECTORY, "Account" + i, transactions.subList(0, i)));
+        assertTrue(BankFileHandler.convertAccounts(DIRECTORY, AccountFileFormat.JSON, target, AccountFileFormat.BINARY));
+        Map<String, List<Transaction>> json = BankFileHandler.readAccounts(DIRECTORY);
+        assertEquals(json, BankFileHandler.readAccounts(target, 1, AccountFileFormat.BINARY));
+        assertDoesNotThrow(() -> assertTrue(Files.size(Paths.get(target, "Account4.bin"))
+                < Files.size(Paths.get(DIRECTORY, "Account4.json")) / 2));
+
+        // zurück in dasselbe Verzeichnis, eine fehlerhafte Datei wird übersprungen
+        assertDoesNotThrow(() -> Files.writeString(Paths.get(target, "Broken.bin"), "broken"));
+        assertFalse(BankFileHandler.convertAccounts(target, AccountFileFormat.BINARY, target, AccountFileFormat.JSON));
+        assertEquals(json, BankFileHandler.readAccounts(target));
+    }
+}
@@ -0,0 +1,130 @@
+import bank.BankLog;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link BankLog}
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public class BankLogTest {
+
+    private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    public void init() {
+        BankLog.flush();
+        BankLog.setSink(lines::add);
+        BankLog.setLevel(BankLog.Level.WARN);
+    }
+
+    @AfterEach
+    public void reset() {
+        BankLog.flush();
+        BankLog.setSink(null);
+        BankLog.setLevel(BankLog.Level.WARN);
+    }
+
+    @Test
+    public void testFormat() {
+        BankLog.error("Error writing file: {}", "disk full");
+        BankLog.error("Error reading file {}: {}", "Account1.json", 42);
+        BankLog.warn("Ignoring {}", null);
+        BankLog.error("Kein Platzhalter");
+        BankLog.error("Zu wenige Platzhalter", "weg");
+        BankLog.flush();
+        assertEquals(List.of("Error writing file: disk full", "Error reading file Account1.json: 42",
+                "Ignoring null", "Kein Platzhalter", "Zu wenige Platzhalter"), new ArrayList<>(lines));
+    }
+
+    @Test
+    public void testLevel() {
+        assertEquals(BankLog.Level.WARN, BankLog.getLevel());
+        assertTrue(BankLog.isEnabled(BankLog.Level.ERROR));
+        assertFalse(BankLog.isEnabled(BankLog.Level.INFO));
+        BankLog.info("info {}", 1);
+        BankLog.debug("debug {}", 2);
+
+        BankLog.setLevel(BankLog.Level.ERROR);
+        BankLog.warn("warn {}", 3);
+        BankLog.error("error {}", 4);
+
+        BankLog.setLevel(null);
+        assertEquals(BankLog.Level.OFF, BankLog.getLevel());
+        assertFalse(BankLog.isEnabled(BankLog.Level.ERROR));
+        assertFalse(BankLog.isEnabled(BankLog.Level.OFF));
+        BankLog.error("error {}", 5);
+
+        BankLog.setLevel(BankLog.Level.DEBUG);
+        BankLog.debug("debug {}", 6);
+        BankLog.flush();
+        assertEquals(List.of("error 4", "debug 6"), new ArrayList<>(lines));
+    }
+
+    @Test
+    public void testFormattedInBackground() {
+        AtomicInteger calls = new AtomicInteger();
+        List<String> threads = new ArrayList<>();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                calls.incrementAndGet();
+                threads.add(Thread.currentThread().getName());
+                return "arg";
+            }
+        };
+        BankLog.setLevel(BankLog.Level.OFF);
+        BankLog.error("Error {}", argument);
+        BankLog.flush();
+        assertEquals(0, calls.get());
+        assertTrue(lines.isEmpty());
+
+        BankLog.setLevel(BankLog.Level.ERROR);
+        BankLog.error("Error {}", argument);
+        BankLog.flush();
+        assertEquals(1, calls.get());
+        assertEquals(List.of("bank-log"), threads);
+        assertEquals("Error arg", lines.peek());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        long dropped = BankLog.getDropped();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++)
+                        BankLog.error("Thread {} Meldung {}", thread, i);
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        BankLog.flush();
+        long lost = BankLog.getDropped() - dropped;
+        assertEquals(800, lines.size() + lost);
+        for (int t = 0; t < 4; t++) {
+            // die Meldungen eines Threads kommen in ihrer Reihenfolge an
+            String prefix = "Thread " + t + " ";
+            List<Integer> numbers = lines.stream().filter(line -> line.startsWith(prefix))
+                    .map(line -> Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1))).toList();
+            for (int i = 1; i < numbers.size(); i++)
+                assertTrue(numbers.get(i - 1) < numbers.get(i));
+        }
+    }
+}
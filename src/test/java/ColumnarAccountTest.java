@@ -0,0 +1,102 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link ColumnarAccount}
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public class ColumnarAccountTest {
+
+    private List<Transaction> transactions;
+    private ColumnarAccount account;
+
+    @BeforeEach
+    public void init() {
+        transactions = List.of(
+                new Payment("01.01.2020", 100, "Einzahlung", 0.05, 0.1),
+                new Payment("02.01.2020", -50, "Auszahlung", 0.05, 0.1),
+                new IncomingTransfer("03.01.2020", 30, "Miete", "Mieter", "Konto"),
+                new OutgoingTransfer("04.01.2020", 20, "Strom", "Konto", "Stadtwerke"),
+                new Transfer("05.01.2020", 10, "Sonstiges", "Konto", "Konto2"));
+        account = new ColumnarAccount(transactions);
+    }
+
+    @Test
+    public void testTransactionsAreUnchanged() {
+        assertEquals(transactions.size(), account.size());
+        assertEquals(transactions, account.getTransactions());
+        assertEquals(transactions, account.toList());
+        for (int i = 0; i < transactions.size(); i++)
+            assertEquals(transactions.get(i).getClass(), account.getTransactions().get(i).getClass());
+    }
+
+    @Test
+    public void testBalance() {
+        double expected = 0;
+        for (Transaction transaction : transactions)
+            expected += transaction.calculate();
+        assertEquals(expected, account.getBalance(), 1e-9);
+    }
+
+    @Test
+    public void testTransactionsByType() {
+        assertEquals(List.of(transactions.get(0), transactions.get(2), transactions.get(4)),
+                account.getTransactionsByType(true));
+        assertEquals(List.of(transactions.get(1), transactions.get(3)), account.getTransactionsByType(false));
+    }
+
+    @Test
+    public void testDuplicatesAreRejected() {
+        assertFalse(account.add(new Payment("01.01.2020", 100, "Einzahlung", 0.05, 0.1)));
+        assertFalse(account.add(new IncomingTransfer("03.01.2020", 30, "Miete", "Mieter", "Konto")));
+        // gleiche Werte, aber andere Klasse oder andere Zinsen
+        assertTrue(account.add(new Transfer("03.01.2020", 30, "Miete", "Mieter", "Konto")));
+        assertTrue(account.add(new Payment("01.01.2020", 100, "Einzahlung", 0.05, 0.2)));
+        assertEquals(transactions.size() + 2, account.size());
+    }
+
+    @Test
+    public void testRemove() {
+        assertTrue(account.remove(new OutgoingTransfer("04.01.2020", 20, "Strom", "Konto", "Stadtwerke")));
+        assertFalse(account.remove(transactions.get(3)));
+        assertFalse(account.contains(transactions.get(3)));
+        List<Transaction> expected = new ArrayList<>(transactions);
+        expected.remove(3);
+        assertEquals(expected, account.getTransactions());
+        assertTrue(account.add(transactions.get(3)));
+        expected.add(transactions.get(3));
+        assertEquals(expected, account.getTransactions());
+    }
+
+    @Test
+    public void testManyTransactions() {
+        ColumnarAccount large = new ColumnarAccount();
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Transaction transaction = new Payment("01.01.2020", i, "Tx-" + (i % 100), 0.05, 0.1);
+            expected.add(transaction);
+            assertTrue(large.add(transaction));
+        }
+        // jede zweite Transaktion entfernen, damit verdichtet wird
+        for (int i = 0; i < 10_000; i += 2)
+            assertTrue(large.remove(expected.get(i)));
+        expected.removeIf(t -> ((int) t.getAmount()) % 2 == 0);
+        assertEquals(expected, large.getTransactions());
+        for (Transaction transaction : expected)
+            assertTrue(large.contains(transaction));
+        assertFalse(large.contains(new Payment("01.01.2020", 0, "Tx-0", 0.05, 0.1)));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(account, new ColumnarAccount(transactions));
+        assertEquals(account.hashCode(), new ColumnarAccount(transactions).hashCode());
+        assertNotEquals(account, new ColumnarAccount(transactions.subList(0, 2)));
+    }
+}
@@ -0,0 +1,211 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link JournalAccountStorage}
+ * @author Tobias Schnuerpel
+ * @version 1.3
+ */
+public class JournalAccountStorageTest {
+
+    private static final String DIRECTORY = "src/test/resources/journaltest";
+    private static final Path JOURNAL = Paths.get(DIRECTORY, "journal", "transactions.journal");
+    private static final Path SNAPSHOT = Paths.get(DIRECTORY, "journal", "snapshot.json");
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() {
+        try {
+            bank = new PrivateBank("Journalbank", 0.1, 0.1,
+                    new JournalAccountStorage(DIRECTORY, TransactionJournal.SyncPolicy.BATCH, 16));
+
+            bank.createAccount("Account1");
+            bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1"));
+            bank.addTransaction("Account1", new IncomingTransfer("02.01.2020", 100, "AC1 - IncomingTransfer1", "abc", "xyz"));
+            bank.addTransaction("Account1", new OutgoingTransfer("03.01.2020", 50, "AC1 - OutgoingTransfer1"));
+
+            bank.createAccount("Account2");
+            bank.addTransaction("Account2", new Payment("01.01.2020", -100, "AC2 - Payment2"));
+        } catch (Exception e) {
+            fail("Konstruktor wirft Exception!", e);
+        }
+    }
+
+    @AfterEach
+    public void removeFiles() {
+        bank.close();
+        try {
+            Files.walk(Paths.get(DIRECTORY))
+                    .sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (Exception e) {
+            fail("Konnte Dateien nicht löschen!", e);
+        }
+        bank = null;
+    }
+
+    private PrivateBank reopen() {
+        bank.close();
+        return new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+    }
+
+    @Test
+    public void testOnlyJournalIsWritten() {
+        assertTrue(Files.exists(JOURNAL));
+        assertFalse(Files.exists(Paths.get(DIRECTORY, "Account1.json")));
+    }
+
+    @Test
+    public void testCopyOutlivesOriginal() {
+        PrivateBank copy = new PrivateBank(bank);
+        bank.close();
+        bank.close();
+        // die Kopie teilt sich das Journal und kann nach dem Schliessen der Bank weiter buchen
+        assertDoesNotThrow(() -> copy.addTransaction("Account1", new Payment("04.01.2020", 10, "AC1 - Payment2")));
+        assertEquals(4, copy.getTransactions("Account1").size());
+        assertThrows(IllegalStateException.class, () -> new PrivateBank(bank));
+        copy.close();
+
+        PrivateBank reopened = new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+        assertEquals(4, reopened.getTransactions("Account1").size());
+        assertEquals(149, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testReplay() {
+        PrivateBank reopened = reopen();
+        assertEquals(bank, reopened);
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        assertEquals(140, reopened.getAccountBalance("Account1"), 0.001);
+        assertEquals(-110, reopened.getAccountBalance("Account2"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testReplayRemoveAndDelete() {
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1", bank.getTransactions("Account1").get(0)));
+        assertDoesNotThrow(() -> bank.deleteAccount("Account2"));
+
+        PrivateBank reopened = reopen();
+        assertEquals(1, reopened.getAllAccounts().size());
+        assertEquals(2, reopened.getTransactions("Account1").size());
+        assertEquals("AC1 - IncomingTransfer1", reopened.getTransactions("Account1").get(0).getDescription());
+        reopened.close();
+    }
+
+    @Test
+    public void testTransferIsOneJournalEntry() {
+        int lines = assertDoesNotThrow(() -> Files.readAllLines(JOURNAL).size());
+        assertDoesNotThrow(() -> bank.transfer("Account1", "Account2", new Transfer("04.01.2020", 20, "Transfer1")));
+        assertEquals(lines + 1, (int) assertDoesNotThrow(() -> Files.readAllLines(JOURNAL).size()));
+
+        PrivateBank reopened = reopen();
+        assertEquals(bank, reopened);
+        assertEquals(120, reopened.getAccountBalance("Account1"), 0.001);
+        assertEquals(-90, reopened.getAccountBalance("Account2"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testImportIsOneJournalEntry() {
+        int lines = assertDoesNotThrow(() -> Files.readAllLines(JOURNAL).size());
+        ImportResult result = assertDoesNotThrow(() -> bank.importTransactions("Account2", List.of(
+                new Payment("02.01.2020", 20, "AC2 - Payment3"),
+                new Payment("01.01.2020", -100, "AC2 - Payment2"),
+                new IncomingTransfer("03.01.2020", 30, "AC2 - IncomingTransfer1"))));
+        assertEquals(2, result.getImported().size());
+        assertEquals(lines + 1, (int) assertDoesNotThrow(() -> Files.readAllLines(JOURNAL).size()));
+
+        PrivateBank reopened = reopen();
+        assertEquals(bank, reopened);
+        assertEquals(3, reopened.getTransactions("Account2").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testIncompleteLastEntryIsIgnored() {
+        bank.close();
+        assertDoesNotThrow(() -> Files.writeString(JOURNAL, "{\"op\":\"ADD\",\"acc",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND));
+
+        PrivateBank reopened = new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        assertDoesNotThrow(() -> reopened.addTransaction("Account2", new Payment("04.01.2020", 10, "AC2 - Payment3")));
+        reopened.close();
+
+        PrivateBank again = new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+        assertEquals(2, again.getTransactions("Account2").size());
+        again.close();
+    }
+
+    @Test
+    public void testSnapshotAfterEntryLimit() {
+        bank.close();
+        PrivateBank small = new PrivateBank("Journalbank", 0.1, 0.1,
+                new JournalAccountStorage(DIRECTORY, TransactionJournal.SyncPolicy.NEVER, 1, 3, 0));
+        assertDoesNotThrow(() -> small.addTransaction("Account2", new Payment("05.01.2020", 1, "AC2 - Payment4")));
+        assertDoesNotThrow(() -> small.addTransaction("Account2", new Payment("06.01.2020", 2, "AC2 - Payment5")));
+        assertDoesNotThrow(() -> small.addTransaction("Account2", new Payment("07.01.2020", 3, "AC2 - Payment6")));
+        assertTrue(Files.exists(SNAPSHOT));
+        assertFalse(Files.exists(JOURNAL));
+        assertDoesNotThrow(() -> small.addTransaction("Account2", new Payment("08.01.2020", 4, "AC2 - Payment7")));
+        small.close();
+
+        PrivateBank reopened = new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+        assertEquals(small, reopened);
+        assertEquals(5, reopened.getTransactions("Account2").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testCrashBetweenSnapshotAndJournalDeletion() {
+        bank.close();
+        Path copy = Paths.get(DIRECTORY, "journal", "old.journal");
+        assertDoesNotThrow(() -> Files.copy(JOURNAL, copy));
+        bank.compact();
+        // altes Journal wieder herstellen, als waere es vor dem Absturz nicht mehr geloescht worden
+        assertDoesNotThrow(() -> Files.move(copy, JOURNAL, StandardCopyOption.REPLACE_EXISTING));
+
+        PrivateBank reopened = new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY));
+        assertEquals(bank, reopened);
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsNotOverwritten() {
+        bank.compact();
+        bank.close();
+        assertTrue(Files.exists(SNAPSHOT));
+        byte[] corrupt = assertDoesNotThrow(() -> {
+            byte[] content = Files.readAllBytes(SNAPSHOT);
+            // Snapshot in der Mitte abschneiden
+            Files.write(SNAPSHOT, java.util.Arrays.copyOf(content, content.length / 2));
+            return Files.readAllBytes(SNAPSHOT);
+        });
+
+        assertThrows(IllegalStateException.class,
+                () -> new PrivateBank("Journalbank", 0.1, 0.1, new JournalAccountStorage(DIRECTORY)));
+
+        JournalAccountStorage storage = new JournalAccountStorage(DIRECTORY);
+        assertThrows(IllegalStateException.class, storage::readAccounts);
+        assertFalse(storage.compact(java.util.Map.of()));
+        assertFalse(storage.writeAccount("Account1", List.of()));
+        storage.close();
+        assertArrayEquals(corrupt, assertDoesNotThrow(() -> Files.readAllBytes(SNAPSHOT)));
+    }
+}
@@ -0,0 +1,135 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link MappedBank}
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public class MappedBankTest {
+
+    private static final String DIRECTORY = "src/test/resources/mappedbanktest";
+    private PrivateBank bank;
+    private MappedBank mapped;
+
+    @BeforeEach
+    public void init() {
+        bank = new PrivateBank("Testbank", 0.1, 0.2, DIRECTORY, AccountFileFormat.BINARY);
+        Random random = new Random(42);
+        assertDoesNotThrow(() -> {
+            bank.createAccount("Account1");
+            bank.createAccount("Account2");
+            bank.createAccount("Empty");
+            for (int i = 0; i < 500; i++) {
+                String date = String.format("%02d.%02d.2020", 1 + random.nextInt(28), 1 + random.nextInt(12));
+                // wenige unterschiedliche Beträge, damit es viele gleiche berechnete Beträge gibt
+                double amount = (random.nextInt(21) - 10) * 10;
+                Transaction transaction = switch (i % 3) {
+                    case 0 -> new Payment(date, amount, "Payment" + i);
+                    case 1 -> new IncomingTransfer(date, Math.abs(amount) + 1, "Incoming" + i, "Account2", "Account1");
+                    default -> new OutgoingTransfer(date, Math.abs(amount) + 1, "Outgoing" + i, "Account1", "Account2");
+                };
+                bank.addTransaction("Account1", transaction);
+            }
+            bank.addTransaction("Account2", new Payment("01.01.2021", 100, "AC2"));
+        });
+        mapped = new MappedBank("Testbank", DIRECTORY);
+    }
+
+    @AfterEach
+    public void removeFiles() throws Exception {
+        if (!Files.exists(Paths.get(DIRECTORY)))
+            return;
+        try (var paths = Files.walk(Paths.get(DIRECTORY))) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testQueriesMatchPrivateBank() {
+        assertEquals(0, mapped.getMappedAccountCount());
+        assertEquals(List.copyOf(new java.util.TreeSet<>(bank.getAllAccounts())),
+                List.copyOf(new java.util.TreeSet<>(mapped.getAllAccounts())));
+        for (String account : bank.getAllAccounts()) {
+            assertEquals(bank.getTransactions(account), mapped.getTransactions(account));
+            assertEquals(bank.getAccountBalance(account), mapped.getAccountBalance(account), 0.001);
+            for (boolean b : new boolean[] {true, false}) {
+                assertEquals(bank.getTransactionsSorted(account, b), mapped.getTransactionsSorted(account, b));
+                assertEquals(bank.getTransactionsSorted(account, b, 7, 50), mapped.getTransactionsSorted(account, b, 7, 50));
+                assertEquals(bank.getTransactionsByType(account, b), mapped.getTransactionsByType(account, b));
+                assertEquals(bank.getAccountBalanceByType(account, b), mapped.getAccountBalanceByType(account, b), 0.001);
+            }
+            LocalDate from = LocalDate.of(2020, 3, 15);
+            LocalDate to = LocalDate.of(2020, 6, 1);
+            assertEquals(bank.getTransactionsBetween(account, from, to), mapped.getTransactionsBetween(account, from, to));
+            assertEquals(List.of(), mapped.getTransactionsBetween(account, to, from));
+        }
+        assertEquals(3, mapped.getMappedAccountCount());
+
+        for (Transaction transaction : bank.getTransactions("Account1"))
+            assertTrue(mapped.containsTransaction("Account1", transaction));
+        assertFalse(mapped.containsTransaction("Account1", new Payment("01.01.2020", 0, "Unknown", 0.1, 0.2)));
+        assertFalse(mapped.containsTransaction("Unknown", bank.getTransactions("Account2").get(0)));
+        assertEquals(List.of(), mapped.getTransactions("Unknown"));
+        assertEquals(0, mapped.getAccountBalance("Unknown"));
+    }
+
+    @Test
+    public void testBalanceIsExactInCents() {
+        assertDoesNotThrow(() -> {
+            bank.createAccount("Cents");
+            for (int i = 0; i < 1000; i++)
+                bank.addTransaction("Cents", new Payment("01.01.2020", 0.1, "Cent" + i));
+        });
+        MappedBank exact = new MappedBank("Testbank", DIRECTORY);
+        // der Index speichert die Summen in Cent, nicht die aufsummierten double-Werte
+        assertEquals(9000, bank.getAccountBalanceMinor("Cents"));
+        assertEquals(bank.getAccountBalanceMinor("Cents"), exact.getAccountBalanceMinor("Cents"));
+        assertEquals(bank.getAccountBalance("Cents"), exact.getAccountBalance("Cents"));
+        assertEquals(bank.getAccountBalanceByType("Cents", true), exact.getAccountBalanceByType("Cents", true));
+        for (String account : bank.getAllAccounts())
+            assertEquals(bank.getAccountBalanceMinor(account), exact.getAccountBalanceMinor(account));
+        assertEquals(0, exact.getAccountBalanceMinor("Unknown"));
+    }
+
+    @Test
+    public void testViewsAreReadOnly() {
+        List<Transaction> transactions = mapped.getTransactions("Account1");
+        assertThrows(UnsupportedOperationException.class, () -> transactions.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> transactions.get(transactions.size()));
+        assertEquals(bank.getTransactions("Account1").subList(10, 20), transactions.subList(10, 20));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.createAccount("Account3"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> mapped.addTransaction("Account1", new Payment("01.01.2020", 1, "x")));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.deleteAccount("Account1"));
+    }
+
+    @Test
+    public void testFileWithoutIndex() {
+        // Version 1 ohne Index ist weiterhin lesbar, kann aber nicht eingeblendet werden
+        Path path = Paths.get(DIRECTORY, "Account2.bin");
+        byte[] bytes = assertDoesNotThrow(() -> Files.readAllBytes(path));
+        bytes[4] = 1;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long index = buffer.getLong(bytes.length - Long.BYTES);
+        assertDoesNotThrow(() -> Files.write(path, java.util.Arrays.copyOf(bytes, (int) index)));
+        assertEquals(bank.getTransactions("Account2"), BankFileHandler.readAccount(DIRECTORY, "Account2", AccountFileFormat.BINARY));
+
+        MappedBank legacy = new MappedBank("Testbank", DIRECTORY);
+        assertEquals(List.of(), legacy.getTransactions("Account2"));
+        assertEquals(0, legacy.getAccountBalance("Account2"));
+        assertEquals(bank.getTransactions("Account1"), legacy.getTransactions("Account1"));
+    }
+}
@@ -0,0 +1,108 @@
+import bank.*;
+import bank.exceptions.TransactionAlreadyExistException;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link MetricsRegistry} mit einer {@link PrivateBank}
+ * @author Tobias Schnuerpel
+ * @version 1.0
+ */
+public class MetricsRegistryTest {
+
+    private static final String DIRECTORY = "src/test/resources/metricstest";
+    private MetricsRegistry metrics;
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() {
+        metrics = new MetricsRegistry();
+        BankFileHandler.setMetrics(metrics);
+        try {
+            bank = new PrivateBank("Metricbank", 0.1, 0.1, new FileAccountStorage(DIRECTORY), 0, metrics);
+            bank.createAccount("Account1");
+            bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1"));
+            bank.addTransaction("Account1", new Payment("02.01.2020", 50, "AC1 - Payment2"));
+        } catch (Exception e) {
+            fail("Konstruktor wirft Exception!", e);
+        }
+    }
+
+    @AfterEach
+    public void removeFiles() {
+        BankFileHandler.setMetrics(null);
+        bank.close();
+        try {
+            Files.walk(Paths.get(DIRECTORY))
+                    .sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (Exception e) {
+            fail("Konnte Dateien nicht löschen!", e);
+        }
+        bank = null;
+    }
+
+    @Test
+    public void testBookingsAreRecorded() {
+        assertThrows(TransactionAlreadyExistException.class,
+                () -> bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1")));
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1",
+                new Payment("02.01.2020", 50, "AC1 - Payment2", 0.1, 0.1)));
+
+        assertEquals(2, metrics.getAddTransactionLatency().getCount());
+        assertEquals(1, metrics.getRemoveTransactionLatency().getCount());
+        assertEquals(1, metrics.getDuplicateRejections());
+        assertTrue(metrics.getAddTransactionLatency().getValueAtPercentile(50) > 0);
+        // createAccount, zwei Buchungen und eine Entfernung schreiben jeweils die Datei
+        assertEquals(4, metrics.getFileWriteLatency().getCount());
+        assertTrue(metrics.getBytesWritten() > 0);
+        assertEquals(1, metrics.getBankLoadLatency().getCount());
+    }
+
+    @Test
+    public void testLoadingIsRecorded() {
+        bank.close();
+        PrivateBank lazy = new PrivateBank("Metricbank", 0.1, 0.1, new FileAccountStorage(DIRECTORY), 1, metrics);
+        assertEquals(2, lazy.getTransactions("Account1").size());
+        assertEquals(1, metrics.getAccountLoadLatency().getCount());
+        assertEquals(1, metrics.getAccountSizes().getCount());
+        assertEquals(2, metrics.getAccountSizes().getMax());
+        assertEquals(1, metrics.getFileReadLatency().getCount());
+        assertEquals(assertDoesNotThrow(() -> Files.size(Paths.get(DIRECTORY, "Account1.json"))),
+                metrics.getBytesRead());
+        assertEquals(2, metrics.getBankLoadLatency().getCount());
+        lazy.close();
+    }
+
+    @Test
+    public void testExport() {
+        String text = metrics.export();
+        assertTrue(text.contains("# TYPE bank_add_transaction_seconds summary\n"));
+        assertTrue(text.contains("bank_add_transaction_seconds{quantile=\"0.99\"} "));
+        assertTrue(text.contains("bank_add_transaction_seconds_count 2\n"));
+        assertTrue(text.contains("# TYPE bank_duplicate_rejections_total counter\nbank_duplicate_rejections_total 0\n"));
+        // jede Zeile ist ein Kommentar oder "name[{labels}] wert"
+        for (String line : text.split("\n"))
+            assertTrue(line.startsWith("# ") || line.matches("[a-z_]+(\\{quantile=\"[0-9.]+\"})? [0-9.E-]+"), line);
+
+        String path = DIRECTORY + "/metrics/bank.prom";
+        assertTrue(metrics.writeTo(path));
+        assertEquals(metrics.export(), assertDoesNotThrow(() -> Files.readString(Paths.get(path))));
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        PrivateBank plain = new PrivateBank("Metricbank", 0.1, 0.1, DIRECTORY);
+        assertSame(BankMetrics.NONE, plain.getMetrics());
+        assertFalse(plain.getMetrics().isEnabled());
+        plain.close();
+    }
+}
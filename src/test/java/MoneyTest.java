@@ -0,0 +1,68 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link Money}
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public class MoneyTest {
+
+    @Test
+    public void testToMinor() {
+        assertEquals(10, Money.toMinor(0.1));
+        assertEquals(-12345, Money.toMinor(-123.45));
+        // kaufmaennisch auf die naechste gerade Zahl
+        assertEquals(12, Money.toMinor(0.125));
+        assertEquals(14, Money.toMinor(0.135));
+        assertEquals(100, Money.toMinor(1.005));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(1e30));
+    }
+
+    @Test
+    public void testIsValid() {
+        assertTrue(Money.isValid(0));
+        assertTrue(Money.isValid(-Math.nextDown(Money.MAX_AMOUNT)));
+        assertFalse(Money.isValid(Money.MAX_AMOUNT));
+        assertFalse(Money.isValid(Double.NaN));
+        assertFalse(Money.isValid(Double.NEGATIVE_INFINITY));
+        // jeder gueltige Betrag passt in Cent auch verdoppelt noch in ein long
+        assertDoesNotThrow(() -> Math.multiplyExact(2, Money.toMinor(Math.nextDown(Money.MAX_AMOUNT))));
+    }
+
+    @Test
+    public void testWithInterest() {
+        assertEquals(9000, Money.withInterest(10000, -0.1));
+        assertEquals(11000, Money.withInterest(10000, 0.1));
+        assertEquals(316, Money.withInterest(333, -0.05));
+        assertEquals(0, Money.withInterest(1, -0.5));
+        assertEquals(2, Money.withInterest(3, -0.5));
+        assertEquals(0, Money.withInterest(12345, -1));
+        assertEquals(-12345, Money.withInterest(-12345, 0));
+    }
+
+    @Test
+    public void testSums() {
+        long[] values = {100, -250, 0, 75, -1, 999};
+        assertEquals(923, Money.sum(values, values.length));
+        assertEquals(1174, Money.sumCredits(values, values.length));
+        assertEquals(-150, Money.sum(values, 2));
+        assertEquals(100, Money.sumCredits(values, 2));
+        assertEquals(0, Money.sum(values, 0));
+    }
+
+    @Test
+    public void testCalculateMinor() {
+        Payment deposit = new Payment("01.01.2020", 100.05, "Deposit", 0.05, 0.1);
+        assertEquals(9505, deposit.calculateMinor());
+        deposit.setIncomingInterest(0);
+        assertEquals(10005, deposit.calculateMinor());
+        Payment withdrawal = new Payment("01.01.2020", -100.05, "Withdrawal", 0.05, 0.1);
+        assertEquals(-11006, withdrawal.calculateMinor());
+        assertEquals(1234, new IncomingTransfer("01.01.2020", 12.34, "In").calculateMinor());
+        assertEquals(-1234, new OutgoingTransfer("01.01.2020", 12.34, "Out").calculateMinor());
+    }
+}
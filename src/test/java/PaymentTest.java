@@ -1,11 +1,17 @@
+import bank.Money;
 import bank.Payment;
+import bank.TransactionDate;
+import bank.exceptions.TransactionAttributeException;
 import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testet die Klasse {@link Payment}
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 4.5
  */
 public class PaymentTest {
 
@@ -47,12 +53,71 @@ public class PaymentTest {
         assertEquals(p1, p2);
     }
 
+    @Test
+    public void testHashCode() {
+        Payment p3 = new Payment(p1);
+        assertEquals(p1.hashCode(), p3.hashCode());
+        // die Zinssaetze koennen sich durch eine Neubewertung aendern und gehen daher nicht in den Hashwert ein
+        p3.setIncomingInterest(0.5);
+        assertNotEquals(p1, p3);
+        assertEquals(p1.hashCode(), p3.hashCode());
+
+        // 0.0 == -0.0, daher muss auch der Hashwert gleich sein
+        Payment zero = new Payment("01.01.2020", 0.0, "Test");
+        Payment negativeZero = new Payment("01.01.2020", -0.0, "Test");
+        assertEquals(zero, negativeZero);
+        assertEquals(zero.hashCode(), negativeZero.hashCode());
+    }
+
+    @Test
+    public void testDate() {
+        assertEquals(LocalDate.of(2020, 1, 1), p1.getLocalDate());
+        assertEquals(LocalDate.of(2020, 1, 1).toEpochDay(), p1.getEpochDay());
+        p1.setDate("29.02.2024");
+        assertEquals(LocalDate.of(2024, 2, 29), p1.getLocalDate());
+        assertNotEquals(p1, p2);
+        for (String invalid : new String[] {"31.02.2020", "19.121.2022", "1.1.2020", "01.01.20", "Mustermann", null,
+                "00.01.2020", "01-01-2020", "+1.01.2020", "01.01.-020", "01.13.2020"})
+            assertThrows(TransactionAttributeException.class, () -> new Payment(invalid, 1, "Test"));
+        assertThrows(TransactionAttributeException.class, () -> p1.setDate("30.02.2020"));
+        assertEquals("29.02.2024", p1.getDate());
+        assertEquals("31.12.1969", TransactionDate.format(-1));
+        assertEquals(-1, TransactionDate.parse("31.12.1969"));
+    }
+
+    @Test
+    public void testInvalidAmount() {
+        double limit = Money.MAX_AMOUNT;
+        for (double invalid : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, limit,
+                -limit, Math.nextUp(limit), 1e17, -1e300}) {
+            assertThrows(TransactionAttributeException.class, () -> new Payment("01.01.2020", invalid, "Test"));
+            assertThrows(TransactionAttributeException.class, () -> p1.setAmount(invalid));
+        }
+        assertEquals(100, p1.getAmount());
+        assertEquals(9500, p1.calculateMinor());
+        // knapp unter der Schranke, auch mit 100 % Zinsen noch exakt in Cent
+        Payment largest = new Payment("01.01.2020", -Math.nextDown(limit), "Test", 0, 1);
+        assertEquals(2 * Money.toMinor(-Math.nextDown(limit)), largest.calculateMinor());
+    }
+
     @Test
     public void testCalculate() {
         assertEquals(95, p1.calculate(), 0.001);
         assertEquals(-110, p2.calculate(), 0.001);
     }
 
+    @Test
+    public void testCalculateAfterChange() {
+        p1.setIncomingInterest(0.5);
+        assertEquals(50, p1.calculate(), 0.001);
+        assertEquals(5000, p1.calculateMinor());
+        p1.setAmount(-100);
+        assertEquals(-110, p1.calculate(), 0.001);
+        p1.setOutgoingInterest(0);
+        assertEquals(-100, p1.calculate(), 0.001);
+        assertEquals(-10000, p1.calculateMinor());
+    }
+
     @Test
     public void testToString() {
         String expected =
@@ -2,6 +2,7 @@ import bank.*;
 import bank.exceptions.AccountAlreadyExistsException;
 import bank.exceptions.AccountDoesNotExistException;
 import bank.exceptions.TransactionAlreadyExistException;
+import bank.exceptions.TransactionAttributeException;
 import bank.exceptions.TransactionDoesNotExistException;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -11,15 +12,26 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testet die Klasse {@link PrivateBank}
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 5.0
  */
 public class PrivateBankTest {
 
@@ -121,6 +133,60 @@ public class PrivateBankTest {
         assertFalse(Files.exists(Paths.get(DIRECTORY, accountName + ".json")));
     }
 
+    @Test
+    public void testCreateAccountIsAllOrNothing() {
+        List<Transaction> transactions = List.of(
+                new Payment("01.01.2020", 100, "AC4 - Payment1"),
+                new Payment("02.01.2020", 50, "AC4 - Payment2"),
+                new Payment("01.01.2020", 100, "AC4 - Payment1"));
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.createAccount("Account4", transactions));
+        assertFalse(bank.getAllAccounts().contains("Account4"));
+        assertFalse(Files.exists(Paths.get(DIRECTORY, "Account4.json")));
+
+        assertDoesNotThrow(() -> bank.createAccount("Account4", transactions.subList(0, 2)));
+        assertEquals(2, new PrivateBank(bank).getTransactions("Account4").size());
+    }
+
+    @Test
+    public void testImportTransactions() {
+        int[] writes = {0};
+        FileAccountStorage storage = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public boolean writeAccount(String account, Collection<Transaction> transactions) {
+                writes[0]++;
+                return super.writeAccount(account, transactions);
+            }
+
+            @Override
+            public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+                writes[0]++;
+                return super.addTransaction(account, transaction, transactions);
+            }
+        };
+        PrivateBank counting = new PrivateBank("Testbank", 0.1, 0.1, storage);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            transactions.add(new Payment("05.01.2020", i + 1, "AC1 - Import" + i, 0.5, 0.5));
+        transactions.add(5, new Payment("05.01.2020", 1, "AC1 - Import0"));
+        transactions.add(null);
+        transactions.add(new Payment("01.01.2020", 100, "AC1 - Payment1"));
+
+        ImportResult result = assertDoesNotThrow(() -> counting.importTransactions("Account1", transactions));
+        assertEquals(1, writes[0]);
+        assertEquals(100, result.getImported().size());
+        assertEquals(List.of(5, 101, 102),
+                result.getRejections().stream().map(ImportResult.Rejection::getIndex).toList());
+        assertInstanceOf(TransactionAlreadyExistException.class, result.getRejections().get(0).getCause());
+        assertInstanceOf(TransactionAttributeException.class, result.getRejections().get(1).getCause());
+        assertFalse(result.isComplete());
+
+        // die Zinsen der Bank werden übernommen und das Konto ist vollständig gespeichert
+        assertEquals(0.1, ((Payment) result.getImported().get(0)).getIncomingInterest());
+        assertEquals(103, new PrivateBank(bank).getTransactions("Account1").size());
+        assertEquals(90 + 5050 * 0.9, counting.getAccountBalance("Account1"), 0.001);
+        assertThrows(AccountDoesNotExistException.class, () -> counting.importTransactions("Unbekannt", transactions));
+    }
+
     @Test
     public void testAddTransaction() {
         assertDoesNotThrow(() -> bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment5")));
@@ -144,6 +210,17 @@ public class PrivateBankTest {
         assertTrue(Files.exists(Paths.get(DIRECTORY, "Account1.json")));
     }
 
+    @Test
+    public void testRemoveTransactionKeepsOrder() {
+        Transaction second = bank.getTransactions("Account1").get(1);
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1", second));
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", second));
+        List<Transaction> transactions = bank.getTransactions("Account1");
+        assertEquals("AC1 - Payment1", transactions.get(0).getDescription());
+        assertEquals("AC1 - OutgoingTransfer1", transactions.get(1).getDescription());
+        assertEquals("AC1 - IncomingTransfer1", transactions.get(2).getDescription());
+    }
+
     @Test
     public void testContainsTransaction() {
         List<Transaction> transactions = bank.getTransactions("Account1");
@@ -171,6 +248,412 @@ public class PrivateBankTest {
         assertEquals(0, bank.getAccountBalance("Unbekannt"));
     }
 
+    @Test
+    public void testPartitionsAreMaintained() {
+        assertEquals(List.of(bank.getTransactions("Account1").get(0), bank.getTransactions("Account1").get(1)),
+                bank.getTransactionsByType("Account1", true));
+        assertEquals(190, bank.getAccountBalanceByType("Account1", true), 0.001);
+        assertEquals(-100, bank.getAccountBalanceByType("Account1", false), 0.001);
+
+        // nach dem ersten Aufruf werden die Partitionen bei jeder Änderung mitgeführt
+        Payment debit = new Payment("04.01.2020", -50, "AC1 - Payment6");
+        Payment zero = new Payment("05.01.2020", 0, "AC1 - Payment7");
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", debit));
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", zero));
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1", bank.getTransactions("Account1").get(0)));
+        List<Transaction> all = bank.getTransactions("Account1");
+        assertEquals(List.of(all.get(0), all.get(3)), bank.getTransactionsByType("Account1", true));
+        assertEquals(List.of(all.get(1), all.get(2)), bank.getTransactionsByType("Account1", false));
+        assertEquals(100, bank.getAccountBalanceByType("Account1", true), 0.001);
+        assertEquals(-155, bank.getAccountBalanceByType("Account1", false), 0.001);
+        assertEquals(bank.getAccountBalance("Account1"),
+                bank.getAccountBalanceByType("Account1", true) + bank.getAccountBalanceByType("Account1", false), 0.001);
+
+        // die Rückgabe ist eine Kopie
+        bank.getTransactionsByType("Account1", true).clear();
+        assertEquals(2, bank.getTransactionsByType("Account1", true).size());
+        assertEquals(0, bank.getAccountBalanceByType("Unbekannt", true));
+    }
+
+    @Test
+    public void testSortedViewsAreMaintained() {
+        List<Transaction> transactions = new ArrayList<>();
+        double[] amounts = {5, -3, 5, 0, -3, 7, 5, -0.0, 12};
+        for (int i = 0; i < amounts.length; i++)
+            transactions.add(new IncomingTransfer("01.01.2020", Math.abs(amounts[i]) + 1, "AC4 - " + i));
+        for (int i = 0; i < amounts.length; i++)
+            transactions.add(new Payment("02.01.2020", amounts[i], "AC4 - Payment" + i));
+        assertDoesNotThrow(() -> bank.createAccount("Account4", transactions.subList(0, 10)));
+        assertEquals(expectedSorted(bank.getTransactions("Account4"), true), bank.getTransactionsSorted("Account4", true));
+        assertEquals(expectedSorted(bank.getTransactions("Account4"), false), bank.getTransactionsSorted("Account4", false));
+
+        // nach dem ersten Aufruf wird der Index bei jeder Änderung mitgeführt
+        for (Transaction transaction : transactions.subList(10, transactions.size()))
+            assertDoesNotThrow(() -> bank.addTransaction("Account4", transaction));
+        assertDoesNotThrow(() -> bank.removeTransaction("Account4", transactions.get(0)));
+        assertDoesNotThrow(() -> bank.removeTransaction("Account4", transactions.get(12)));
+        for (boolean asc : new boolean[] {true, false}) {
+            List<Transaction> expected = expectedSorted(bank.getTransactions("Account4"), asc);
+            assertEquals(expected, bank.getTransactionsSorted("Account4", asc));
+            for (int offset = 0; offset <= expected.size(); offset++) {
+                for (int limit = 0; limit <= 3; limit++) {
+                    int end = Math.min(expected.size(), offset + limit);
+                    assertEquals(expected.subList(offset, end), bank.getTransactionsSorted("Account4", asc, offset, limit));
+                }
+            }
+        }
+        assertTrue(bank.getTransactionsSorted("Account4", true, 100, 10).isEmpty());
+        assertTrue(bank.getTransactionsSorted("Unbekannt", true, 0, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bank.getTransactionsSorted("Account4", true, -1, 10));
+    }
+
+    @Test
+    public void testSortedLargeAccount() {
+        // mehr Transaktionen als ein Abschnitt von KeySort, mit vielen gleichen Beträgen
+        List<Transaction> transactions = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++)
+            transactions.add(new Payment("01.01.2020", random.nextInt(41) - 20, "AC4 - Payment" + i));
+        assertDoesNotThrow(() -> bank.createAccount("Account4", transactions));
+        assertEquals(expectedSorted(transactions, true), bank.getTransactionsSorted("Account4", true));
+        assertEquals(expectedSorted(transactions, false), bank.getTransactionsSorted("Account4", false));
+    }
+
+    @Test
+    public void testIndexesAfterManyChanges() {
+        // nach dem Aufbau werden beide Indizes ueber viele Buchungen und Loeschungen mitgefuehrt
+        Random random = new Random(7);
+        List<Transaction> pool = new ArrayList<>();
+        for (int i = 0; i < 400; i++)
+            pool.add(new Payment(String.format("%02d.01.2020", 1 + random.nextInt(28)), random.nextInt(21) - 10,
+                    "AC4 - Payment" + i));
+        assertDoesNotThrow(() -> bank.createAccount("Account4", pool.subList(0, 100)));
+        assertEquals(expectedSorted(pool.subList(0, 100), false), bank.getTransactionsSorted("Account4", false));
+        assertEquals(100, bank.getTransactionsBetween("Account4", LocalDate.MIN, LocalDate.MAX).size());
+
+        for (int step = 0; step < 1000; step++) {
+            Transaction transaction = pool.get(random.nextInt(pool.size()));
+            if (bank.containsTransaction("Account4", transaction))
+                assertDoesNotThrow(() -> bank.removeTransaction("Account4", transaction));
+            else
+                assertDoesNotThrow(() -> bank.addTransaction("Account4", transaction));
+            if (step % 100 != 99)
+                continue;
+            List<Transaction> all = bank.getTransactions("Account4");
+            for (boolean asc : new boolean[] {true, false}) {
+                List<Transaction> expected = expectedSorted(all, asc);
+                assertEquals(expected, bank.getTransactionsSorted("Account4", asc));
+                int offset = random.nextInt(expected.size() + 1);
+                assertEquals(expected.subList(offset, Math.min(expected.size(), offset + 17)),
+                        bank.getTransactionsSorted("Account4", asc, offset, 17));
+            }
+            LocalDate from = LocalDate.of(2020, 1, 1 + random.nextInt(28));
+            LocalDate to = from.plusDays(random.nextInt(10));
+            List<Transaction> between = new ArrayList<>(all);
+            between.sort(Comparator.comparingInt(Transaction::getEpochDay));
+            between.removeIf(t -> t.getLocalDate().isBefore(from) || t.getLocalDate().isAfter(to));
+            assertEquals(between, bank.getTransactionsBetween("Account4", from, to));
+        }
+    }
+
+    /**
+     * Sortiert die Transaktionen wie bisher mit einer stabilen Sortierung nach berechnetem Betrag.
+     */
+    private static List<Transaction> expectedSorted(List<Transaction> transactions, boolean asc) {
+        List<Transaction> sorted = new ArrayList<>(transactions);
+        Comparator<Transaction> comparator = Comparator.comparingDouble(Transaction::calculate);
+        sorted.sort(asc ? comparator : comparator.reversed());
+        return sorted;
+    }
+
+    @Test
+    public void testGetTransactionsBetween() {
+        Payment late = new Payment("05.01.2020", 10, "AC1 - Payment7");
+        Payment early = new Payment("02.01.2020", 20, "AC1 - Payment8");
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", late));
+        assertEquals(List.of(late), bank.getTransactionsBetween("Account1",
+                LocalDate.of(2020, 1, 4), LocalDate.of(2020, 12, 31)));
+
+        // der Index wird nach der ersten Abfrage mitgeführt
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", early));
+        List<Transaction> all = bank.getTransactions("Account1");
+        assertEquals(List.of(all.get(0), all.get(1), early, all.get(2), late),
+                bank.getTransactionsBetween("Account1", LocalDate.MIN, LocalDate.MAX));
+        assertEquals(List.of(all.get(1), early), bank.getTransactionsBetween("Account1",
+                LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 2)));
+
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1", early));
+        assertEquals(List.of(all.get(1)), bank.getTransactionsBetween("Account1",
+                LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 2)));
+        assertTrue(bank.getTransactionsBetween("Account1",
+                LocalDate.of(2020, 1, 3), LocalDate.of(2020, 1, 1)).isEmpty());
+        assertTrue(bank.getTransactionsBetween("Unbekannt", LocalDate.MIN, LocalDate.MAX).isEmpty());
+    }
+
+    @Test
+    public void testAccountBalanceIsMaintained() {
+        Payment payment = new Payment("04.01.2020", -50, "AC1 - Payment6");
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", payment));
+        assertEquals(35, bank.getAccountBalance("Account1"), 0.001);
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1", payment));
+        assertEquals(90, bank.getAccountBalance("Account1"), 0.001);
+
+        assertDoesNotThrow(() -> bank.createAccount("Account4", List.of(
+                new Payment("01.01.2020", 200, "AC4 - Payment7"),
+                new IncomingTransfer("02.01.2020", 10, "AC4 - IncomingTransfer2"))));
+        assertEquals(190, bank.getAccountBalance("Account4"), 0.001);
+        assertTrue(bank.auditBalances().isEmpty());
+
+        // ein neu geladenes Konto startet mit dem berechneten Kontostand
+        PrivateBank reloaded = new PrivateBank(bank);
+        assertEquals(190, reloaded.getAccountBalance("Account4"), 0.001);
+    }
+
+    @Test
+    public void testConcurrentBookings() throws Exception {
+        int threads = 8;
+        int bookings = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String own = "Thread" + t;
+            bank.createAccount(own);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < bookings; i++) {
+                    bank.addTransaction(own, new IncomingTransfer("01.01.2020", 1, own + " - " + i));
+                    bank.addTransaction("Account2", new IncomingTransfer("01.01.2020", 1, own + " - " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        for (int t = 0; t < threads; t++) {
+            assertEquals(bookings, bank.getTransactions("Thread" + t).size());
+            assertEquals(bookings, bank.getAccountBalance("Thread" + t), 0.001);
+        }
+        assertEquals(2 + threads * bookings, bank.getTransactions("Account2").size());
+        assertEquals(180 + threads * bookings, bank.getAccountBalance("Account2"), 0.001);
+        assertTrue(bank.auditBalances().isEmpty());
+
+        // auch die Datei des gemeinsamen Kontos muss alle Buchungen enthalten
+        assertEquals(2 + threads * bookings, new PrivateBank(bank).getTransactions("Account2").size());
+    }
+
+    @Test
+    public void testTransfer() {
+        double before1 = bank.getAccountBalance("Account1");
+        double before2 = bank.getAccountBalance("Account2");
+        assertDoesNotThrow(() -> bank.transfer("Account1", "Account2", new Transfer("04.01.2020", 30, "Miete")));
+
+        assertEquals(before1 - 30, bank.getAccountBalance("Account1"), 0.001);
+        assertEquals(before2 + 30, bank.getAccountBalance("Account2"), 0.001);
+        Transaction outgoing = bank.getTransactions("Account1").get(3);
+        Transaction incoming = bank.getTransactions("Account2").get(2);
+        assertInstanceOf(OutgoingTransfer.class, outgoing);
+        assertInstanceOf(IncomingTransfer.class, incoming);
+        assertEquals("Account1", ((Transfer) incoming).getSender());
+        assertEquals("Account2", ((Transfer) outgoing).getRecipient());
+
+        // beide Buchungen muessen auch gespeichert sein
+        PrivateBank reloaded = new PrivateBank(bank);
+        assertEquals(4, reloaded.getTransactions("Account1").size());
+        assertEquals(3, reloaded.getTransactions("Account2").size());
+    }
+
+    @Test
+    public void testTransferIsAllOrNothing() {
+        Transfer transfer = new Transfer("04.01.2020", 30, "Miete");
+        IncomingTransfer incoming = new IncomingTransfer(transfer);
+        incoming.setSender("Account1");
+        incoming.setRecipient("Account2");
+        assertDoesNotThrow(() -> bank.addTransaction("Account2", incoming));
+
+        // die Buchung beim Empfaenger existiert bereits, daher darf auch beim Sender nichts gebucht werden
+        assertThrows(TransactionAlreadyExistException.class, () -> bank.transfer("Account1", "Account2", transfer));
+        assertEquals(3, bank.getTransactions("Account1").size());
+        assertEquals(3, bank.getTransactions("Account2").size());
+
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Account1", "Unknown", transfer));
+        assertThrows(AccountDoesNotExistException.class, () -> bank.transfer("Unknown", "Account1", transfer));
+        assertThrows(TransactionAttributeException.class, () -> bank.transfer("Account1", "Account1", transfer));
+        assertEquals(3, bank.getTransactions("Account1").size());
+    }
+
+    @Test
+    public void testTransferIsKeptWhenStorageFails() {
+        boolean[] failWrites = {false};
+        FileAccountStorage storage = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public boolean addTransfer(String sender, Transaction outgoing, Collection<Transaction> senderTransactions,
+                                       String recipient, Transaction incoming, Collection<Transaction> recipientTransactions) {
+                return !failWrites[0] && super.addTransfer(sender, outgoing, senderTransactions,
+                        recipient, incoming, recipientTransactions);
+            }
+
+            @Override
+            public boolean writeAccount(String account, Collection<Transaction> transactions) {
+                return !failWrites[0] && super.writeAccount(account, transactions);
+            }
+        };
+        PrivateBank lazy = new PrivateBank("Testbank", 0.1, 0.1, storage, 1);
+        failWrites[0] = true;
+        assertDoesNotThrow(() -> lazy.transfer("Account1", "Account2", new Transfer("04.01.2020", 30, "Miete")));
+
+        // beide Buchungen bleiben im Speicher, beide Konten sind noch nicht gespeichert
+        assertEquals(4, lazy.getTransactions("Account1").size());
+        assertEquals(3, lazy.getTransactions("Account2").size());
+        assertEquals(2, lazy.getLoadedAccountCount());
+        assertEquals(3, new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY).getTransactions("Account1").size());
+
+        // beim Verwerfen werden beide Konten vollstaendig geschrieben
+        failWrites[0] = false;
+        lazy.getTransactions("Account3");
+        assertEquals(0, lazy.getLoadedAccountCount());
+        PrivateBank reloaded = new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY);
+        assertEquals(4, reloaded.getTransactions("Account1").size());
+        assertEquals(3, reloaded.getTransactions("Account2").size());
+    }
+
+    @Test
+    public void testConcurrentTransfersDoNotDeadlock() throws Exception {
+        String[] accounts = {"Account1", "Account2", "Account3"};
+        double total = 0;
+        for (String account : accounts)
+            total += bank.getAccountBalance(account);
+        int threads = 6;
+        int transfers = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transfers; i++) {
+                    // jeder Thread ueberweist in beide Richtungen zwischen wechselnden Konten
+                    String sender = accounts[(thread + i) % accounts.length];
+                    String recipient = accounts[(thread + i + 1 + thread % 2) % accounts.length];
+                    bank.transfer(sender, recipient, new Transfer("05.01.2020", 1, "T" + thread + " - " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        double after = 0;
+        int count = 0;
+        for (String account : accounts) {
+            after += bank.getAccountBalance(account);
+            count += bank.getTransactions(account).size();
+        }
+        assertEquals(total, after, 0.001);
+        assertEquals(7 + 2 * threads * transfers, count);
+        assertTrue(bank.auditBalances().isEmpty());
+    }
+
+    @Test
+    public void testLazyLoading() {
+        PrivateBank lazy = new PrivateBank("Testbank", 0.1, 0.1, new FileAccountStorage(DIRECTORY), 3);
+        assertEquals(0, lazy.getLoadedAccountCount());
+        assertEquals(3, lazy.getAllAccounts().size());
+
+        // jedes Konto wird beim ersten Zugriff geladen, aeltere Konten werden dabei verworfen
+        assertEquals(3, lazy.getTransactions("Account1").size());
+        assertEquals(2, lazy.getTransactions("Account2").size());
+        assertEquals(2, lazy.getTransactions("Account3").size());
+        assertEquals(1, lazy.getLoadedAccountCount());
+        assertEquals(bank.getAccountBalance("Account1"), lazy.getAccountBalance("Account1"), 0.001);
+        assertEquals(1, lazy.getLoadedAccountCount());
+
+        // Aenderungen an einem verworfenen Konto gehen nicht verloren
+        assertDoesNotThrow(() -> lazy.addTransaction("Account1", new Payment("04.01.2020", 10, "AC1 - Payment5")));
+        assertEquals(2, lazy.getTransactions("Account2").size());
+        assertEquals(4, lazy.getTransactions("Account1").size());
+        assertEquals(bank.getAccountBalance("Account1") + 9, lazy.getAccountBalance("Account1"), 0.001);
+        assertEquals(new PrivateBank(lazy), lazy);
+
+        assertThrows(IllegalArgumentException.class, () -> new PrivateBank("Testbank", 0.1, 0.1,
+                new JournalAccountStorage("src/test/resources/journaltest"), 3));
+    }
+
+    @Test
+    public void testBinaryFormat() {
+        PrivateBank binary = new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY, AccountFileFormat.BINARY);
+        assertEquals(List.of(), binary.getAllAccounts());
+        for (String account : bank.getAllAccounts())
+            assertDoesNotThrow(() -> binary.createAccount(account, bank.getTransactions(account)));
+        assertDoesNotThrow(() -> binary.addTransaction("Account1", new Payment("04.01.2020", 10, "AC1 - Payment5")));
+
+        PrivateBank reloaded = new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY, AccountFileFormat.BINARY);
+        assertEquals(binary, reloaded);
+        assertEquals(bank.getAccountBalance("Account1") + 9, reloaded.getAccountBalance("Account1"), 0.001);
+        // die JSON-Dateien bleiben unverändert
+        assertEquals(bank, new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY));
+    }
+
+    @Test
+    public void testCompactDoesNotLoadEvictedAccounts() {
+        int[] reads = {0};
+        Map<String, Collection<Transaction>> compacted = new HashMap<>();
+        FileAccountStorage storage = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public List<Transaction> readAccount(String account) {
+                reads[0]++;
+                return super.readAccount(account);
+            }
+
+            @Override
+            public boolean compact(Map<String, ? extends Collection<Transaction>> accounts) {
+                compacted.putAll(accounts);
+                return true;
+            }
+        };
+        PrivateBank lazy = new PrivateBank("Testbank", 0.1, 0.1, storage, 3);
+        assertEquals(3, lazy.getTransactions("Account1").size());
+        assertEquals(1, reads[0]);
+
+        // nur das geladene Konto wird uebergeben, die verworfenen Konten werden nicht gelesen
+        lazy.compact();
+        assertEquals(1, reads[0]);
+        assertEquals(1, lazy.getLoadedAccountCount());
+        assertEquals(Set.of("Account1"), compacted.keySet());
+        assertEquals(2, lazy.getTransactions("Account2").size());
+        assertEquals(2, reads[0]);
+    }
+
+    @Test
+    public void testDirtyAccountIsWrittenBeforeEviction() {
+        boolean[] failWrites = {false};
+        FileAccountStorage storage = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public boolean writeAccount(String account, Collection<Transaction> transactions) {
+                return !failWrites[0] && super.writeAccount(account, transactions);
+            }
+
+            @Override
+            public boolean addTransaction(String account, Transaction transaction, Collection<Transaction> transactions) {
+                return !failWrites[0] && super.addTransaction(account, transaction, transactions);
+            }
+        };
+        PrivateBank lazy = new PrivateBank("Testbank", 0.1, 0.1, storage, 1);
+        failWrites[0] = true;
+        assertDoesNotThrow(() -> lazy.addTransaction("Account1", new Payment("04.01.2020", 10, "AC1 - Payment5")));
+
+        // das geaenderte Konto kann nicht gespeichert werden und bleibt deshalb geladen, Account2 wird verworfen
+        lazy.getTransactions("Account2");
+        assertEquals(1, lazy.getLoadedAccountCount());
+        assertEquals(3, new PrivateBank(bank).getTransactions("Account1").size());
+
+        failWrites[0] = false;
+        lazy.getTransactions("Account3");
+        assertEquals(0, lazy.getLoadedAccountCount());
+        assertEquals(4, new PrivateBank(bank).getTransactions("Account1").size());
+        assertEquals(4, lazy.getTransactions("Account1").size());
+    }
+
     @Test
     public void testGetTransactions() {
         assertEquals(3, bank.getTransactions("Account1").size());
@@ -220,6 +703,21 @@ public class PrivateBankTest {
         assertEquals(0, bank.getTransactionsByType("Unbekannt", true).size());
     }
 
+    @Test
+    public void testExactBalance() {
+        // 0.1 ist als double nicht exakt darstellbar, in Cent aber schon
+        List<Transaction> transfers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            transfers.add(new IncomingTransfer("04.01.2020", 0.1, "AC4 - IncomingTransfer" + i));
+        assertDoesNotThrow(() -> bank.createAccount("Account4", transfers));
+        assertEquals(10000, bank.getAccountBalanceMinor("Account4"));
+        assertEquals(100.0, bank.getAccountBalance("Account4"));
+        for (Transaction transfer : transfers.subList(0, 999))
+            assertDoesNotThrow(() -> bank.removeTransaction("Account4", transfer));
+        assertEquals(0.1, bank.getAccountBalance("Account4"));
+        assertTrue(bank.auditBalances().isEmpty());
+    }
+
     @Test
     public void testToString() {
         String expected = "PrivateBank{name='Testbank', incomingInterest=0.1, outgoingInterest=0.1, directoryName='" + DIRECTORY + "'}";
@@ -0,0 +1,228 @@
+import bank.*;
+import bank.exceptions.TransactionAlreadyExistException;
+import bank.exceptions.TransactionAttributeException;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link RateTable} und die Neubewertung der Zinssätze einer {@link PrivateBank}
+ * @author Tobias Schnuerpel
+ * @version 1.1
+ */
+public class RateTableTest {
+
+    private static final String DIRECTORY = "src/test/resources/ratetest";
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() {
+        try {
+            bank = new PrivateBank("Ratebank", 0.1, 0.2, DIRECTORY);
+            bank.createAccount("Account1");
+            bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1"));
+            bank.addTransaction("Account1", new Payment("02.01.2020", -100, "AC1 - Payment2"));
+            bank.addTransaction("Account1", new Transfer("03.01.2020", 50, "AC1 - Transfer1", "Account1", "abc"));
+        } catch (Exception e) {
+            fail("Konstruktor wirft Exception!", e);
+        }
+    }
+
+    @AfterEach
+    public void removeFiles() {
+        bank.close();
+        try {
+            Files.walk(Paths.get(DIRECTORY))
+                    .sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (Exception e) {
+            fail("Konnte Dateien nicht löschen!", e);
+        }
+        bank = null;
+    }
+
+    @Test
+    public void testFileStoresRateVersion() {
+        String json = assertDoesNotThrow(() -> Files.readString(Paths.get(DIRECTORY, "Account1.json")));
+        assertTrue(json.contains("\"rateVersion\": 0"));
+        assertFalse(json.contains("incomingInterest"));
+        assertTrue(Files.exists(Paths.get(DIRECTORY, "rates", "rates.json")));
+
+        RateTable rates = BankFileHandler.readRates(DIRECTORY);
+        assertEquals(1, rates.size());
+        assertEquals(0.1, rates.getIncomingInterest(0));
+        assertEquals(0.2, rates.getOutgoingInterest(0));
+        // beim Lesen werden die Zahlungen mit ihrer Version verknuepft
+        assertEquals(bank.getTransactions("Account1"), BankFileHandler.readAccount(DIRECTORY, "Account1"));
+    }
+
+    @Test
+    public void testNewRatesOnlyApplyToNewPayments() {
+        assertDoesNotThrow(() -> bank.setIncomingInterest(0.5));
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", new Payment("04.01.2020", 100, "AC1 - Payment3")));
+
+        List<Transaction> transactions = bank.getTransactions("Account1");
+        assertEquals(0, ((Payment) transactions.get(0)).getRateVersion());
+        assertEquals(0.1, ((Payment) transactions.get(0)).getIncomingInterest());
+        assertEquals(1, ((Payment) transactions.get(3)).getRateVersion());
+        assertEquals(0.5, ((Payment) transactions.get(3)).getIncomingInterest());
+        assertEquals(90 - 120 + 50 + 50, bank.getAccountBalance("Account1"), 0.001);
+    }
+
+    @Test
+    public void testRepriceAllPayments() {
+        assertDoesNotThrow(() -> bank.setIncomingInterest(0.5));
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", new Payment("04.01.2020", 100, "AC1 - Payment3")));
+        assertEquals(70, bank.getAccountBalance("Account1"), 0.001);
+
+        assertDoesNotThrow(() -> bank.reprice(0.2, 0.1));
+        assertEquals(80 - 110 + 50 + 80, bank.getAccountBalance("Account1"), 0.001);
+        assertEquals(10000, bank.getAccountBalanceMinor("Account1"));
+        assertEquals(210, bank.getAccountBalanceByType("Account1", true), 0.001);
+        assertEquals(-110, bank.getAccountBalanceByType("Account1", false), 0.001);
+        assertEquals(-110, bank.getTransactionsSorted("Account1", true).get(0).calculate(), 0.001);
+        for (Transaction transaction : bank.getTransactionsByType("Account1", true))
+            assertTrue(transaction.calculate() >= 0);
+        assertEquals(0.2, bank.getIncomingInterest());
+        assertThrows(TransactionAttributeException.class, () -> bank.reprice(1.5, 0.1));
+        // geaenderte Zahlungen werden weiterhin gefunden
+        assertDoesNotThrow(() -> bank.removeTransaction("Account1",
+                new Payment("01.01.2020", 100, "AC1 - Payment1", 0.2, 0.1)));
+        assertEquals(20, bank.getAccountBalance("Account1"), 0.001);
+    }
+
+    @Test
+    public void testRepriceKeepsPaymentsOfDifferentVersions() {
+        assertDoesNotThrow(() -> bank.setIncomingInterest(0.5));
+        assertDoesNotThrow(() -> bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1")));
+        assertDoesNotThrow(() -> bank.reprice(0.3, 0.3));
+
+        // beide Zahlungen haben jetzt dieselben Zinssaetze, bleiben aber ueber ihre Version verschieden
+        List<Transaction> transactions = bank.getTransactions("Account1");
+        assertEquals(4, transactions.size());
+        assertEquals(((Payment) transactions.get(0)).getIncomingInterest(),
+                ((Payment) transactions.get(3)).getIncomingInterest());
+        assertNotEquals(transactions.get(0), transactions.get(3));
+        assertEquals(70 - 130 + 50 + 70, bank.getAccountBalance("Account1"), 0.001);
+        // die aktuelle Version bleibt aktuell, eine erneute Buchung ist daher doppelt
+        assertThrows(TransactionAlreadyExistException.class,
+                () -> bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1")));
+        bank.close();
+
+        PrivateBank reopened = new PrivateBank("Ratebank", 0.1, 0.2, DIRECTORY);
+        assertEquals(4, reopened.getTransactions("Account1").size());
+        assertEquals(70 - 130 + 50 + 70, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testRepriceKeepsBinaryPaymentsOfDifferentVersions() {
+        bank.close();
+        String binary = DIRECTORY + "/binary";
+        PrivateBank bin = new PrivateBank("Ratebank", 0.1, 0.2, binary, AccountFileFormat.BINARY);
+        assertDoesNotThrow(() -> bin.createAccount("Account1", List.of(new Payment("01.01.2020", 100, "AC1 - Payment1"))));
+        assertDoesNotThrow(() -> bin.setIncomingInterest(0.5));
+        assertDoesNotThrow(() -> bin.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1")));
+        assertDoesNotThrow(() -> bin.reprice(0.3, 0.3));
+        bin.close();
+
+        // das Binaerformat speichert die Zinssaetze und zusaetzlich die Version jeder Zahlung
+        PrivateBank reopened = new PrivateBank("Ratebank", 0.05, 0.05, binary, AccountFileFormat.BINARY);
+        List<Transaction> transactions = reopened.getTransactions("Account1");
+        assertEquals(2, transactions.size());
+        assertNotEquals(transactions.get(0), transactions.get(1));
+        assertEquals(140, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testSetInterestAddsOneVersion() {
+        assertDoesNotThrow(() -> bank.setInterest(0.3, 0.4));
+        assertEquals(2, BankFileHandler.readRates(DIRECTORY).size());
+        assertEquals(0.3, bank.getIncomingInterest());
+        assertEquals(0.4, bank.getOutgoingInterest());
+        assertThrows(TransactionAttributeException.class, () -> bank.setInterest(0.3, 1.5));
+        assertEquals(0.4, bank.getOutgoingInterest());
+
+        // zurueck zu bekannten Zinssaetzen legt keine Version an, die einzelnen Setter dagegen zwei
+        assertDoesNotThrow(() -> bank.setInterest(0.1, 0.2));
+        assertEquals(2, BankFileHandler.readRates(DIRECTORY).size());
+        assertDoesNotThrow(() -> bank.setIncomingInterest(0.5));
+        assertDoesNotThrow(() -> bank.setOutgoingInterest(0.5));
+        assertEquals(4, BankFileHandler.readRates(DIRECTORY).size());
+    }
+
+    @Test
+    public void testRepriceIsPersistedWithoutRewrite() {
+        long modified = assertDoesNotThrow(() ->
+                Files.getLastModifiedTime(Paths.get(DIRECTORY, "Account1.json")).toMillis());
+        assertDoesNotThrow(() -> bank.reprice(0.3, 0.3));
+        assertEquals(modified, assertDoesNotThrow(() ->
+                Files.getLastModifiedTime(Paths.get(DIRECTORY, "Account1.json")).toMillis()));
+        bank.close();
+
+        PrivateBank reopened = new PrivateBank("Ratebank", 0.05, 0.05, DIRECTORY);
+        assertEquals(70 - 130 + 50, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testRepriceWithLazyLoading() {
+        bank.close();
+        PrivateBank lazy = new PrivateBank("Ratebank", 0.1, 0.2, new FileAccountStorage(DIRECTORY), 1);
+        assertEquals(90 - 120 + 50, lazy.getAccountBalance("Account1"), 0.001);
+        assertDoesNotThrow(() -> lazy.createAccount("Account2"));
+        assertDoesNotThrow(() -> lazy.addTransaction("Account2", new Payment("01.01.2020", 100, "AC2 - Payment1")));
+        assertEquals(1, lazy.getLoadedAccountCount());
+
+        assertDoesNotThrow(() -> lazy.reprice(0.3, 0.3));
+        // Account1 ist nicht mehr geladen, der bekannte Kontostand darf nicht verwendet werden
+        assertEquals(70 - 130 + 50, lazy.getAccountBalance("Account1"), 0.001);
+        assertEquals(70, lazy.getAccountBalance("Account2"), 0.001);
+        lazy.close();
+    }
+
+    @Test
+    public void testRepriceRewritesBinaryAccounts() {
+        bank.close();
+        String binary = DIRECTORY + "/binary";
+        PrivateBank bin = new PrivateBank("Ratebank", 0.1, 0.2, binary, AccountFileFormat.BINARY);
+        assertDoesNotThrow(() -> bin.createAccount("Account1", List.of(new Payment("01.01.2020", 100, "AC1 - Payment1"))));
+        assertDoesNotThrow(() -> bin.reprice(0.2, 0.1));
+        bin.close();
+
+        PrivateBank reopened = new PrivateBank("Ratebank", 0.05, 0.05, binary, AccountFileFormat.BINARY);
+        assertEquals(80, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testLegacyPaymentsAreLinked() {
+        bank.close();
+        String legacy = DIRECTORY + "/legacy";
+        assertTrue(BankFileHandler.writeAccount(legacy, "Account1",
+                List.of(new Payment("01.01.2020", 100, "AC1 - Payment1", 0.3, 0.3))));
+
+        PrivateBank linked = new PrivateBank("Ratebank", 0.1, 0.2, legacy);
+        assertEquals(70, linked.getAccountBalance("Account1"), 0.001);
+        assertEquals(2, BankFileHandler.readRates(legacy).size());
+        // die Datei wurde beim Laden mit der Version der Zinssaetze neu geschrieben
+        String json = assertDoesNotThrow(() -> Files.readString(Paths.get(legacy, "Account1.json")));
+        assertTrue(json.contains("\"rateVersion\": 1"));
+        assertDoesNotThrow(() -> linked.reprice(0.2, 0.1));
+        assertEquals(80, linked.getAccountBalance("Account1"), 0.001);
+        linked.close();
+
+        PrivateBank reopened = new PrivateBank("Ratebank", 0.1, 0.2, legacy);
+        assertEquals(80, reopened.getAccountBalance("Account1"), 0.001);
+        reopened.close();
+    }
+}
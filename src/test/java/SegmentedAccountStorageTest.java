@@ -0,0 +1,235 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link SegmentedAccountStorage}
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public class SegmentedAccountStorageTest {
+
+    private static final String DIRECTORY = "src/test/resources/segmenttest";
+    private static final Path DATA = Paths.get(DIRECTORY, "accounts.seg");
+    private static final Path INDEX = Paths.get(DIRECTORY, "accounts.idx");
+    private PrivateBank bank;
+
+    @BeforeEach
+    public void init() {
+        try {
+            bank = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+
+            bank.createAccount("Account1");
+            bank.addTransaction("Account1", new Payment("01.01.2020", 100, "AC1 - Payment1"));
+            bank.addTransaction("Account1", new IncomingTransfer("02.01.2020", 100, "AC1 - IncomingTransfer1", "abc", "xyz"));
+            bank.addTransaction("Account1", new OutgoingTransfer("03.01.2020", 50, "AC1 - OutgoingTransfer1"));
+
+            bank.createAccount("Account2");
+            bank.addTransaction("Account2", new Payment("01.01.2020", -100, "AC2 - Payment2"));
+        } catch (Exception e) {
+            fail("Konstruktor wirft Exception!", e);
+        }
+    }
+
+    @AfterEach
+    public void removeFiles() {
+        bank.close();
+        try {
+            Files.walk(Paths.get(DIRECTORY))
+                    .sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        } catch (Exception e) {
+            fail("Konnte Dateien nicht löschen!", e);
+        }
+        bank = null;
+    }
+
+    private PrivateBank reopen() {
+        bank.close();
+        return new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+    }
+
+    @Test
+    public void testOnlyOneFileIsWritten() {
+        assertTrue(Files.exists(DATA));
+        assertFalse(Files.exists(Paths.get(DIRECTORY, "Account1.json")));
+        assertFalse(Files.exists(Paths.get(DIRECTORY, "Account1.bin")));
+    }
+
+    @Test
+    public void testReopenWithIndex() {
+        PrivateBank reopened = reopen();
+        assertTrue(Files.exists(INDEX));
+        assertEquals(bank, reopened);
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        assertEquals(140, reopened.getAccountBalance("Account1"), 0.001);
+        assertEquals(-110, reopened.getAccountBalance("Account2"), 0.001);
+        reopened.close();
+    }
+
+    @Test
+    public void testReopenWithoutIndex() {
+        bank.close();
+        assertDoesNotThrow(() -> Files.delete(INDEX));
+        PrivateBank reopened = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        assertEquals(bank, reopened);
+        reopened.close();
+    }
+
+    @Test
+    public void testChangesAfterIndexAreScanned() {
+        PrivateBank reopened = reopen();
+        assertDoesNotThrow(() -> reopened.addTransaction("Account2", new Payment("04.01.2020", 10, "AC2 - Payment3")));
+        assertDoesNotThrow(() -> reopened.deleteAccount("Account1"));
+        // ohne close(), der Index deckt die neuen Segmente nicht ab
+
+        PrivateBank again = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        assertEquals(List.of("Account2"), again.getAllAccounts());
+        assertEquals(2, again.getTransactions("Account2").size());
+        again.close();
+        reopened.close();
+    }
+
+    @Test
+    public void testLazyLoading() {
+        bank.close();
+        PrivateBank lazy = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY), 1);
+        assertEquals(0, lazy.getLoadedAccountCount());
+        assertEquals(3, lazy.getTransactions("Account1").size());
+        assertEquals(1, lazy.getTransactions("Account2").size());
+        assertEquals(1, lazy.getLoadedAccountCount());
+        assertEquals(140, lazy.getAccountBalance("Account1"), 0.001);
+        lazy.close();
+    }
+
+    @Test
+    public void testDamagedLastSegmentIsIgnored() {
+        bank.close();
+        long size = assertDoesNotThrow(() -> Files.size(DATA));
+        assertDoesNotThrow(() -> Files.delete(INDEX));
+        // letztes Byte der Pruefsumme veraendern
+        flipByte(size - 1);
+
+        PrivateBank reopened = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        // das letzte Segment (Account2 mit Payment2) ist verloren, das vorherige noch gueltig
+        assertEquals(0, reopened.getTransactions("Account2").size());
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        assertTrue(assertDoesNotThrow(() -> Files.size(DATA)) < size);
+        assertDoesNotThrow(() -> reopened.addTransaction("Account2", new Payment("04.01.2020", 10, "AC2 - Payment3")));
+        reopened.close();
+
+        PrivateBank again = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        assertEquals(1, again.getTransactions("Account2").size());
+        again.close();
+    }
+
+    @Test
+    public void testIncompleteLastSegmentIsIgnored() {
+        bank.close();
+        long size = assertDoesNotThrow(() -> Files.size(DATA));
+        assertDoesNotThrow(() -> Files.write(DATA, new byte[]{1, 0, 0, 0, 8, 'A', 'c'}, StandardOpenOption.APPEND));
+
+        PrivateBank reopened = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        assertEquals(bank, reopened);
+        assertEquals(size, (long) assertDoesNotThrow(() -> Files.size(DATA)));
+        reopened.close();
+    }
+
+    @Test
+    public void testDamagedSegmentInTheMiddleFailsOpen() {
+        bank.close();
+        assertDoesNotThrow(() -> Files.delete(INDEX));
+        // letztes Byte der Pruefsumme des ersten Segments (Account1 ohne Transaktionen) veraendern
+        ByteBuffer first = ByteBuffer.wrap(assertDoesNotThrow(() -> Files.readAllBytes(DATA)));
+        int nameLength = first.getInt(6);
+        int payloadLength = first.getInt(10 + nameLength);
+        flipByte(5 + 13 + nameLength + payloadLength - 1);
+        byte[] damaged = assertDoesNotThrow(() -> Files.readAllBytes(DATA));
+
+        assertThrows(IllegalStateException.class, () -> new SegmentedAccountStorage(DIRECTORY));
+        assertThrows(IllegalStateException.class,
+                () -> new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY)));
+        // die gueltigen Segmente dahinter wurden nicht abgeschnitten
+        assertArrayEquals(damaged, assertDoesNotThrow(() -> Files.readAllBytes(DATA)));
+    }
+
+    @Test
+    public void testDamagedSegmentIsNotReplaced() {
+        bank.close();
+        // mit Index wird das letzte Segment (Account2) beim Oeffnen nicht geprueft, erst beim Lesen
+        long size = assertDoesNotThrow(() -> Files.size(DATA));
+        flipByte(size - 1);
+        byte[] damaged = assertDoesNotThrow(() -> Files.readAllBytes(DATA));
+
+        // ohne und mit verzoegertem Laden wird nur das beschaedigte Konto abgelehnt
+        for (long maxLoadedTransactions : new long[] {0, 10}) {
+            PrivateBank reopened = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY),
+                    maxLoadedTransactions);
+            assertThrows(IllegalStateException.class, () -> reopened.getTransactions("Account2"));
+            assertThrows(IllegalStateException.class,
+                    () -> reopened.addTransaction("Account2", new Payment("04.01.2020", 10, "AC2 - Payment3")));
+            // das Konto ist nach dem Fehler nicht gesperrt geblieben und die anderen Konten sind lesbar
+            assertThrows(IllegalStateException.class, () -> reopened.getAccountBalance("Account2"));
+            assertEquals(3, reopened.getTransactions("Account1").size());
+            reopened.close();
+            assertArrayEquals(damaged, java.util.Arrays.copyOf(
+                    assertDoesNotThrow(() -> Files.readAllBytes(DATA)), damaged.length));
+        }
+    }
+
+    private static void flipByte(long position) {
+        assertDoesNotThrow(() -> {
+            byte[] bytes = Files.readAllBytes(DATA);
+            bytes[(int) position] ^= 1;
+            Files.write(DATA, bytes);
+        });
+    }
+
+    @Test
+    public void testCompaction() {
+        bank.close();
+        SegmentedAccountStorage storage = new SegmentedAccountStorage(DIRECTORY, 0);
+        PrivateBank compacting = new PrivateBank("Segmentbank", 0.1, 0.1, storage);
+        for (int i = 0; i < 50; i++) {
+            Payment payment = new Payment("04.01.2020", i, "AC2 - Payment" + (i + 3));
+            assertDoesNotThrow(() -> compacting.addTransaction("Account2", payment));
+        }
+        assertTrue(storage.getGarbageBytes() <= storage.getDataSize() - storage.getGarbageBytes());
+        assertTrue(storage.getDataSize() < 8 * 1024);
+        compacting.close();
+
+        PrivateBank reopened = new PrivateBank("Segmentbank", 0.1, 0.1, new SegmentedAccountStorage(DIRECTORY));
+        assertEquals(compacting, reopened);
+        assertEquals(51, reopened.getTransactions("Account2").size());
+        assertEquals(3, reopened.getTransactions("Account1").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testImportOfAccountFiles() {
+        bank.close();
+        PrivateBank files = new PrivateBank("Segmentbank", 0.1, 0.1, DIRECTORY + "/legacy");
+        assertDoesNotThrow(() -> files.createAccount("Account3", List.of(
+                new Payment("01.01.2020", 100, "AC3 - Payment1"),
+                new Transfer("02.01.2020", 50, "AC3 - Transfer1", "Account3", "abc"))));
+        files.close();
+
+        PrivateBank segmented = new PrivateBank("Segmentbank", 0.1, 0.1,
+                new SegmentedAccountStorage(DIRECTORY + "/legacy"));
+        assertEquals(files, segmented);
+        assertEquals(2, segmented.getTransactions("Account3").size());
+        assertTrue(Files.exists(Paths.get(DIRECTORY, "legacy", "accounts.seg")));
+        segmented.close();
+    }
+}
@@ -1,13 +1,15 @@
 import bank.IncomingTransfer;
+import bank.Money;
 import bank.OutgoingTransfer;
 import bank.Transfer;
+import bank.exceptions.TransactionAttributeException;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testet die Klasse {@link bank.Transfer}
  * @author Tobias Schnuerpel
- * @version 4.0
+ * @version 4.1
  */
 public class TransferTest {
 
@@ -27,6 +29,17 @@ public class TransferTest {
         assertEquals("Recipient", t1.getRecipient());
     }
 
+    @Test
+    public void testInvalidAmount() {
+        for (double invalid : new double[] {0, -1, Double.NaN, Double.POSITIVE_INFINITY, Money.MAX_AMOUNT,
+                Math.nextUp(Money.MAX_AMOUNT)}) {
+            assertThrows(TransactionAttributeException.class,
+                    () -> new OutgoingTransfer("01.01.2020", invalid, "Test", "Sender", "Recipient"));
+            assertThrows(TransactionAttributeException.class, () -> t1.setAmount(invalid));
+        }
+        assertEquals(100, t1.getAmount());
+    }
+
     @Test
     public void testCopyConstructor() {
         Transfer t2 = new Transfer(t1);
@@ -43,6 +56,14 @@ public class TransferTest {
         assertNotEquals(t1, t2);
     }
 
+    @Test
+    public void testHashCode() {
+        Transfer t2 = new Transfer("01.01.2020", 100, "Test", "Sender", "Recipient");
+        assertEquals(t1.hashCode(), t2.hashCode());
+        t2.setRecipient("Anderer");
+        assertNotEquals(t1.hashCode(), t2.hashCode());
+    }
+
     @Test
     public void testCalculate() {
         IncomingTransfer incoming = new IncomingTransfer(t1);
@@ -0,0 +1,150 @@
+import bank.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testet die Klasse {@link WriteBehindAccountStorage}
+ * @author Tobias Schnuerpel
+ * @version 1.2
+ */
+public class WriteBehindAccountStorageTest {
+
+    private static final String DIRECTORY = "src/test/resources/writebehindtest";
+    private AtomicInteger writes;
+    private FileAccountStorage files;
+
+    @BeforeEach
+    public void init() {
+        writes = new AtomicInteger();
+        files = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public boolean writeAccount(String account, Collection<Transaction> transactions) {
+                writes.incrementAndGet();
+                return super.writeAccount(account, transactions);
+            }
+        };
+    }
+
+    @AfterEach
+    public void removeFiles() throws Exception {
+        if (!Files.exists(Paths.get(DIRECTORY)))
+            return;
+        try (var paths = Files.walk(Paths.get(DIRECTORY))) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testChangesAreCoalesced() {
+        WriteBehindAccountStorage storage = new WriteBehindAccountStorage(files, 60_000, 100);
+        PrivateBank bank = new PrivateBank("Testbank", 0.1, 0.1, storage);
+        assertDoesNotThrow(() -> bank.createAccount("Account1"));
+        for (int i = 0; i < 20; i++) {
+            int day = i + 1;
+            assertDoesNotThrow(() -> bank.addTransaction("Account1",
+                    new Payment(String.format("%02d.01.2020", day), 10, "AC1 - Payment" + day)));
+        }
+        assertEquals(0, writes.get());
+        assertEquals(1, storage.getDirtyCount());
+        assertEquals(20, storage.getCoalescedChanges());
+        assertFalse(Files.exists(Paths.get(DIRECTORY, "Account1.json")));
+
+        assertTrue(bank.flush());
+        assertEquals(1, writes.get());
+        assertEquals(0, storage.getDirtyCount());
+        assertEquals(1, storage.getFlushedWrites());
+        assertEquals(20, new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY).getTransactions("Account1").size());
+        bank.close();
+    }
+
+    @Test
+    public void testBackgroundFlushAfterMaxLatency() {
+        WriteBehindAccountStorage storage = new WriteBehindAccountStorage(files, 50, 100);
+        PrivateBank bank = new PrivateBank("Testbank", 0.1, 0.1, storage);
+        // der Hintergrund-Thread wartet bereits, bevor das erste Konto geändert wird
+        assertDoesNotThrow(() -> Thread.sleep(100));
+        assertDoesNotThrow(() -> bank.createAccount("Account1", List.of(new Payment("01.01.2020", 10, "AC1"))));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (storage.getFlushedWrites() == 0 && System.currentTimeMillis() < deadline)
+            assertDoesNotThrow(() -> Thread.sleep(10));
+        assertEquals(1, storage.getFlushedWrites());
+        assertTrue(storage.getLastFlushLagMillis() >= 50);
+        assertTrue(storage.getMaxFlushLagMillis() >= storage.getLastFlushLagMillis());
+        assertEquals(0, storage.getOldestDirtyAgeMillis());
+        assertTrue(Files.exists(Paths.get(DIRECTORY, "Account1.json")));
+        bank.close();
+    }
+
+    @Test
+    public void testMaxDirtyAccounts() {
+        WriteBehindAccountStorage storage = new WriteBehindAccountStorage(files, 60_000, 2);
+        PrivateBank bank = new PrivateBank("Testbank", 0.1, 0.1, storage);
+        for (int i = 0; i < 10; i++) {
+            String account = "Account" + i;
+            assertDoesNotThrow(() -> bank.createAccount(account));
+            assertTrue(storage.getDirtyCount() <= 2);
+        }
+        bank.close();
+        assertEquals(10, writes.get());
+        assertEquals(10, new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY).getAllAccounts().size());
+    }
+
+    @Test
+    public void testFailedWriteStaysOldest() {
+        boolean[] fail = {true};
+        WriteBehindAccountStorage[] storage = new WriteBehindAccountStorage[1];
+        FileAccountStorage failing = new FileAccountStorage(DIRECTORY) {
+            @Override
+            public boolean writeAccount(String account, Collection<Transaction> transactions) {
+                if (!fail[0] || !account.equals("Account1"))
+                    return super.writeAccount(account, transactions);
+                // waehrend des fehlgeschlagenen Schreibens werden beide Konten erneut geaendert
+                storage[0].writeAccount("Account2", List.of(new Payment("01.01.2020", 20, "AC2")));
+                storage[0].writeAccount("Account1", List.of(new Payment("02.01.2020", 10, "AC1")));
+                return false;
+            }
+        };
+        storage[0] = new WriteBehindAccountStorage(failing, 60_000, 100);
+        assertTrue(storage[0].writeAccount("Account1", List.of(new Payment("01.01.2020", 10, "AC1"))));
+        assertDoesNotThrow(() -> Thread.sleep(50));
+
+        assertFalse(storage[0].flush());
+        assertEquals(1, storage[0].getFailedWrites());
+        assertEquals(2, storage[0].getDirtyCount());
+        // Account1 steht mit seiner aelteren Aenderung wieder vorne, aber mit dem neueren Stand
+        assertTrue(storage[0].getOldestDirtyAgeMillis() >= 50);
+        assertEquals(List.of(new Payment("02.01.2020", 10, "AC1")), storage[0].readAccount("Account1"));
+
+        fail[0] = false;
+        assertTrue(storage[0].flush());
+        assertEquals(0, storage[0].getDirtyCount());
+        assertEquals(List.of(new Payment("02.01.2020", 10, "AC1")), files.readAccount("Account1"));
+        storage[0].close();
+    }
+
+    @Test
+    public void testDeleteAndLazyLoading() {
+        WriteBehindAccountStorage storage = new WriteBehindAccountStorage(files, 60_000, 100);
+        PrivateBank bank = new PrivateBank("Testbank", 0.1, 0.1, storage, 1);
+        assertDoesNotThrow(() -> bank.createAccount("Account1", List.of(new Payment("01.01.2020", 10, "AC1"))));
+        assertDoesNotThrow(() -> bank.createAccount("Account2", List.of(new Payment("01.01.2020", 20, "AC2"))));
+        // Account1 wurde verworfen und wird aus dem noch nicht geschriebenen Stand geladen
+        assertEquals(List.of(new Payment("01.01.2020", 10, "AC1", 0.1, 0.1)), bank.getTransactions("Account1"));
+        assertEquals(0, writes.get());
+
+        assertDoesNotThrow(() -> bank.deleteAccount("Account2"));
+        bank.close();
+        assertEquals(List.of("Account1"), new PrivateBank("Testbank", 0.1, 0.1, DIRECTORY).getAllAccounts());
+        assertFalse(storage.writeAccount("Account3", List.of()));
+    }
+}